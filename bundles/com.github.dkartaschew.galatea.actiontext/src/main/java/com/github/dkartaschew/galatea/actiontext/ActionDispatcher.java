@@ -0,0 +1,289 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.actiontext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Resolves keys to values for many {@link ActionText} fields, coalescing the requests made within a short window into
+ * batched calls of a backend.
+ * <p>
+ * The first request of a batch schedules the batch to be sent once the window has passed, and a batch reaching the
+ * maximum size is sent straight away. Requests for a key already queued or being resolved share the one result. To
+ * fill a whole form in a single call, make the requests within {@link #batch(Runnable)}.
+ * </p>
+ * <p>
+ * The dispatcher may be used from any thread.
+ * </p>
+ *
+ * @param <K> The type of key.
+ */
+public class ActionDispatcher<K> {
+
+	/**
+	 * The default window over which requests are coalesced (msec).
+	 */
+	public final static long DEFAULT_WINDOW = 10;
+	/**
+	 * The default maximum number of keys in a batch.
+	 */
+	public final static int DEFAULT_BATCH_SIZE = 500;
+
+	/**
+	 * The backend, resolving a batch of keys to their values.
+	 */
+	private final Function<List<K>, Map<K, String>> backend;
+	/**
+	 * The executor to schedule and send batches on.
+	 */
+	private final ScheduledExecutorService executor;
+	/**
+	 * The window over which requests are coalesced (msec).
+	 */
+	private final long window;
+	/**
+	 * The maximum number of keys in a batch.
+	 */
+	private final int batchSize;
+
+	/**
+	 * The requests of the batch being collected.
+	 */
+	private Map<K, CompletableFuture<String>> queued = new LinkedHashMap<>();
+	/**
+	 * The requests queued or being resolved.
+	 */
+	private final Map<K, CompletableFuture<String>> inFlight = new HashMap<>();
+	/**
+	 * The depth of {@link #batch(Runnable)} calls, batches only being sent when 0.
+	 */
+	private int holds;
+	/**
+	 * Flag to indicate the batch being collected has been scheduled.
+	 */
+	private boolean scheduled;
+	/**
+	 * The number of requests.
+	 */
+	private long requests;
+	/**
+	 * The number of requests sharing the result of another request.
+	 */
+	private long shared;
+	/**
+	 * The number of batches sent.
+	 */
+	private long batches;
+
+	/**
+	 * Create a new dispatcher, with the default window and batch size.
+	 *
+	 * @param backend The backend, resolving a batch of keys to their values. Keys without a value resolve to NULL
+	 * @param executor The executor to schedule and send batches on.
+	 */
+	public ActionDispatcher(Function<List<K>, Map<K, String>> backend, ScheduledExecutorService executor) {
+		this(backend, executor, DEFAULT_WINDOW, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Create a new dispatcher.
+	 *
+	 * @param backend The backend, resolving a batch of keys to their values. Keys without a value resolve to NULL
+	 * @param executor The executor to schedule and send batches on
+	 * @param window The window over which requests are coalesced (msec)
+	 * @param batchSize The maximum number of keys in a batch.
+	 */
+	public ActionDispatcher(Function<List<K>, Map<K, String>> backend, ScheduledExecutorService executor,
+			long window, int batchSize) {
+		if (backend == null || executor == null) {
+			throw new IllegalArgumentException("Backend and executor must not be null");
+		}
+		if (window < 0 || batchSize < 1) {
+			throw new IllegalArgumentException("Window must not be negative, and batch size must be positive");
+		}
+		this.backend = backend;
+		this.executor = executor;
+		this.window = window;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Request the value of a key.
+	 *
+	 * @param key The key.
+	 * @return The future value, which may be NULL if the backend has no value for the key. Cancelling the future only
+	 *         discards this request's view of the result.
+	 */
+	public CompletableFuture<String> resolve(K key) {
+		CompletableFuture<String> future;
+		synchronized (this) {
+			requests++;
+			future = inFlight.get(key);
+			if (future != null) {
+				shared++;
+			} else {
+				future = new CompletableFuture<>();
+				inFlight.put(key, future);
+				queued.put(key, future);
+				if (queued.size() >= batchSize) {
+					send();
+				} else if (holds == 0 && !scheduled) {
+					schedule();
+				}
+			}
+		}
+		// Each request gets its own view, so cancelling one does not cancel the shared result.
+		return future.thenApply(Function.identity());
+	}
+
+	/**
+	 * Make a set of requests, sending them in as few batches as the batch size allows once all have been made.
+	 *
+	 * @param requests The requests to make, eg starting the actions of every field of a form.
+	 */
+	public void batch(Runnable requests) {
+		synchronized (this) {
+			holds++;
+		}
+		try {
+			requests.run();
+		} finally {
+			synchronized (this) {
+				holds--;
+				if (holds == 0 && !queued.isEmpty()) {
+					send();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Schedule the batch being collected to be sent once the window has passed.
+	 */
+	private void schedule() {
+		final Map<K, CompletableFuture<String>> batch = queued;
+		scheduled = true;
+		try {
+			executor.schedule(() -> {
+				synchronized (this) {
+					// The batch may already have been sent on reaching the batch size.
+					if (queued == batch && holds == 0) {
+						send();
+					}
+				}
+			}, window, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			scheduled = false;
+			fail(queued, e);
+			queued = new LinkedHashMap<>();
+		}
+	}
+
+	/**
+	 * Send the batch being collected.
+	 */
+	private void send() {
+		final Map<K, CompletableFuture<String>> batch = queued;
+		queued = new LinkedHashMap<>();
+		scheduled = false;
+		batches++;
+		try {
+			executor.execute(() -> resolveBatch(batch));
+		} catch (RejectedExecutionException e) {
+			fail(batch, e);
+		}
+	}
+
+	/**
+	 * Resolve a batch with the backend, completing its requests.
+	 *
+	 * @param batch The requests of the batch.
+	 */
+	private void resolveBatch(Map<K, CompletableFuture<String>> batch) {
+		Map<K, String> values;
+		try {
+			values = backend.apply(new ArrayList<>(batch.keySet()));
+		} catch (Throwable t) {
+			fail(batch, t);
+			return;
+		}
+		release(batch);
+		for (Map.Entry<K, CompletableFuture<String>> entry : batch.entrySet()) {
+			entry.getValue().complete(values != null ? values.get(entry.getKey()) : null);
+		}
+	}
+
+	/**
+	 * Fail the requests of a batch.
+	 *
+	 * @param batch The requests of the batch
+	 * @param cause The cause of the failure.
+	 */
+	private void fail(Map<K, CompletableFuture<String>> batch, Throwable cause) {
+		release(batch);
+		for (CompletableFuture<String> future : batch.values()) {
+			future.completeExceptionally(cause);
+		}
+	}
+
+	/**
+	 * Remove the requests of a batch from those in flight, so later requests for the keys are resolved again.
+	 *
+	 * @param batch The requests of the batch.
+	 */
+	private synchronized void release(Map<K, CompletableFuture<String>> batch) {
+		for (Map.Entry<K, CompletableFuture<String>> entry : batch.entrySet()) {
+			inFlight.remove(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Get the number of requests made.
+	 *
+	 * @return The number of requests.
+	 */
+	public synchronized long getRequestCount() {
+		return requests;
+	}
+
+	/**
+	 * Get the number of requests which shared the result of a request already in flight.
+	 *
+	 * @return The number of shared requests.
+	 */
+	public synchronized long getSharedCount() {
+		return shared;
+	}
+
+	/**
+	 * Get the number of batches sent to the backend.
+	 *
+	 * @return The number of batches.
+	 */
+	public synchronized long getBatchCount() {
+		return batches;
+	}
+}
@@ -17,12 +17,18 @@
 package com.github.dkartaschew.galatea.actiontext;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
 
 import org.eclipse.jface.layout.GridDataFactory;
 import org.eclipse.jface.layout.GridLayoutFactory;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.SWTException;
-import org.eclipse.swt.events.ControlListener;
 import org.eclipse.swt.events.DragDetectListener;
 import org.eclipse.swt.events.FocusListener;
 import org.eclipse.swt.events.GestureListener;
@@ -40,25 +46,44 @@ import org.eclipse.swt.events.SegmentListener;
 import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.events.SelectionListener;
 import org.eclipse.swt.events.TouchListener;
+import org.eclipse.swt.events.TraverseListener;
 import org.eclipse.swt.events.VerifyListener;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.Cursor;
 import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.graphics.GC;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Menu;
 import org.eclipse.swt.widgets.Text;
 import org.eclipse.swt.widgets.ToolBar;
 import org.eclipse.swt.widgets.ToolItem;
+import org.eclipse.swt.widgets.TypedListener;
 
 /**
  * A Text field with an action button to execute a task
+ * <p>
+ * The action is either run synchronously on the UI thread, or asynchronously on an executor. While an asynchronous
+ * action runs, the button shows a busy indicator, and a second click of the button or Esc in the text field cancels
+ * it.
+ * </p>
  */
 public class ActionText extends Composite {
 
+	/**
+	 * The interval between frames of the busy indicator (msec).
+	 */
+	private final static int BUSY_INTERVAL = 100;
+	/**
+	 * The number of frames of the busy indicator.
+	 */
+	private final static int BUSY_FRAMES = 8;
+
 	/**
 	 * The text field to set.
 	 */
@@ -69,9 +94,45 @@ public class ActionText extends Composite {
 	 */
 	private final ToolItem actionButton;
 	/**
-	 * The action to evoke,
+	 * The action to evoke, or NULL if asynchronous.
 	 */
 	private final Callable<String> action;
+	/**
+	 * The asynchronous action to evoke, returning the future result, or NULL if synchronous.
+	 */
+	private final Supplier<CompletableFuture<String>> asyncAction;
+	/**
+	 * The Image for the button.
+	 */
+	private final Image image;
+	/**
+	 * The frames of the busy indicator, created on first use.
+	 */
+	private Image[] busyFrames;
+	/**
+	 * The frame of the busy indicator shown.
+	 */
+	private int busyFrame;
+	/**
+	 * Runnable to advance the busy indicator.
+	 */
+	private final Runnable busyAnimation = this::animateBusy;
+	/**
+	 * The running asynchronous action, or NULL if none.
+	 */
+	private CompletableFuture<String> running;
+	/**
+	 * The proposal controller, created when a proposal provider is first set.
+	 */
+	private ProposalController proposals;
+	/**
+	 * The validation controller, created when a validator is first added.
+	 */
+	private ValidationController validation;
+	/**
+	 * The router of the events of the text field to the listeners of this control.
+	 */
+	private final EventRouter router;
 
 	/**
 	 * Create a new text field with associated action
@@ -82,19 +143,73 @@ public class ActionText extends Composite {
 	 * @param action The action to use to set the contents of the text field.
 	 */
 	public ActionText(Composite parent, int style, Image image, Callable<String> action) {
+		this(parent, style, image, action, null);
+	}
+
+	/**
+	 * Create a new text field with associated asynchronous action.
+	 * <p>
+	 * The action is run on the executor, and must not access any widgets. Once it completes, the result is delivered
+	 * on the UI thread as for a synchronous action. Cancelling the action interrupts the thread running it, and the
+	 * result of a cancelled action is discarded.
+	 * </p>
+	 * 
+	 * @param parent The parent
+	 * @param style The base style
+	 * @param image The Image for the button
+	 * @param action The action to use to set the contents of the text field
+	 * @param executor The executor to run the action on.
+	 */
+	public ActionText(Composite parent, int style, Image image, Supplier<String> action, Executor executor) {
+		this(parent, style, image, (Callable<String>) null, submit(action, executor));
+	}
+
+	/**
+	 * Create a new text field whose action resolves a key through a shared dispatcher.
+	 * <p>
+	 * The key is read on the UI thread when the action starts, and the dispatcher batches the requests of all fields
+	 * sharing it into as few backend calls as possible. The result is delivered on the UI thread as for a synchronous
+	 * action. A NULL key leaves the field unchanged.
+	 * </p>
+	 * 
+	 * @param <K> The type of key
+	 * @param parent The parent
+	 * @param style The base style
+	 * @param image The Image for the button
+	 * @param dispatcher The dispatcher to resolve the key with
+	 * @param key Supplier of the key to resolve, eg the ID entered in a related field.
+	 */
+	public <K> ActionText(Composite parent, int style, Image image, ActionDispatcher<K> dispatcher, Supplier<K> key) {
+		this(parent, style, image, (Callable<String>) null, resolve(dispatcher, key));
+	}
+
+	/**
+	 * Create a new text field with associated action
+	 * 
+	 * @param parent The parent
+	 * @param style The base style
+	 * @param image The Image for the button
+	 * @param action The synchronous action, or NULL
+	 * @param asyncAction The asynchronous action, or NULL.
+	 */
+	private ActionText(Composite parent, int style, Image image, Callable<String> action,
+			Supplier<CompletableFuture<String>> asyncAction) {
 		super(parent, SWT.BORDER);
 		if (image == null) {
 			SWT.error(SWT.ERROR_NULL_ARGUMENT);
 		}
-		if (action == null) {
+		if (action == null && asyncAction == null) {
 			SWT.error(SWT.ERROR_NULL_ARGUMENT);
 		}
 		this.action = action;
+		this.asyncAction = asyncAction;
+		this.image = image;
 
 		setLayout(GridLayoutFactory.fillDefaults().numColumns(2).spacing(0, 0).margins(0, 0).create());
 
 		textField = new Text(this, style | removeFields(style, SWT.BORDER));
 		textField.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).create());
+		router = new EventRouter(this, textField);
 
 		ToolBar toolbar = new ToolBar(this, SWT.NONE);
 		toolbar.setLayoutData(GridDataFactory.fillDefaults().create());
@@ -105,29 +220,460 @@ public class ActionText extends Composite {
 
 		// Add the button selection listener.
 		actionButton.addListener(SWT.Selection, e -> {
-			String result = null;
-			try {
-				result = this.action.call();
-			} catch (Throwable t) {
-				SWT.error(SWT.ERROR_FAILED_EXEC, t);
+			if (running != null) {
+				cancelAction();
+			} else {
+				runAction();
+			}
+		});
+
+		// Esc cancels a running action, rather than traversing.
+		textField.addListener(SWT.Traverse, e -> {
+			if (e.detail == SWT.TRAVERSE_ESCAPE && running != null) {
+				e.doit = false;
+			}
+		});
+		textField.addListener(SWT.KeyDown, e -> {
+			if (e.keyCode == SWT.ESC && running != null) {
+				cancelAction();
+				e.doit = false;
+			}
+		});
+
+		addDisposeListener(e -> {
+			if (running != null) {
+				running.cancel(true);
+				running = null;
 			}
-			if (result != null) {
-				// fire any modify listeners.
-				Event event = new Event();
-				event.doit = true;
-				event.widget = textField;
-				event.type = SWT.Modify;
-				event.text = result;
-				event.display = e.display;
-				event.gc = e.gc;
-				textField.notifyListeners(SWT.Modify, event);
-				// If all listeners are ok, then doit.
-				if (event.doit)
-					textField.setText(result);
+			if (busyFrames != null) {
+				for (Image frame : busyFrames) {
+					frame.dispose();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Set the result of the action as the contents of the text field, if all modify listeners allow it.
+	 * 
+	 * @param result The result of the action, or NULL if none.
+	 */
+	private void setResult(String result) {
+		if (result != null) {
+			// fire any modify listeners.
+			Event event = new Event();
+			event.doit = true;
+			event.widget = textField;
+			event.type = SWT.Modify;
+			event.text = result;
+			event.display = getDisplay();
+			textField.notifyListeners(SWT.Modify, event);
+			// If all listeners are ok, then doit.
+			if (event.doit)
+				textField.setText(result);
+		}
+	}
+
+	/**
+	 * Create an asynchronous action running an action on an executor.
+	 * 
+	 * @param action The action, or NULL
+	 * @param executor The executor, or NULL.
+	 * @return The asynchronous action, or NULL if either argument is NULL.
+	 */
+	private static Supplier<CompletableFuture<String>> submit(Supplier<String> action, Executor executor) {
+		if (action == null || executor == null) {
+			return null;
+		}
+		return () -> {
+			ActionTask task = new ActionTask(action);
+			executor.execute(task);
+			return task;
+		};
+	}
+
+	/**
+	 * Create an asynchronous action resolving a key through a dispatcher.
+	 * 
+	 * @param <K> The type of key
+	 * @param dispatcher The dispatcher, or NULL
+	 * @param key Supplier of the key, or NULL.
+	 * @return The asynchronous action, or NULL if either argument is NULL.
+	 */
+	private static <K> Supplier<CompletableFuture<String>> resolve(ActionDispatcher<K> dispatcher, Supplier<K> key) {
+		if (dispatcher == null || key == null) {
+			return null;
+		}
+		return () -> {
+			K k = key.get();
+			return k != null ? dispatcher.resolve(k) : CompletableFuture.completedFuture(null);
+		};
+	}
+
+	/**
+	 * Start the asynchronous action, showing the busy indicator.
+	 */
+	private void startAction() {
+		CompletableFuture<String> future = null;
+		try {
+			future = asyncAction.get();
+		} catch (Throwable t) {
+			SWT.error(SWT.ERROR_FAILED_EXEC, t);
+		}
+		final CompletableFuture<String> task = future;
+		final Display display = getDisplay();
+		running = task;
+		busyFrame = 0;
+		actionButton.setToolTipText("Cancel (Esc)");
+		animateBusy();
+		task.whenComplete((result, t) -> {
+			if (!display.isDisposed()) {
+				display.asyncExec(() -> completeAction(task));
 			}
 		});
 	}
 
+	/**
+	 * Deliver the result of a completed asynchronous action, unless it was cancelled or superseded.
+	 * 
+	 * @param task The completed action.
+	 */
+	private void completeAction(CompletableFuture<String> task) {
+		if (isDisposed() || task != running) {
+			return;
+		}
+		stopBusy();
+		String result = null;
+		try {
+			result = task.join();
+		} catch (CancellationException ex) {
+			return;
+		} catch (CompletionException ex) {
+			SWT.error(SWT.ERROR_FAILED_EXEC, ex.getCause());
+		}
+		setResult(result);
+	}
+
+	/**
+	 * Show the next frame of the busy indicator, while an action is running.
+	 */
+	private void animateBusy() {
+		if (isDisposed() || running == null) {
+			return;
+		}
+		if (busyFrames == null) {
+			busyFrames = createBusyFrames();
+		}
+		actionButton.setImage(busyFrames[busyFrame]);
+		busyFrame = (busyFrame + 1) % BUSY_FRAMES;
+		getDisplay().timerExec(BUSY_INTERVAL, busyAnimation);
+	}
+
+	/**
+	 * Stop the busy indicator, restoring the button.
+	 */
+	private void stopBusy() {
+		running = null;
+		getDisplay().timerExec(-1, busyAnimation);
+		actionButton.setImage(image);
+		actionButton.setToolTipText(null);
+	}
+
+	/**
+	 * Create the frames of the busy indicator, being a ring of dots the size of the button image with the darkest dot
+	 * moving around the ring.
+	 * 
+	 * @return The frames.
+	 */
+	private Image[] createBusyFrames() {
+		Rectangle bounds = image.getBounds();
+		int size = Math.min(bounds.width, bounds.height);
+		int dot = Math.max(2, size / 5);
+		double radius = (size - dot) / 2d;
+		Image[] frames = new Image[BUSY_FRAMES];
+		for (int i = 0; i < BUSY_FRAMES; i++) {
+			frames[i] = new Image(getDisplay(), bounds.width, bounds.height);
+			GC gc = new GC(frames[i]);
+			try {
+				gc.setAntialias(SWT.ON);
+				gc.setBackground(textField.getBackground());
+				gc.fillRectangle(0, 0, bounds.width, bounds.height);
+				gc.setBackground(getDisplay().getSystemColor(SWT.COLOR_WIDGET_DARK_SHADOW));
+				for (int j = 0; j < BUSY_FRAMES; j++) {
+					// Fade the dots trailing the head of the ring.
+					gc.setAlpha(255 - ((i - j + BUSY_FRAMES) % BUSY_FRAMES) * 200 / BUSY_FRAMES);
+					double angle = 2 * Math.PI * j / BUSY_FRAMES;
+					int x = (int) Math.round(bounds.width / 2d + radius * Math.sin(angle) - dot / 2d);
+					int y = (int) Math.round(bounds.height / 2d - radius * Math.cos(angle) - dot / 2d);
+					gc.fillOval(x, y, dot, dot);
+				}
+			} finally {
+				gc.dispose();
+			}
+		}
+		return frames;
+	}
+
+	/**
+	 * Set the provider of proposals shown in a popup below the field while typing.
+	 * <p>
+	 * Once typing pauses for the proposal delay, the provider is queried on the executor. Queries made stale by
+	 * further typing are cancelled, and the results of recent queries are cached. The proposals are navigated with the
+	 * arrow keys, and accepting a proposal sets the contents of the text field as for the result of the action. For
+	 * large sets of entries, see {@link SortedProposalIndex}.
+	 * </p>
+	 * 
+	 * @param provider The provider of proposals, or NULL to disable proposals
+	 * @param executor The executor to query the provider on.
+	 * @exception IllegalArgumentException
+	 *            <ul>
+	 *            <li>ERROR_NULL_ARGUMENT - if the provider is set and the executor is null</li>
+	 *            </ul>
+	 * @exception SWTException
+	 *            <ul>
+	 *            <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+	 *            <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+	 *            </ul>
+	 */
+	public void setProposalProvider(ProposalProvider provider, Executor executor) {
+		checkWidget();
+		if (provider != null && executor == null) {
+			SWT.error(SWT.ERROR_NULL_ARGUMENT);
+		}
+		if (proposals == null) {
+			if (provider == null) {
+				return;
+			}
+			proposals = new ProposalController(this, textField, this::setResult);
+		}
+		proposals.setProvider(provider, executor);
+	}
+
+	/**
+	 * Get the provider of proposals.
+	 * 
+	 * @return The provider of proposals, or NULL if none.
+	 * @exception SWTException
+	 *            <ul>
+	 *            <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+	 *            <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+	 *            </ul>
+	 */
+	public ProposalProvider getProposalProvider() {
+		checkWidget();
+		return proposals != null ? proposals.getProvider() : null;
+	}
+
+	/**
+	 * Set the delay after the last keystroke before proposals are queried. The default is 150 msec.
+	 * 
+	 * @param delay The delay (msec).
+	 * @exception SWTException
+	 *            <ul>
+	 *            <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+	 *            <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+	 *            </ul>
+	 */
+	public void setProposalDelay(int delay) {
+		checkWidget();
+		if (proposals == null) {
+			proposals = new ProposalController(this, textField, this::setResult);
+		}
+		proposals.setDelay(delay);
+	}
+
+	/**
+	 * Add a synchronous validator of the text.
+	 * <p>
+	 * Synchronous validators are run on every modification in the order added, and must be cheap. The first failure is
+	 * shown as an error decoration on the field, and later validators are not run.
+	 * </p>
+	 * 
+	 * @param validator The validator.
+	 * @exception IllegalArgumentException
+	 *            <ul>
+	 *            <li>ERROR_NULL_ARGUMENT - if the validator is null</li>
+	 *            </ul>
+	 * @exception SWTException
+	 *            <ul>
+	 *            <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+	 *            <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+	 *            </ul>
+	 */
+	public void addValidator(Validator validator) {
+		checkWidget();
+		if (validator == null) {
+			SWT.error(SWT.ERROR_NULL_ARGUMENT);
+		}
+		getValidation().add(validator);
+	}
+
+	/**
+	 * Add an asynchronous validator of the text, for expensive checks such as uniqueness or the existence of a path.
+	 * <p>
+	 * Once the synchronous validators pass and typing pauses for the validation delay, the asynchronous validators are
+	 * run in the order added on their executors, stopping on the first failure. Runs made stale by further typing are
+	 * cancelled, and the verdicts of recent values are cached, so returning to a value shows its verdict at once.
+	 * </p>
+	 * 
+	 * @param validator The validator
+	 * @param executor The executor to run the validator on.
+	 * @exception IllegalArgumentException
+	 *            <ul>
+	 *            <li>ERROR_NULL_ARGUMENT - if the validator or executor is null</li>
+	 *            </ul>
+	 * @exception SWTException
+	 *            <ul>
+	 *            <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+	 *            <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+	 *            </ul>
+	 */
+	public void addValidator(Validator validator, Executor executor) {
+		checkWidget();
+		if (validator == null || executor == null) {
+			SWT.error(SWT.ERROR_NULL_ARGUMENT);
+		}
+		getValidation().add(validator, executor);
+	}
+
+	/**
+	 * Remove a validator of the text.
+	 * 
+	 * @param validator The validator.
+	 * @exception SWTException
+	 *            <ul>
+	 *            <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+	 *            <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+	 *            </ul>
+	 */
+	public void removeValidator(Validator validator) {
+		checkWidget();
+		if (validation != null) {
+			validation.remove(validator);
+		}
+	}
+
+	/**
+	 * Set the delay after the last keystroke before the asynchronous validators are run. The default is 300 msec.
+	 * 
+	 * @param delay The delay (msec).
+	 * @exception SWTException
+	 *            <ul>
+	 *            <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+	 *            <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+	 *            </ul>
+	 */
+	public void setValidationDelay(int delay) {
+		checkWidget();
+		getValidation().setDelay(delay);
+	}
+
+	/**
+	 * Get the message of the failed validator.
+	 * 
+	 * @return The message, or NULL if the text is valid or its asynchronous validation is pending.
+	 * @exception SWTException
+	 *            <ul>
+	 *            <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+	 *            <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+	 *            </ul>
+	 */
+	public String getValidationMessage() {
+		checkWidget();
+		return validation != null ? validation.getMessage() : null;
+	}
+
+	/**
+	 * Get if the asynchronous validation of the text is pending.
+	 * 
+	 * @return TRUE if the asynchronous validators are scheduled or running.
+	 * @exception SWTException
+	 *            <ul>
+	 *            <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+	 *            <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+	 *            </ul>
+	 */
+	public boolean isValidating() {
+		checkWidget();
+		return validation != null && validation.isValidating();
+	}
+
+	/**
+	 * Get the validation controller, creating it if needed.
+	 * 
+	 * @return The validation controller.
+	 */
+	private ValidationController getValidation() {
+		if (validation == null) {
+			validation = new ValidationController(this, textField);
+		}
+		return validation;
+	}
+
+	/**
+	 * Run the action, as if the action button were pressed. Does nothing if an asynchronous action is already running.
+	 * <p>
+	 * To fill many fields sharing an {@link ActionDispatcher} in one backend call, run their actions within
+	 * {@link ActionDispatcher#batch(Runnable)}.
+	 * </p>
+	 * 
+	 * @exception SWTException
+	 *            <ul>
+	 *            <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+	 *            <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+	 *            <li>ERROR_FAILED_EXEC - if a synchronous action failed, or an asynchronous action failed to start</li>
+	 *            </ul>
+	 */
+	public void runAction() {
+		checkWidget();
+		if (asyncAction != null) {
+			if (running == null) {
+				startAction();
+			}
+			return;
+		}
+		String result = null;
+		try {
+			result = this.action.call();
+		} catch (Throwable t) {
+			SWT.error(SWT.ERROR_FAILED_EXEC, t);
+		}
+		setResult(result);
+	}
+
+	/**
+	 * Get if an asynchronous action is running.
+	 * 
+	 * @return TRUE if an action is running.
+	 * @exception SWTException
+	 *            <ul>
+	 *            <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+	 *            <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+	 *            </ul>
+	 */
+	public boolean isActionRunning() {
+		checkWidget();
+		return running != null;
+	}
+
+	/**
+	 * Cancel the running asynchronous action, interrupting the thread running it and discarding its result. Does
+	 * nothing if no action is running.
+	 * 
+	 * @exception SWTException
+	 *            <ul>
+	 *            <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+	 *            <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+	 *            </ul>
+	 */
+	public void cancelAction() {
+		checkWidget();
+		if (running != null) {
+			running.cancel(true);
+			stopBusy();
+		}
+	}
+
 	/**
 	 * Remove the given style bits from the original
 	 * 
@@ -176,7 +722,11 @@ public class ActionText extends Composite {
 	 * @see #removeModifyListener
 	 */
 	public void addModifyListener(ModifyListener listener) {
-		textField.addModifyListener(listener);
+		checkWidget();
+		if (listener == null) {
+			SWT.error(SWT.ERROR_NULL_ARGUMENT);
+		}
+		addListener(SWT.Modify, new TypedListener(listener));
 	}
 
 	/**
@@ -239,7 +789,13 @@ public class ActionText extends Composite {
 	 * @see SelectionEvent
 	 */
 	public void addSelectionListener(SelectionListener listener) {
-		textField.addSelectionListener(listener);
+		checkWidget();
+		if (listener == null) {
+			SWT.error(SWT.ERROR_NULL_ARGUMENT);
+		}
+		TypedListener typedListener = new TypedListener(listener);
+		addListener(SWT.Selection, typedListener);
+		addListener(SWT.DefaultSelection, typedListener);
 	}
 
 	/**
@@ -260,7 +816,11 @@ public class ActionText extends Composite {
 	 * @see #removeVerifyListener
 	 */
 	public void addVerifyListener(VerifyListener listener) {
-		textField.addVerifyListener(listener);
+		checkWidget();
+		if (listener == null) {
+			SWT.error(SWT.ERROR_NULL_ARGUMENT);
+		}
+		addListener(SWT.Verify, new TypedListener(listener));
 	}
 
 	/**
@@ -735,7 +1295,7 @@ public class ActionText extends Composite {
 	 * @see #addModifyListener
 	 */
 	public void removeModifyListener(ModifyListener listener) {
-		textField.removeModifyListener(listener);
+		removeRouted(listener, SWT.Modify);
 	}
 
 	/**
@@ -778,7 +1338,7 @@ public class ActionText extends Composite {
 	 * @see #addSelectionListener
 	 */
 	public void removeSelectionListener(SelectionListener listener) {
-		textField.removeSelectionListener(listener);
+		removeRouted(listener, SWT.Selection, SWT.DefaultSelection);
 	}
 
 	/**
@@ -798,7 +1358,7 @@ public class ActionText extends Composite {
 	 * @see #addVerifyListener
 	 */
 	public void removeVerifyListener(VerifyListener listener) {
-		textField.removeVerifyListener(listener);
+		removeRouted(listener, SWT.Verify);
 	}
 
 	/**
@@ -1132,86 +1692,85 @@ public class ActionText extends Composite {
 
 	@Override
 	public void addListener(int eventType, Listener listener) {
-		super.addListener(eventType, listener);
-		textField.addListener(eventType, listener);
+		if (eventType == SWT.Segments) {
+			// Segments are applied by the text field itself.
+			textField.addListener(eventType, listener);
+		} else if (EventRouter.isRouted(eventType)) {
+			checkWidget();
+			if (listener == null) {
+				SWT.error(SWT.ERROR_NULL_ARGUMENT);
+			}
+			router.add(eventType, listener);
+		} else {
+			super.addListener(eventType, listener);
+		}
 	}
 
 	@Override
 	public void removeListener(int eventType, Listener listener) {
-		super.removeListener(eventType, listener);
-		textField.removeListener(eventType, listener);
-	}
-
-	@Override
-	public void addControlListener(ControlListener listener) {
-		super.addControlListener(listener);
-		textField.addControlListener(listener);
-	}
-
-	@Override
-	public void addDragDetectListener(DragDetectListener listener) {
-		super.addDragDetectListener(listener);
-		textField.addDragDetectListener(listener);
-	}
-
-	@Override
-	public void addFocusListener(FocusListener listener) {
-		super.addFocusListener(listener);
-		textField.addFocusListener(listener);
-	}
-
-	@Override
-	public void addGestureListener(GestureListener listener) {
-		super.addGestureListener(listener);
-		textField.addGestureListener(listener);
-	}
-
-	@Override
-	public void addHelpListener(HelpListener listener) {
-		super.addHelpListener(listener);
-		textField.addHelpListener(listener);
-	}
-
-	@Override
-	public void addKeyListener(KeyListener listener) {
-		super.addKeyListener(listener);
-		textField.addKeyListener(listener);
-	}
-
-	@Override
-	public void addMenuDetectListener(MenuDetectListener listener) {
-		super.addMenuDetectListener(listener);
-		textField.addMenuDetectListener(listener);
-	}
-
-	@Override
-	public void addMouseListener(MouseListener listener) {
-		super.addMouseListener(listener);
-		textField.addMouseListener(listener);
+		if (eventType == SWT.Segments) {
+			textField.removeListener(eventType, listener);
+		} else if (EventRouter.isRouted(eventType)) {
+			removeRouted(listener, eventType);
+		} else {
+			super.removeListener(eventType, listener);
+		}
 	}
 
 	@Override
-	public void addMouseTrackListener(MouseTrackListener listener) {
-		super.addMouseTrackListener(listener);
-		textField.addMouseTrackListener(listener);
+	public Listener[] getListeners(int eventType) {
+		if (eventType == SWT.Segments) {
+			return textField.getListeners(eventType);
+		}
+		if (EventRouter.isRouted(eventType)) {
+			checkWidget();
+			return router.getListeners(eventType).clone();
+		}
+		return super.getListeners(eventType);
 	}
 
 	@Override
-	public void addMouseMoveListener(MouseMoveListener listener) {
-		super.addMouseMoveListener(listener);
-		textField.addMouseMoveListener(listener);
+	public boolean isListening(int eventType) {
+		if (eventType == SWT.Segments) {
+			return textField.isListening(eventType);
+		}
+		if (EventRouter.isRouted(eventType)) {
+			checkWidget();
+			return router.getListeners(eventType).length > 0;
+		}
+		return super.isListening(eventType);
 	}
 
 	@Override
-	public void addMouseWheelListener(MouseWheelListener listener) {
-		super.addMouseWheelListener(listener);
-		textField.addMouseWheelListener(listener);
+	public void notifyListeners(int eventType, Event event) {
+		if (!EventRouter.isRouted(eventType)) {
+			super.notifyListeners(eventType, event);
+			return;
+		}
+		checkWidget();
+		if (event == null) {
+			event = new Event();
+		}
+		event.type = eventType;
+		event.display = getDisplay();
+		event.widget = this;
+		router.dispatch(event);
 	}
 
-	@Override
-	public void addTouchListener(TouchListener listener) {
-		super.addTouchListener(listener);
-		textField.addTouchListener(listener);
+	/**
+	 * Remove a routed listener, checking the arguments as for the typed removal methods.
+	 * 
+	 * @param listener The listener, or the typed listener to remove
+	 * @param eventTypes The event types to remove the listener from.
+	 */
+	private void removeRouted(Object listener, int... eventTypes) {
+		checkWidget();
+		if (listener == null) {
+			SWT.error(SWT.ERROR_NULL_ARGUMENT);
+		}
+		for (int eventType : eventTypes) {
+			router.remove(eventType, listener);
+		}
 	}
 
 	@Override
@@ -1225,69 +1784,63 @@ public class ActionText extends Composite {
 	}
 
 	@Override
-	public void removeControlListener(ControlListener listener) {
-		super.removeControlListener(listener);
-		textField.removeControlListener(listener);
+	public void removeDragDetectListener(DragDetectListener listener) {
+		removeRouted(listener, SWT.DragDetect);
 	}
 
 	@Override
 	public void removeFocusListener(FocusListener listener) {
-		super.removeFocusListener(listener);
-		textField.removeFocusListener(listener);
+		removeRouted(listener, SWT.FocusIn, SWT.FocusOut);
 	}
 
 	@Override
 	public void removeGestureListener(GestureListener listener) {
-		super.removeGestureListener(listener);
-		textField.removeGestureListener(listener);
+		removeRouted(listener, SWT.Gesture);
 	}
 
 	@Override
 	public void removeHelpListener(HelpListener listener) {
-		super.removeHelpListener(listener);
-		textField.removeHelpListener(listener);
+		removeRouted(listener, SWT.Help);
 	}
 
 	@Override
 	public void removeKeyListener(KeyListener listener) {
-		super.removeKeyListener(listener);
-		textField.removeKeyListener(listener);
+		removeRouted(listener, SWT.KeyUp, SWT.KeyDown);
 	}
 
 	@Override
 	public void removeMenuDetectListener(MenuDetectListener listener) {
-		super.removeMenuDetectListener(listener);
-		textField.removeMenuDetectListener(listener);
+		removeRouted(listener, SWT.MenuDetect);
 	}
 
 	@Override
 	public void removeMouseTrackListener(MouseTrackListener listener) {
-		super.removeMouseTrackListener(listener);
-		textField.removeMouseTrackListener(listener);
+		removeRouted(listener, SWT.MouseEnter, SWT.MouseExit, SWT.MouseHover);
 	}
 
 	@Override
 	public void removeMouseListener(MouseListener listener) {
-		super.removeMouseListener(listener);
-		textField.removeMouseListener(listener);
+		removeRouted(listener, SWT.MouseDown, SWT.MouseUp, SWT.MouseDoubleClick);
 	}
 
 	@Override
 	public void removeMouseMoveListener(MouseMoveListener listener) {
-		super.removeMouseMoveListener(listener);
-		textField.removeMouseMoveListener(listener);
+		removeRouted(listener, SWT.MouseMove);
 	}
 
 	@Override
 	public void removeMouseWheelListener(MouseWheelListener listener) {
-		super.removeMouseWheelListener(listener);
-		textField.removeMouseWheelListener(listener);
+		removeRouted(listener, SWT.MouseWheel);
 	}
 
 	@Override
 	public void removeTouchListener(TouchListener listener) {
-		super.removeTouchListener(listener);
-		textField.removeTouchListener(listener);
+		removeRouted(listener, SWT.Touch);
+	}
+
+	@Override
+	public void removeTraverseListener(TraverseListener listener) {
+		removeRouted(listener, SWT.Traverse);
 	}
 
 	@Override
@@ -1369,4 +1922,50 @@ public class ActionText extends Composite {
 	public boolean traverse(int traversal, KeyEvent event) {
 		return textField.traverse(traversal, event);
 	}
+
+	/**
+	 * An action run on an executor, whose cancellation interrupts the thread running it.
+	 */
+	private static class ActionTask extends CompletableFuture<String> implements Runnable {
+
+		/**
+		 * The task running the action.
+		 */
+		private final FutureTask<String> task;
+
+		/**
+		 * Create a new task.
+		 * 
+		 * @param action The action to run.
+		 */
+		ActionTask(Supplier<String> action) {
+			task = new FutureTask<String>(action::get) {
+
+				@Override
+				protected void done() {
+					if (isCancelled()) {
+						return;
+					}
+					try {
+						ActionTask.this.complete(get());
+					} catch (ExecutionException ex) {
+						ActionTask.this.completeExceptionally(ex.getCause());
+					} catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			};
+		}
+
+		@Override
+		public void run() {
+			task.run();
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			task.cancel(true);
+			return super.cancel(mayInterruptIfRunning);
+		}
+	}
 }
@@ -0,0 +1,214 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.actiontext;
+
+import java.util.Arrays;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.TypedListener;
+import org.eclipse.swt.widgets.Widget;
+
+/**
+ * Routes the events of an inner control to the listeners of the control composing it.
+ * <p>
+ * A single internal listener is registered on the inner control for each event type, only once the first listener of
+ * that type is added. Each event is dispatched once, retargeted to the composing control with mouse coordinates
+ * relative to it, and fanned out to the listeners held in a copy-on-write array per type, so dispatch neither
+ * allocates nor locks, and listeners may be added or removed while an event is dispatched.
+ * </p>
+ */
+class EventRouter implements Listener {
+
+	/**
+	 * No listeners.
+	 */
+	private final static Listener[] NONE = new Listener[0];
+
+	/**
+	 * The control events are retargeted to.
+	 */
+	private final Control target;
+	/**
+	 * The control the events are sent by.
+	 */
+	private final Control source;
+	/**
+	 * The listeners, indexed by event type, or NULL if none of that type.
+	 */
+	private Listener[][] listeners = new Listener[SWT.Gesture + 1][];
+
+	/**
+	 * Create a new router.
+	 *
+	 * @param target The control events are retargeted to
+	 * @param source The control the events are sent by.
+	 */
+	EventRouter(Control target, Control source) {
+		this.target = target;
+		this.source = source;
+	}
+
+	/**
+	 * Get if events of a type are sent by the inner control, and so routed.
+	 *
+	 * @param eventType The event type
+	 * @return TRUE if the events are routed.
+	 */
+	static boolean isRouted(int eventType) {
+		switch (eventType) {
+		case SWT.KeyDown:
+		case SWT.KeyUp:
+		case SWT.Traverse:
+		case SWT.FocusIn:
+		case SWT.FocusOut:
+		case SWT.Help:
+		case SWT.MenuDetect:
+		case SWT.Gesture:
+		case SWT.Touch:
+		case SWT.Modify:
+		case SWT.Verify:
+		case SWT.Selection:
+		case SWT.DefaultSelection:
+			return true;
+		default:
+			return isPositional(eventType);
+		}
+	}
+
+	/**
+	 * Get if events of a type carry a location relative to the control sending them.
+	 *
+	 * @param eventType The event type
+	 * @return TRUE if the location of the events is relative to the control.
+	 */
+	private static boolean isPositional(int eventType) {
+		switch (eventType) {
+		case SWT.MouseDown:
+		case SWT.MouseUp:
+		case SWT.MouseDoubleClick:
+		case SWT.MouseMove:
+		case SWT.MouseEnter:
+		case SWT.MouseExit:
+		case SWT.MouseHover:
+		case SWT.MouseWheel:
+		case SWT.MouseHorizontalWheel:
+		case SWT.DragDetect:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Add a listener, registering the internal listener for the type on the first.
+	 *
+	 * @param eventType The event type
+	 * @param listener The listener.
+	 */
+	void add(int eventType, Listener listener) {
+		if (eventType >= listeners.length) {
+			listeners = Arrays.copyOf(listeners, eventType + 1);
+		}
+		Listener[] current = listeners[eventType];
+		if (current == null) {
+			listeners[eventType] = new Listener[] { listener };
+			source.addListener(eventType, this);
+			return;
+		}
+		Listener[] updated = Arrays.copyOf(current, current.length + 1);
+		updated[current.length] = listener;
+		listeners[eventType] = updated;
+	}
+
+	/**
+	 * Remove the first listener matching, unregistering the internal listener for the type once none remain.
+	 *
+	 * @param eventType The event type
+	 * @param listener The listener, or the typed listener wrapped by a {@link TypedListener}.
+	 */
+	void remove(int eventType, Object listener) {
+		Listener[] current = getListeners(eventType);
+		for (int i = 0; i < current.length; i++) {
+			Listener l = current[i];
+			if (l == listener || (l instanceof TypedListener && ((TypedListener) l).getEventListener() == listener)) {
+				if (current.length == 1) {
+					listeners[eventType] = null;
+					if (!source.isDisposed()) {
+						source.removeListener(eventType, this);
+					}
+				} else {
+					Listener[] updated = new Listener[current.length - 1];
+					System.arraycopy(current, 0, updated, 0, i);
+					System.arraycopy(current, i + 1, updated, i, updated.length - i);
+					listeners[eventType] = updated;
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Get the listeners of a type.
+	 *
+	 * @param eventType The event type
+	 * @return The listeners, which must not be modified.
+	 */
+	Listener[] getListeners(int eventType) {
+		Listener[] current = eventType >= 0 && eventType < listeners.length ? listeners[eventType] : null;
+		return current != null ? current : NONE;
+	}
+
+	/**
+	 * Send an event to the listeners of its type, as sent by the composing control.
+	 *
+	 * @param event The event.
+	 */
+	void dispatch(Event event) {
+		Listener[] current = event.type < listeners.length ? listeners[event.type] : null;
+		if (current == null) {
+			return;
+		}
+		for (Listener listener : current) {
+			listener.handleEvent(event);
+		}
+	}
+
+	@Override
+	public void handleEvent(Event event) {
+		// Retarget the event for the listeners, restoring it for any later listeners of the inner control.
+		Widget widget = event.widget;
+		int x = event.x;
+		int y = event.y;
+		event.widget = target;
+		if (isPositional(event.type)) {
+			Point location = source.getLocation();
+			event.x += location.x;
+			event.y += location.y;
+		}
+		try {
+			dispatch(event);
+		} finally {
+			event.widget = widget;
+			event.x = x;
+			event.y = y;
+		}
+	}
+}
@@ -0,0 +1,464 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.actiontext;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.swt.widgets.Text;
+
+/**
+ * Shows the proposals of a {@link ProposalProvider} in a popup below a text field while typing.
+ * <p>
+ * Each modification of the text restarts a short delay, so a query is only made once typing pauses. Queries run on an
+ * executor, and each modification increments a generation counter, so stale queries are cancelled and their results
+ * discarded. The results of recent queries are held in an LRU cache and shown without a query. The popup and its
+ * virtual table are created once and reused, only the displayed rows being filled.
+ * </p>
+ */
+class ProposalController {
+
+	/**
+	 * The default delay after the last modification before querying (msec).
+	 */
+	final static int DEFAULT_DELAY = 150;
+	/**
+	 * The maximum number of proposals shown.
+	 */
+	private final static int LIMIT = 50;
+	/**
+	 * The number of query results cached.
+	 */
+	private final static int CACHE_SIZE = 128;
+	/**
+	 * The maximum number of rows visible in the popup without scrolling.
+	 */
+	private final static int VISIBLE_ITEMS = 10;
+
+	/**
+	 * The control the popup is shown below.
+	 */
+	private final Control anchor;
+	/**
+	 * The text field.
+	 */
+	private final Text text;
+	/**
+	 * Consumer of accepted proposals.
+	 */
+	private final Consumer<String> accept;
+	/**
+	 * The provider of proposals.
+	 */
+	private ProposalProvider provider;
+	/**
+	 * The executor to run queries on.
+	 */
+	private Executor executor;
+	/**
+	 * The delay after the last modification before querying (msec).
+	 */
+	private int delay = DEFAULT_DELAY;
+	/**
+	 * The results of recent queries, in access order.
+	 */
+	private final Map<String, List<String>> cache = new LinkedHashMap<String, List<String>>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+	/**
+	 * The generation of the query, incremented to cancel running queries.
+	 */
+	private volatile int generation;
+	/**
+	 * The running query, or NULL if none.
+	 */
+	private FutureTask<List<String>> pending;
+	/**
+	 * Runnable to query, once the text has stopped changing.
+	 */
+	private final Runnable query = this::query;
+	/**
+	 * Flag to ignore modifications while a proposal is accepted.
+	 */
+	private boolean accepting;
+	/**
+	 * Listener to close the popup when the shell of the text field moves.
+	 */
+	private final Listener closer = e -> hide();
+
+	/**
+	 * The popup, or NULL if not yet created.
+	 */
+	private Shell popup;
+	/**
+	 * The proposals in the popup.
+	 */
+	private Table table;
+	/**
+	 * The proposals shown.
+	 */
+	private List<String> proposals = Collections.emptyList();
+
+	/**
+	 * Create a new controller for the text field.
+	 *
+	 * @param anchor The control the popup is shown below
+	 * @param text The text field
+	 * @param accept Consumer of accepted proposals.
+	 */
+	ProposalController(Control anchor, Text text, Consumer<String> accept) {
+		this.anchor = anchor;
+		this.text = text;
+		this.accept = accept;
+		text.addListener(SWT.Modify, e -> modified());
+		text.addListener(SWT.KeyDown, this::keyDown);
+		text.addListener(SWT.Traverse, this::traverse);
+		text.addListener(SWT.FocusOut, e -> focusLost());
+		text.addListener(SWT.Dispose, e -> dispose());
+		text.getShell().addListener(SWT.Move, closer);
+		text.getShell().addListener(SWT.Resize, closer);
+	}
+
+	/**
+	 * Set the provider of proposals, clearing the cache.
+	 *
+	 * @param provider The provider, or NULL to disable proposals
+	 * @param executor The executor to run queries on.
+	 */
+	void setProvider(ProposalProvider provider, Executor executor) {
+		this.provider = provider;
+		this.executor = executor;
+		cache.clear();
+		cancel();
+		hide();
+	}
+
+	/**
+	 * Get the provider of proposals.
+	 *
+	 * @return The provider, or NULL if none.
+	 */
+	ProposalProvider getProvider() {
+		return provider;
+	}
+
+	/**
+	 * Set the delay after the last modification before querying.
+	 *
+	 * @param delay The delay (msec).
+	 */
+	void setDelay(int delay) {
+		this.delay = Math.max(0, delay);
+	}
+
+	/**
+	 * Cancel any scheduled or running query.
+	 */
+	private void cancel() {
+		generation++;
+		text.getDisplay().timerExec(-1, query);
+		if (pending != null) {
+			pending.cancel(true);
+			pending = null;
+		}
+	}
+
+	/**
+	 * Restart the delay before querying.
+	 */
+	private void modified() {
+		if (provider == null || accepting) {
+			return;
+		}
+		cancel();
+		text.getDisplay().timerExec(delay, query);
+	}
+
+	/**
+	 * Query the proposals for the text, from the cache or on the executor.
+	 */
+	private void query() {
+		if (text.isDisposed() || provider == null) {
+			return;
+		}
+		final String value = text.getText();
+		if (value.isEmpty() || !text.isFocusControl()) {
+			hide();
+			return;
+		}
+		List<String> cached = cache.get(value);
+		if (cached != null) {
+			show(cached);
+			return;
+		}
+		final int queryGeneration = generation;
+		final ProposalProvider queryProvider = provider;
+		final Display display = text.getDisplay();
+		FutureTask<List<String>> task = new FutureTask<List<String>>(
+				() -> queryProvider.getProposals(value, LIMIT, () -> queryGeneration != generation)) {
+
+			@Override
+			protected void done() {
+				if (!isCancelled() && !display.isDisposed()) {
+					display.asyncExec(() -> deliver(this, value, queryGeneration));
+				}
+			}
+		};
+		pending = task;
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			pending = null;
+		}
+	}
+
+	/**
+	 * Show the results of a completed query, unless it is stale.
+	 *
+	 * @param task The query
+	 * @param value The text queried
+	 * @param queryGeneration The generation of the query.
+	 */
+	private void deliver(FutureTask<List<String>> task, String value, int queryGeneration) {
+		if (text.isDisposed() || queryGeneration != generation) {
+			return;
+		}
+		pending = null;
+		List<String> result;
+		try {
+			result = task.get();
+		} catch (ExecutionException e) {
+			// Proposals are best effort, a failed query shows none.
+			hide();
+			return;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		if (result == null) {
+			result = Collections.emptyList();
+		}
+		cache.put(value, result);
+		show(result);
+	}
+
+	/**
+	 * Show the proposals in the popup, or hide the popup if there are none.
+	 *
+	 * @param list The proposals.
+	 */
+	private void show(List<String> list) {
+		if (list.isEmpty()) {
+			hide();
+			return;
+		}
+		if (popup == null) {
+			createPopup();
+		}
+		proposals = list;
+		table.setItemCount(list.size());
+		table.clearAll();
+		table.deselectAll();
+		Rectangle bounds = anchor.getBounds();
+		Point location = anchor.getParent().toDisplay(bounds.x, bounds.y + bounds.height);
+		Rectangle trim = popup.computeTrim(0, 0, bounds.width,
+				table.getItemHeight() * Math.min(list.size(), VISIBLE_ITEMS));
+		popup.setBounds(location.x, location.y, bounds.width, trim.height);
+		if (!popup.isVisible()) {
+			popup.setVisible(true);
+		}
+	}
+
+	/**
+	 * Hide the popup.
+	 */
+	private void hide() {
+		if (popup != null && !popup.isDisposed() && popup.isVisible()) {
+			popup.setVisible(false);
+		}
+	}
+
+	/**
+	 * Get if the popup is showing.
+	 *
+	 * @return TRUE if the popup is showing.
+	 */
+	private boolean isShowing() {
+		return popup != null && !popup.isDisposed() && popup.isVisible();
+	}
+
+	/**
+	 * Create the popup.
+	 */
+	private void createPopup() {
+		popup = new Shell(text.getShell(), SWT.ON_TOP | SWT.TOOL | SWT.NO_FOCUS);
+		popup.setLayout(GridLayoutFactory.fillDefaults().create());
+		table = new Table(popup, SWT.SINGLE | SWT.VIRTUAL | SWT.FULL_SELECTION | SWT.V_SCROLL);
+		table.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).create());
+		table.addListener(SWT.SetData, e -> {
+			TableItem item = (TableItem) e.item;
+			int index = table.indexOf(item);
+			if (index < proposals.size()) {
+				item.setText(proposals.get(index));
+			}
+		});
+		// Clicking a proposal accepts it.
+		table.addListener(SWT.Selection, e -> acceptSelected());
+	}
+
+	/**
+	 * Move the selection in the popup.
+	 *
+	 * @param delta The number of rows to move.
+	 */
+	private void moveSelection(int delta) {
+		int count = table.getItemCount();
+		int index = table.getSelectionIndex();
+		index = index < 0 ? (delta > 0 ? 0 : count - 1) : Math.max(0, Math.min(count - 1, index + delta));
+		table.setSelection(index);
+	}
+
+	/**
+	 * Accept the selected proposal, if any.
+	 *
+	 * @return TRUE if a proposal was accepted.
+	 */
+	private boolean acceptSelected() {
+		int index = table.getSelectionIndex();
+		if (index < 0 || index >= proposals.size()) {
+			return false;
+		}
+		String value = proposals.get(index);
+		hide();
+		cancel();
+		accepting = true;
+		try {
+			accept.accept(value);
+		} finally {
+			accepting = false;
+		}
+		if (!text.isDisposed()) {
+			text.setFocus();
+			text.setSelection(text.getCharCount());
+		}
+		return true;
+	}
+
+	/**
+	 * Navigate the popup with the arrow keys, and close it with Esc.
+	 *
+	 * @param e The key event.
+	 */
+	private void keyDown(Event e) {
+		if (!isShowing()) {
+			return;
+		}
+		switch (e.keyCode) {
+		case SWT.ARROW_DOWN:
+			moveSelection(1);
+			e.doit = false;
+			break;
+		case SWT.ARROW_UP:
+			moveSelection(-1);
+			e.doit = false;
+			break;
+		case SWT.PAGE_DOWN:
+			moveSelection(VISIBLE_ITEMS);
+			e.doit = false;
+			break;
+		case SWT.PAGE_UP:
+			moveSelection(-VISIBLE_ITEMS);
+			e.doit = false;
+			break;
+		case SWT.ESC:
+			cancel();
+			hide();
+			e.doit = false;
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Accept the selected proposal with Enter, and keep Esc for closing the popup.
+	 *
+	 * @param e The traverse event.
+	 */
+	private void traverse(Event e) {
+		if (!isShowing()) {
+			return;
+		}
+		if (e.detail == SWT.TRAVERSE_ESCAPE) {
+			e.doit = false;
+		} else if (e.detail == SWT.TRAVERSE_RETURN && acceptSelected()) {
+			e.detail = SWT.TRAVERSE_NONE;
+			e.doit = false;
+		}
+	}
+
+	/**
+	 * Hide the popup once focus leaves the text field, unless it moved to the popup.
+	 */
+	private void focusLost() {
+		text.getDisplay().asyncExec(() -> {
+			if (!text.isDisposed() && isShowing() && text.getDisplay().getFocusControl() != table) {
+				hide();
+			}
+		});
+	}
+
+	/**
+	 * Cancel any query and dispose the popup.
+	 */
+	private void dispose() {
+		cancel();
+		Shell shell = text.getShell();
+		if (!shell.isDisposed()) {
+			shell.removeListener(SWT.Move, closer);
+			shell.removeListener(SWT.Resize, closer);
+		}
+		if (popup != null && !popup.isDisposed()) {
+			popup.dispose();
+		}
+	}
+}
@@ -0,0 +1,40 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.actiontext;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Provider of the proposals shown while typing in an {@link ActionText}.
+ * <p>
+ * Providers are called on a background thread, and must not access any widgets.
+ * </p>
+ */
+@FunctionalInterface
+public interface ProposalProvider {
+
+	/**
+	 * Get the proposals for the text of the field.
+	 *
+	 * @param query The text of the field
+	 * @param limit The maximum number of proposals to return
+	 * @param cancelled Returns TRUE once the query is stale, so long running providers may stop early.
+	 * @return The proposals, or an empty list if none.
+	 */
+	List<String> getProposals(String query, int limit, BooleanSupplier cancelled);
+}
@@ -0,0 +1,144 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.actiontext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Proposal provider of the entries starting with the query, ignoring case.
+ * <p>
+ * The entries are held in a single array sorted with <code>String.CASE_INSENSITIVE_ORDER</code>, so the entries
+ * sharing a prefix are contiguous and found by binary search. A query costs <i>O(log n)</i> plus the proposals
+ * returned, regardless of the number of entries, and the index holds no memory beyond the array of entries.
+ * </p>
+ * <p>
+ * The index is immutable, and may be queried from any thread.
+ * </p>
+ */
+public class SortedProposalIndex implements ProposalProvider {
+
+	/**
+	 * The number of proposals collected between checks for cancellation.
+	 */
+	private final static int CANCEL_CHECK = 1024;
+
+	/**
+	 * The entries, sorted ignoring case.
+	 */
+	private final String[] entries;
+
+	/**
+	 * Create a new index of the entries.
+	 *
+	 * @param entries The entries to propose.
+	 */
+	public SortedProposalIndex(Collection<String> entries) {
+		if (entries == null) {
+			throw new IllegalArgumentException("Entries must not be null");
+		}
+		this.entries = entries.toArray(new String[entries.size()]);
+		Arrays.parallelSort(this.entries, String.CASE_INSENSITIVE_ORDER);
+	}
+
+	@Override
+	public List<String> getProposals(String query, int limit, BooleanSupplier cancelled) {
+		int from = search(query, false);
+		int to = Math.min(search(query, true), from + limit);
+		if (from >= to) {
+			return Collections.emptyList();
+		}
+		List<String> proposals = new ArrayList<>(to - from);
+		for (int i = from; i < to; i++) {
+			if ((i - from) % CANCEL_CHECK == 0 && cancelled.getAsBoolean()) {
+				return Collections.emptyList();
+			}
+			proposals.add(entries[i]);
+		}
+		return proposals;
+	}
+
+	/**
+	 * Get the number of entries starting with a prefix, ignoring case.
+	 *
+	 * @param prefix The prefix
+	 * @return The number of entries.
+	 */
+	public int count(String prefix) {
+		return search(prefix, true) - search(prefix, false);
+	}
+
+	/**
+	 * Get the number of entries.
+	 *
+	 * @return The number of entries.
+	 */
+	public int size() {
+		return entries.length;
+	}
+
+	/**
+	 * Find the bounds of the entries starting with a prefix.
+	 *
+	 * @param prefix The prefix
+	 * @param upper FALSE to find the first entry starting with the prefix, TRUE to find the first entry after them.
+	 * @return The index of the entry, or the number of entries if none.
+	 */
+	private int search(String prefix, boolean upper) {
+		int low = 0;
+		int high = entries.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			int c = comparePrefix(entries[mid], prefix);
+			if (c < 0 || (upper && c == 0)) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Compare the start of an entry to a prefix, with the same case folding as
+	 * <code>String.CASE_INSENSITIVE_ORDER</code>.
+	 *
+	 * @param entry The entry
+	 * @param prefix The prefix
+	 * @return Less than 0 if the entry sorts before the prefix, 0 if the entry starts with the prefix, otherwise
+	 *         greater than 0.
+	 */
+	private static int comparePrefix(String entry, String prefix) {
+		int length = Math.min(entry.length(), prefix.length());
+		for (int i = 0; i < length; i++) {
+			char c1 = entry.charAt(i);
+			char c2 = prefix.charAt(i);
+			if (c1 != c2) {
+				c1 = Character.toLowerCase(Character.toUpperCase(c1));
+				c2 = Character.toLowerCase(Character.toUpperCase(c2));
+				if (c1 != c2) {
+					return c1 - c2;
+				}
+			}
+		}
+		return entry.length() < prefix.length() ? -1 : 0;
+	}
+}
@@ -0,0 +1,353 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.actiontext;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.eclipse.jface.fieldassist.ControlDecoration;
+import org.eclipse.jface.fieldassist.FieldDecoration;
+import org.eclipse.jface.fieldassist.FieldDecorationRegistry;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Text;
+
+/**
+ * Validates the text of a field with a chain of validators, showing the first failure as a decoration.
+ * <p>
+ * Synchronous validators run inline on each modification, in the order added, and stop the chain on the first
+ * failure. Once they pass, the verdict of the asynchronous validators is taken from an LRU cache of recent verdicts, or
+ * the asynchronous validators are run in order on their executors once typing pauses. Each modification increments a
+ * generation counter, so stale runs are cancelled and their verdicts discarded, and typing is never blocked.
+ * </p>
+ */
+class ValidationController {
+
+	/**
+	 * The default delay after the last modification before running the asynchronous validators (msec).
+	 */
+	final static int DEFAULT_DELAY = 300;
+	/**
+	 * The number of verdicts cached.
+	 */
+	private final static int CACHE_SIZE = 256;
+
+	/**
+	 * The text field.
+	 */
+	private final Text text;
+	/**
+	 * The decoration showing the failure.
+	 */
+	private final ControlDecoration decoration;
+	/**
+	 * The synchronous validators.
+	 */
+	private final List<Validator> validators = new ArrayList<>();
+	/**
+	 * The asynchronous validators.
+	 */
+	private final List<AsyncValidator> asyncValidators = new ArrayList<>();
+	/**
+	 * The delay after the last modification before running the asynchronous validators (msec).
+	 */
+	private int delay = DEFAULT_DELAY;
+	/**
+	 * The verdicts of the asynchronous validators for recent values, in access order. A NULL verdict is valid.
+	 */
+	private final Map<String, String> cache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+	/**
+	 * The generation of the run, incremented to cancel running validators.
+	 */
+	private int generation;
+	/**
+	 * The running validator, or NULL if none.
+	 */
+	private FutureTask<String> pending;
+	/**
+	 * Flag to indicate the asynchronous validators are scheduled or running.
+	 */
+	private boolean validating;
+	/**
+	 * Runnable to run the asynchronous validators, once the text has stopped changing.
+	 */
+	private final Runnable query = this::query;
+	/**
+	 * The message of the failed validator, or NULL if valid.
+	 */
+	private String message;
+
+	/**
+	 * Create a new controller for the text field.
+	 *
+	 * @param decorated The control to decorate
+	 * @param text The text field.
+	 */
+	ValidationController(Control decorated, Text text) {
+		this.text = text;
+		decoration = new ControlDecoration(decorated, SWT.TOP | SWT.LEFT);
+		FieldDecoration fieldDecoration = FieldDecorationRegistry.getDefault()
+				.getFieldDecoration(FieldDecorationRegistry.DEC_ERROR);
+		if (fieldDecoration != null) {
+			decoration.setImage(fieldDecoration.getImage());
+		}
+		decoration.hide();
+		text.addListener(SWT.Modify, e -> validate());
+		text.addListener(SWT.Dispose, e -> cancel());
+	}
+
+	/**
+	 * Add a synchronous validator, and validate the text.
+	 *
+	 * @param validator The validator.
+	 */
+	void add(Validator validator) {
+		validators.add(validator);
+		validate();
+	}
+
+	/**
+	 * Add an asynchronous validator, clearing the cache and validating the text.
+	 *
+	 * @param validator The validator
+	 * @param executor The executor to run the validator on.
+	 */
+	void add(Validator validator, Executor executor) {
+		asyncValidators.add(new AsyncValidator(validator, executor));
+		cache.clear();
+		validate();
+	}
+
+	/**
+	 * Remove a validator, clearing the cache and validating the text.
+	 *
+	 * @param validator The validator.
+	 */
+	void remove(Validator validator) {
+		boolean removed = validators.remove(validator);
+		for (Iterator<AsyncValidator> it = asyncValidators.iterator(); it.hasNext();) {
+			if (it.next().validator == validator) {
+				it.remove();
+				removed = true;
+			}
+		}
+		if (removed) {
+			cache.clear();
+			validate();
+		}
+	}
+
+	/**
+	 * Set the delay after the last modification before running the asynchronous validators.
+	 *
+	 * @param delay The delay (msec).
+	 */
+	void setDelay(int delay) {
+		this.delay = Math.max(0, delay);
+	}
+
+	/**
+	 * Get the message of the failed validator.
+	 *
+	 * @return The message, or NULL if valid or the asynchronous validators have not completed.
+	 */
+	String getMessage() {
+		return message;
+	}
+
+	/**
+	 * Get if the asynchronous validators are scheduled or running.
+	 *
+	 * @return TRUE if the verdict is pending.
+	 */
+	boolean isValidating() {
+		return validating;
+	}
+
+	/**
+	 * Cancel any scheduled or running validator.
+	 */
+	private void cancel() {
+		generation++;
+		validating = false;
+		if (!text.isDisposed()) {
+			text.getDisplay().timerExec(-1, query);
+		}
+		if (pending != null) {
+			pending.cancel(true);
+			pending = null;
+		}
+	}
+
+	/**
+	 * Run the synchronous validators, and take the verdict of the asynchronous validators from the cache or schedule
+	 * them.
+	 */
+	private void validate() {
+		cancel();
+		String value = text.getText();
+		for (Validator validator : validators) {
+			String failure = validator.validate(value);
+			if (failure != null) {
+				show(failure);
+				return;
+			}
+		}
+		if (asyncValidators.isEmpty()) {
+			show(null);
+			return;
+		}
+		if (cache.containsKey(value)) {
+			show(cache.get(value));
+			return;
+		}
+		// Clear any failure of the previous text rather than showing a stale verdict.
+		show(null);
+		validating = true;
+		text.getDisplay().timerExec(delay, query);
+	}
+
+	/**
+	 * Start the asynchronous validators for the text.
+	 */
+	private void query() {
+		if (text.isDisposed() || !validating) {
+			return;
+		}
+		run(text.getText(), 0, generation);
+	}
+
+	/**
+	 * Run an asynchronous validator on its executor.
+	 *
+	 * @param value The text to validate
+	 * @param index The index of the validator
+	 * @param runGeneration The generation of the run.
+	 */
+	private void run(final String value, final int index, final int runGeneration) {
+		final Validator validator = asyncValidators.get(index).validator;
+		final Display display = text.getDisplay();
+		FutureTask<String> task = new FutureTask<String>(() -> validator.validate(value)) {
+
+			@Override
+			protected void done() {
+				if (!isCancelled() && !display.isDisposed()) {
+					display.asyncExec(() -> deliver(this, value, index, runGeneration));
+				}
+			}
+		};
+		pending = task;
+		try {
+			asyncValidators.get(index).executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			pending = null;
+			validating = false;
+		}
+	}
+
+	/**
+	 * Take the verdict of a completed validator, unless it is stale, running the next validator if it passed.
+	 *
+	 * @param task The validator
+	 * @param value The text validated
+	 * @param index The index of the validator
+	 * @param runGeneration The generation of the run.
+	 */
+	private void deliver(FutureTask<String> task, String value, int index, int runGeneration) {
+		if (text.isDisposed() || runGeneration != generation) {
+			return;
+		}
+		pending = null;
+		String failure;
+		try {
+			failure = task.get();
+		} catch (ExecutionException e) {
+			// A failing validator is reported, but not cached so the text is validated again.
+			validating = false;
+			Throwable cause = e.getCause();
+			show(cause.getMessage() != null ? cause.getMessage() : cause.toString());
+			return;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		if (failure == null && index + 1 < asyncValidators.size()) {
+			run(value, index + 1, runGeneration);
+			return;
+		}
+		validating = false;
+		cache.put(value, failure);
+		show(failure);
+	}
+
+	/**
+	 * Show the verdict on the decoration.
+	 *
+	 * @param failure The message of the failed validator, or NULL if valid.
+	 */
+	private void show(String failure) {
+		message = failure;
+		if (failure == null) {
+			decoration.hide();
+		} else {
+			decoration.setDescriptionText(failure);
+			decoration.show();
+		}
+	}
+
+	/**
+	 * An asynchronous validator, and the executor to run it on.
+	 */
+	private static class AsyncValidator {
+
+		/**
+		 * The validator.
+		 */
+		private final Validator validator;
+		/**
+		 * The executor to run the validator on.
+		 */
+		private final Executor executor;
+
+		/**
+		 * Create a new asynchronous validator.
+		 *
+		 * @param validator The validator
+		 * @param executor The executor to run the validator on.
+		 */
+		AsyncValidator(Validator validator, Executor executor) {
+			this.validator = validator;
+			this.executor = executor;
+		}
+	}
+}
@@ -0,0 +1,37 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.actiontext;
+
+/**
+ * Validator of the text of an {@link ActionText}.
+ * <p>
+ * Synchronous validators are called on the UI thread on every modification, and must be cheap. Asynchronous
+ * validators are called on a background thread once typing pauses, must not access any widgets, and may be
+ * interrupted once their result is stale.
+ * </p>
+ */
+@FunctionalInterface
+public interface Validator {
+
+	/**
+	 * Validate the text of the field.
+	 *
+	 * @param value The text of the field
+	 * @return The message describing why the text is invalid, or NULL if valid.
+	 */
+	String validate(String value);
+}
@@ -0,0 +1,356 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.fdgraph;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.widgets.Composite;
+
+import com.github.dkartaschew.galatea.graph.Graph;
+
+/**
+ * Graph of the file descriptors open by the JVM process, as a percentage of the maximum allowed.
+ * <p>
+ * The counts are those of <code>UnixOperatingSystemMXBean</code>, so are only available on Unix like systems. The open
+ * file descriptors may also be categorized by type, by reading the links of <code>/proc/self/fd</code> on a background
+ * thread. Each scan stops once over its time budget, so with many thousands of descriptors the breakdown may only
+ * cover those read in time.
+ * </p>
+ */
+public class FileDescriptorGraph extends Composite implements Runnable {
+
+	/**
+	 * The default time budget of a scan (msec).
+	 */
+	public final static int DEFAULT_SCAN_BUDGET = 50;
+	/**
+	 * The directory of the open file descriptors.
+	 */
+	private final static Path FD_DIRECTORY = Paths.get("/proc/self/fd");
+	/**
+	 * Nanoseconds per millisecond.
+	 */
+	private final static long NSEC_PER_MSEC = 1_000_000L;
+
+	/**
+	 * The graph implementation
+	 */
+	private final Graph scope;
+	/**
+	 * JVM process bean.
+	 */
+	private final OperatingSystemMXBean bean;
+	/**
+	 * Delay for each sample
+	 */
+	private final int delay;
+	/**
+	 * Flag to indicate a scan is queued or running.
+	 */
+	private final AtomicBoolean scanning = new AtomicBoolean();
+	/**
+	 * The number of file descriptors open at the last sample, or -1 if not available.
+	 */
+	private long open = -1;
+	/**
+	 * The maximum number of file descriptors allowed, or -1 if not available.
+	 */
+	private long max = -1;
+	/**
+	 * Flag to scan the file descriptors at each sample.
+	 */
+	private boolean categorized;
+	/**
+	 * The time budget of a scan (msec).
+	 */
+	private volatile int scanBudget = DEFAULT_SCAN_BUDGET;
+	/**
+	 * The number of file descriptors of each type of the last scan, indexed by type ordinal, or NULL if not scanned.
+	 */
+	private volatile int[] categories;
+	/**
+	 * Flag to indicate the last scan ran out of time.
+	 */
+	private volatile boolean truncated;
+	/**
+	 * The time taken by the last scan (nsec).
+	 */
+	private volatile long scanTime;
+
+	/**
+	 * Create the composite.
+	 *
+	 * @param parent The parent composite.
+	 * @param style  The default style
+	 * @param delay  The sample delay (msec)
+	 */
+	public FileDescriptorGraph(Composite parent, int style, int delay) {
+		super(parent, style);
+		this.delay = delay > 0 ? delay : 500;
+		setLayout(GridLayoutFactory.fillDefaults().numColumns(2).spacing(0, 0).create());
+
+		scope = new Graph(this, SWT.BORDER);
+		scope.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).hint(SWT.DEFAULT, 24).create());
+		scope.setForeground(getDisplay().getSystemColor(SWT.COLOR_DARK_CYAN));
+		scope.setFontColor(getDisplay().getSystemColor(SWT.COLOR_WHITE));
+
+		bean = ManagementFactory.getOperatingSystemMXBean();
+	}
+
+	@Override
+	protected void checkSubclass() {
+		// Disable the check that prevents subclassing of SWT components
+	}
+
+	/**
+	 * Get the sample delay
+	 *
+	 * @return The sample delay in msec.
+	 */
+	public int getDelay() {
+		return delay;
+	}
+
+	@Override
+	public void run() {
+		if (isDisposed()) {
+			return;
+		}
+		try {
+			if (bean instanceof com.sun.management.UnixOperatingSystemMXBean) {
+				com.sun.management.UnixOperatingSystemMXBean unix = (com.sun.management.UnixOperatingSystemMXBean) bean;
+				open = unix.getOpenFileDescriptorCount();
+				max = unix.getMaxFileDescriptorCount();
+			}
+		} catch (Throwable e) {
+			// Ignore possible class loader errors.
+		}
+		if (open >= 0 && max > 0) {
+			double usage = Math.min(100d, open * 100d / max);
+			scope.addValue(usage);
+			scope.setText(String.format("%d/%d", open, max));
+			scope.setToolTipText(getSummary(usage));
+		} else {
+			scope.addValue(0);
+			scope.setText("n/a");
+			scope.setToolTipText("File descriptor counts are not available");
+		}
+		scope.redraw();
+		if (categorized) {
+			scan();
+		}
+		getDisplay().timerExec(getDelay(), this);
+	}
+
+	/**
+	 * Get a summary of the last sample.
+	 *
+	 * @param usage The percentage of the maximum open.
+	 * @return The summary.
+	 */
+	private String getSummary(double usage) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%d of %d file descriptors open (%.1f%%)", open, max, usage));
+		int[] c = categories;
+		if (c != null) {
+			sb.append(String.format("%n%d sockets, %d pipes, %d files, %d anon inodes, %d other%s (%.1fms)",
+					c[FileDescriptorType.SOCKET.ordinal()], c[FileDescriptorType.PIPE.ordinal()],
+					c[FileDescriptorType.FILE.ordinal()], c[FileDescriptorType.ANON_INODE.ordinal()],
+					c[FileDescriptorType.OTHER.ordinal()], truncated ? ", incomplete" : "",
+					scanTime / (double) NSEC_PER_MSEC));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Categorize the open file descriptors on a background thread, unless a scan is already running. The breakdown is
+	 * available from {@link #getCount(FileDescriptorType)} once the scan completes.
+	 */
+	public void scan() {
+		if (!scanning.compareAndSet(false, true)) {
+			return;
+		}
+		Thread scanner = new Thread(this::categorize, "FileDescriptorGraph Scanner");
+		scanner.setDaemon(true);
+		scanner.start();
+	}
+
+	/**
+	 * Count the open file descriptors by type, until out of time.
+	 */
+	private void categorize() {
+		long start = System.nanoTime();
+		long end = start + scanBudget * NSEC_PER_MSEC;
+		int[] counts = new int[FileDescriptorType.values().length];
+		boolean complete = true;
+		try (DirectoryStream<Path> fds = Files.newDirectoryStream(FD_DIRECTORY)) {
+			for (Path fd : fds) {
+				if (System.nanoTime() > end) {
+					complete = false;
+					break;
+				}
+				try {
+					counts[FileDescriptorType.of(Files.readSymbolicLink(fd).toString()).ordinal()]++;
+				} catch (IOException e) {
+					// Closed since listed.
+				}
+			}
+			categories = counts;
+			truncated = !complete;
+			scanTime = System.nanoTime() - start;
+		} catch (IOException | RuntimeException e) {
+			// Not available on this platform.
+		} finally {
+			scanning.set(false);
+		}
+	}
+
+	/**
+	 * Get the number of file descriptors open at the last sample.
+	 *
+	 * @return The number of file descriptors, or -1 if not available.
+	 */
+	public long getOpenCount() {
+		return open;
+	}
+
+	/**
+	 * Get the maximum number of file descriptors allowed.
+	 *
+	 * @return The maximum, or -1 if not available.
+	 */
+	public long getMaxCount() {
+		return max;
+	}
+
+	/**
+	 * Get the number of file descriptors of a type of the last scan.
+	 *
+	 * @param type The type
+	 * @return The number of file descriptors, or -1 if not yet scanned.
+	 */
+	public int getCount(FileDescriptorType type) {
+		int[] c = categories;
+		return c != null ? c[type.ordinal()] : -1;
+	}
+
+	/**
+	 * Get if the last scan ran out of time, so did not categorize all file descriptors.
+	 *
+	 * @return TRUE if the last scan was incomplete.
+	 */
+	public boolean isScanTruncated() {
+		return truncated;
+	}
+
+	/**
+	 * Get the time taken by the last scan.
+	 *
+	 * @return The time (msec).
+	 */
+	public double getScanTime() {
+		return scanTime / (double) NSEC_PER_MSEC;
+	}
+
+	/**
+	 * Set if the file descriptors are categorized at each sample.
+	 *
+	 * @param categorized TRUE to scan the file descriptors at each sample.
+	 */
+	public void setCategorized(boolean categorized) {
+		this.categorized = categorized;
+	}
+
+	/**
+	 * Get if the file descriptors are categorized at each sample.
+	 *
+	 * @return TRUE if the file descriptors are scanned at each sample.
+	 */
+	public boolean isCategorized() {
+		return categorized;
+	}
+
+	/**
+	 * Set the time budget of a scan, must be a positive value.
+	 *
+	 * @param budget The time budget (msec).
+	 */
+	public void setScanBudget(int budget) {
+		if (budget <= 0) {
+			throw new IllegalArgumentException("Budget value is invalid");
+		}
+		this.scanBudget = budget;
+	}
+
+	/**
+	 * Get the time budget of a scan.
+	 *
+	 * @return The time budget (msec).
+	 */
+	public int getScanBudget() {
+		return scanBudget;
+	}
+
+	/**
+	 * Set the number of points to catch/display
+	 *
+	 * @param points The number of points to display.
+	 */
+	public void setPoints(int points) {
+		scope.setPoints(points);
+	}
+
+	@Override
+	public void setFont(Font font) {
+		super.setFont(font);
+		scope.setFont(font);
+	}
+
+	/**
+	 * Set the font color
+	 *
+	 * @param color The font color
+	 */
+	public void setFontColor(Color color) {
+		scope.setFontColor(color);
+	}
+
+	@Override
+	public void setForeground(Color color) {
+		super.setForeground(color);
+		scope.setForeground(color);
+	}
+
+	@Override
+	public void setBackground(Color color) {
+		super.setBackground(color);
+		scope.setBackground(color);
+	}
+
+}
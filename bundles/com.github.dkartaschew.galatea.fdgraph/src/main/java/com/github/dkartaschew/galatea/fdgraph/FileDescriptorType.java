@@ -0,0 +1,73 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.fdgraph;
+
+/**
+ * The type of an open file descriptor, from the target of its link in <code>/proc/self/fd</code>.
+ */
+public enum FileDescriptorType {
+
+	/**
+	 * A network or Unix domain socket.
+	 */
+	SOCKET("socket:"),
+	/**
+	 * A pipe.
+	 */
+	PIPE("pipe:"),
+	/**
+	 * An anonymous inode, such as an epoll, eventfd or inotify instance.
+	 */
+	ANON_INODE("anon_inode:"),
+	/**
+	 * A file or device of the file system.
+	 */
+	FILE("/"),
+	/**
+	 * Anything else.
+	 */
+	OTHER("");
+
+	/**
+	 * The prefix of the link target of the type.
+	 */
+	private final String prefix;
+
+	/**
+	 * Create a new type.
+	 *
+	 * @param prefix The prefix of the link target.
+	 */
+	FileDescriptorType(String prefix) {
+		this.prefix = prefix;
+	}
+
+	/**
+	 * Get the type of a file descriptor.
+	 *
+	 * @param target The target of the link of the file descriptor
+	 * @return The type.
+	 */
+	static FileDescriptorType of(String target) {
+		for (FileDescriptorType type : values()) {
+			if (target.startsWith(type.prefix)) {
+				return type;
+			}
+		}
+		return OTHER;
+	}
+}
@@ -33,6 +33,11 @@ import org.eclipse.swt.widgets.Widget;
 
 /**
  * A basic Graph implementation
+ * <p>
+ * Each point may hold several values, rendered as stacked series from the bottom of the graph up, in the order given.
+ * Values range from 0 to the maximum, 100 by default, or with auto scaling, the top of the graph grows beyond the
+ * maximum to fit the largest point shown.
+ * </p>
  */
 public class Graph extends Canvas implements PaintListener {
 
@@ -41,9 +46,21 @@ public class Graph extends Canvas implements PaintListener {
 	 */
 	private int points = 10;
 	/**
-	 * The list of values to render
+	 * The list of values to render, each point holding the values of the series.
 	 */
-	private List<Double> values = new LinkedList<>();
+	private List<double[]> values = new LinkedList<>();
+	/**
+	 * The value at the top of the graph, or the smallest value at the top if auto scaled.
+	 */
+	private double maximum = 100;
+	/**
+	 * Flag to grow the top of the graph to fit the points shown.
+	 */
+	private boolean autoScale;
+	/**
+	 * The colors of the series, or NULL to use the foreground.
+	 */
+	private Color[] seriesColors;
 	/**
 	 * Text to display.
 	 */
@@ -100,18 +117,122 @@ public class Graph extends Canvas implements PaintListener {
 	}
 
 	/**
-	 * Add the given value to be rendered. (must be between 0 and 100).
+	 * Add the given value to be rendered. (must be between 0 and the maximum, unless auto scaled).
 	 * 
 	 * @param value The value to be rendered
 	 */
 	public void addValue(double value) {
-		if (value < 0 || value > 100) {
+		addValues(value);
+	}
+
+	/**
+	 * Add the given values of a point to be rendered, stacked in the order given. (each must be positive, and the sum
+	 * must be no more than the maximum, unless auto scaled).
+	 * 
+	 * @param values The values of each series to be rendered.
+	 */
+	public void addValues(double... values) {
+		if (values == null || values.length == 0) {
+			throw new IllegalArgumentException("Values must be supplied.");
+		}
+		double sum = 0;
+		for (double value : values) {
+			if (value < 0 || Double.isNaN(value) || Double.isInfinite(value)) {
+				throw new IllegalArgumentException("Value is outside of supported range.");
+			}
+			sum += value;
+		}
+		if (!autoScale && sum > maximum * (1 + 1e-9)) {
 			throw new IllegalArgumentException("Value is outside of supported range.");
 		}
-		values.add(value);
-		while (values.size() > points) {
-			values.remove(0);
+		this.values.add(values.clone());
+		while (this.values.size() > points) {
+			this.values.remove(0);
+		}
+	}
+
+	/**
+	 * Set the value at the top of the graph, must be a positive value. If auto scaled, the top of the graph is at least
+	 * this value.
+	 * 
+	 * @param maximum The value at the top of the graph.
+	 */
+	public void setMaximum(double maximum) {
+		checkWidget();
+		if (maximum <= 0 || Double.isNaN(maximum) || Double.isInfinite(maximum)) {
+			throw new IllegalArgumentException("Maximum value is invalid");
+		}
+		this.maximum = maximum;
+	}
+
+	/**
+	 * Get the value at the top of the graph, or the smallest value at the top if auto scaled.
+	 * 
+	 * @return The maximum value.
+	 */
+	public double getMaximum() {
+		return maximum;
+	}
+
+	/**
+	 * Set if the top of the graph grows beyond the maximum to fit the points shown.
+	 * 
+	 * @param autoScale TRUE to auto scale.
+	 */
+	public void setAutoScale(boolean autoScale) {
+		checkWidget();
+		this.autoScale = autoScale;
+	}
+
+	/**
+	 * Get if the top of the graph grows beyond the maximum to fit the points shown.
+	 * 
+	 * @return TRUE if auto scaled.
+	 */
+	public boolean isAutoScale() {
+		return autoScale;
+	}
+
+	/**
+	 * Get the value at the top of the graph, fitting the points shown if auto scaled.
+	 * 
+	 * @return The value at the top of the graph.
+	 */
+	public double getScale() {
+		double scale = maximum;
+		if (autoScale) {
+			for (double[] v : values) {
+				double sum = 0;
+				for (double value : v) {
+					sum += value;
+				}
+				scale = Math.max(scale, sum);
+			}
+		}
+		return scale;
+	}
+
+	/**
+	 * Set the colors of the stacked series. Series without a color use the foreground color.
+	 * 
+	 * @param colors The colors, by series, or NULL to use the foreground for all series.
+	 */
+	public void setSeriesColors(Color... colors) {
+		checkWidget();
+		this.seriesColors = colors != null ? colors.clone() : null;
+	}
+
+	/**
+	 * Get the color of a series.
+	 * 
+	 * @param series The series
+	 * @return The color.
+	 */
+	private Color getSeriesColor(int series) {
+		if (seriesColors != null && series < seriesColors.length && seriesColors[series] != null) {
+			return seriesColors[series];
 		}
+		return getForeground();
 	}
 
 	/**
@@ -155,37 +276,66 @@ public class Graph extends Canvas implements PaintListener {
 		gc.fillRectangle(bounds);
 
 		// Draw points
-		double pixelsPerHeight = (double) height / 100d;
+		double pixelsPerHeight = (double) height / getScale();
 		double pixelsPerPoint = (double) width / (double) (points - 1);
 		if (pixelsPerPoint < 1) {
 			pixelsPerPoint = 1;
 		}
-		double offset = 0;
-		int i = 0;
 		if (!values.isEmpty()) {
-			int[] line = new int[values.size() * 2];
-			int[] fill = new int[(values.size() + 2) * 2];
-			for (Double v : values) {
-				line[i] = (int) offset;
-				line[i + 1] = (int) (height - (pixelsPerHeight * v));
-				fill[i] = line[i];
-				fill[i + 1] = line[i + 1];
+			int count = values.size();
+			int series = 0;
+			for (double[] v : values) {
+				series = Math.max(series, v.length);
+			}
+			// The bottom of the series, starting at the base of the graph.
+			int[] base = new int[count * 2];
+			int[] line = new int[count * 2];
+			int[] fill = new int[count * 4];
+			double offset = 0;
+			int i = 0;
+			for (int p = 0; p < count; p++) {
+				base[i] = (int) offset;
+				base[i + 1] = height;
 				i += 2;
 				offset += pixelsPerPoint;
 			}
-			fill[i] = (int) ((offset > 0) ? offset - pixelsPerPoint : 0);
-			fill[i + 1] = height;
-			fill[i + 2] = 0;
-			fill[i + 3] = height;
-			gc.setLineWidth(2);
-			gc.drawPolyline(line);
-
-			gc.setAlpha(128);
-			gc.setLineWidth(1);
-			gc.setBackground(getForeground());
-			gc.fillPolygon(fill);
+			double[] sums = new double[count];
+			for (int s = 0; s < series; s++) {
+				i = 0;
+				int p = 0;
+				for (double[] v : values) {
+					if (s < v.length) {
+						sums[p] += v[s];
+					}
+					line[i] = base[i];
+					line[i + 1] = (int) (height - (pixelsPerHeight * sums[p]));
+					i += 2;
+					p++;
+				}
+				// The band between the bottom of the series and its line.
+				System.arraycopy(line, 0, fill, 0, line.length);
+				for (p = 0; p < count; p++) {
+					fill[line.length + p * 2] = base[(count - 1 - p) * 2];
+					fill[line.length + p * 2 + 1] = base[(count - 1 - p) * 2 + 1];
+				}
+				Color color = getSeriesColor(s);
+				gc.setAlpha(255);
+				gc.setForeground(color);
+				gc.setLineWidth(2);
+				gc.drawPolyline(line);
+
+				gc.setAlpha(128);
+				gc.setLineWidth(1);
+				gc.setBackground(color);
+				gc.fillPolygon(fill);
+
+				int[] swap = base;
+				base = line;
+				line = swap;
+			}
 		}
 		// Border
+		gc.setForeground(getForeground());
 		gc.setAlpha(255);
 		gc.drawRectangle(0, 0, width - 1, height - 1);
 
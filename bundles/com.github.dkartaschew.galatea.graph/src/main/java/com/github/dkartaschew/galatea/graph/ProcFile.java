@@ -0,0 +1,277 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.graph;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reader of text files of the Linux <code>/proc</code> file system, for repeated sampling.
+ * <p>
+ * The file is kept open, and each {@link #read()} reads the whole file from the start into a reused buffer. The
+ * contents are then scanned by line and by whitespace separated field, with numbers parsed in place, so a sample
+ * allocates nothing once the buffer has grown to fit the file. The reader is not thread safe.
+ * </p>
+ */
+public class ProcFile implements Closeable {
+
+	/**
+	 * The initial capacity of the buffer.
+	 */
+	private final static int INITIAL_CAPACITY = 4096;
+
+	/**
+	 * The path of the file.
+	 */
+	private final Path path;
+	/**
+	 * The open file, or NULL if not yet opened or closed.
+	 */
+	private FileChannel channel;
+	/**
+	 * The contents of the file of the last read.
+	 */
+	private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+	/**
+	 * The position of the scan.
+	 */
+	private int position;
+	/**
+	 * The end of the contents.
+	 */
+	private int limit;
+
+	/**
+	 * Create a new reader. The file is opened on the first read.
+	 *
+	 * @param path The path of the file, eg "/proc/self/io".
+	 */
+	public ProcFile(String path) {
+		if (path == null) {
+			throw new IllegalArgumentException("Path value is invalid");
+		}
+		this.path = Paths.get(path);
+	}
+
+	/**
+	 * Get if the file is readable, reading it if not yet read.
+	 *
+	 * @return TRUE if the file can be read.
+	 */
+	public boolean isReadable() {
+		if (channel != null) {
+			return true;
+		}
+		try {
+			read();
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Read the current contents of the file, and position the scan at the start of the first line.
+	 *
+	 * @throws IOException If the file can't be read.
+	 */
+	public void read() throws IOException {
+		if (channel == null) {
+			channel = FileChannel.open(path, StandardOpenOption.READ);
+		}
+		buffer.clear();
+		long offset = 0;
+		int n;
+		// Files of proc report no size, so read until the end, growing the buffer if filled.
+		while ((n = channel.read(buffer, offset)) >= 0) {
+			offset += n;
+			if (!buffer.hasRemaining()) {
+				ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+				buffer.flip();
+				larger.put(buffer);
+				buffer = larger;
+			}
+		}
+		position = 0;
+		limit = buffer.position();
+	}
+
+	/**
+	 * Advance the scan to the start of the next line.
+	 *
+	 * @return TRUE if there is another line.
+	 */
+	public boolean nextLine() {
+		byte[] b = buffer.array();
+		while (position < limit && b[position] != '\n') {
+			position++;
+		}
+		if (position < limit) {
+			position++;
+		}
+		return position < limit;
+	}
+
+	/**
+	 * Get if the scan is at the end of the contents.
+	 *
+	 * @return TRUE if there is nothing left to scan.
+	 */
+	public boolean isEnd() {
+		return position >= limit;
+	}
+
+	/**
+	 * Get if the scan is at the end of the line, ignoring any trailing spaces.
+	 *
+	 * @return TRUE if there are no more fields in the line.
+	 */
+	public boolean isLineEnd() {
+		skipSpace();
+		return position >= limit || buffer.array()[position] == '\n';
+	}
+
+	/**
+	 * Advance the scan past any spaces and tabs to the start of the next field of the line.
+	 */
+	private void skipSpace() {
+		byte[] b = buffer.array();
+		while (position < limit && (b[position] == ' ' || b[position] == '\t')) {
+			position++;
+		}
+	}
+
+	/**
+	 * Get the end of the field at the scan position.
+	 *
+	 * @return The end of the field.
+	 */
+	private int fieldEnd() {
+		byte[] b = buffer.array();
+		int end = position;
+		while (end < limit && b[end] != ' ' && b[end] != '\t' && b[end] != '\n') {
+			end++;
+		}
+		return end;
+	}
+
+	/**
+	 * Skip fields of the line.
+	 *
+	 * @param count The number of fields to skip.
+	 */
+	public void skipFields(int count) {
+		for (int i = 0; i < count; i++) {
+			skipSpace();
+			position = fieldEnd();
+		}
+	}
+
+	/**
+	 * Get if the next field of the line equals the given name, without advancing the scan. A field ending with a colon
+	 * matches the name without the colon.
+	 *
+	 * @param name The name, in ASCII.
+	 * @return TRUE if the next field is the name.
+	 */
+	public boolean isField(byte[] name) {
+		skipSpace();
+		byte[] b = buffer.array();
+		int end = fieldEnd();
+		if (end > position && b[end - 1] == ':') {
+			end--;
+		}
+		if (end - position != name.length) {
+			return false;
+		}
+		for (int i = 0; i < name.length; i++) {
+			if (b[position + i] != name[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the next field of the line as a string. This allocates, so is intended for names seen for the first time.
+	 *
+	 * @return The field, or an empty string if none.
+	 */
+	public String nextField() {
+		skipSpace();
+		int end = fieldEnd();
+		String field = new String(buffer.array(), position, end - position, StandardCharsets.US_ASCII);
+		position = end;
+		return field;
+	}
+
+	/**
+	 * Parse the next unsigned decimal number of the line, skipping anything before it such as a "name:" label.
+	 *
+	 * @return The number, or -1 if there is no number left in the line.
+	 */
+	public long nextLong() {
+		byte[] b = buffer.array();
+		while (position < limit && b[position] != '\n' && (b[position] < '0' || b[position] > '9')) {
+			position++;
+		}
+		if (position >= limit || b[position] == '\n') {
+			return -1;
+		}
+		long value = 0;
+		while (position < limit && b[position] >= '0' && b[position] <= '9') {
+			value = value * 10 + (b[position++] - '0');
+		}
+		return value;
+	}
+
+	/**
+	 * Find the line starting with the given name, searching from the start of the contents, and position the scan
+	 * after the name.
+	 *
+	 * @param name The name, in ASCII, eg "read_bytes".
+	 * @return TRUE if found.
+	 */
+	public boolean find(byte[] name) {
+		position = 0;
+		do {
+			if (isField(name)) {
+				skipFields(1);
+				return true;
+			}
+		} while (nextLine());
+		return false;
+	}
+
+	@Override
+	public void close() {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// Nothing to release.
+			}
+			channel = null;
+		}
+	}
+}
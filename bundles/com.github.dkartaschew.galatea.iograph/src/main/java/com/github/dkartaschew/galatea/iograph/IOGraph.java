@@ -0,0 +1,494 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.iograph;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.widgets.Composite;
+
+import com.github.dkartaschew.galatea.graph.Graph;
+import com.github.dkartaschew.galatea.graph.ProcFile;
+
+/**
+ * Stacked graph of the bytes read and written by the JVM process per second, with the utilization and average wait
+ * of the block devices.
+ * <p>
+ * The process throughput is read from <code>/proc/self/io</code>, being the bytes fetched from and sent to the storage
+ * layer, and the device statistics from <code>/proc/diskstats</code>. Both files are kept open and parsed in place
+ * into reused buffers, so a sample allocates nothing once all devices have been seen. The graph is auto-scaled to the
+ * largest throughput shown. Only available on Linux, elsewhere the graph shows "n/a".
+ * </p>
+ */
+public class IOGraph extends Composite implements Runnable {
+
+	/**
+	 * The smallest throughput shown at the top of the graph (bytes/sec).
+	 */
+	private final static double MIN_SCALE = 1024 * 1024;
+	/**
+	 * The name of the bytes read field of the process statistics.
+	 */
+	private final static byte[] READ_BYTES = "read_bytes".getBytes(StandardCharsets.US_ASCII);
+	/**
+	 * The name of the bytes written field of the process statistics.
+	 */
+	private final static byte[] WRITE_BYTES = "write_bytes".getBytes(StandardCharsets.US_ASCII);
+	/**
+	 * Nanoseconds per millisecond.
+	 */
+	private final static double NSEC_PER_MSEC = 1e6d;
+
+	/**
+	 * The graph implementation
+	 */
+	private final Graph scope;
+	/**
+	 * Delay for each sample
+	 */
+	private final int delay;
+	/**
+	 * The process I/O statistics.
+	 */
+	private final ProcFile processFile = new ProcFile("/proc/self/io");
+	/**
+	 * The block device statistics.
+	 */
+	private final ProcFile diskFile = new ProcFile("/proc/diskstats");
+	/**
+	 * The devices seen, in the order of the statistics.
+	 */
+	private final List<Device> devices = new ArrayList<>();
+	/**
+	 * The bytes read and written per second of the last sample, reused between samples.
+	 */
+	private final double[] rates = new double[2];
+	/**
+	 * The total bytes read at the last sample, or -1 if not sampled.
+	 */
+	private long readBytes = -1;
+	/**
+	 * The total bytes written at the last sample, or -1 if not sampled.
+	 */
+	private long writeBytes = -1;
+	/**
+	 * The time of the last sample (nsec).
+	 */
+	private long last;
+	/**
+	 * The device shown in the text of the graph, or NULL for the busiest device.
+	 */
+	private String device;
+
+	/**
+	 * Create the composite.
+	 *
+	 * @param parent The parent composite.
+	 * @param style  The default style
+	 * @param delay  The sample delay (msec)
+	 */
+	public IOGraph(Composite parent, int style, int delay) {
+		super(parent, style);
+		this.delay = delay > 0 ? delay : 500;
+		setLayout(GridLayoutFactory.fillDefaults().numColumns(2).spacing(0, 0).create());
+
+		scope = new Graph(this, SWT.BORDER);
+		scope.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).hint(SWT.DEFAULT, 24).create());
+		scope.setForeground(getDisplay().getSystemColor(SWT.COLOR_DARK_MAGENTA));
+		scope.setFontColor(getDisplay().getSystemColor(SWT.COLOR_WHITE));
+		scope.setSeriesColors(getDisplay().getSystemColor(SWT.COLOR_DARK_BLUE),
+				getDisplay().getSystemColor(SWT.COLOR_DARK_MAGENTA));
+		scope.setMaximum(MIN_SCALE);
+		scope.setAutoScale(true);
+
+		addDisposeListener(e -> {
+			processFile.close();
+			diskFile.close();
+		});
+	}
+
+	@Override
+	protected void checkSubclass() {
+		// Disable the check that prevents subclassing of SWT components
+	}
+
+	/**
+	 * Get the sample delay
+	 *
+	 * @return The sample delay in msec.
+	 */
+	public int getDelay() {
+		return delay;
+	}
+
+	@Override
+	public void run() {
+		if (isDisposed()) {
+			return;
+		}
+		long now = System.nanoTime();
+		double msec = last != 0 ? (now - last) / NSEC_PER_MSEC : 0;
+		last = now;
+
+		boolean process = sampleProcess(msec);
+		boolean disks = sampleDisks(msec);
+		if (process) {
+			scope.addValues(rates);
+			Device shown = getShownDevice();
+			scope.setText(String.format("R %s W %s%s", format(rates[0]), format(rates[1]),
+					shown != null ? String.format(" %s %.0f%%", shown.label, shown.utilization) : ""));
+		} else {
+			scope.addValue(0);
+			scope.setText("n/a");
+		}
+		scope.setToolTipText(disks || process ? getSummary() : "I/O statistics are not available");
+		scope.redraw();
+		getDisplay().timerExec(getDelay(), this);
+	}
+
+	/**
+	 * Sample the bytes read and written by the process.
+	 *
+	 * @param msec The time since the last sample (msec), or 0 if none.
+	 * @return TRUE if the statistics are available.
+	 */
+	private boolean sampleProcess(double msec) {
+		long read;
+		long write;
+		try {
+			processFile.read();
+			read = processFile.find(READ_BYTES) ? processFile.nextLong() : -1;
+			write = processFile.find(WRITE_BYTES) ? processFile.nextLong() : -1;
+		} catch (IOException e) {
+			read = -1;
+			write = -1;
+		}
+		if (read < 0 || write < 0) {
+			rates[0] = 0;
+			rates[1] = 0;
+			return false;
+		}
+		rates[0] = msec > 0 && readBytes >= 0 ? Math.max(0, read - readBytes) * 1000d / msec : 0;
+		rates[1] = msec > 0 && writeBytes >= 0 ? Math.max(0, write - writeBytes) * 1000d / msec : 0;
+		readBytes = read;
+		writeBytes = write;
+		return true;
+	}
+
+	/**
+	 * Sample the utilization and average wait of the block devices.
+	 *
+	 * @param msec The time since the last sample (msec), or 0 if none.
+	 * @return TRUE if the statistics are available.
+	 */
+	private boolean sampleDisks(double msec) {
+		try {
+			diskFile.read();
+		} catch (IOException e) {
+			return false;
+		}
+		int index = 0;
+		while (!diskFile.isEnd()) {
+			// major minor name reads merged sectors ms writes merged sectors ms in-flight io-ms ...
+			diskFile.skipFields(2);
+			Device d = findDevice(index);
+			if (d == null) {
+				d = new Device(diskFile.nextField());
+				devices.add(index, d);
+			} else {
+				diskFile.skipFields(1);
+			}
+			index = devices.indexOf(d) + 1;
+			long reads = diskFile.nextLong();
+			diskFile.skipFields(2);
+			long readTime = diskFile.nextLong();
+			long writes = diskFile.nextLong();
+			diskFile.skipFields(2);
+			long writeTime = diskFile.nextLong();
+			diskFile.skipFields(1);
+			long ioTime = diskFile.nextLong();
+			if (ioTime >= 0) {
+				d.update(reads + writes, readTime + writeTime, ioTime, msec);
+			}
+			diskFile.nextLine();
+		}
+		return true;
+	}
+
+	/**
+	 * Find the device of the current line of the statistics.
+	 *
+	 * @param index The expected index of the device, as devices are listed in a stable order.
+	 * @return The device, or NULL if not yet seen.
+	 */
+	private Device findDevice(int index) {
+		if (index < devices.size() && diskFile.isField(devices.get(index).name)) {
+			return devices.get(index);
+		}
+		for (int i = 0; i < devices.size(); i++) {
+			if (diskFile.isField(devices.get(i).name)) {
+				return devices.get(i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Get the device shown in the text of the graph.
+	 *
+	 * @return The selected device, or the busiest device, or NULL if none.
+	 */
+	private Device getShownDevice() {
+		Device shown = null;
+		for (Device d : devices) {
+			if (device != null ? d.label.equals(device)
+					: d.ios > 0 && (shown == null || d.utilization > shown.utilization)) {
+				shown = d;
+			}
+		}
+		return shown;
+	}
+
+	/**
+	 * Get a summary of the last sample.
+	 *
+	 * @return The summary.
+	 */
+	private String getSummary() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("Process read %s, written %s", format(rates[0]), format(rates[1])));
+		for (Device d : devices) {
+			if (d.ios > 0) {
+				sb.append(String.format("%n%s: %.0f%% busy, %.1fms await", d.label, d.utilization, d.await));
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Format a throughput.
+	 *
+	 * @param rate The throughput (bytes/sec).
+	 * @return The formatted throughput.
+	 */
+	private static String format(double rate) {
+		if (rate >= 1024 * 1024) {
+			return String.format("%.1fM/s", rate / (1024 * 1024));
+		}
+		if (rate >= 1024) {
+			return String.format("%.0fK/s", rate / 1024);
+		}
+		return String.format("%.0fB/s", rate);
+	}
+
+	/**
+	 * Get the bytes the process read from storage per second of the last sample.
+	 *
+	 * @return The throughput (bytes/sec).
+	 */
+	public double getReadRate() {
+		return rates[0];
+	}
+
+	/**
+	 * Get the bytes the process wrote to storage per second of the last sample.
+	 *
+	 * @return The throughput (bytes/sec).
+	 */
+	public double getWriteRate() {
+		return rates[1];
+	}
+
+	/**
+	 * Get the block devices that have completed any I/O.
+	 *
+	 * @return The names of the devices.
+	 */
+	public List<String> getDevices() {
+		List<String> names = new ArrayList<>();
+		for (Device d : devices) {
+			if (d.ios > 0) {
+				names.add(d.label);
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * Get the share of the last sample a device was busy with I/O.
+	 *
+	 * @param name The name of the device, eg "sda".
+	 * @return The utilization (%), or 0 if the device is unknown.
+	 */
+	public double getUtilization(String name) {
+		for (Device d : devices) {
+			if (d.label.equals(name)) {
+				return d.utilization;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Get the average time the I/O completed by a device in the last sample took, including the time queued.
+	 *
+	 * @param name The name of the device, eg "sda".
+	 * @return The average wait (msec), or 0 if the device is unknown or completed no I/O.
+	 */
+	public double getAwait(String name) {
+		for (Device d : devices) {
+			if (d.label.equals(name)) {
+				return d.await;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Set the device shown in the text of the graph.
+	 *
+	 * @param name The name of the device, or NULL to show the busiest device.
+	 */
+	public void setDevice(String name) {
+		this.device = name;
+	}
+
+	/**
+	 * Get the device shown in the text of the graph.
+	 *
+	 * @return The name of the device, or NULL if the busiest device is shown.
+	 */
+	public String getDevice() {
+		return device;
+	}
+
+	/**
+	 * Get if the I/O statistics of the process are available.
+	 *
+	 * @return TRUE if available.
+	 */
+	public boolean isSupported() {
+		return processFile.isReadable();
+	}
+
+	/**
+	 * Set the number of points to catch/display
+	 *
+	 * @param points The number of points to display.
+	 */
+	public void setPoints(int points) {
+		scope.setPoints(points);
+	}
+
+	@Override
+	public void setFont(Font font) {
+		super.setFont(font);
+		scope.setFont(font);
+	}
+
+	/**
+	 * Set the font color
+	 *
+	 * @param color The font color
+	 */
+	public void setFontColor(Color color) {
+		scope.setFontColor(color);
+	}
+
+	@Override
+	public void setForeground(Color color) {
+		super.setForeground(color);
+		scope.setForeground(color);
+	}
+
+	@Override
+	public void setBackground(Color color) {
+		super.setBackground(color);
+		scope.setBackground(color);
+	}
+
+	/**
+	 * The statistics of a block device.
+	 */
+	private static class Device {
+
+		/**
+		 * The name of the device, in ASCII.
+		 */
+		private final byte[] name;
+		/**
+		 * The name of the device.
+		 */
+		private final String label;
+		/**
+		 * The total I/O completed, or -1 if not sampled.
+		 */
+		private long ios = -1;
+		/**
+		 * The total time spent on the I/O completed (msec).
+		 */
+		private long ioWait;
+		/**
+		 * The total time busy with I/O (msec).
+		 */
+		private long ioTime;
+		/**
+		 * The share of the last sample busy with I/O (%).
+		 */
+		private double utilization;
+		/**
+		 * The average time of the I/O completed in the last sample (msec).
+		 */
+		private double await;
+
+		/**
+		 * Create a new device.
+		 *
+		 * @param label The name of the device.
+		 */
+		Device(String label) {
+			this.label = label;
+			this.name = label.getBytes(StandardCharsets.US_ASCII);
+		}
+
+		/**
+		 * Update the statistics of the device.
+		 *
+		 * @param ios The total I/O completed
+		 * @param ioWait The total time spent on the I/O completed (msec)
+		 * @param ioTime The total time busy with I/O (msec)
+		 * @param msec The time since the last sample (msec), or 0 if none.
+		 */
+		void update(long ios, long ioWait, long ioTime, double msec) {
+			if (this.ios >= 0 && msec > 0) {
+				long completed = ios - this.ios;
+				utilization = Math.min(100d, (ioTime - this.ioTime) * 100d / msec);
+				await = completed > 0 ? (double) (ioWait - this.ioWait) / completed : 0;
+			}
+			this.ios = ios;
+			this.ioWait = ioWait;
+			this.ioTime = ioTime;
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.laggraph;
+
+/**
+ * A freeze of the UI thread, with the stack of the UI thread captured while frozen.
+ */
+public class Freeze {
+
+	/**
+	 * The time the freeze started (msec since the epoch).
+	 */
+	private final long time;
+	/**
+	 * The stack of the UI thread when captured.
+	 */
+	private final StackTraceElement[] stackTrace;
+	/**
+	 * The duration of the freeze (nsec), updated until the freeze ends.
+	 */
+	private volatile long duration;
+	/**
+	 * Flag to indicate the freeze has ended.
+	 */
+	private volatile boolean ended;
+
+	/**
+	 * Create a new freeze.
+	 *
+	 * @param time The time the freeze started (msec since the epoch)
+	 * @param duration The duration of the freeze so far (nsec)
+	 * @param stackTrace The stack of the UI thread.
+	 */
+	Freeze(long time, long duration, StackTraceElement[] stackTrace) {
+		this.time = time;
+		this.duration = duration;
+		this.stackTrace = stackTrace;
+	}
+
+	/**
+	 * Update the duration of the freeze in progress.
+	 *
+	 * @param duration The duration of the freeze so far (nsec).
+	 */
+	void update(long duration) {
+		this.duration = duration;
+	}
+
+	/**
+	 * End the freeze.
+	 *
+	 * @param duration The total duration of the freeze (nsec).
+	 */
+	void end(long duration) {
+		this.duration = duration;
+		this.ended = true;
+	}
+
+	/**
+	 * Get the time the freeze started.
+	 *
+	 * @return The time (msec since the epoch).
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * Get the duration of the freeze, or its duration so far if still frozen.
+	 *
+	 * @return The duration (msec).
+	 */
+	public double getDuration() {
+		return duration / 1e6d;
+	}
+
+	/**
+	 * Get if the freeze has ended.
+	 *
+	 * @return TRUE if the UI thread has since dispatched events.
+	 */
+	public boolean isEnded() {
+		return ended;
+	}
+
+	/**
+	 * Get the stack of the UI thread captured during the freeze.
+	 *
+	 * @return The stack, innermost frame first.
+	 */
+	public StackTraceElement[] getStackTrace() {
+		return stackTrace.clone();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("Freeze of %.1fms%s at %tT.%<tL", getDuration(), ended ? "" : " (ongoing)", time));
+		for (StackTraceElement element : stackTrace) {
+			sb.append(System.lineSeparator()).append("\tat ").append(element);
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,374 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.laggraph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.widgets.Composite;
+
+import com.github.dkartaschew.galatea.graph.Graph;
+
+/**
+ * Graph of the lag of the UI event loop, capturing the stack of the UI thread during freezes.
+ * <p>
+ * Each sample posts a heartbeat to the UI thread, and the lag is the time the UI thread was late to run it, or to run
+ * the timer of the sample. A watchdog thread notes when the UI thread is late by more than the threshold, captures the
+ * stack of the UI thread while it is still frozen, and keeps the most recent freezes in a bounded ring buffer.
+ * </p>
+ */
+public class LagGraph extends Composite implements Runnable {
+
+	/**
+	 * The default lag before the UI thread is considered frozen (msec).
+	 */
+	public final static int DEFAULT_THRESHOLD = 250;
+	/**
+	 * The default lag shown at the top of the graph (msec).
+	 */
+	public final static int DEFAULT_SCALE = 500;
+	/**
+	 * The number of freezes kept.
+	 */
+	public final static int FREEZE_CAPACITY = 32;
+	/**
+	 * Nanoseconds per millisecond.
+	 */
+	private final static long NSEC_PER_MSEC = 1_000_000L;
+	/**
+	 * The shortest interval between checks of the watchdog (msec).
+	 */
+	private final static int MIN_WATCHDOG_INTERVAL = 5;
+
+	/**
+	 * The graph implementation
+	 */
+	private final Graph scope;
+	/**
+	 * Delay for each sample
+	 */
+	private final int delay;
+	/**
+	 * The UI thread.
+	 */
+	private final Thread uiThread;
+	/**
+	 * Runnable to measure the lag of the heartbeat.
+	 */
+	private final Runnable heartbeat = this::heartbeat;
+	/**
+	 * Lock guarding the freeze being captured, and the ring buffer of freezes.
+	 */
+	private final Object lock = new Object();
+
+	/**
+	 * The time the UI thread is next expected to run (nsec), or 0 if not yet sampled.
+	 */
+	private volatile long due;
+	/**
+	 * The lag of the timer of the sample being taken (nsec).
+	 */
+	private long timerLag;
+	/**
+	 * The largest lag seen (nsec).
+	 */
+	private long maxLag;
+	/**
+	 * The lag before the UI thread is considered frozen (msec).
+	 */
+	private volatile int threshold = DEFAULT_THRESHOLD;
+	/**
+	 * The lag shown at the top of the graph (msec).
+	 */
+	private int scale = DEFAULT_SCALE;
+	/**
+	 * The freeze in progress, or NULL if none.
+	 */
+	private Freeze current;
+	/**
+	 * The time the freeze in progress started (nsec).
+	 */
+	private long currentStart;
+	/**
+	 * The ring buffer of freezes.
+	 */
+	private final Freeze[] freezes = new Freeze[FREEZE_CAPACITY];
+	/**
+	 * The index of the next freeze in the ring buffer.
+	 */
+	private int nextFreeze;
+	/**
+	 * The number of freezes in the ring buffer.
+	 */
+	private int freezeCount;
+	/**
+	 * The total number of freezes captured.
+	 */
+	private volatile long totalFreezes;
+	/**
+	 * The watchdog thread, or NULL if not started.
+	 */
+	private Thread watchdog;
+	/**
+	 * Flag to stop the watchdog.
+	 */
+	private volatile boolean stopped;
+
+	/**
+	 * Create the composite.
+	 *
+	 * @param parent The parent composite.
+	 * @param style  The default style
+	 * @param delay  The sample delay (msec)
+	 */
+	public LagGraph(Composite parent, int style, int delay) {
+		super(parent, style);
+		this.delay = delay > 0 ? delay : 500;
+		this.uiThread = getDisplay().getThread();
+		setLayout(GridLayoutFactory.fillDefaults().numColumns(2).spacing(0, 0).create());
+
+		scope = new Graph(this, SWT.BORDER);
+		scope.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).hint(SWT.DEFAULT, 24).create());
+		scope.setForeground(getDisplay().getSystemColor(SWT.COLOR_DARK_RED));
+		scope.setFontColor(getDisplay().getSystemColor(SWT.COLOR_WHITE));
+
+		addDisposeListener(e -> {
+			stopped = true;
+			if (watchdog != null) {
+				watchdog.interrupt();
+			}
+		});
+	}
+
+	@Override
+	protected void checkSubclass() {
+		// Disable the check that prevents subclassing of SWT components
+	}
+
+	/**
+	 * Get the sample delay
+	 *
+	 * @return The sample delay in msec.
+	 */
+	public int getDelay() {
+		return delay;
+	}
+
+	@Override
+	public void run() {
+		if (isDisposed()) {
+			return;
+		}
+		long now = System.nanoTime();
+		timerLag = due != 0 ? Math.max(0, now - due) : 0;
+		due = now;
+		if (watchdog == null) {
+			watchdog = new Thread(this::watch, "LagGraph Watchdog");
+			watchdog.setDaemon(true);
+			watchdog.start();
+		}
+		// The heartbeat is queued behind any events already pending.
+		getDisplay().asyncExec(heartbeat);
+	}
+
+	/**
+	 * Measure the lag of the heartbeat, ending any freeze, and schedule the next sample.
+	 */
+	private void heartbeat() {
+		if (isDisposed()) {
+			return;
+		}
+		long now = System.nanoTime();
+		long lag = Math.max(timerLag, now - due);
+		synchronized (lock) {
+			if (current != null) {
+				current.end(now - currentStart);
+				current = null;
+			}
+			due = now + delay * NSEC_PER_MSEC;
+		}
+		maxLag = Math.max(maxLag, lag);
+
+		double msec = (double) lag / NSEC_PER_MSEC;
+		scope.addValue(Math.min(100d, msec * 100d / scale));
+		scope.setToolTipText(String.format("Lag %.1fms, max %.1fms, %d freezes", msec, getMaxLag(), totalFreezes));
+		scope.setText(String.format("%.1fms", msec));
+		scope.redraw();
+		getDisplay().timerExec(getDelay(), this);
+	}
+
+	/**
+	 * Watch for the UI thread being late, capturing its stack once late by more than the threshold.
+	 */
+	private void watch() {
+		while (!stopped) {
+			try {
+				Thread.sleep(Math.max(MIN_WATCHDOG_INTERVAL, threshold / 4));
+			} catch (InterruptedException e) {
+				return;
+			}
+			long expected = due;
+			if (expected == 0) {
+				continue;
+			}
+			long stall = System.nanoTime() - expected;
+			synchronized (lock) {
+				if (current != null) {
+					current.update(System.nanoTime() - currentStart);
+					continue;
+				}
+			}
+			if (stall < threshold * NSEC_PER_MSEC) {
+				continue;
+			}
+			StackTraceElement[] stack = uiThread.getStackTrace();
+			synchronized (lock) {
+				// The UI thread may have caught up while the stack was captured.
+				if (due != expected || current != null) {
+					continue;
+				}
+				current = new Freeze(System.currentTimeMillis() - stall / NSEC_PER_MSEC, stall, stack);
+				currentStart = expected;
+				freezes[nextFreeze] = current;
+				nextFreeze = (nextFreeze + 1) % freezes.length;
+				freezeCount = Math.min(freezeCount + 1, freezes.length);
+				totalFreezes++;
+			}
+		}
+	}
+
+	/**
+	 * Get the freezes captured, most recent first. Only the most recent {@link #FREEZE_CAPACITY} freezes are kept.
+	 *
+	 * @return The freezes.
+	 */
+	public List<Freeze> getFreezes() {
+		synchronized (lock) {
+			List<Freeze> list = new ArrayList<>(freezeCount);
+			for (int i = 1; i <= freezeCount; i++) {
+				list.add(freezes[(nextFreeze - i + freezes.length) % freezes.length]);
+			}
+			return list;
+		}
+	}
+
+	/**
+	 * Get the total number of freezes captured, including those no longer kept.
+	 *
+	 * @return The number of freezes.
+	 */
+	public long getFreezeCount() {
+		return totalFreezes;
+	}
+
+	/**
+	 * Discard the freezes captured.
+	 */
+	public void clearFreezes() {
+		synchronized (lock) {
+			for (int i = 0; i < freezes.length; i++) {
+				freezes[i] = null;
+			}
+			nextFreeze = 0;
+			freezeCount = 0;
+		}
+	}
+
+	/**
+	 * Get the largest lag seen.
+	 *
+	 * @return The largest lag (msec).
+	 */
+	public double getMaxLag() {
+		return (double) maxLag / NSEC_PER_MSEC;
+	}
+
+	/**
+	 * Set the lag before the UI thread is considered frozen and its stack captured, must be a positive value.
+	 *
+	 * @param threshold The threshold (msec).
+	 */
+	public void setThreshold(int threshold) {
+		if (threshold <= 0) {
+			throw new IllegalArgumentException("Threshold value is invalid");
+		}
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Get the lag before the UI thread is considered frozen.
+	 *
+	 * @return The threshold (msec).
+	 */
+	public int getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Set the lag shown at the top of the graph, must be a positive value. Larger lags are clipped.
+	 *
+	 * @param scale The lag (msec).
+	 */
+	public void setScale(int scale) {
+		if (scale <= 0) {
+			throw new IllegalArgumentException("Scale value is invalid");
+		}
+		this.scale = scale;
+	}
+
+	/**
+	 * Set the number of points to catch/display
+	 *
+	 * @param points The number of points to display.
+	 */
+	public void setPoints(int points) {
+		scope.setPoints(points);
+	}
+
+	@Override
+	public void setFont(Font font) {
+		super.setFont(font);
+		scope.setFont(font);
+	}
+
+	/**
+	 * Set the font color
+	 *
+	 * @param color The font color
+	 */
+	public void setFontColor(Color color) {
+		scope.setFontColor(color);
+	}
+
+	@Override
+	public void setForeground(Color color) {
+		super.setForeground(color);
+		scope.setForeground(color);
+	}
+
+	@Override
+	public void setBackground(Color color) {
+		super.setBackground(color);
+		scope.setBackground(color);
+	}
+
+}
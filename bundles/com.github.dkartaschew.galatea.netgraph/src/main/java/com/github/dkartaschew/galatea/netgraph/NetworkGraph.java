@@ -0,0 +1,620 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.netgraph;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.widgets.Composite;
+
+import com.github.dkartaschew.galatea.graph.Graph;
+import com.github.dkartaschew.galatea.graph.ProcFile;
+
+/**
+ * Stacked graph of the bytes received and transmitted per second by the network interfaces, with a graph of the TCP
+ * segments retransmitted per second below it.
+ * <p>
+ * The interface statistics are read from <code>/proc/net/dev</code>, and the TCP statistics from
+ * <code>/proc/net/snmp</code>, of the network namespace of the JVM. Both files are kept open and parsed in place into
+ * reused buffers, so a sample allocates nothing once all interfaces have been seen. By default the traffic of all
+ * interfaces other than loopback is graphed. Only available on Linux, elsewhere the graphs show "n/a".
+ * </p>
+ */
+public class NetworkGraph extends Composite implements Runnable {
+
+	/**
+	 * The name of the loopback interface.
+	 */
+	public final static String LOOPBACK = "lo";
+	/**
+	 * The smallest throughput shown at the top of the graph (bytes/sec).
+	 */
+	private final static double MIN_SCALE = 64 * 1024;
+	/**
+	 * The smallest retransmit rate shown at the top of the graph (segments/sec).
+	 */
+	private final static double MIN_RETRANSMIT_SCALE = 10;
+	/**
+	 * The label of the TCP lines of the SNMP statistics.
+	 */
+	private final static byte[] TCP = "Tcp".getBytes(StandardCharsets.US_ASCII);
+	/**
+	 * The name of the segments sent field of the TCP statistics.
+	 */
+	private final static byte[] OUT_SEGS = "OutSegs".getBytes(StandardCharsets.US_ASCII);
+	/**
+	 * The name of the segments retransmitted field of the TCP statistics.
+	 */
+	private final static byte[] RETRANS_SEGS = "RetransSegs".getBytes(StandardCharsets.US_ASCII);
+	/**
+	 * Nanoseconds per second.
+	 */
+	private final static double NSEC_PER_SEC = 1e9d;
+
+	/**
+	 * The graph of the throughput.
+	 */
+	private final Graph scope;
+	/**
+	 * The graph of the retransmits.
+	 */
+	private final Graph retransmitScope;
+	/**
+	 * Delay for each sample
+	 */
+	private final int delay;
+	/**
+	 * The interface statistics.
+	 */
+	private final ProcFile deviceFile = new ProcFile("/proc/net/dev");
+	/**
+	 * The SNMP statistics.
+	 */
+	private final ProcFile snmpFile = new ProcFile("/proc/net/snmp");
+	/**
+	 * The interfaces seen, in the order of the statistics.
+	 */
+	private final List<Interface> interfaces = new ArrayList<>();
+	/**
+	 * The bytes received and transmitted per second of the last sample, reused between samples.
+	 */
+	private final double[] rates = new double[2];
+	/**
+	 * The interface graphed, or NULL for all interfaces other than loopback.
+	 */
+	private String name;
+	/**
+	 * The index of the segments sent field of the TCP statistics, or -1 if not yet found.
+	 */
+	private int outSegsIndex = -1;
+	/**
+	 * The index of the segments retransmitted field of the TCP statistics, or -1 if not yet found.
+	 */
+	private int retransSegsIndex = -1;
+	/**
+	 * The total segments sent at the last sample, or -1 if not sampled.
+	 */
+	private long outSegs = -1;
+	/**
+	 * The total segments retransmitted at the last sample, or -1 if not sampled.
+	 */
+	private long retransSegs = -1;
+	/**
+	 * The segments sent per second of the last sample.
+	 */
+	private double outSegsRate;
+	/**
+	 * The segments retransmitted per second of the last sample.
+	 */
+	private double retransmitRate;
+	/**
+	 * The time of the last sample (nsec).
+	 */
+	private long last;
+
+	/**
+	 * Create the composite.
+	 *
+	 * @param parent The parent composite.
+	 * @param style  The default style
+	 * @param delay  The sample delay (msec)
+	 */
+	public NetworkGraph(Composite parent, int style, int delay) {
+		super(parent, style);
+		this.delay = delay > 0 ? delay : 500;
+		setLayout(GridLayoutFactory.fillDefaults().spacing(0, 0).create());
+
+		scope = new Graph(this, SWT.BORDER);
+		scope.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).hint(SWT.DEFAULT, 24).create());
+		scope.setForeground(getDisplay().getSystemColor(SWT.COLOR_DARK_GREEN));
+		scope.setFontColor(getDisplay().getSystemColor(SWT.COLOR_WHITE));
+		scope.setSeriesColors(getDisplay().getSystemColor(SWT.COLOR_DARK_GREEN),
+				getDisplay().getSystemColor(SWT.COLOR_DARK_BLUE));
+		scope.setMaximum(MIN_SCALE);
+		scope.setAutoScale(true);
+
+		retransmitScope = new Graph(this, SWT.BORDER);
+		retransmitScope.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).hint(SWT.DEFAULT, 16).create());
+		retransmitScope.setForeground(getDisplay().getSystemColor(SWT.COLOR_RED));
+		retransmitScope.setFontColor(getDisplay().getSystemColor(SWT.COLOR_WHITE));
+		retransmitScope.setMaximum(MIN_RETRANSMIT_SCALE);
+		retransmitScope.setAutoScale(true);
+
+		addDisposeListener(e -> {
+			deviceFile.close();
+			snmpFile.close();
+		});
+	}
+
+	@Override
+	protected void checkSubclass() {
+		// Disable the check that prevents subclassing of SWT components
+	}
+
+	/**
+	 * Get the sample delay
+	 *
+	 * @return The sample delay in msec.
+	 */
+	public int getDelay() {
+		return delay;
+	}
+
+	@Override
+	public void run() {
+		if (isDisposed()) {
+			return;
+		}
+		long now = System.nanoTime();
+		double seconds = last != 0 ? (now - last) / NSEC_PER_SEC : 0;
+		last = now;
+
+		if (sampleInterfaces(seconds)) {
+			rates[0] = 0;
+			rates[1] = 0;
+			for (int i = 0; i < interfaces.size(); i++) {
+				Interface iface = interfaces.get(i);
+				if (name != null ? iface.label.equals(name) : !iface.label.equals(LOOPBACK)) {
+					rates[0] += iface.rxRate;
+					rates[1] += iface.txRate;
+				}
+			}
+			scope.addValues(rates);
+			scope.setText(String.format("%sRx %s Tx %s", name != null ? name + " " : "", format(rates[0]),
+					format(rates[1])));
+			scope.setToolTipText(getSummary());
+		} else {
+			scope.addValue(0);
+			scope.setText("n/a");
+			scope.setToolTipText("Network statistics are not available");
+		}
+		scope.redraw();
+
+		if (sampleTcp(seconds)) {
+			retransmitScope.addValue(retransmitRate);
+			retransmitScope.setText(String.format("%.0f retrans/s", retransmitRate));
+			retransmitScope.setToolTipText(String.format("TCP sent %.0f segments/s, retransmitted %.0f/s (%.2f%%)",
+					outSegsRate, retransmitRate, getRetransmitRatio()));
+		} else {
+			retransmitScope.addValue(0);
+			retransmitScope.setText("n/a");
+		}
+		retransmitScope.redraw();
+		getDisplay().timerExec(getDelay(), this);
+	}
+
+	/**
+	 * Sample the traffic of the network interfaces.
+	 *
+	 * @param seconds The time since the last sample (sec), or 0 if none.
+	 * @return TRUE if the statistics are available.
+	 */
+	private boolean sampleInterfaces(double seconds) {
+		try {
+			deviceFile.read();
+		} catch (IOException e) {
+			return false;
+		}
+		// Skip the two header lines.
+		deviceFile.nextLine();
+		if (!deviceFile.nextLine()) {
+			return false;
+		}
+		int index = 0;
+		while (!deviceFile.isEnd()) {
+			// name: rx bytes packets errs drop fifo frame compressed multicast tx bytes packets ...
+			Interface iface = findInterface(index);
+			if (iface == null) {
+				String label = deviceFile.nextField();
+				iface = new Interface(label.endsWith(":") ? label.substring(0, label.length() - 1) : label);
+				interfaces.add(index, iface);
+			} else {
+				deviceFile.skipFields(1);
+			}
+			index = interfaces.indexOf(iface) + 1;
+			long rxBytes = deviceFile.nextLong();
+			long rxPackets = deviceFile.nextLong();
+			deviceFile.skipFields(6);
+			long txBytes = deviceFile.nextLong();
+			long txPackets = deviceFile.nextLong();
+			if (txPackets >= 0) {
+				iface.update(rxBytes, rxPackets, txBytes, txPackets, seconds);
+			}
+			deviceFile.nextLine();
+		}
+		return true;
+	}
+
+	/**
+	 * Find the interface of the current line of the statistics.
+	 *
+	 * @param index The expected index of the interface, as interfaces are listed in a stable order.
+	 * @return The interface, or NULL if not yet seen.
+	 */
+	private Interface findInterface(int index) {
+		if (index < interfaces.size() && deviceFile.isField(interfaces.get(index).name)) {
+			return interfaces.get(index);
+		}
+		for (int i = 0; i < interfaces.size(); i++) {
+			if (deviceFile.isField(interfaces.get(i).name)) {
+				return interfaces.get(i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Sample the TCP segments sent and retransmitted.
+	 *
+	 * @param seconds The time since the last sample (sec), or 0 if none.
+	 * @return TRUE if the statistics are available.
+	 */
+	private boolean sampleTcp(double seconds) {
+		try {
+			snmpFile.read();
+		} catch (IOException e) {
+			return false;
+		}
+		// The first TCP line names the fields, and the second holds their values.
+		if (!snmpFile.find(TCP)) {
+			return false;
+		}
+		if (retransSegsIndex < 0) {
+			for (int i = 0; !snmpFile.isLineEnd() && (outSegsIndex < 0 || retransSegsIndex < 0); i++) {
+				if (snmpFile.isField(OUT_SEGS)) {
+					outSegsIndex = i;
+				} else if (snmpFile.isField(RETRANS_SEGS)) {
+					retransSegsIndex = i;
+				}
+				snmpFile.skipFields(1);
+			}
+		}
+		if (outSegsIndex < 0 || retransSegsIndex < outSegsIndex) {
+			return false;
+		}
+		if (!snmpFile.nextLine()) {
+			return false;
+		}
+		// Fields may be negative, so are skipped rather than parsed.
+		snmpFile.skipFields(1 + outSegsIndex);
+		long out = snmpFile.nextLong();
+		snmpFile.skipFields(retransSegsIndex - outSegsIndex - 1);
+		long retrans = snmpFile.nextLong();
+		if (out < 0 || retrans < 0) {
+			return false;
+		}
+		outSegsRate = seconds > 0 && outSegs >= 0 ? Math.max(0, out - outSegs) / seconds : 0;
+		retransmitRate = seconds > 0 && retransSegs >= 0 ? Math.max(0, retrans - retransSegs) / seconds : 0;
+		outSegs = out;
+		retransSegs = retrans;
+		return true;
+	}
+
+	/**
+	 * Get a summary of the last sample.
+	 *
+	 * @return The summary.
+	 */
+	private String getSummary() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("Received %s, transmitted %s", format(rates[0]), format(rates[1])));
+		for (int i = 0; i < interfaces.size(); i++) {
+			Interface iface = interfaces.get(i);
+			sb.append(String.format("%n%s: rx %s %.0fpkt/s, tx %s %.0fpkt/s", iface.label, format(iface.rxRate),
+					iface.rxPacketRate, format(iface.txRate), iface.txPacketRate));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Format a throughput.
+	 *
+	 * @param rate The throughput (bytes/sec).
+	 * @return The formatted throughput.
+	 */
+	private static String format(double rate) {
+		if (rate >= 1024 * 1024) {
+			return String.format("%.1fM/s", rate / (1024 * 1024));
+		}
+		if (rate >= 1024) {
+			return String.format("%.0fK/s", rate / 1024);
+		}
+		return String.format("%.0fB/s", rate);
+	}
+
+	/**
+	 * Get the interface of the given name.
+	 *
+	 * @param label The name of the interface
+	 * @return The interface, or NULL if not seen.
+	 */
+	private Interface getInterface(String label) {
+		for (int i = 0; i < interfaces.size(); i++) {
+			if (interfaces.get(i).label.equals(label)) {
+				return interfaces.get(i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Get the bytes received per second of the last sample, by the interface graphed.
+	 *
+	 * @return The throughput (bytes/sec).
+	 */
+	public double getReceiveRate() {
+		return rates[0];
+	}
+
+	/**
+	 * Get the bytes transmitted per second of the last sample, by the interface graphed.
+	 *
+	 * @return The throughput (bytes/sec).
+	 */
+	public double getTransmitRate() {
+		return rates[1];
+	}
+
+	/**
+	 * Get the bytes received by an interface per second of the last sample.
+	 *
+	 * @param label The name of the interface, eg "eth0".
+	 * @return The throughput (bytes/sec), or 0 if the interface is unknown.
+	 */
+	public double getReceiveRate(String label) {
+		Interface iface = getInterface(label);
+		return iface != null ? iface.rxRate : 0;
+	}
+
+	/**
+	 * Get the bytes transmitted by an interface per second of the last sample.
+	 *
+	 * @param label The name of the interface, eg "eth0".
+	 * @return The throughput (bytes/sec), or 0 if the interface is unknown.
+	 */
+	public double getTransmitRate(String label) {
+		Interface iface = getInterface(label);
+		return iface != null ? iface.txRate : 0;
+	}
+
+	/**
+	 * Get the packets received by an interface per second of the last sample.
+	 *
+	 * @param label The name of the interface, eg "eth0".
+	 * @return The packet rate (packets/sec), or 0 if the interface is unknown.
+	 */
+	public double getReceivePacketRate(String label) {
+		Interface iface = getInterface(label);
+		return iface != null ? iface.rxPacketRate : 0;
+	}
+
+	/**
+	 * Get the packets transmitted by an interface per second of the last sample.
+	 *
+	 * @param label The name of the interface, eg "eth0".
+	 * @return The packet rate (packets/sec), or 0 if the interface is unknown.
+	 */
+	public double getTransmitPacketRate(String label) {
+		Interface iface = getInterface(label);
+		return iface != null ? iface.txPacketRate : 0;
+	}
+
+	/**
+	 * Get the TCP segments retransmitted per second of the last sample.
+	 *
+	 * @return The retransmit rate (segments/sec).
+	 */
+	public double getRetransmitRate() {
+		return retransmitRate;
+	}
+
+	/**
+	 * Get the share of the TCP segments sent in the last sample that were retransmitted.
+	 *
+	 * @return The retransmit ratio (%).
+	 */
+	public double getRetransmitRatio() {
+		return outSegsRate > 0 ? retransmitRate * 100d / outSegsRate : 0;
+	}
+
+	/**
+	 * Get the network interfaces seen.
+	 *
+	 * @return The names of the interfaces.
+	 */
+	public List<String> getInterfaces() {
+		List<String> names = new ArrayList<>(interfaces.size());
+		for (Interface iface : interfaces) {
+			names.add(iface.label);
+		}
+		return names;
+	}
+
+	/**
+	 * Set the interface graphed.
+	 *
+	 * @param label The name of the interface, or NULL for all interfaces other than loopback.
+	 */
+	public void setInterface(String label) {
+		this.name = label;
+	}
+
+	/**
+	 * Get the interface graphed.
+	 *
+	 * @return The name of the interface, or NULL if all interfaces other than loopback are graphed.
+	 */
+	public String getInterface() {
+		return name;
+	}
+
+	/**
+	 * Get if the network statistics are available.
+	 *
+	 * @return TRUE if available.
+	 */
+	public boolean isSupported() {
+		return deviceFile.isReadable();
+	}
+
+	/**
+	 * Set the number of points to catch/display
+	 *
+	 * @param points The number of points to display.
+	 */
+	public void setPoints(int points) {
+		scope.setPoints(points);
+		retransmitScope.setPoints(points);
+	}
+
+	@Override
+	public void setFont(Font font) {
+		super.setFont(font);
+		scope.setFont(font);
+		retransmitScope.setFont(font);
+	}
+
+	/**
+	 * Set the font color
+	 *
+	 * @param color The font color
+	 */
+	public void setFontColor(Color color) {
+		scope.setFontColor(color);
+		retransmitScope.setFontColor(color);
+	}
+
+	@Override
+	public void setForeground(Color color) {
+		super.setForeground(color);
+		scope.setForeground(color);
+	}
+
+	@Override
+	public void setBackground(Color color) {
+		super.setBackground(color);
+		scope.setBackground(color);
+		retransmitScope.setBackground(color);
+	}
+
+	/**
+	 * The statistics of a network interface.
+	 */
+	private static class Interface {
+
+		/**
+		 * The name of the interface, in ASCII.
+		 */
+		private final byte[] name;
+		/**
+		 * The name of the interface.
+		 */
+		private final String label;
+		/**
+		 * The total bytes received, or -1 if not sampled.
+		 */
+		private long rxBytes = -1;
+		/**
+		 * The total packets received.
+		 */
+		private long rxPackets;
+		/**
+		 * The total bytes transmitted.
+		 */
+		private long txBytes;
+		/**
+		 * The total packets transmitted.
+		 */
+		private long txPackets;
+		/**
+		 * The bytes received per second of the last sample.
+		 */
+		private double rxRate;
+		/**
+		 * The packets received per second of the last sample.
+		 */
+		private double rxPacketRate;
+		/**
+		 * The bytes transmitted per second of the last sample.
+		 */
+		private double txRate;
+		/**
+		 * The packets transmitted per second of the last sample.
+		 */
+		private double txPacketRate;
+
+		/**
+		 * Create a new interface.
+		 *
+		 * @param label The name of the interface.
+		 */
+		Interface(String label) {
+			this.label = label;
+			this.name = label.getBytes(StandardCharsets.US_ASCII);
+		}
+
+		/**
+		 * Update the statistics of the interface.
+		 *
+		 * @param rxBytes The total bytes received
+		 * @param rxPackets The total packets received
+		 * @param txBytes The total bytes transmitted
+		 * @param txPackets The total packets transmitted
+		 * @param seconds The time since the last sample (sec), or 0 if none.
+		 */
+		void update(long rxBytes, long rxPackets, long txBytes, long txPackets, double seconds) {
+			if (this.rxBytes >= 0 && seconds > 0) {
+				// Counters reset when an interface is recreated.
+				rxRate = Math.max(0, rxBytes - this.rxBytes) / seconds;
+				rxPacketRate = Math.max(0, rxPackets - this.rxPackets) / seconds;
+				txRate = Math.max(0, txBytes - this.txBytes) / seconds;
+				txPacketRate = Math.max(0, txPackets - this.txPackets) / seconds;
+			}
+			this.rxBytes = rxBytes;
+			this.rxPackets = rxPackets;
+			this.txBytes = txBytes;
+			this.txPackets = txPackets;
+		}
+	}
+}
@@ -0,0 +1,235 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Aho-Corasick automaton to find which of a set of keywords occur in text, in a single pass.
+ * <p>
+ * Matching is case insensitive: keywords and text are folded with {@link #fold(char)}. Transitions on ASCII
+ * characters are precomputed into a dense table so each ASCII character costs a single lookup; other characters
+ * follow the failure links.
+ * </p>
+ */
+final class AhoCorasick {
+
+	/**
+	 * The number of characters held in the dense transition table.
+	 */
+	private final static int ASCII = 128;
+
+	/**
+	 * The dense transition table for ASCII characters, indexed by state * ASCII + character.
+	 */
+	private final int[] delta;
+	/**
+	 * The trie transitions, for characters outside of ASCII.
+	 */
+	private final List<Map<Character, Integer>> children = new ArrayList<>();
+	/**
+	 * The failure link of each state.
+	 */
+	private final int[] fail;
+	/**
+	 * The ids of the keywords ending at each state (including via failure links), or NULL if none.
+	 */
+	private final int[][] outputs;
+
+	/**
+	 * Create a new automaton.
+	 *
+	 * @param keywords The keywords
+	 * @param ids The id reported for each keyword. Ids may be shared by several keywords.
+	 */
+	AhoCorasick(List<String> keywords, int[] ids) {
+		children.add(new HashMap<>());
+		List<int[]> out = new ArrayList<>();
+		out.add(null);
+		for (int k = 0; k < keywords.size(); k++) {
+			String keyword = keywords.get(k);
+			int state = 0;
+			for (int i = 0; i < keyword.length(); i++) {
+				Character c = fold(keyword.charAt(i));
+				Integer next = children.get(state).get(c);
+				if (next == null) {
+					next = children.size();
+					children.add(new HashMap<>());
+					out.add(null);
+					children.get(state).put(c, next);
+				}
+				state = next;
+			}
+			out.set(state, add(out.get(state), ids[k]));
+		}
+		int states = children.size();
+		fail = new int[states];
+		outputs = out.toArray(new int[states][]);
+		delta = new int[states * ASCII];
+
+		// Breadth first, so the failure target of a state is always complete before the state itself.
+		int[] queue = new int[states];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = 0;
+		while (head < tail) {
+			int state = queue[head++];
+			for (Map.Entry<Character, Integer> e : children.get(state).entrySet()) {
+				int child = e.getValue();
+				fail[child] = state == 0 ? 0 : step(fail[state], e.getKey());
+				if (outputs[fail[child]] != null) {
+					for (int id : outputs[fail[child]]) {
+						outputs[child] = add(outputs[child], id);
+					}
+				}
+				queue[tail++] = child;
+			}
+			for (int c = 0; c < ASCII; c++) {
+				Integer child = children.get(state).get((char) c);
+				if (child != null) {
+					delta[state * ASCII + c] = child;
+				} else {
+					delta[state * ASCII + c] = state == 0 ? 0 : delta[fail[state] * ASCII + c];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Add an id to a sorted set of ids.
+	 *
+	 * @param set The set, may be NULL
+	 * @param id The id to add.
+	 * @return The set holding the id.
+	 */
+	private static int[] add(int[] set, int id) {
+		if (set == null) {
+			return new int[] { id };
+		}
+		int pos = Arrays.binarySearch(set, id);
+		if (pos >= 0) {
+			return set;
+		}
+		pos = -pos - 1;
+		int[] result = new int[set.length + 1];
+		System.arraycopy(set, 0, result, 0, pos);
+		result[pos] = id;
+		System.arraycopy(set, pos, result, pos + 1, set.length - pos);
+		return result;
+	}
+
+	/**
+	 * Transition from a state on a (lower case) character, following the failure links.
+	 *
+	 * @param state The state
+	 * @param c The character
+	 * @return The next state.
+	 */
+	private int step(int state, char c) {
+		while (true) {
+			Integer next = children.get(state).get(c);
+			if (next != null) {
+				return next;
+			}
+			if (state == 0) {
+				return 0;
+			}
+			state = fail[state];
+		}
+	}
+
+	/**
+	 * Get the number of states of the automaton.
+	 *
+	 * @return The number of states.
+	 */
+	int getStateCount() {
+		return fail.length;
+	}
+
+	/**
+	 * Scan a range of text for the keywords.
+	 *
+	 * @param text The text
+	 * @param start The start of the range
+	 * @param end The end of the range (exclusive)
+	 * @param hits Receives the id of each keyword found, possibly more than once.
+	 */
+	void scan(CharSequence text, int start, int end, IntConsumer hits) {
+		int state = 0;
+		for (int i = start; i < end; i++) {
+			state = next(state, text.charAt(i));
+			int[] ids = outputs[state];
+			if (ids != null) {
+				for (int id : ids) {
+					hits.accept(id);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Determine if a range of text contains any of the keywords.
+	 *
+	 * @param text The text
+	 * @param start The start of the range
+	 * @param end The end of the range (exclusive)
+	 * @return TRUE if a keyword was found.
+	 */
+	boolean contains(CharSequence text, int start, int end) {
+		int state = 0;
+		for (int i = start; i < end; i++) {
+			state = next(state, text.charAt(i));
+			if (outputs[state] != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Transition from a state on a character of the text.
+	 *
+	 * @param state The state
+	 * @param c The character
+	 * @return The next state.
+	 */
+	private int next(int state, char c) {
+		if (c < ASCII) {
+			if (c >= 'A' && c <= 'Z') {
+				c += 'a' - 'A';
+			}
+			return delta[state * ASCII + c];
+		}
+		return step(state, fold(c));
+	}
+
+	/**
+	 * Fold a character to lower case, via upper case so that all case variants fold to the same character.
+	 *
+	 * @param c The character
+	 * @return The folded character.
+	 */
+	static char fold(char c) {
+		return Character.toLowerCase(Character.toUpperCase(c));
+	}
+}
@@ -0,0 +1,768 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Linear time engine for the regular subset of the pattern syntax.
+ * <p>
+ * The pattern is compiled to a Thompson NFA, which is lazily converted to a DFA while matching: each DFA state is
+ * created the first time it is reached and its transitions cached, so every character of the input costs at most one
+ * NFA simulation step and usually a single table lookup. The DFA cache is bounded, and flushed when full.
+ * </p>
+ * <p>
+ * Back references, lookaround, atomic groups, possessive quantifiers and <code>\G</code> need backtracking, and such
+ * patterns are rejected. Lazy quantifiers are accepted, as they do not change whether a line matches. In the absence
+ * of line terminators within a line, <code>$</code> only matches at the end of the region. Quantified sub-patterns
+ * which match the empty string (eg <code>(^a?){2}</code>) follow regular language semantics, where
+ * <code>java.util.regex</code> may stop iterating early.
+ * </p>
+ */
+final class AutomatonEngine implements RegexEngine {
+
+	/**
+	 * The maximum number of NFA states of a pattern.
+	 */
+	private final static int MAX_NFA_STATES = 20000;
+	/**
+	 * The maximum number of DFA states cached by a matcher before the cache is flushed.
+	 */
+	private final static int MAX_DFA_STATES = 4096;
+	/**
+	 * The number of characters with dense transition tables.
+	 */
+	private final static int ASCII = 128;
+
+	/**
+	 * NFA state consuming a character of a class.
+	 */
+	private final static int OP_CLASS = 0;
+	/**
+	 * NFA state with epsilon transitions to each of its outs.
+	 */
+	private final static int OP_SPLIT = 1;
+	/**
+	 * NFA state with an epsilon transition if a zero width assertion holds.
+	 */
+	private final static int OP_ASSERT = 2;
+	/**
+	 * NFA accepting state.
+	 */
+	private final static int OP_MATCH = 3;
+
+	/**
+	 * Assertion: start of the region (^, \A).
+	 */
+	private final static int ASSERT_START = 0;
+	/**
+	 * Assertion: end of the region ($, \z, \Z).
+	 */
+	private final static int ASSERT_END = 1;
+	/**
+	 * Assertion: start of a line (^ in multiline mode).
+	 */
+	private final static int ASSERT_LINE_START = 2;
+	/**
+	 * Assertion: end of a line ($ in multiline mode).
+	 */
+	private final static int ASSERT_LINE_END = 3;
+	/**
+	 * Assertion: word boundary (\b).
+	 */
+	private final static int ASSERT_WORD = 4;
+	/**
+	 * Assertion: not a word boundary (\B).
+	 */
+	private final static int ASSERT_NOT_WORD = 5;
+
+	/**
+	 * Character category: no character, ie the edge of the region.
+	 */
+	private final static int CAT_NONE = 0;
+	/**
+	 * Character category: other characters.
+	 */
+	private final static int CAT_OTHER = 1;
+	/**
+	 * Character category: word characters.
+	 */
+	private final static int CAT_WORD = 2;
+	/**
+	 * Character category: line terminators.
+	 */
+	private final static int CAT_TERMINATOR = 3;
+	/**
+	 * The category of each ASCII character.
+	 */
+	private final static byte[] ASCII_CATEGORY = new byte[ASCII];
+
+	static {
+		for (int c = 0; c < ASCII; c++) {
+			ASCII_CATEGORY[c] = (byte) computeCategory(c);
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "Automaton (linear time)";
+	}
+
+	@Override
+	public Compiled compile(Pattern pattern, int flags) {
+		Program program = new Builder().build(RegexParser.parse(pattern.pattern(), flags));
+		return new Compiled() {
+
+			@Override
+			public Pattern getPattern() {
+				return pattern;
+			}
+
+			@Override
+			public LineMatcher matcher() {
+				return new AutomatonMatcher(program);
+			}
+		};
+	}
+
+	/**
+	 * Get the category of a code point.
+	 *
+	 * @param c The code point
+	 * @return The category.
+	 */
+	private static int category(int c) {
+		return c < ASCII ? ASCII_CATEGORY[c] : computeCategory(c);
+	}
+
+	/**
+	 * Compute the category of a code point.
+	 *
+	 * @param c The code point
+	 * @return The category.
+	 */
+	private static int computeCategory(int c) {
+		if (c == '\n' || c == '\r' || c == 0x85 || c == 0x2028 || c == 0x2029) {
+			return CAT_TERMINATOR;
+		}
+		if (c == '_' || Character.isLetterOrDigit(c)) {
+			return CAT_WORD;
+		}
+		return CAT_OTHER;
+	}
+
+	/**
+	 * The compiled NFA.
+	 */
+	private static final class Program {
+
+		/**
+		 * The operation of each state.
+		 */
+		final int[] op;
+		/**
+		 * The class of each OP_CLASS state.
+		 */
+		final CharClass[] classes;
+		/**
+		 * The assertion of each OP_ASSERT state.
+		 */
+		final int[] assertion;
+		/**
+		 * The targets of each state.
+		 */
+		final int[][] out;
+		/**
+		 * The start state.
+		 */
+		final int start;
+
+		/**
+		 * Create a new program.
+		 *
+		 * @param op The operations
+		 * @param classes The classes
+		 * @param assertion The assertions
+		 * @param out The targets
+		 * @param start The start state.
+		 */
+		Program(int[] op, CharClass[] classes, int[] assertion, int[][] out, int start) {
+			this.op = op;
+			this.classes = classes;
+			this.assertion = assertion;
+			this.out = out;
+			this.start = start;
+		}
+	}
+
+	/**
+	 * Builds the NFA from the syntax tree, working backwards from the accepting state.
+	 */
+	private static final class Builder {
+
+		/**
+		 * The operation of each state.
+		 */
+		private final List<Integer> op = new ArrayList<>();
+		/**
+		 * The class of each state.
+		 */
+		private final List<CharClass> classes = new ArrayList<>();
+		/**
+		 * The assertion of each state.
+		 */
+		private final List<Integer> assertion = new ArrayList<>();
+		/**
+		 * The targets of each state.
+		 */
+		private final List<int[]> out = new ArrayList<>();
+
+		/**
+		 * Build the program.
+		 *
+		 * @param root The root of the syntax tree
+		 * @return The program.
+		 */
+		Program build(RegexNode root) {
+			int match = add(OP_MATCH, null, 0, new int[0]);
+			int start = compile(root, match);
+			int[] ops = new int[op.size()];
+			int[] asserts = new int[op.size()];
+			for (int i = 0; i < ops.length; i++) {
+				ops[i] = op.get(i);
+				asserts[i] = assertion.get(i);
+			}
+			return new Program(ops, classes.toArray(new CharClass[ops.length]), asserts,
+					out.toArray(new int[ops.length][]), start);
+		}
+
+		/**
+		 * Add a state.
+		 *
+		 * @param operation The operation
+		 * @param chars The class, for OP_CLASS
+		 * @param kind The assertion, for OP_ASSERT
+		 * @param targets The targets.
+		 * @return The state.
+		 */
+		private int add(int operation, CharClass chars, int kind, int[] targets) {
+			if (op.size() >= MAX_NFA_STATES) {
+				throw new IllegalArgumentException("Pattern is too large for the automaton engine");
+			}
+			op.add(operation);
+			classes.add(chars);
+			assertion.add(kind);
+			out.add(targets);
+			return op.size() - 1;
+		}
+
+		/**
+		 * Compile a node.
+		 *
+		 * @param node The node
+		 * @param next The state following the node
+		 * @return The first state of the node.
+		 */
+		private int compile(RegexNode node, int next) {
+			switch (node.type) {
+			case EMPTY:
+				return next;
+			case CHAR:
+			case CLASS: {
+				CharClass chars = node.getCharacters();
+				if (chars == null) {
+					throw new IllegalArgumentException("Unsupported character class " + node.text);
+				}
+				if (node.caseInsensitive && node.inexactFold) {
+					throw new IllegalArgumentException("Case insensitive matching of "
+							+ (node.type == RegexNode.Type.CHAR ? "non ASCII characters" : "this character class"));
+				}
+				return add(OP_CLASS, chars, 0, new int[] { next });
+			}
+			case CONCAT:
+				for (int i = node.children.size() - 1; i >= 0; i--) {
+					next = compile(node.children.get(i), next);
+				}
+				return next;
+			case ALTERNATE: {
+				int[] targets = new int[node.children.size()];
+				for (int i = 0; i < targets.length; i++) {
+					targets[i] = compile(node.children.get(i), next);
+				}
+				return add(OP_SPLIT, null, 0, targets);
+			}
+			case GROUP:
+				if (node.flag) {
+					throw new IllegalArgumentException("Atomic groups need backtracking");
+				}
+				return compile(node.child(), next);
+			case REPEAT:
+				return repeat(node, next);
+			case ANCHOR:
+				return add(OP_ASSERT, null, anchor(node.text), new int[] { next });
+			case LOOKAROUND:
+				throw new IllegalArgumentException("Lookaround " + node.text + ") needs backtracking");
+			case BACKREF:
+				throw new IllegalArgumentException("Back reference " + node.text + " needs backtracking");
+			default:
+				throw new IllegalArgumentException("Unsupported construct");
+			}
+		}
+
+		/**
+		 * Compile a repeat.
+		 *
+		 * @param node The repeat node
+		 * @param next The state following the node
+		 * @return The first state of the node.
+		 */
+		private int repeat(RegexNode node, int next) {
+			if (node.mode == RegexNode.Mode.POSSESSIVE) {
+				throw new IllegalArgumentException("Possessive quantifiers need backtracking");
+			}
+			RegexNode child = node.child();
+			if (node.max == RegexNode.UNBOUNDED) {
+				int[] targets = new int[2];
+				int loop = add(OP_SPLIT, null, 0, targets);
+				targets[0] = compile(child, loop);
+				targets[1] = next;
+				next = loop;
+			} else {
+				for (int i = node.min; i < node.max; i++) {
+					next = add(OP_SPLIT, null, 0, new int[] { compile(child, next), next });
+				}
+			}
+			for (int i = 0; i < node.min; i++) {
+				next = compile(child, next);
+			}
+			return next;
+		}
+
+		/**
+		 * Get the assertion of an anchor.
+		 *
+		 * @param text The anchor text
+		 * @return The assertion.
+		 */
+		private static int anchor(String text) {
+			switch (text) {
+			case "^":
+			case "\\A":
+				return ASSERT_START;
+			case "$":
+			case "\\z":
+			case "\\Z":
+				return ASSERT_END;
+			case "^m":
+				return ASSERT_LINE_START;
+			case "$m":
+				return ASSERT_LINE_END;
+			case "\\b":
+				return ASSERT_WORD;
+			case "\\B":
+				return ASSERT_NOT_WORD;
+			default:
+				throw new IllegalArgumentException("Anchor " + text + " is not supported by the automaton engine");
+			}
+		}
+	}
+
+	/**
+	 * A DFA state: the set of NFA states reached, before following epsilon transitions, and the category of the
+	 * preceding character.
+	 */
+	private static final class DState {
+
+		/**
+		 * The sorted NFA states.
+		 */
+		final int[] nfa;
+		/**
+		 * The category of the preceding character.
+		 */
+		final int previous;
+		/**
+		 * The hash code.
+		 */
+		final int hash;
+		/**
+		 * The cached transitions on ASCII characters, or NULL if none cached.
+		 */
+		DState[] next;
+		/**
+		 * The cached transitions on other characters, or NULL if none cached.
+		 */
+		Map<Integer, DState> other;
+		/**
+		 * The cached acceptance at the end of the region: -1 unknown, 0 reject, 1 accept.
+		 */
+		byte accept = -1;
+
+		/**
+		 * Create a new state.
+		 *
+		 * @param nfa The sorted NFA states
+		 * @param previous The category of the preceding character.
+		 */
+		DState(int[] nfa, int previous) {
+			this.nfa = nfa;
+			this.previous = previous;
+			this.hash = Arrays.hashCode(nfa) * 31 + previous;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof DState)) {
+				return false;
+			}
+			DState o = (DState) obj;
+			return previous == o.previous && Arrays.equals(nfa, o.nfa);
+		}
+	}
+
+	/**
+	 * Lazily built DFA for a program, either anchored (whole region) or unanchored (find).
+	 */
+	private static final class Dfa {
+
+		/**
+		 * Sentinel transition, taken when a match ends before the character (unanchored DFA only).
+		 */
+		final static DState MATCHED = new DState(new int[0], CAT_NONE);
+
+		/**
+		 * The program.
+		 */
+		private final Program program;
+		/**
+		 * TRUE if a match may start at any position.
+		 */
+		private final boolean unanchored;
+		/**
+		 * The cached states.
+		 */
+		private final Map<DState, DState> states = new HashMap<>();
+		/**
+		 * Marks of NFA states visited by the current closure or step.
+		 */
+		private final int[] marks;
+		/**
+		 * The current mark.
+		 */
+		private int mark;
+		/**
+		 * Work stack for the closure.
+		 */
+		private final int[] stack;
+		/**
+		 * The NFA states of the closure.
+		 */
+		private final int[] closure;
+		/**
+		 * The NFA states reached by a step.
+		 */
+		private final int[] reached;
+		/**
+		 * The start state.
+		 */
+		private DState start;
+
+		/**
+		 * Create a new DFA.
+		 *
+		 * @param program The program
+		 * @param unanchored TRUE if a match may start at any position.
+		 */
+		Dfa(Program program, boolean unanchored) {
+			this.program = program;
+			this.unanchored = unanchored;
+			int n = program.op.length;
+			marks = new int[n];
+			stack = new int[n];
+			closure = new int[n];
+			reached = new int[n + 1];
+		}
+
+		/**
+		 * Get the start state.
+		 *
+		 * @return The start state.
+		 */
+		DState start() {
+			if (start == null) {
+				start = intern(new DState(new int[] { program.start }, CAT_NONE));
+			}
+			return start;
+		}
+
+		/**
+		 * Get the cached instance of a state.
+		 *
+		 * @param state The state
+		 * @return The cached state.
+		 */
+		private DState intern(DState state) {
+			DState cached = states.get(state);
+			if (cached != null) {
+				return cached;
+			}
+			if (states.size() >= MAX_DFA_STATES) {
+				// States already reached keep their transitions, so matching in progress is unaffected.
+				states.clear();
+				start = null;
+			}
+			states.put(state, state);
+			return state;
+		}
+
+		/**
+		 * Follow the epsilon transitions of a state.
+		 *
+		 * @param state The state
+		 * @param following The category of the following character.
+		 * @return The number of OP_CLASS states in the closure, negative (-n - 1) if the closure holds the accepting
+		 *         state.
+		 */
+		private int closure(DState state, int following) {
+			if (++mark == 0) {
+				Arrays.fill(marks, 0);
+				mark = 1;
+			}
+			int sp = 0;
+			int count = 0;
+			boolean accept = false;
+			for (int s : state.nfa) {
+				if (marks[s] != mark) {
+					marks[s] = mark;
+					stack[sp++] = s;
+				}
+			}
+			while (sp > 0) {
+				int s = stack[--sp];
+				switch (program.op[s]) {
+				case OP_CLASS:
+					closure[count++] = s;
+					continue;
+				case OP_MATCH:
+					accept = true;
+					continue;
+				case OP_ASSERT:
+					if (!holds(program.assertion[s], state.previous, following)) {
+						continue;
+					}
+					break;
+				default:
+					break;
+				}
+				for (int t : program.out[s]) {
+					if (marks[t] != mark) {
+						marks[t] = mark;
+						stack[sp++] = t;
+					}
+				}
+			}
+			return accept ? -count - 1 : count;
+		}
+
+		/**
+		 * Determine if an assertion holds between two characters.
+		 *
+		 * @param assertion The assertion
+		 * @param previous The category of the preceding character
+		 * @param following The category of the following character.
+		 * @return TRUE if the assertion holds.
+		 */
+		private static boolean holds(int assertion, int previous, int following) {
+			switch (assertion) {
+			case ASSERT_START:
+				return previous == CAT_NONE;
+			case ASSERT_END:
+				return following == CAT_NONE;
+			case ASSERT_LINE_START:
+				return previous == CAT_NONE || (previous == CAT_TERMINATOR && following != CAT_NONE);
+			case ASSERT_LINE_END:
+				return following == CAT_NONE || following == CAT_TERMINATOR;
+			case ASSERT_WORD:
+				return (previous == CAT_WORD) != (following == CAT_WORD);
+			case ASSERT_NOT_WORD:
+				return (previous == CAT_WORD) == (following == CAT_WORD);
+			default:
+				return false;
+			}
+		}
+
+		/**
+		 * Get the transition from a state on a code point, computing and caching it if required.
+		 *
+		 * @param state The state
+		 * @param c The code point.
+		 * @return The next state, or {@link #MATCHED}.
+		 */
+		DState next(DState state, int c) {
+			if (c < ASCII) {
+				if (state.next != null) {
+					DState next = state.next[c];
+					if (next != null) {
+						return next;
+					}
+				} else {
+					state.next = new DState[ASCII];
+				}
+				DState next = compute(state, c);
+				state.next[c] = next;
+				return next;
+			}
+			if (state.other != null) {
+				DState next = state.other.get(c);
+				if (next != null) {
+					return next;
+				}
+			} else {
+				state.other = new HashMap<>();
+			}
+			DState next = compute(state, c);
+			state.other.put(c, next);
+			return next;
+		}
+
+		/**
+		 * Compute the transition from a state on a code point.
+		 *
+		 * @param state The state
+		 * @param c The code point.
+		 * @return The next state, or {@link #MATCHED}.
+		 */
+		private DState compute(DState state, int c) {
+			int cat = category(c);
+			int count = closure(state, cat);
+			if (count < 0) {
+				if (unanchored) {
+					return MATCHED;
+				}
+				count = -count - 1;
+			}
+			if (++mark == 0) {
+				Arrays.fill(marks, 0);
+				mark = 1;
+			}
+			int n = 0;
+			for (int i = 0; i < count; i++) {
+				int s = closure[i];
+				if (program.classes[s].contains(c)) {
+					int t = program.out[s][0];
+					if (marks[t] != mark) {
+						marks[t] = mark;
+						reached[n++] = t;
+					}
+				}
+			}
+			if (unanchored && marks[program.start] != mark) {
+				reached[n++] = program.start;
+			}
+			int[] nfa = Arrays.copyOf(reached, n);
+			Arrays.sort(nfa);
+			return intern(new DState(nfa, cat));
+		}
+
+		/**
+		 * Determine if the state accepts at the end of the region.
+		 *
+		 * @param state The state
+		 * @return TRUE if accepting.
+		 */
+		boolean accepts(DState state) {
+			if (state.accept < 0) {
+				state.accept = (byte) (closure(state, CAT_NONE) < 0 ? 1 : 0);
+			}
+			return state.accept == 1;
+		}
+	}
+
+	/**
+	 * Line matcher holding the DFA caches of a program.
+	 */
+	private static final class AutomatonMatcher implements LineMatcher {
+
+		/**
+		 * The anchored DFA.
+		 */
+		private final Dfa anchored;
+		/**
+		 * The unanchored DFA.
+		 */
+		private final Dfa unanchored;
+
+		/**
+		 * Create a new matcher.
+		 *
+		 * @param program The program.
+		 */
+		AutomatonMatcher(Program program) {
+			this.anchored = new Dfa(program, false);
+			this.unanchored = new Dfa(program, true);
+		}
+
+		@Override
+		public boolean matches(CharSequence text, int start, int end) {
+			return run(anchored, text, start, end);
+		}
+
+		@Override
+		public boolean find(CharSequence text, int start, int end) {
+			return run(unanchored, text, start, end);
+		}
+
+		/**
+		 * Run the DFA over the region.
+		 *
+		 * @param dfa The DFA
+		 * @param text The text
+		 * @param start The start of the region
+		 * @param end The end of the region
+		 * @return TRUE if matched.
+		 */
+		private static boolean run(Dfa dfa, CharSequence text, int start, int end) {
+			DState state = dfa.start();
+			int i = start;
+			while (i < end) {
+				int c = text.charAt(i++);
+				if (Character.isHighSurrogate((char) c) && i < end && Character.isLowSurrogate(text.charAt(i))) {
+					c = Character.toCodePoint((char) c, text.charAt(i++));
+				}
+				state = dfa.next(state, c);
+				if (state == Dfa.MATCHED) {
+					return true;
+				}
+				if (state.nfa.length == 0) {
+					// Dead state, no match is possible.
+					return false;
+				}
+			}
+			return dfa.accepts(state);
+		}
+	}
+}
@@ -0,0 +1,346 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Combo;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Spinner;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+
+/**
+ * Panel to benchmark the current pattern over the test input, with the ability to pin a result to compare against.
+ * Pinning a result and rerunning with another engine compares the engines' throughput on the same input.
+ */
+class BenchmarkPanel extends Composite {
+
+	/**
+	 * The metrics displayed.
+	 */
+	private final static String[] METRICS = { "Pattern", "Engine", "Lines", "Matched lines", "ns/line",
+			"lines/sec", "p50 latency (ns)", "p99 latency (ns)" };
+
+	/**
+	 * The source of the test corpus.
+	 */
+	private final Supplier<String> corpus;
+	/**
+	 * The engine to run the pattern.
+	 */
+	private final Combo cmbEngine;
+	/**
+	 * The number of warmup iterations.
+	 */
+	private final Spinner spnWarmup;
+	/**
+	 * The number of measurement iterations.
+	 */
+	private final Spinner spnIterations;
+	/**
+	 * Run/Cancel button
+	 */
+	private final Button btnRun;
+	/**
+	 * Pin the current result button
+	 */
+	private final Button btnPin;
+	/**
+	 * The status of the current run.
+	 */
+	private final Label lblStatus;
+	/**
+	 * The results table.
+	 */
+	private final Table tblResults;
+	/**
+	 * The slowest lines table.
+	 */
+	private final Table tblSlowest;
+
+	/**
+	 * The pattern to benchmark.
+	 */
+	private Pattern pattern;
+	/**
+	 * The flags the pattern was compiled with.
+	 */
+	private int flags;
+	/**
+	 * TRUE to find matches within lines.
+	 */
+	private boolean find;
+	/**
+	 * The running benchmark.
+	 */
+	private PatternBenchmark benchmark;
+	/**
+	 * The last result.
+	 */
+	private PatternBenchmark.Result current;
+	/**
+	 * The pinned result.
+	 */
+	private PatternBenchmark.Result pinned;
+
+	/**
+	 * Create the panel.
+	 *
+	 * @param parent The parent composite
+	 * @param style The default style
+	 * @param corpus The source of the test corpus.
+	 */
+	BenchmarkPanel(Composite parent, int style, Supplier<String> corpus) {
+		super(parent, style);
+		this.corpus = corpus;
+		setLayout(GridLayoutFactory.swtDefaults().numColumns(8).create());
+
+		Label lblEngine = new Label(this, SWT.NONE);
+		lblEngine.setText("Engine:");
+		cmbEngine = new Combo(this, SWT.READ_ONLY);
+		for (RegexEngine engine : RegexEngine.ENGINES) {
+			cmbEngine.add(engine.getName());
+		}
+		cmbEngine.select(0);
+		cmbEngine.addListener(SWT.Selection, e -> updateEngineStatus());
+
+		Label lblWarmup = new Label(this, SWT.NONE);
+		lblWarmup.setText("Warmup iterations:");
+		spnWarmup = new Spinner(this, SWT.BORDER);
+		spnWarmup.setValues(3, 0, 1000, 0, 1, 10);
+
+		Label lblIterations = new Label(this, SWT.NONE);
+		lblIterations.setText("Measurement iterations:");
+		spnIterations = new Spinner(this, SWT.BORDER);
+		spnIterations.setValues(10, 1, 1000, 0, 1, 10);
+
+		btnRun = new Button(this, SWT.PUSH);
+		btnRun.setText("Run");
+		btnRun.setEnabled(false);
+		btnRun.setLayoutData(GridDataFactory.swtDefaults().align(SWT.END, SWT.CENTER).grab(true, false).create());
+		btnRun.addListener(SWT.Selection, e -> {
+			if (benchmark != null) {
+				benchmark.cancel();
+			} else {
+				start();
+			}
+		});
+
+		btnPin = new Button(this, SWT.PUSH);
+		btnPin.setText("Pin Result");
+		btnPin.setEnabled(false);
+		btnPin.addListener(SWT.Selection, e -> {
+			pinned = current;
+			showResults();
+		});
+
+		lblStatus = new Label(this, SWT.NONE);
+		lblStatus.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).span(8, 1).create());
+
+		tblResults = new Table(this, SWT.BORDER | SWT.FULL_SELECTION);
+		tblResults.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).span(8, 1).create());
+		tblResults.setHeaderVisible(true);
+		tblResults.setLinesVisible(true);
+		createColumn(tblResults, "Metric", SWT.LEFT, 150);
+		createColumn(tblResults, "Current", SWT.RIGHT, 200);
+		createColumn(tblResults, "Pinned", SWT.RIGHT, 200);
+		for (String metric : METRICS) {
+			new TableItem(tblResults, SWT.NONE).setText(0, metric);
+		}
+
+		tblSlowest = new Table(this, SWT.BORDER | SWT.FULL_SELECTION | SWT.V_SCROLL | SWT.H_SCROLL);
+		tblSlowest.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).span(8, 1).create());
+		tblSlowest.setHeaderVisible(true);
+		createColumn(tblSlowest, "Result", SWT.LEFT, 80);
+		createColumn(tblSlowest, "Line", SWT.RIGHT, 80);
+		createColumn(tblSlowest, "Latency (ns)", SWT.RIGHT, 120);
+		createColumn(tblSlowest, "Text", SWT.LEFT, 500);
+
+		addListener(SWT.Dispose, e -> {
+			if (benchmark != null) {
+				benchmark.cancel();
+			}
+		});
+	}
+
+	/**
+	 * Create a table column
+	 *
+	 * @param table The table
+	 * @param text The column heading
+	 * @param style The column style
+	 * @param width The column width.
+	 */
+	private static void createColumn(Table table, String text, int style, int width) {
+		TableColumn column = new TableColumn(table, style);
+		column.setText(text);
+		column.setWidth(width);
+	}
+
+	/**
+	 * Set the pattern to benchmark
+	 *
+	 * @param pattern The pattern, or NULL if there is no valid pattern.
+	 * @param flags The flags the pattern was compiled with
+	 * @param find TRUE to find matches within lines, otherwise whole lines must match.
+	 */
+	void setPattern(Pattern pattern, int flags, boolean find) {
+		this.pattern = pattern;
+		this.flags = flags;
+		this.find = find;
+		if (benchmark == null) {
+			btnRun.setEnabled(pattern != null);
+			updateEngineStatus();
+		}
+	}
+
+	/**
+	 * Get the selected engine.
+	 *
+	 * @return The engine.
+	 */
+	private RegexEngine getEngine() {
+		return RegexEngine.ENGINES[Math.max(0, cmbEngine.getSelectionIndex())];
+	}
+
+	/**
+	 * Report if the selected engine cannot run the pattern, as it requires backtracking.
+	 */
+	private void updateEngineStatus() {
+		if (pattern == null || benchmark != null) {
+			return;
+		}
+		try {
+			getEngine().compile(pattern, flags);
+			lblStatus.setText("");
+		} catch (IllegalArgumentException e) {
+			lblStatus.setText("Requires backtracking: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Start a benchmark of the current pattern on a background thread.
+	 */
+	private void start() {
+		if (pattern == null) {
+			return;
+		}
+		final PatternBenchmark bench;
+		try {
+			bench = new PatternBenchmark(getEngine(), pattern, flags, find, corpus.get());
+		} catch (IllegalArgumentException e) {
+			lblStatus.setText("Requires backtracking: " + e.getMessage());
+			return;
+		}
+		final int warmup = spnWarmup.getSelection();
+		final int iterations = spnIterations.getSelection();
+		final Display display = getDisplay();
+		benchmark = bench;
+		btnRun.setText("Cancel");
+		lblStatus.setText("Running...");
+		Thread thread = new Thread(() -> {
+			PatternBenchmark.Result result = null;
+			try {
+				result = bench.run(warmup, iterations);
+			} finally {
+				// Restore the panel even if the run failed.
+				final PatternBenchmark.Result r = result;
+				final boolean failed = r == null && !bench.isCancelled();
+				if (!display.isDisposed()) {
+					display.asyncExec(() -> finished(r, failed));
+				}
+			}
+		}, "RegexTester Benchmark");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Handle completion of the benchmark.
+	 *
+	 * @param result The result, or NULL if cancelled or failed
+	 * @param failed TRUE if the benchmark failed.
+	 */
+	private void finished(PatternBenchmark.Result result, boolean failed) {
+		if (isDisposed()) {
+			return;
+		}
+		benchmark = null;
+		btnRun.setText("Run");
+		btnRun.setEnabled(pattern != null);
+		if (result == null) {
+			lblStatus.setText(failed ? "Failed" : "Cancelled");
+			return;
+		}
+		lblStatus.setText("");
+		current = result;
+		btnPin.setEnabled(true);
+		showResults();
+	}
+
+	/**
+	 * Display the current and pinned results.
+	 */
+	private void showResults() {
+		for (int column = 1; column <= 2; column++) {
+			PatternBenchmark.Result r = column == 1 ? current : pinned;
+			String[] values = new String[METRICS.length];
+			if (r != null) {
+				values[0] = r.pattern;
+				values[1] = r.engine;
+				values[2] = String.format("%,d", r.lines);
+				values[3] = String.format("%,d", r.matches);
+				values[4] = String.format("%,.1f", r.getNanosPerLine());
+				values[5] = String.format("%,.0f", r.getLinesPerSecond());
+				values[6] = String.format("%,d", r.p50);
+				values[7] = String.format("%,d", r.p99);
+			}
+			for (int i = 0; i < METRICS.length; i++) {
+				tblResults.getItem(i).setText(column, values[i] != null ? values[i] : "");
+			}
+		}
+		tblSlowest.removeAll();
+		addSlowest("Current", current);
+		addSlowest("Pinned", pinned);
+	}
+
+	/**
+	 * Add the slowest lines of the result to the slowest lines table.
+	 *
+	 * @param name The name of the result
+	 * @param result The result.
+	 */
+	private void addSlowest(String name, PatternBenchmark.Result result) {
+		if (result == null) {
+			return;
+		}
+		for (int i = 0; i < result.slowestLines.length; i++) {
+			TableItem item = new TableItem(tblSlowest, SWT.NONE);
+			item.setText(new String[] { name, Integer.toString(result.slowestLines[i] + 1),
+					String.format("%,d", result.slowestTimes[i]), result.slowestText[i] });
+		}
+	}
+}
@@ -0,0 +1,332 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of code points, held as sorted, non-overlapping, non-adjacent inclusive ranges.
+ */
+final class CharClass {
+
+	/**
+	 * The maximum code point.
+	 */
+	private final static int MAX = Character.MAX_CODE_POINT;
+
+	/**
+	 * The empty set.
+	 */
+	final static CharClass EMPTY = new CharClass(new int[0]);
+	/**
+	 * All code points.
+	 */
+	final static CharClass ALL = new CharClass(new int[] { 0, MAX });
+	/**
+	 * Digits (\d)
+	 */
+	final static CharClass DIGIT = range('0', '9');
+	/**
+	 * Word characters (\w)
+	 */
+	final static CharClass WORD = range('a', 'z').union(range('A', 'Z')).union(DIGIT).union(of('_'));
+	/**
+	 * Whitespace (\s)
+	 */
+	final static CharClass SPACE = of(' ', '\t', '\n', 0x0B, '\f', '\r');
+	/**
+	 * Horizontal whitespace (\h)
+	 */
+	final static CharClass HORIZONTAL_SPACE = of(' ', '\t', 0xA0, 0x1680, 0x180e, 0x202f, 0x205f, 0x3000)
+			.union(range(0x2000, 0x200a));
+	/**
+	 * Vertical whitespace (\v)
+	 */
+	final static CharClass VERTICAL_SPACE = of('\n', 0x0B, '\f', '\r', 0x85, 0x2028, 0x2029);
+	/**
+	 * Line terminators, as excluded by '.' without DOTALL.
+	 */
+	final static CharClass LINE_TERMINATOR = of('\n', '\r', 0x85, 0x2028, 0x2029);
+
+	/**
+	 * The inclusive (low, high) range pairs.
+	 */
+	private final int[] ranges;
+
+	/**
+	 * Create a new class from normalised ranges.
+	 *
+	 * @param ranges The ranges.
+	 */
+	private CharClass(int[] ranges) {
+		this.ranges = ranges;
+	}
+
+	/**
+	 * Create a class holding a range of code points
+	 *
+	 * @param low The first code point
+	 * @param high The last code point (inclusive).
+	 * @return The class.
+	 */
+	static CharClass range(int low, int high) {
+		if (low > high) {
+			return EMPTY;
+		}
+		return new CharClass(new int[] { low, high });
+	}
+
+	/**
+	 * Create a class holding the given code points.
+	 *
+	 * @param codePoints The code points
+	 * @return The class.
+	 */
+	static CharClass of(int... codePoints) {
+		int[] sorted = codePoints.clone();
+		Arrays.sort(sorted);
+		int[] r = new int[sorted.length * 2];
+		for (int i = 0; i < sorted.length; i++) {
+			r[i * 2] = sorted[i];
+			r[i * 2 + 1] = sorted[i];
+		}
+		return normalise(r, r.length);
+	}
+
+	/**
+	 * Merge overlapping and adjacent ranges, which must be sorted by their low value.
+	 *
+	 * @param r The ranges
+	 * @param length The number of entries in use.
+	 * @return The class.
+	 */
+	private static CharClass normalise(int[] r, int length) {
+		int[] out = new int[length];
+		int n = 0;
+		for (int i = 0; i < length; i += 2) {
+			if (n > 0 && r[i] <= out[n - 1] + 1) {
+				out[n - 1] = Math.max(out[n - 1], r[i + 1]);
+			} else {
+				out[n++] = r[i];
+				out[n++] = r[i + 1];
+			}
+		}
+		return new CharClass(Arrays.copyOf(out, n));
+	}
+
+	/**
+	 * Get the union of this class and another.
+	 *
+	 * @param other The other class
+	 * @return The union.
+	 */
+	CharClass union(CharClass other) {
+		int[] r = new int[ranges.length + other.ranges.length];
+		int i = 0;
+		int j = 0;
+		int n = 0;
+		while (i < ranges.length || j < other.ranges.length) {
+			if (j >= other.ranges.length || (i < ranges.length && ranges[i] <= other.ranges[j])) {
+				r[n++] = ranges[i++];
+				r[n++] = ranges[i++];
+			} else {
+				r[n++] = other.ranges[j++];
+				r[n++] = other.ranges[j++];
+			}
+		}
+		return normalise(r, n);
+	}
+
+	/**
+	 * Get the complement of this class.
+	 *
+	 * @return The complement.
+	 */
+	CharClass negate() {
+		int[] r = new int[ranges.length + 2];
+		int n = 0;
+		int next = 0;
+		for (int i = 0; i < ranges.length; i += 2) {
+			if (ranges[i] > next) {
+				r[n++] = next;
+				r[n++] = ranges[i] - 1;
+			}
+			next = ranges[i + 1] + 1;
+		}
+		if (next <= MAX) {
+			r[n++] = next;
+			r[n++] = MAX;
+		}
+		return new CharClass(Arrays.copyOf(r, n));
+	}
+
+	/**
+	 * Get the intersection of this class and another.
+	 *
+	 * @param other The other class
+	 * @return The intersection.
+	 */
+	CharClass intersect(CharClass other) {
+		return negate().union(other.negate()).negate();
+	}
+
+	/**
+	 * Get a class which also holds the upper and lower case variants of each member.
+	 *
+	 * @param unicode TRUE to fold all characters, otherwise only the ASCII letters are folded.
+	 * @return The case folded class.
+	 */
+	CharClass foldCase(boolean unicode) {
+		if (!unicode || size() > 0x10000) {
+			// Large classes (typically negated ones) are left as is, other than the ASCII letters.
+			CharClass ascii = intersect(range('A', 'Z').union(range('a', 'z')));
+			return union(ascii.foldAscii());
+		}
+		int[] extra = new int[size() * 2];
+		int n = 0;
+		for (int i = 0; i < ranges.length; i += 2) {
+			for (int c = ranges[i]; c <= ranges[i + 1]; c++) {
+				extra[n++] = Character.toLowerCase(c);
+				extra[n++] = Character.toUpperCase(c);
+			}
+		}
+		CharClass folded = union(of(Arrays.copyOf(extra, n)));
+		// Add the characters which only fold onto a member, eg the long s and the Kelvin sign.
+		int[] others = new int[64];
+		n = 0;
+		for (int c = 0x80; c < 0x10000; c++) {
+			int fold = Character.toLowerCase(Character.toUpperCase(c));
+			if (fold != c && !folded.contains(c) && folded.contains(fold)) {
+				if (n == others.length) {
+					others = Arrays.copyOf(others, n * 2);
+				}
+				others[n++] = c;
+			}
+		}
+		return n > 0 ? folded.union(of(Arrays.copyOf(others, n))) : folded;
+	}
+
+	/**
+	 * Get the case variants of the ASCII letters in this class.
+	 *
+	 * @return The variants.
+	 */
+	private CharClass foldAscii() {
+		CharClass result = EMPTY;
+		for (int i = 0; i < ranges.length; i += 2) {
+			for (int c = ranges[i]; c <= ranges[i + 1]; c++) {
+				result = result.union(of(Character.toLowerCase(c), Character.toUpperCase(c)));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Determine if the class contains the code point.
+	 *
+	 * @param c The code point
+	 * @return TRUE if the class contains the code point.
+	 */
+	boolean contains(int c) {
+		int low = 0;
+		int high = ranges.length / 2 - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (c < ranges[mid * 2]) {
+				high = mid - 1;
+			} else if (c > ranges[mid * 2 + 1]) {
+				low = mid + 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the number of code points in the class.
+	 *
+	 * @return The number of code points.
+	 */
+	int size() {
+		int size = 0;
+		for (int i = 0; i < ranges.length; i += 2) {
+			size += ranges[i + 1] - ranges[i] + 1;
+		}
+		return size;
+	}
+
+	/**
+	 * Get the number of ranges in the class.
+	 *
+	 * @return The number of ranges.
+	 */
+	int getRangeCount() {
+		return ranges.length / 2;
+	}
+
+	/**
+	 * Get the first code point of a range
+	 *
+	 * @param range The range
+	 * @return The first code point.
+	 */
+	int getLow(int range) {
+		return ranges[range * 2];
+	}
+
+	/**
+	 * Get the last code point of a range
+	 *
+	 * @param range The range
+	 * @return The last code point (inclusive).
+	 */
+	int getHigh(int range) {
+		return ranges[range * 2 + 1];
+	}
+
+	/**
+	 * Determine if this class shares any code points with another.
+	 *
+	 * @param other The other class
+	 * @return TRUE if the classes overlap.
+	 */
+	boolean overlaps(CharClass other) {
+		int i = 0;
+		int j = 0;
+		while (i < ranges.length && j < other.ranges.length) {
+			if (ranges[i + 1] < other.ranges[j]) {
+				i += 2;
+			} else if (other.ranges[j + 1] < ranges[i]) {
+				j += 2;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof CharClass && Arrays.equals(ranges, ((CharClass) obj).ranges);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(ranges);
+	}
+}
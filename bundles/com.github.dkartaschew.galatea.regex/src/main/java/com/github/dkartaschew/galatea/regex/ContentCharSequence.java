@@ -0,0 +1,95 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import org.eclipse.swt.custom.StyledTextContent;
+
+/**
+ * A read only character sequence view over a <code>StyledTextContent</code>.
+ * <p>
+ * Only a small window of the content is held at any one time, the window is moved as characters outside of it are
+ * requested. Instances are not thread safe, however multiple instances may read the same content concurrently as long
+ * as the content is not modified.
+ * </p>
+ */
+class ContentCharSequence implements CharSequence {
+
+	/**
+	 * The number of characters to hold in the window.
+	 */
+	private final static int WINDOW = 16384;
+
+	/**
+	 * The content to view
+	 */
+	private final StyledTextContent content;
+	/**
+	 * The length of the content.
+	 */
+	private final int length;
+	/**
+	 * The current window of characters.
+	 */
+	private String window = "";
+	/**
+	 * The offset of the window within the content.
+	 */
+	private int windowStart;
+
+	/**
+	 * Create a view of the content.
+	 *
+	 * @param content The content to view.
+	 */
+	ContentCharSequence(StyledTextContent content) {
+		this.content = content;
+		this.length = content.getCharCount();
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		int offset = index - windowStart;
+		if (offset < 0 || offset >= window.length()) {
+			if (index < 0 || index >= length) {
+				throw new IndexOutOfBoundsException("Index: " + index);
+			}
+			// Keep some of the preceding text, as matchers may step backwards.
+			windowStart = Math.max(0, Math.min(index - WINDOW / 4, length - WINDOW));
+			window = content.getTextRange(windowStart, Math.min(WINDOW, length - windowStart));
+			offset = index - windowStart;
+		}
+		return window.charAt(offset);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException("Range: " + start + " - " + end);
+		}
+		return content.getTextRange(start, end - start);
+	}
+
+	@Override
+	public String toString() {
+		return content.getTextRange(0, length);
+	}
+}
@@ -0,0 +1,164 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import org.eclipse.swt.custom.StyledTextContent;
+import org.eclipse.swt.custom.TextChangeListener;
+import org.eclipse.swt.custom.TextChangedEvent;
+import org.eclipse.swt.custom.TextChangingEvent;
+
+/**
+ * Line index of a <code>StyledTextContent</code>, which is updated incrementally as the content is modified.
+ * <p>
+ * On each change only the modified lines, and the line either side of them (to account for line delimiters being
+ * joined or split), are scanned again.
+ * </p>
+ */
+class ContentLineIndex extends LineIndex implements TextChangeListener {
+
+	/**
+	 * The content being indexed.
+	 */
+	private final StyledTextContent content;
+	/**
+	 * The first line affected by the pending change.
+	 */
+	private int changeFirst;
+	/**
+	 * The last line affected by the pending change.
+	 */
+	private int changeLast;
+	/**
+	 * Flag to indicate the last affected line is the final line of the content.
+	 */
+	private boolean changeFinal;
+	/**
+	 * The offset of the end of the last affected line (including delimiter) prior to the pending change.
+	 */
+	private int changeEnd;
+	/**
+	 * The change in length of the pending change.
+	 */
+	private int changeDelta;
+	/**
+	 * The number of changes made to the content since indexing started.
+	 */
+	private int modifications;
+
+	/**
+	 * Create a new index of the content, and start tracking changes.
+	 *
+	 * @param content The content to index.
+	 */
+	ContentLineIndex(StyledTextContent content) {
+		this.content = content;
+		rebuild();
+		content.addTextChangeListener(this);
+	}
+
+	/**
+	 * Stop tracking changes to the content.
+	 */
+	void dispose() {
+		content.removeTextChangeListener(this);
+	}
+
+	/**
+	 * Get a character sequence view of the current content.
+	 *
+	 * @return A view over the content.
+	 */
+	CharSequence getText() {
+		return new ContentCharSequence(content);
+	}
+
+	/**
+	 * Get the text of a line.
+	 *
+	 * @param line The line
+	 * @return The text of the line, without delimiter.
+	 */
+	String getLine(int line) {
+		int start = getStart(line);
+		return content.getTextRange(start, getEnd(line) - start);
+	}
+
+	/**
+	 * Get the text of a range of lines, including their delimiters.
+	 *
+	 * @param first The first line
+	 * @param last The last line (inclusive).
+	 * @return The text of the lines.
+	 */
+	String getLines(int first, int last) {
+		int start = getStart(first);
+		int end = last + 1 < getLineCount() ? getStart(last + 1) : content.getCharCount();
+		return content.getTextRange(start, end - start);
+	}
+
+	/**
+	 * Get the number of characters in the content.
+	 *
+	 * @return The number of characters.
+	 */
+	int getCharCount() {
+		return content.getCharCount();
+	}
+
+	/**
+	 * Get the number of changes made to the content, to detect changes between reads.
+	 *
+	 * @return The number of changes.
+	 */
+	int getModificationCount() {
+		return modifications;
+	}
+
+	/**
+	 * Rebuild the index from the full content.
+	 */
+	private void rebuild() {
+		clear();
+		scan(new ContentCharSequence(content), 0, true);
+	}
+
+	@Override
+	public void textChanging(TextChangingEvent event) {
+		int lines = getLineCount();
+		changeFirst = Math.max(0, getLineAtOffset(event.start) - 1);
+		changeLast = Math.min(lines - 1, getLineAtOffset(event.start + event.replaceCharCount) + 1);
+		changeFinal = changeLast + 1 == lines;
+		changeEnd = changeFinal ? content.getCharCount() : getStart(changeLast + 1);
+		changeDelta = event.newCharCount - event.replaceCharCount;
+	}
+
+	@Override
+	public void textChanged(TextChangedEvent event) {
+		int start = getStart(changeFirst);
+		int end = changeEnd + changeDelta;
+		LineIndex lines = new LineIndex();
+		lines.scan(content.getTextRange(start, end - start), start, changeFinal);
+		splice(changeFirst, changeLast, lines, changeDelta);
+		modifications++;
+	}
+
+	@Override
+	public void textSet(TextChangedEvent event) {
+		rebuild();
+		modifications++;
+	}
+}
@@ -0,0 +1,136 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Reader of the content of a <code>StyledText</code>, for use by a background thread.
+ * <p>
+ * The content is read a batch of whole lines at a time on the UI thread, so only one batch is held in memory rather
+ * than a copy of the whole content. Reading fails if the content is modified after the reader was created.
+ * </p>
+ */
+class ContentReader extends Reader {
+
+	/**
+	 * The approximate number of characters read per batch.
+	 */
+	private final static int BATCH = 65536;
+
+	/**
+	 * The display owning the content.
+	 */
+	private final Display display;
+	/**
+	 * The line index of the content.
+	 */
+	private final ContentLineIndex index;
+	/**
+	 * The modification count of the content when the reader was created.
+	 */
+	private final int modifications;
+	/**
+	 * The number of lines of the content.
+	 */
+	private final int lines;
+	/**
+	 * The next line to read.
+	 */
+	private int line;
+	/**
+	 * The current batch of text.
+	 */
+	private String batch = "";
+	/**
+	 * The position within the current batch.
+	 */
+	private int position;
+	/**
+	 * The error of the last batch read on the UI thread.
+	 */
+	private IOException error;
+
+	/**
+	 * Create a new reader, must be called on the UI thread.
+	 *
+	 * @param display The display owning the content
+	 * @param index The line index of the content.
+	 */
+	ContentReader(Display display, ContentLineIndex index) {
+		this.display = display;
+		this.index = index;
+		this.modifications = index.getModificationCount();
+		this.lines = index.getLineCount();
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (position == batch.length()) {
+			if (line == lines) {
+				return -1;
+			}
+			nextBatch();
+		}
+		int n = Math.min(len, batch.length() - position);
+		batch.getChars(position, position + n, cbuf, off);
+		position += n;
+		return n;
+	}
+
+	/**
+	 * Read the next batch of lines on the UI thread.
+	 *
+	 * @throws IOException If the content was modified or disposed.
+	 */
+	private void nextBatch() throws IOException {
+		try {
+			display.syncExec(() -> {
+				if (index.getModificationCount() != modifications) {
+					error = new IOException("The test input was modified while being read");
+					return;
+				}
+				int first = line;
+				int chars = 0;
+				while (line < lines && chars < BATCH) {
+					chars += index.getEnd(line) - index.getStart(line) + 1;
+					line++;
+				}
+				batch = index.getLines(first, line - 1);
+				position = 0;
+			});
+		} catch (SWTException e) {
+			throw new IOException("The test input is no longer available", e);
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	@Override
+	public void close() {
+		batch = "";
+		line = lines;
+	}
+}
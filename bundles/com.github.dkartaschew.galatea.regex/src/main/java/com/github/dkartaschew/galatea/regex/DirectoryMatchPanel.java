@@ -0,0 +1,269 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.regex.Pattern;
+
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.DirectoryDialog;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.ProgressBar;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.swt.widgets.Text;
+
+/**
+ * Panel to test a pattern against every file in a directory tree, including gzipped files.
+ * <p>
+ * The files are matched in parallel on background threads, with the matching lines shown in a virtual table as they
+ * are found. Only the first {@link DirectoryMatcher#MAX_RESULTS} matching lines are kept.
+ * </p>
+ */
+class DirectoryMatchPanel extends Composite {
+
+	/**
+	 * The interval between progress updates (msec)
+	 */
+	private final static int UPDATE_INTERVAL = 200;
+
+	/**
+	 * The directory to test.
+	 */
+	private final Text txtDirectory;
+	/**
+	 * The file name glob.
+	 */
+	private final Text txtFilter;
+	/**
+	 * Start/Cancel button
+	 */
+	private final Button btnRun;
+	/**
+	 * The progress of the current run.
+	 */
+	private final ProgressBar progress;
+	/**
+	 * The status/statistics of the current run.
+	 */
+	private final Label lblStatus;
+	/**
+	 * The matching lines.
+	 */
+	private final Table table;
+
+	/**
+	 * The pattern to test.
+	 */
+	private Pattern pattern;
+	/**
+	 * The flags the pattern was compiled with.
+	 */
+	private int flags;
+	/**
+	 * TRUE to find matches within lines.
+	 */
+	private boolean find;
+	/**
+	 * The current (or last) run.
+	 */
+	private DirectoryMatcher matcher;
+	/**
+	 * The directory of the current (or last) run, as the directory text may be edited while it runs.
+	 */
+	private Path root;
+
+	/**
+	 * Create the panel.
+	 *
+	 * @param parent The parent composite
+	 * @param style The default style
+	 */
+	DirectoryMatchPanel(Composite parent, int style) {
+		super(parent, style);
+		setLayout(GridLayoutFactory.swtDefaults().numColumns(4).create());
+
+		Label lblDirectory = new Label(this, SWT.NONE);
+		lblDirectory.setText("Directory:");
+		lblDirectory.setLayoutData(GridDataFactory.swtDefaults().align(SWT.FILL, SWT.CENTER).create());
+
+		txtDirectory = new Text(this, SWT.BORDER);
+		txtDirectory.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).create());
+		txtDirectory.setMessage("Please select a directory to test against");
+
+		Button btnBrowse = new Button(this, SWT.PUSH);
+		btnBrowse.setText("Browse...");
+		btnBrowse.addListener(SWT.Selection, e -> {
+			DirectoryDialog dialog = new DirectoryDialog(getShell(), SWT.OPEN);
+			dialog.setText("Test against directory");
+			String directory = dialog.open();
+			if (directory != null) {
+				txtDirectory.setText(directory);
+			}
+		});
+
+		btnRun = new Button(this, SWT.PUSH);
+		btnRun.setText("Start");
+		btnRun.setEnabled(false);
+		btnRun.addListener(SWT.Selection, e -> {
+			if (isRunning()) {
+				matcher.cancel();
+			} else {
+				start();
+			}
+		});
+
+		Label lblFilter = new Label(this, SWT.NONE);
+		lblFilter.setText("File names:");
+		lblFilter.setLayoutData(GridDataFactory.swtDefaults().align(SWT.FILL, SWT.CENTER).create());
+
+		txtFilter = new Text(this, SWT.BORDER);
+		txtFilter.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).span(3, 1).create());
+		txtFilter.setMessage("Glob of the file names to test, eg *.log* (all files if empty)");
+
+		progress = new ProgressBar(this, SWT.HORIZONTAL);
+		progress.setMaximum(1000);
+		progress.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).span(4, 1).create());
+
+		lblStatus = new Label(this, SWT.NONE);
+		lblStatus.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).span(4, 1).create());
+
+		table = new Table(this, SWT.BORDER | SWT.VIRTUAL | SWT.FULL_SELECTION | SWT.V_SCROLL | SWT.H_SCROLL);
+		table.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).span(4, 1).create());
+		table.setHeaderVisible(true);
+		TableColumn colFile = new TableColumn(table, SWT.LEFT);
+		colFile.setText("File");
+		colFile.setWidth(250);
+		TableColumn colLine = new TableColumn(table, SWT.RIGHT);
+		colLine.setText("Line");
+		colLine.setWidth(80);
+		TableColumn colText = new TableColumn(table, SWT.LEFT);
+		colText.setText("Text");
+		colText.setWidth(600);
+		table.addListener(SWT.SetData, e -> {
+			TableItem item = (TableItem) e.item;
+			DirectoryMatcher.Result result = matcher.getResult(table.indexOf(item));
+			item.setText(new String[] { result.path.startsWith(root) ? root.relativize(result.path).toString()
+					: result.path.toString(), Long.toString(result.line + 1), result.text });
+		});
+
+		addListener(SWT.Dispose, e -> {
+			if (matcher != null) {
+				matcher.cancel();
+			}
+		});
+	}
+
+	/**
+	 * Set the pattern to test
+	 *
+	 * @param pattern The pattern, or NULL if there is no valid pattern.
+	 * @param flags The flags the pattern was compiled with
+	 * @param find TRUE to find matches within lines, otherwise whole lines must match.
+	 */
+	void setPattern(Pattern pattern, int flags, boolean find) {
+		this.pattern = pattern;
+		this.flags = flags;
+		this.find = find;
+		if (!isRunning()) {
+			btnRun.setEnabled(pattern != null);
+		}
+	}
+
+	/**
+	 * Get if a run is in progress.
+	 *
+	 * @return TRUE if running.
+	 */
+	private boolean isRunning() {
+		return matcher != null && !matcher.isDone();
+	}
+
+	/**
+	 * Start a new run against the selected directory.
+	 */
+	private void start() {
+		Path directory = Paths.get(txtDirectory.getText().trim());
+		if (pattern == null || !Files.isDirectory(directory)) {
+			lblStatus.setText("Please select a directory to test against");
+			return;
+		}
+		DirectoryMatcher m;
+		try {
+			m = new DirectoryMatcher(directory, txtFilter.getText().trim(), StandardCharsets.UTF_8, pattern, flags, find);
+		} catch (IllegalArgumentException e) {
+			lblStatus.setText("Invalid file name glob: " + e.getMessage());
+			return;
+		}
+		table.setItemCount(0);
+		table.clearAll();
+		matcher = m;
+		root = directory;
+		Thread thread = new Thread(matcher, "RegexTester Directory Walker");
+		thread.setDaemon(true);
+		thread.start();
+		btnRun.setText("Cancel");
+		getDisplay().timerExec(UPDATE_INTERVAL, this::updateProgress);
+	}
+
+	/**
+	 * Update the progress of the current run.
+	 */
+	private void updateProgress() {
+		if (isDisposed() || matcher == null) {
+			return;
+		}
+		DirectoryMatcher m = matcher;
+		boolean done = m.isDone();
+		long size = m.getBytesFound();
+		progress.setSelection(done ? 1000 : size > 0 ? (int) (Math.min(m.getBytes(), size) * 1000 / size) : 0);
+		table.setItemCount(m.getResultCount());
+		String status = String.format(
+				"Files: %,d of %,d   Lines: %,d   Matches: %,d   Matching lines: %,d   Throughput: %.1f MB/s",
+				m.getFilesDone(), m.getFilesFound(), m.getLines(), m.getMatches(), m.getMatchedLines(),
+				m.getThroughput());
+		if (m.isPrefiltered()) {
+			status += String.format("   Candidates: %,d (%.1f%%)", m.getCandidates(),
+					m.getLines() > 0 ? m.getCandidates() * 100d / m.getLines() : 0);
+		}
+		if (m.getMatchedLines() > m.getResultCount()) {
+			status += String.format("   (showing first %,d lines)", m.getResultCount());
+		}
+		if (m.getFilesFailed() > 0) {
+			status += String.format("   Unreadable files: %,d", m.getFilesFailed());
+		}
+		if (m.getError() != null) {
+			status += "   Last error: "
+					+ (m.getError().getMessage() != null ? m.getError().getMessage() : m.getError().toString());
+		}
+		lblStatus.setText(status);
+		if (done) {
+			btnRun.setText("Start");
+			btnRun.setEnabled(pattern != null);
+		} else {
+			getDisplay().timerExec(UPDATE_INTERVAL, this::updateProgress);
+		}
+	}
+}
@@ -0,0 +1,680 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Matches each line of every file in a directory tree against a pattern.
+ * <p>
+ * The tree is walked with <code>Files.walkFileTree</code>, and each file is matched on a fixed pool of worker
+ * threads, with the number of queued files bounded so the walk never runs far ahead of matching. Each worker owns a
+ * {@link LineReader} holding its decoder, buffers and matcher, reused for every file it processes. Files ending in
+ * <code>.gz</code> are decompressed as they are read. Only the first {@link #MAX_RESULTS} matching lines are kept, so
+ * memory use does not depend on the size of the tree. Files and directories which cannot be read, and files the
+ * pattern fails on, are counted as failed and skipped.
+ * </p>
+ * <p>
+ * The matcher is intended to be run on a background thread; progress and results may be read from any thread while
+ * it runs.
+ * </p>
+ */
+class DirectoryMatcher implements Runnable {
+
+	/**
+	 * The maximum number of matching lines kept.
+	 */
+	final static int MAX_RESULTS = 10_000;
+	/**
+	 * The maximum number of characters of a matching line kept.
+	 */
+	private final static int MAX_LINE = 500;
+	/**
+	 * The size of the read and decode buffers.
+	 */
+	private final static int BUFFER = 64 * 1024;
+	/**
+	 * The number of queued files per worker thread.
+	 */
+	private final static int QUEUED_PER_THREAD = 2;
+
+	/**
+	 * The root of the tree.
+	 */
+	private final Path root;
+	/**
+	 * Filter on the file name, or NULL to match all files.
+	 */
+	private final PathMatcher filter;
+	/**
+	 * The charset of the files.
+	 */
+	private final Charset charset;
+	/**
+	 * The pattern to match.
+	 */
+	private final Pattern pattern;
+	/**
+	 * The prefilter for the pattern, or NULL if none.
+	 */
+	private final LiteralPrefilter prefilter;
+	/**
+	 * TRUE to find matches within lines, otherwise whole lines must match.
+	 */
+	private final boolean find;
+	/**
+	 * The number of worker threads.
+	 */
+	private final int threads;
+	/**
+	 * The line reader of each worker thread.
+	 */
+	private final ThreadLocal<LineReader> readers;
+
+	/**
+	 * Flag to stop processing.
+	 */
+	private volatile boolean cancelled;
+	/**
+	 * Flag to indicate processing has finished.
+	 */
+	private volatile boolean done;
+	/**
+	 * The last error encountered.
+	 */
+	private volatile IOException error;
+	/**
+	 * The number of files found.
+	 */
+	private final LongAdder filesFound = new LongAdder();
+	/**
+	 * The number of files processed.
+	 */
+	private final LongAdder filesDone = new LongAdder();
+	/**
+	 * The number of files which could not be read.
+	 */
+	private final LongAdder filesFailed = new LongAdder();
+	/**
+	 * The total size of the files found.
+	 */
+	private final LongAdder bytesFound = new LongAdder();
+	/**
+	 * The number of bytes read from the files, before decompression.
+	 */
+	private final LongAdder bytes = new LongAdder();
+	/**
+	 * The number of lines processed.
+	 */
+	private final LongAdder lines = new LongAdder();
+	/**
+	 * The number of lines accepted by the prefilter.
+	 */
+	private final LongAdder candidates = new LongAdder();
+	/**
+	 * The number of matches.
+	 */
+	private final LongAdder matches = new LongAdder();
+	/**
+	 * The number of matching lines.
+	 */
+	private final LongAdder matchedLines = new LongAdder();
+	/**
+	 * The time processing started.
+	 */
+	private volatile long startTime;
+	/**
+	 * The time processing ended.
+	 */
+	private volatile long endTime;
+	/**
+	 * The kept matching lines.
+	 */
+	private final List<Result> results = new ArrayList<>();
+
+	/**
+	 * Create a new directory matcher.
+	 *
+	 * @param root The root of the tree
+	 * @param glob Glob the file names must match, or NULL to match all files
+	 * @param charset The charset of the files
+	 * @param pattern The pattern to match
+	 * @param flags The flags the pattern was compiled with
+	 * @param find TRUE to find matches within lines, otherwise whole lines must match.
+	 * @throws IllegalArgumentException If the glob is invalid.
+	 */
+	DirectoryMatcher(Path root, String glob, Charset charset, Pattern pattern, int flags, boolean find) {
+		this.root = root;
+		this.filter = glob != null && !glob.isEmpty() ? FileSystems.getDefault().getPathMatcher("glob:" + glob)
+				: null;
+		this.charset = charset;
+		this.pattern = pattern;
+		this.prefilter = LiteralPrefilter.create(pattern, flags);
+		this.find = find;
+		this.threads = Runtime.getRuntime().availableProcessors();
+		this.readers = ThreadLocal.withInitial(LineReader::new);
+	}
+
+	@Override
+	public void run() {
+		startTime = System.nanoTime();
+		ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, "RegexTester Directory Matcher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		Semaphore queued = new Semaphore(threads * QUEUED_PER_THREAD);
+		try {
+			Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+					return cancelled ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+					if (cancelled) {
+						return FileVisitResult.TERMINATE;
+					}
+					if (!Files.isRegularFile(path) || (filter != null && !filter.matches(path.getFileName()))) {
+						return FileVisitResult.CONTINUE;
+					}
+					filesFound.increment();
+					try {
+						bytesFound.add(Files.size(path));
+					} catch (IOException e) {
+						// Reported when the file is read.
+					}
+					try {
+						queued.acquire();
+					} catch (InterruptedException e) {
+						cancelled = true;
+						Thread.currentThread().interrupt();
+						return FileVisitResult.TERMINATE;
+					}
+					pool.execute(() -> {
+						try {
+							if (!cancelled) {
+								matchFile(path);
+							}
+						} finally {
+							filesDone.increment();
+							queued.release();
+						}
+					});
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path path, IOException e) {
+					// An unreadable file or directory is skipped, and the rest of the tree still searched.
+					failed(path, e);
+					return cancelled ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+					if (e != null) {
+						failed(dir, e);
+					}
+					return cancelled ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			error = e;
+		} finally {
+			pool.shutdown();
+			try {
+				pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			} catch (InterruptedException e) {
+				cancelled = true;
+				Thread.currentThread().interrupt();
+			}
+			endTime = System.nanoTime();
+			done = true;
+		}
+	}
+
+	/**
+	 * Match every line of a file.
+	 *
+	 * @param path The file.
+	 */
+	private void matchFile(Path path) {
+		try (InputStream in = open(path)) {
+			readers.get().match(path, in);
+		} catch (IOException | RuntimeException | StackOverflowError e) {
+			// A file the pattern fails on, as by deep recursion on a long line, does not end the search.
+			failed(path, e);
+		}
+	}
+
+	/**
+	 * Record a file or directory which could not be processed.
+	 *
+	 * @param path The file or directory
+	 * @param e The cause.
+	 */
+	private void failed(Path path, Throwable e) {
+		filesFailed.increment();
+		error = new IOException(path + ": " + (e.getMessage() != null ? e.getMessage() : e.toString()), e);
+	}
+
+	/**
+	 * Open a file, decompressing it if gzipped.
+	 *
+	 * @param path The file
+	 * @return The stream of the file content.
+	 * @throws IOException If the file could not be opened.
+	 */
+	private InputStream open(Path path) throws IOException {
+		InputStream in = new CountingInputStream(Files.newInputStream(path));
+		if (path.getFileName().toString().endsWith(".gz")) {
+			try {
+				return new GZIPInputStream(in, BUFFER);
+			} catch (IOException e) {
+				in.close();
+				throw e;
+			}
+		}
+		return in;
+	}
+
+	/**
+	 * Keep a matching line, if there is space.
+	 *
+	 * @param path The file
+	 * @param line The line number
+	 * @param text The text of the line.
+	 */
+	private void addResult(Path path, long line, String text) {
+		matchedLines.increment();
+		synchronized (results) {
+			if (results.size() < MAX_RESULTS) {
+				results.add(new Result(path, line, text));
+			}
+		}
+	}
+
+	/**
+	 * Stop processing.
+	 */
+	void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Get if processing has finished.
+	 *
+	 * @return TRUE if processing has finished.
+	 */
+	boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * Get the last error encountered while processing.
+	 *
+	 * @return The error or NULL if none.
+	 */
+	IOException getError() {
+		return error;
+	}
+
+	/**
+	 * Get the number of files found.
+	 *
+	 * @return The number of files found.
+	 */
+	long getFilesFound() {
+		return filesFound.sum();
+	}
+
+	/**
+	 * Get the number of files processed.
+	 *
+	 * @return The number of files processed.
+	 */
+	long getFilesDone() {
+		return filesDone.sum();
+	}
+
+	/**
+	 * Get the number of files which could not be read.
+	 *
+	 * @return The number of failed files.
+	 */
+	long getFilesFailed() {
+		return filesFailed.sum();
+	}
+
+	/**
+	 * Get the total size of the files found.
+	 *
+	 * @return The size in bytes.
+	 */
+	long getBytesFound() {
+		return bytesFound.sum();
+	}
+
+	/**
+	 * Get the number of bytes read from the files, before decompression.
+	 *
+	 * @return The number of bytes read.
+	 */
+	long getBytes() {
+		return bytes.sum();
+	}
+
+	/**
+	 * Get the number of lines processed.
+	 *
+	 * @return The number of lines.
+	 */
+	long getLines() {
+		return lines.sum();
+	}
+
+	/**
+	 * Get if lines are prefiltered on the pattern's required literals.
+	 *
+	 * @return TRUE if prefiltered.
+	 */
+	boolean isPrefiltered() {
+		return prefilter != null;
+	}
+
+	/**
+	 * Get the number of lines accepted by the prefilter.
+	 *
+	 * @return The number of candidate lines.
+	 */
+	long getCandidates() {
+		return candidates.sum();
+	}
+
+	/**
+	 * Get the number of matches.
+	 *
+	 * @return The number of matches.
+	 */
+	long getMatches() {
+		return matches.sum();
+	}
+
+	/**
+	 * Get the number of matching lines.
+	 *
+	 * @return The number of matching lines.
+	 */
+	long getMatchedLines() {
+		return matchedLines.sum();
+	}
+
+	/**
+	 * Get the throughput of the run so far.
+	 *
+	 * @return The throughput in MB/s of file content read.
+	 */
+	double getThroughput() {
+		long end = done ? endTime : System.nanoTime();
+		long elapsed = end - startTime;
+		return elapsed > 0 ? getBytes() / (elapsed / 1e9d) / (1024d * 1024d) : 0;
+	}
+
+	/**
+	 * Get the number of kept matching lines.
+	 *
+	 * @return The number of kept lines.
+	 */
+	int getResultCount() {
+		synchronized (results) {
+			return results.size();
+		}
+	}
+
+	/**
+	 * Get a kept matching line.
+	 *
+	 * @param index The index of the line
+	 * @return The matching line.
+	 */
+	Result getResult(int index) {
+		synchronized (results) {
+			return results.get(index);
+		}
+	}
+
+	/**
+	 * A matching line.
+	 */
+	static class Result {
+
+		/**
+		 * The file.
+		 */
+		final Path path;
+		/**
+		 * The line number (0 based).
+		 */
+		final long line;
+		/**
+		 * The text of the line, truncated if long.
+		 */
+		final String text;
+
+		/**
+		 * Create a new result.
+		 *
+		 * @param path The file
+		 * @param line The line number
+		 * @param text The text of the line.
+		 */
+		Result(Path path, long line, String text) {
+			this.path = path;
+			this.line = line;
+			this.text = text;
+		}
+	}
+
+	/**
+	 * Decodes and splits a stream into lines and matches them, reusing its buffers, decoder and matcher for every
+	 * file. Lines are delimited by LF, with a trailing CR removed; lines longer than the buffer are split.
+	 */
+	private class LineReader {
+
+		/**
+		 * The decoder.
+		 */
+		private final CharsetDecoder decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		/**
+		 * The bytes read, not yet decoded.
+		 */
+		private final ByteBuffer in = ByteBuffer.allocate(BUFFER);
+		/**
+		 * The decoded characters, not yet matched.
+		 */
+		private final CharBuffer out = CharBuffer.allocate(BUFFER);
+		/**
+		 * The matcher.
+		 */
+		private final Matcher matcher = pattern.matcher("");
+
+		/**
+		 * Match every line of the stream.
+		 *
+		 * @param path The file being read
+		 * @param stream The stream of the file content.
+		 * @throws IOException If the stream could not be read.
+		 */
+		void match(Path path, InputStream stream) throws IOException {
+			decoder.reset();
+			in.clear();
+			out.clear();
+			long line = 0;
+			boolean eof = false;
+			boolean flushing = false;
+			while (!cancelled) {
+				if (!eof) {
+					int n = stream.read(in.array(), in.position(), in.remaining());
+					eof = n < 0;
+					if (n > 0) {
+						in.position(in.position() + n);
+					}
+				}
+				in.flip();
+				CoderResult result = flushing ? decoder.flush(out) : decoder.decode(in, out, eof);
+				if (eof && !flushing && result.isUnderflow()) {
+					flushing = true;
+					result = decoder.flush(out);
+				}
+				boolean finished = flushing && result.isUnderflow();
+				in.compact();
+				out.flip();
+				line = matchLines(path, line, finished || out.limit() == out.capacity());
+				out.compact();
+				if (finished) {
+					break;
+				}
+			}
+			lines.add(line);
+		}
+
+		/**
+		 * Match the complete lines held in the output buffer, leaving any partial line at the end.
+		 *
+		 * @param path The file being read
+		 * @param line The line number of the first line
+		 * @param flush TRUE to also match a final partial line, at the end of the stream or when the buffer is full.
+		 * @return The line number of the next line.
+		 */
+		private long matchLines(Path path, long line, boolean flush) {
+			char[] array = out.array();
+			int length = out.limit();
+			matcher.reset(out);
+			int start = 0;
+			while (start < length) {
+				int end = start;
+				while (end < length && array[end] != '\n') {
+					end++;
+				}
+				if (end == length && !flush) {
+					break;
+				}
+				int next = end + 1;
+				if (end > start && array[end - 1] == '\r') {
+					end--;
+				}
+				if (end > start && matchLine(start, end)) {
+					addResult(path, line, new String(array, start, Math.min(end - start, MAX_LINE)));
+				}
+				line++;
+				start = next;
+			}
+			out.position(Math.min(start, length));
+			return line;
+		}
+
+		/**
+		 * Match a single line.
+		 *
+		 * @param start The start of the line
+		 * @param end The end of the line
+		 * @return TRUE if the line matched.
+		 */
+		private boolean matchLine(int start, int end) {
+			if (prefilter != null && !prefilter.mayMatch(out, start, end)) {
+				return false;
+			}
+			candidates.increment();
+			matcher.region(start, end);
+			if (!find) {
+				if (matcher.matches()) {
+					matches.increment();
+					return true;
+				}
+				return false;
+			}
+			int count = 0;
+			while (matcher.find()) {
+				count++;
+			}
+			matches.add(count);
+			return count > 0;
+		}
+	}
+
+	/**
+	 * Stream counting the bytes read.
+	 */
+	private class CountingInputStream extends FilterInputStream {
+
+		/**
+		 * Create a new stream.
+		 *
+		 * @param in The stream to count.
+		 */
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				bytes.increment();
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				bytes.add(n);
+			}
+			return n;
+		}
+	}
+}
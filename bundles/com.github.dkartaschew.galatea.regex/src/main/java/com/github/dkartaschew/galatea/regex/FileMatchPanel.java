@@ -0,0 +1,245 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.regex.Pattern;
+
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.FileDialog;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.ProgressBar;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.swt.widgets.Text;
+
+/**
+ * Panel to test a pattern against a file on disk.
+ * <p>
+ * The file is matched on a background thread, with the matching lines shown in a virtual table that only reads the
+ * lines being displayed.
+ * </p>
+ */
+class FileMatchPanel extends Composite {
+
+	/**
+	 * The interval between progress updates (msec)
+	 */
+	private final static int UPDATE_INTERVAL = 200;
+
+	/**
+	 * The file to test.
+	 */
+	private final Text txtFile;
+	/**
+	 * Start/Cancel button
+	 */
+	private final Button btnRun;
+	/**
+	 * The progress of the current run.
+	 */
+	private final ProgressBar progress;
+	/**
+	 * The status/statistics of the current run.
+	 */
+	private final Label lblStatus;
+	/**
+	 * The matching lines.
+	 */
+	private final Table table;
+
+	/**
+	 * The pattern to test.
+	 */
+	private Pattern pattern;
+	/**
+	 * The flags the pattern was compiled with.
+	 */
+	private int flags;
+	/**
+	 * TRUE to find matches within lines.
+	 */
+	private boolean find;
+	/**
+	 * The current (or last) run.
+	 */
+	private MappedFileMatcher matcher;
+
+	/**
+	 * Create the panel.
+	 *
+	 * @param parent The parent composite
+	 * @param style The default style
+	 */
+	FileMatchPanel(Composite parent, int style) {
+		super(parent, style);
+		setLayout(GridLayoutFactory.swtDefaults().numColumns(4).create());
+
+		Label lblFile = new Label(this, SWT.NONE);
+		lblFile.setText("File:");
+		lblFile.setLayoutData(GridDataFactory.swtDefaults().align(SWT.FILL, SWT.CENTER).create());
+
+		txtFile = new Text(this, SWT.BORDER);
+		txtFile.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).create());
+		txtFile.setMessage("Please select a file to test against");
+
+		Button btnBrowse = new Button(this, SWT.PUSH);
+		btnBrowse.setText("Browse...");
+		btnBrowse.addListener(SWT.Selection, e -> {
+			FileDialog dialog = new FileDialog(getShell(), SWT.OPEN);
+			dialog.setText("Test against file");
+			String file = dialog.open();
+			if (file != null) {
+				txtFile.setText(file);
+			}
+		});
+
+		btnRun = new Button(this, SWT.PUSH);
+		btnRun.setText("Start");
+		btnRun.setEnabled(false);
+		btnRun.addListener(SWT.Selection, e -> {
+			if (isRunning()) {
+				matcher.cancel();
+			} else {
+				start();
+			}
+		});
+
+		progress = new ProgressBar(this, SWT.HORIZONTAL);
+		progress.setMaximum(1000);
+		progress.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).span(4, 1).create());
+
+		lblStatus = new Label(this, SWT.NONE);
+		lblStatus.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).span(4, 1).create());
+
+		table = new Table(this, SWT.BORDER | SWT.VIRTUAL | SWT.FULL_SELECTION | SWT.V_SCROLL | SWT.H_SCROLL);
+		table.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).span(4, 1).create());
+		table.setHeaderVisible(true);
+		TableColumn colLine = new TableColumn(table, SWT.RIGHT);
+		colLine.setText("Line");
+		colLine.setWidth(80);
+		TableColumn colText = new TableColumn(table, SWT.LEFT);
+		colText.setText("Text");
+		colText.setWidth(600);
+		table.addListener(SWT.SetData, e -> {
+			TableItem item = (TableItem) e.item;
+			int index = table.indexOf(item);
+			item.setText(0, Long.toString(matcher.getResultLine(index) + 1));
+			try {
+				item.setText(1, matcher.readResult(index));
+			} catch (IOException ex) {
+				item.setText(1, ex.getMessage() != null ? ex.getMessage() : ex.toString());
+			}
+		});
+
+		addListener(SWT.Dispose, e -> {
+			if (matcher != null) {
+				matcher.cancel();
+				matcher.close();
+			}
+		});
+	}
+
+	/**
+	 * Set the pattern to test
+	 *
+	 * @param pattern The pattern, or NULL if there is no valid pattern.
+	 * @param flags The flags the pattern was compiled with
+	 * @param find TRUE to find matches within lines, otherwise whole lines must match.
+	 */
+	void setPattern(Pattern pattern, int flags, boolean find) {
+		this.pattern = pattern;
+		this.flags = flags;
+		this.find = find;
+		if (!isRunning()) {
+			btnRun.setEnabled(pattern != null);
+		}
+	}
+
+	/**
+	 * Get if a run is in progress.
+	 *
+	 * @return TRUE if running.
+	 */
+	private boolean isRunning() {
+		return matcher != null && !matcher.isDone();
+	}
+
+	/**
+	 * Start a new run against the selected file.
+	 */
+	private void start() {
+		Path path = Paths.get(txtFile.getText().trim());
+		if (pattern == null || !Files.isRegularFile(path)) {
+			lblStatus.setText("Please select a file to test against");
+			return;
+		}
+		if (matcher != null) {
+			matcher.close();
+		}
+		table.setItemCount(0);
+		table.clearAll();
+		matcher = new MappedFileMatcher(path, StandardCharsets.UTF_8, pattern, flags, find);
+		Thread thread = new Thread(matcher, "RegexTester File Matcher");
+		thread.setDaemon(true);
+		thread.start();
+		btnRun.setText("Cancel");
+		getDisplay().timerExec(UPDATE_INTERVAL, this::updateProgress);
+	}
+
+	/**
+	 * Update the progress of the current run.
+	 */
+	private void updateProgress() {
+		if (isDisposed() || matcher == null) {
+			return;
+		}
+		MappedFileMatcher m = matcher;
+		boolean done = m.isDone();
+		long size = m.getSize();
+		progress.setSelection(size > 0 ? (int) (m.getBytes() * 1000 / size) : 0);
+		table.setItemCount(m.getResultCount());
+		String status = String.format("Lines: %,d   Matches: %,d   Matching lines: %,d   Throughput: %.1f MB/s",
+				m.getLines(), m.getMatches(), m.getMatchedLines(), m.getThroughput());
+		if (m.isPrefiltered()) {
+			status += String.format("   Candidates: %,d (%.1f%%)", m.getCandidates(),
+					m.getLines() > 0 ? m.getCandidates() * 100d / m.getLines() : 0);
+		}
+		if (m.getMatchedLines() > m.getResultCount()) {
+			status += String.format("   (showing first %,d lines)", m.getResultCount());
+		}
+		if (m.getError() != null) {
+			status = m.getError().getMessage() != null ? m.getError().getMessage() : m.getError().toString();
+		}
+		lblStatus.setText(status);
+		if (done) {
+			btnRun.setText("Start");
+			btnRun.setEnabled(pattern != null);
+		} else {
+			getDisplay().timerExec(UPDATE_INTERVAL, this::updateProgress);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Engine using the backtracking <code>java.util.regex</code> implementation, supporting all pattern features.
+ */
+final class JavaRegexEngine implements RegexEngine {
+
+	@Override
+	public String getName() {
+		return "java.util.regex (backtracking)";
+	}
+
+	@Override
+	public Compiled compile(Pattern pattern, int flags) {
+		return new Compiled() {
+
+			@Override
+			public Pattern getPattern() {
+				return pattern;
+			}
+
+			@Override
+			public LineMatcher matcher() {
+				return new JavaLineMatcher(pattern);
+			}
+		};
+	}
+
+	/**
+	 * Line matcher reusing a single <code>Matcher</code>.
+	 */
+	private static class JavaLineMatcher implements LineMatcher {
+
+		/**
+		 * The matcher.
+		 */
+		private final Matcher matcher;
+		/**
+		 * The text the matcher was last reset to.
+		 */
+		private CharSequence text;
+
+		/**
+		 * Create a new line matcher.
+		 *
+		 * @param pattern The pattern.
+		 */
+		JavaLineMatcher(Pattern pattern) {
+			this.matcher = pattern.matcher("");
+		}
+
+		/**
+		 * Restrict the matcher to the region of the text.
+		 *
+		 * @param text The text
+		 * @param start The start of the region
+		 * @param end The end of the region.
+		 */
+		private void region(CharSequence text, int start, int end) {
+			if (text != this.text) {
+				this.text = text;
+				matcher.reset(text);
+			}
+			matcher.region(start, end);
+		}
+
+		@Override
+		public boolean matches(CharSequence text, int start, int end) {
+			region(text, start, end);
+			return matcher.matches();
+		}
+
+		@Override
+		public boolean find(CharSequence text, int start, int end) {
+			region(text, start, end);
+			return matcher.find();
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.util.Arrays;
+
+/**
+ * Index of line start and end offsets within a body of text.
+ * <p>
+ * Line delimiters follow the same rules as <code>StyledText</code>: CR, LF or CRLF. The end offset of a line excludes
+ * the delimiter.
+ * </p>
+ */
+class LineIndex {
+
+	/**
+	 * Line start offsets.
+	 */
+	private int[] starts = new int[16];
+	/**
+	 * Line end offsets (exclusive, without delimiter).
+	 */
+	private int[] ends = new int[16];
+	/**
+	 * The number of lines.
+	 */
+	private int count;
+
+	/**
+	 * Create a new empty line index.
+	 */
+	LineIndex() {
+	}
+
+	/**
+	 * Create a new line index for the given text.
+	 *
+	 * @param text The text to index.
+	 */
+	LineIndex(CharSequence text) {
+		scan(text, 0, true);
+	}
+
+	/**
+	 * Append the lines found in the given text.
+	 *
+	 * @param text The text to scan
+	 * @param base The offset of the text within the document
+	 * @param last TRUE if the text runs to the end of the document, in which case the trailing line is added.
+	 *            Otherwise the text is expected to end with a line delimiter.
+	 */
+	void scan(CharSequence text, int base, boolean last) {
+		int length = text.length();
+		int start = 0;
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if (c == '\n' || c == '\r') {
+				add(base + start, base + i);
+				if (c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+					i++;
+				}
+				start = i + 1;
+			}
+		}
+		if (last) {
+			add(base + start, base + length);
+		}
+	}
+
+	/**
+	 * Remove all lines.
+	 */
+	void clear() {
+		count = 0;
+	}
+
+	/**
+	 * Replace a range of lines with the lines of another index, shifting all following lines.
+	 *
+	 * @param first The first line to replace
+	 * @param last The last line to replace (inclusive)
+	 * @param lines The replacement lines
+	 * @param delta The amount to shift the offsets of all lines following the replaced range.
+	 */
+	void splice(int first, int last, LineIndex lines, int delta) {
+		int removed = last - first + 1;
+		int newCount = count - removed + lines.count;
+		if (newCount > starts.length) {
+			int size = Math.max(newCount, starts.length * 2);
+			starts = Arrays.copyOf(starts, size);
+			ends = Arrays.copyOf(ends, size);
+		}
+		int tail = count - last - 1;
+		System.arraycopy(starts, last + 1, starts, first + lines.count, tail);
+		System.arraycopy(ends, last + 1, ends, first + lines.count, tail);
+		System.arraycopy(lines.starts, 0, starts, first, lines.count);
+		System.arraycopy(lines.ends, 0, ends, first, lines.count);
+		count = newCount;
+		if (delta != 0) {
+			for (int i = first + lines.count; i < count; i++) {
+				starts[i] += delta;
+				ends[i] += delta;
+			}
+		}
+	}
+
+	/**
+	 * Append a line to the index.
+	 *
+	 * @param start The start offset
+	 * @param end The end offset
+	 */
+	private void add(int start, int end) {
+		if (count == starts.length) {
+			starts = Arrays.copyOf(starts, count * 2);
+			ends = Arrays.copyOf(ends, count * 2);
+		}
+		starts[count] = start;
+		ends[count] = end;
+		count++;
+	}
+
+	/**
+	 * Get the number of lines.
+	 *
+	 * @return The number of lines.
+	 */
+	int getLineCount() {
+		return count;
+	}
+
+	/**
+	 * Get the start offset of the line.
+	 *
+	 * @param line The line
+	 * @return The offset of the first character of the line.
+	 */
+	int getStart(int line) {
+		return starts[line];
+	}
+
+	/**
+	 * Get the end offset of the line.
+	 *
+	 * @param line The line
+	 * @return The offset after the last character of the line, excluding the delimiter.
+	 */
+	int getEnd(int line) {
+		return ends[line];
+	}
+
+	/**
+	 * Get the line containing the given offset. Offsets within a line delimiter belong to the line the delimiter
+	 * terminates.
+	 *
+	 * @param offset The offset
+	 * @return The line
+	 */
+	int getLineAtOffset(int offset) {
+		int low = 0;
+		int high = count - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (starts[mid] <= offset) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,130 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies a replacement template to single lines, with <code>Matcher.appendReplacement</code>.
+ * <p>
+ * In find mode every match within the line is replaced, otherwise the line is only replaced if the whole line
+ * matches. As with the matched lines shown by {@link RegexTester}, empty lines never match. The matcher and result
+ * buffer are reused for every line, so an instance is not thread safe.
+ * </p>
+ */
+final class LineReplacer {
+
+	/**
+	 * The replacement template.
+	 */
+	private final String template;
+	/**
+	 * TRUE to replace every match within the line, otherwise whole lines must match.
+	 */
+	private final boolean find;
+	/**
+	 * The matcher.
+	 */
+	private final Matcher matcher;
+	/**
+	 * The replaced text of the last line.
+	 */
+	private final StringBuffer result = new StringBuffer();
+	/**
+	 * The number of replacements made in the last line.
+	 */
+	private int count;
+
+	/**
+	 * Create a new replacer.
+	 *
+	 * @param pattern The pattern to match
+	 * @param template The replacement template
+	 * @param find TRUE to replace every match within a line, otherwise whole lines must match.
+	 * @throws IllegalArgumentException If the template is invalid for the pattern.
+	 */
+	LineReplacer(Pattern pattern, String template, boolean find) {
+		validate(pattern, template);
+		this.template = template;
+		this.find = find;
+		this.matcher = pattern.matcher("");
+	}
+
+	/**
+	 * Replace the matches within a line.
+	 *
+	 * @param line The line, without delimiter.
+	 * @return TRUE if the line matched, in which case the replaced line is held in {@link #getResult()}.
+	 */
+	boolean replace(CharSequence line) {
+		count = 0;
+		if (line.length() == 0) {
+			return false;
+		}
+		matcher.reset(line);
+		if (find ? !matcher.find() : !matcher.matches()) {
+			return false;
+		}
+		result.setLength(0);
+		do {
+			matcher.appendReplacement(result, template);
+			count++;
+		} while (find && matcher.find());
+		matcher.appendTail(result);
+		return true;
+	}
+
+	/**
+	 * Get the replaced text of the last matched line.
+	 *
+	 * @return The replaced line. The buffer is reused by the next call to {@link #replace(CharSequence)}.
+	 */
+	StringBuffer getResult() {
+		return result;
+	}
+
+	/**
+	 * Get the number of replacements made in the last line.
+	 *
+	 * @return The number of replacements.
+	 */
+	int getCount() {
+		return count;
+	}
+
+	/**
+	 * Check a replacement template against a pattern, by applying it with <code>Matcher.appendReplacement</code> to
+	 * an empty match of the pattern's groups, so the template is parsed exactly as it will be when replacing.
+	 *
+	 * @param pattern The pattern
+	 * @param template The replacement template.
+	 * @throws IllegalArgumentException If the template is invalid for the pattern.
+	 */
+	static void validate(Pattern pattern, String template) {
+		Matcher matcher = Pattern.compile("").matcher("");
+		matcher.find();
+		// Keeps the empty match, with none of the pattern's groups matched.
+		matcher.usePattern(pattern);
+		try {
+			matcher.appendReplacement(new StringBuffer(), template);
+		} catch (IndexOutOfBoundsException e) {
+			// Thrown for a reference to a group number the pattern does not have.
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+	}
+}
@@ -0,0 +1,318 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Extracts the literal strings required by a pattern, such that any match must contain at least one of them.
+ * <p>
+ * Each node is summarised by the exact set of strings it can match (when small and finite), and by the best set of
+ * strings one of which any match must contain. Adjacent exact sets in a sequence are combined to form longer
+ * literals, and the best set is the one with the longest shortest member.
+ * </p>
+ */
+final class LiteralExtractor {
+
+	/**
+	 * The maximum number of strings in a set.
+	 */
+	private final static int MAX_SET = 16;
+	/**
+	 * The maximum length of an exact string.
+	 */
+	private final static int MAX_LENGTH = 64;
+	/**
+	 * The maximum size of a character class expanded into single characters.
+	 */
+	private final static int MAX_CLASS = 4;
+
+	/**
+	 * The set holding only the empty string.
+	 */
+	private final static Set<String> EMPTY_STRING = Collections.singleton("");
+
+	/**
+	 * TRUE to fold all literals to lower case.
+	 */
+	private final boolean foldCase;
+
+	/**
+	 * Create a new extractor.
+	 *
+	 * @param foldCase TRUE to fold all literals to lower case.
+	 */
+	private LiteralExtractor(boolean foldCase) {
+		this.foldCase = foldCase;
+	}
+
+	/**
+	 * Get the literal strings required by the pattern.
+	 *
+	 * @param node The root of the pattern syntax tree
+	 * @param foldCase TRUE to fold the literals to lower case, for use by a case insensitive search. Otherwise case
+	 *            insensitive characters are expanded into each case.
+	 * @return The literals, at least one of which must occur in any match, or NULL if there are no required literals.
+	 */
+	static Set<String> extract(RegexNode node, boolean foldCase) {
+		return new LiteralExtractor(foldCase).summarise(node).required;
+	}
+
+	/**
+	 * Summarise a node.
+	 *
+	 * @param node The node
+	 * @return The summary.
+	 */
+	private Summary summarise(RegexNode node) {
+		switch (node.type) {
+		case EMPTY:
+		case ANCHOR:
+		case LOOKAROUND:
+			return new Summary(EMPTY_STRING, null);
+		case CHAR:
+		case CLASS:
+			return new Summary(characters(node), null);
+		case GROUP:
+			return summarise(node.child());
+		case CONCAT:
+			return concat(node.children);
+		case ALTERNATE:
+			return alternate(node.children);
+		case REPEAT:
+			return repeat(node);
+		default:
+			return new Summary(null, null);
+		}
+	}
+
+	/**
+	 * Get the strings matched by a CHAR or CLASS node.
+	 *
+	 * @param node The node
+	 * @return The strings, or NULL if the class is too large.
+	 */
+	private Set<String> characters(RegexNode node) {
+		CharClass chars = node.type == RegexNode.Type.CHAR && (foldCase || !node.caseInsensitive)
+				? CharClass.of(node.codePoint)
+				: node.getCharacters();
+		if (chars == null || chars.size() > MAX_CLASS * (foldCase ? 2 : 1)) {
+			return null;
+		}
+		Set<String> strings = new LinkedHashSet<>();
+		for (int i = 0; i < chars.getRangeCount(); i++) {
+			for (int c = chars.getLow(i); c <= chars.getHigh(i); c++) {
+				strings.add(fold(new String(Character.toChars(c))));
+			}
+		}
+		return strings.size() <= MAX_CLASS ? strings : null;
+	}
+
+	/**
+	 * Fold a string to lower case if required.
+	 *
+	 * @param s The string
+	 * @return The folded string.
+	 */
+	private String fold(String s) {
+		if (!foldCase) {
+			return s;
+		}
+		// Fold each character as the search does, independent of the locale.
+		char[] chars = s.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = AhoCorasick.fold(chars[i]);
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Summarise a sequence.
+	 *
+	 * @param children The nodes of the sequence
+	 * @return The summary.
+	 */
+	private Summary concat(List<RegexNode> children) {
+		Set<String> best = null;
+		Set<String> run = EMPTY_STRING;
+		boolean exact = true;
+		for (RegexNode child : children) {
+			Summary s = summarise(child);
+			if (s.exact != null) {
+				Set<String> product = product(run, s.exact);
+				if (product != null) {
+					run = product;
+				} else {
+					best = better(best, run);
+					run = s.exact;
+					exact = false;
+				}
+			} else {
+				best = better(best, run);
+				best = better(best, s.required);
+				run = EMPTY_STRING;
+				exact = false;
+			}
+		}
+		best = better(best, run);
+		return new Summary(exact ? run : null, best);
+	}
+
+	/**
+	 * Summarise alternatives.
+	 *
+	 * @param children The alternatives
+	 * @return The summary.
+	 */
+	private Summary alternate(List<RegexNode> children) {
+		Set<String> exact = new LinkedHashSet<>();
+		Set<String> required = new LinkedHashSet<>();
+		for (RegexNode child : children) {
+			Summary s = summarise(child);
+			if (exact != null && s.exact != null) {
+				exact.addAll(s.exact);
+				if (exact.size() > MAX_SET) {
+					exact = null;
+				}
+			} else {
+				exact = null;
+			}
+			if (required != null && s.required != null) {
+				required.addAll(s.required);
+			} else {
+				required = null;
+			}
+		}
+		return new Summary(exact, required);
+	}
+
+	/**
+	 * Summarise a repeat.
+	 *
+	 * @param node The repeat node
+	 * @return The summary.
+	 */
+	private Summary repeat(RegexNode node) {
+		Summary s = summarise(node.child());
+		if (node.min == 0) {
+			if (node.max == 1 && s.exact != null && s.exact.size() < MAX_SET) {
+				Set<String> exact = new LinkedHashSet<>(s.exact);
+				exact.add("");
+				return new Summary(exact, null);
+			}
+			return new Summary(null, null);
+		}
+		if (node.min == node.max && s.exact != null) {
+			Set<String> exact = EMPTY_STRING;
+			for (int i = 0; i < node.min && exact != null; i++) {
+				exact = product(exact, s.exact);
+			}
+			if (exact != null) {
+				return new Summary(exact, null);
+			}
+		}
+		return new Summary(null, s.required);
+	}
+
+	/**
+	 * Get every concatenation of a string from the first set followed by a string from the second set.
+	 *
+	 * @param first The first set
+	 * @param second The second set
+	 * @return The product, or NULL if too large.
+	 */
+	private static Set<String> product(Set<String> first, Set<String> second) {
+		if (first.size() * second.size() > MAX_SET) {
+			return null;
+		}
+		Set<String> product = new LinkedHashSet<>();
+		for (String a : first) {
+			for (String b : second) {
+				if (a.length() + b.length() > MAX_LENGTH) {
+					return null;
+				}
+				product.add(a + b);
+			}
+		}
+		return product;
+	}
+
+	/**
+	 * Choose the better of two required sets.
+	 *
+	 * @param a The first set, may be NULL
+	 * @param b The second set, may be NULL.
+	 * @return The set whose shortest member is longest, preferring smaller sets, or NULL if neither is useful.
+	 */
+	private static Set<String> better(Set<String> a, Set<String> b) {
+		int scoreA = score(a);
+		int scoreB = score(b);
+		if (scoreA == 0 && scoreB == 0) {
+			return null;
+		}
+		if (scoreA != scoreB) {
+			return scoreA > scoreB ? a : b;
+		}
+		return a.size() <= b.size() ? a : b;
+	}
+
+	/**
+	 * Get the length of the shortest member of a set.
+	 *
+	 * @param set The set, may be NULL
+	 * @return The length of the shortest member, or 0 if NULL.
+	 */
+	private static int score(Set<String> set) {
+		if (set == null || set.isEmpty()) {
+			return 0;
+		}
+		int min = Integer.MAX_VALUE;
+		for (String s : set) {
+			min = Math.min(min, s.length());
+		}
+		return min;
+	}
+
+	/**
+	 * Summary of a node.
+	 */
+	private static class Summary {
+
+		/**
+		 * The strings matched by the node, or NULL if not small and finite.
+		 */
+		final Set<String> exact;
+		/**
+		 * The strings, one of which must occur in any match of the node, or NULL if none.
+		 */
+		final Set<String> required;
+
+		/**
+		 * Create a new summary.
+		 *
+		 * @param exact The exact strings
+		 * @param required The required strings.
+		 */
+		Summary(Set<String> exact, Set<String> required) {
+			this.exact = exact;
+			this.required = better(exact, required);
+		}
+	}
+}
@@ -0,0 +1,187 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Prefilter which rejects lines that cannot match a pattern, as they contain none of the pattern's required literals.
+ * <p>
+ * A single case sensitive literal is searched for with a Boyer-Moore-Horspool scan; multiple literals, or a case
+ * insensitive pattern, use an {@link AhoCorasick} automaton. Only lines accepted by the prefilter need to be run
+ * through the regex engine.
+ * </p>
+ * <p>
+ * Patterns containing inline flags, eg "(?i)" or "(?x:...)", are not prefiltered, as a literal derived with the
+ * wrong flags in effect would wrongly reject matching lines.
+ * </p>
+ */
+final class LiteralPrefilter {
+
+	/**
+	 * The number of characters held in the shift table.
+	 */
+	private final static int ASCII = 128;
+	/**
+	 * An inline flag group, or possibly an escaped or quoted lookalike.
+	 */
+	private final static Pattern INLINE_FLAGS = Pattern.compile("\\(\\?[idmsuxU-]+[:)]");
+
+	/**
+	 * The literals, for display.
+	 */
+	private final Set<String> literals;
+	/**
+	 * The single case sensitive literal, or NULL if using the automaton.
+	 */
+	private final String literal;
+	/**
+	 * The Horspool shift for each ASCII character.
+	 */
+	private final int[] shift;
+	/**
+	 * The Horspool shift for all other characters.
+	 */
+	private final int otherShift;
+	/**
+	 * The automaton, or NULL if using the single literal.
+	 */
+	private final AhoCorasick automaton;
+	/**
+	 * TRUE if the pattern was compiled case insensitive.
+	 */
+	private final boolean caseInsensitive;
+
+	/**
+	 * Create a new prefilter.
+	 *
+	 * @param literals The literals
+	 * @param caseSensitive TRUE if the literals are case sensitive
+	 * @param caseInsensitive TRUE if the pattern was compiled case insensitive.
+	 */
+	private LiteralPrefilter(Set<String> literals, boolean caseSensitive, boolean caseInsensitive) {
+		this.literals = literals;
+		this.caseInsensitive = caseInsensitive;
+		if (caseSensitive && literals.size() == 1) {
+			literal = literals.iterator().next();
+			automaton = null;
+			int length = literal.length();
+			shift = new int[ASCII];
+			int other = length;
+			for (int c = 0; c < ASCII; c++) {
+				shift[c] = length;
+			}
+			for (int i = 0; i < length - 1; i++) {
+				char c = literal.charAt(i);
+				if (c < ASCII) {
+					shift[c] = length - 1 - i;
+				} else {
+					other = Math.min(other, length - 1 - i);
+				}
+			}
+			otherShift = other;
+		} else {
+			literal = null;
+			shift = null;
+			otherShift = 0;
+			List<String> keywords = new ArrayList<>(literals);
+			automaton = new AhoCorasick(keywords, new int[keywords.size()]);
+		}
+	}
+
+	/**
+	 * Create a prefilter for a pattern.
+	 *
+	 * @param pattern The pattern
+	 * @param flags The flags the pattern was compiled with.
+	 * @return The prefilter, or NULL if the pattern has no required literals or uses inline flags.
+	 */
+	static LiteralPrefilter create(Pattern pattern, int flags) {
+		if ((flags & Pattern.LITERAL) == 0 && INLINE_FLAGS.matcher(pattern.pattern()).find()) {
+			return null;
+		}
+		RegexNode node;
+		try {
+			node = RegexParser.parse(pattern.pattern(), flags);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+		boolean caseInsensitive = (flags & Pattern.CASE_INSENSITIVE) != 0;
+		Set<String> exact = LiteralExtractor.extract(node, false);
+		if (exact != null && exact.size() == 1) {
+			return new LiteralPrefilter(exact, true, caseInsensitive);
+		}
+		Set<String> folded = LiteralExtractor.extract(node, true);
+		return folded != null ? new LiteralPrefilter(folded, false, caseInsensitive) : null;
+	}
+
+	/**
+	 * Get the literals, at least one of which must occur in a matching line.
+	 *
+	 * @return The literals.
+	 */
+	Set<String> getLiterals() {
+		return literals;
+	}
+
+	/**
+	 * Get if the pattern is case insensitive, so its literals are matched ignoring case. The automaton used for
+	 * multiple literals always ignores case, which only lets through more candidate lines.
+	 *
+	 * @return TRUE if case insensitive.
+	 */
+	boolean isCaseInsensitive() {
+		return caseInsensitive;
+	}
+
+	/**
+	 * Determine if a range of text may match the pattern.
+	 *
+	 * @param text The text
+	 * @param start The start of the range
+	 * @param end The end of the range (exclusive)
+	 * @return TRUE if the range contains a required literal, FALSE if it cannot match the pattern.
+	 */
+	boolean mayMatch(CharSequence text, int start, int end) {
+		if (automaton != null) {
+			return automaton.contains(text, start, end);
+		}
+		int length = literal.length();
+		int last = length - 1;
+		char lastChar = literal.charAt(last);
+		int i = start + last;
+		while (i < end) {
+			char c = text.charAt(i);
+			if (c == lastChar) {
+				int j = last - 1;
+				int k = i - 1;
+				while (j >= 0 && text.charAt(k) == literal.charAt(j)) {
+					j--;
+					k--;
+				}
+				if (j < 0) {
+					return true;
+				}
+			}
+			i += c < ASCII ? shift[c] : otherShift;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,506 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Matches each line of a file against a pattern.
+ * <p>
+ * The file is memory mapped in segments, and each segment is decoded in line aligned chunks into a reused
+ * <code>CharBuffer</code> which is handed directly to the matcher. Lines are delimited by LF, with a trailing CR
+ * removed. The charset must be ASCII compatible (eg UTF-8 or ISO-8859-1), and lines longer than the chunk size are
+ * split.
+ * </p>
+ * <p>
+ * The matcher is intended to be run on a background thread; progress and results may be read from any thread while
+ * it runs.
+ * </p>
+ */
+class MappedFileMatcher implements Runnable {
+
+	/**
+	 * The size of each mapped segment.
+	 */
+	private final static long SEGMENT = 64L * 1024 * 1024;
+	/**
+	 * The number of bytes decoded at a time.
+	 */
+	private final static int CHUNK = 1024 * 1024;
+	/**
+	 * The maximum number of matched lines to record.
+	 */
+	private final static int MAX_RESULTS = 1_000_000;
+	/**
+	 * The maximum number of bytes read when displaying a line.
+	 */
+	private final static int MAX_LINE = 4096;
+
+	/**
+	 * The file to match.
+	 */
+	private final Path path;
+	/**
+	 * The pattern to match.
+	 */
+	private final Pattern pattern;
+	/**
+	 * The prefilter for the pattern, or NULL if none.
+	 */
+	private final LiteralPrefilter prefilter;
+	/**
+	 * TRUE to find matches within lines, otherwise whole lines must match.
+	 */
+	private final boolean find;
+	/**
+	 * The charset of the file.
+	 */
+	private final Charset charset;
+
+	/**
+	 * Flag to stop processing.
+	 */
+	private volatile boolean cancelled;
+	/**
+	 * Flag to indicate processing has finished.
+	 */
+	private volatile boolean done;
+	/**
+	 * Any error encountered.
+	 */
+	private volatile IOException error;
+	/**
+	 * The size of the file.
+	 */
+	private volatile long size;
+	/**
+	 * The number of bytes processed.
+	 */
+	private volatile long bytes;
+	/**
+	 * The number of lines processed.
+	 */
+	private volatile long lines;
+	/**
+	 * The number of matches.
+	 */
+	private volatile long matches;
+	/**
+	 * The number of matching lines.
+	 */
+	private volatile long matchedLines;
+	/**
+	 * The number of lines accepted by the prefilter.
+	 */
+	private volatile long candidates;
+	/**
+	 * The time processing started.
+	 */
+	private volatile long startTime;
+	/**
+	 * The time processing ended.
+	 */
+	private volatile long endTime;
+
+	/**
+	 * The line numbers of the recorded matching lines.
+	 */
+	private long[] resultLines = new long[256];
+	/**
+	 * The byte offsets of the recorded matching lines.
+	 */
+	private long[] resultOffsets = new long[256];
+	/**
+	 * The number of recorded matching lines.
+	 */
+	private int results;
+	/**
+	 * The channel used to read lines for display.
+	 */
+	private FileChannel reader;
+
+	/**
+	 * Create a new file matcher.
+	 *
+	 * @param path The file to match
+	 * @param charset The charset of the file
+	 * @param pattern The pattern to match
+	 * @param flags The flags the pattern was compiled with
+	 * @param find TRUE to find matches within lines, otherwise whole lines must match.
+	 */
+	MappedFileMatcher(Path path, Charset charset, Pattern pattern, int flags, boolean find) {
+		this.path = path;
+		this.charset = charset;
+		this.pattern = pattern;
+		this.prefilter = LiteralPrefilter.create(pattern, flags);
+		this.find = find;
+	}
+
+	@Override
+	public void run() {
+		startTime = System.nanoTime();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			size = channel.size();
+			CharsetDecoder decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			CharBuffer chars = CharBuffer.allocate(CHUNK);
+			Matcher matcher = pattern.matcher("");
+			long position = 0;
+			while (position < size && !cancelled) {
+				long length = Math.min(SEGMENT, size - position);
+				MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				int segmentEnd = (int) length;
+				if (position + length < size) {
+					// Stop at the last complete line, the remainder starts the next segment.
+					int nl = lastIndexOfNewline(segment, 0, segmentEnd);
+					if (nl >= 0) {
+						segmentEnd = nl + 1;
+					}
+				}
+				int offset = 0;
+				while (offset < segmentEnd && !cancelled) {
+					int chunkEnd = Math.min(segmentEnd, offset + CHUNK);
+					if (chunkEnd < segmentEnd) {
+						int nl = lastIndexOfNewline(segment, offset, chunkEnd);
+						if (nl >= offset) {
+							chunkEnd = nl + 1;
+						}
+					}
+					ByteBuffer chunk = segment.duplicate();
+					chunk.limit(chunkEnd);
+					chunk.position(offset);
+					chars = decode(decoder, chunk, chars);
+					matchChunk(matcher, chars, segment, offset, position);
+					offset = chunkEnd;
+					bytes = position + offset;
+				}
+				position += segmentEnd;
+			}
+		} catch (IOException e) {
+			error = e;
+		} finally {
+			endTime = System.nanoTime();
+			done = true;
+		}
+	}
+
+	/**
+	 * Decode the bytes into the character buffer, growing the buffer if required.
+	 *
+	 * @param decoder The decoder
+	 * @param in The bytes to decode
+	 * @param out The buffer to decode into.
+	 * @return The buffer holding the decoded characters, ready to read.
+	 */
+	private CharBuffer decode(CharsetDecoder decoder, ByteBuffer in, CharBuffer out) {
+		int start = in.position();
+		while (true) {
+			out.clear();
+			decoder.reset();
+			CoderResult result = decoder.decode(in, out, true);
+			if (!result.isOverflow()) {
+				result = decoder.flush(out);
+			}
+			if (!result.isOverflow()) {
+				out.flip();
+				return out;
+			}
+			in.position(start);
+			out = CharBuffer.allocate(out.capacity() * 2);
+		}
+	}
+
+	/**
+	 * Match each line of the decoded chunk.
+	 *
+	 * @param matcher The matcher to use
+	 * @param chars The decoded chunk
+	 * @param segment The mapped segment holding the chunk
+	 * @param chunkStart The offset of the chunk within the segment
+	 * @param segmentStart The offset of the segment within the file.
+	 */
+	private void matchChunk(Matcher matcher, CharBuffer chars, ByteBuffer segment, int chunkStart,
+			long segmentStart) {
+		char[] array = chars.array();
+		int length = chars.limit();
+		matcher.reset(chars);
+		long firstLine = lines;
+		int line = 0;
+		int start = 0;
+		// Tracks the byte offset of lines within the chunk, only advanced when a line matches.
+		int byteOffset = chunkStart;
+		int byteLine = 0;
+		while (start < length) {
+			int end = start;
+			while (end < length && array[end] != '\n') {
+				end++;
+			}
+			int next = end + 1;
+			if (end > start && array[end - 1] == '\r') {
+				end--;
+			}
+			if (end > start && matchLine(matcher, chars, start, end)) {
+				while (byteLine < line) {
+					if (segment.get(byteOffset++) == '\n') {
+						byteLine++;
+					}
+				}
+				addResult(firstLine + line, segmentStart + byteOffset);
+			}
+			line++;
+			start = next;
+		}
+		lines = firstLine + line;
+	}
+
+	/**
+	 * Match a single line.
+	 *
+	 * @param matcher The matcher
+	 * @param chars The decoded chunk
+	 * @param start The start of the line
+	 * @param end The end of the line
+	 * @return TRUE if the line matched.
+	 */
+	private boolean matchLine(Matcher matcher, CharBuffer chars, int start, int end) {
+		if (prefilter != null && !prefilter.mayMatch(chars, start, end)) {
+			return false;
+		}
+		candidates++;
+		matcher.region(start, end);
+		if (!find) {
+			if (matcher.matches()) {
+				matches++;
+				return true;
+			}
+			return false;
+		}
+		int count = 0;
+		while (matcher.find()) {
+			count++;
+		}
+		matches += count;
+		return count > 0;
+	}
+
+	/**
+	 * Find the last LF in the given range of the buffer.
+	 *
+	 * @param buffer The buffer
+	 * @param from The start of the range (inclusive)
+	 * @param to The end of the range (exclusive)
+	 * @return The index of the LF, or -1 if not found.
+	 */
+	private static int lastIndexOfNewline(ByteBuffer buffer, int from, int to) {
+		for (int i = to - 1; i >= from; i--) {
+			if (buffer.get(i) == '\n') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Record a matching line.
+	 *
+	 * @param line The line number
+	 * @param offset The byte offset of the start of the line.
+	 */
+	private synchronized void addResult(long line, long offset) {
+		matchedLines++;
+		if (results == MAX_RESULTS) {
+			return;
+		}
+		if (results == resultLines.length) {
+			resultLines = Arrays.copyOf(resultLines, results * 2);
+			resultOffsets = Arrays.copyOf(resultOffsets, results * 2);
+		}
+		resultLines[results] = line;
+		resultOffsets[results] = offset;
+		results++;
+	}
+
+	/**
+	 * Stop processing.
+	 */
+	void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Get if processing has finished.
+	 *
+	 * @return TRUE if processing has finished.
+	 */
+	boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * Get any error encountered while processing.
+	 *
+	 * @return The error or NULL if none.
+	 */
+	IOException getError() {
+		return error;
+	}
+
+	/**
+	 * Get the size of the file.
+	 *
+	 * @return The size in bytes.
+	 */
+	long getSize() {
+		return size;
+	}
+
+	/**
+	 * Get the number of bytes processed.
+	 *
+	 * @return The number of bytes processed.
+	 */
+	long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Get the number of lines processed.
+	 *
+	 * @return The number of lines.
+	 */
+	long getLines() {
+		return lines;
+	}
+
+	/**
+	 * Get the number of matches.
+	 *
+	 * @return The number of matches.
+	 */
+	long getMatches() {
+		return matches;
+	}
+
+	/**
+	 * Get the number of matching lines.
+	 *
+	 * @return The number of matching lines.
+	 */
+	long getMatchedLines() {
+		return matchedLines;
+	}
+
+	/**
+	 * Get the number of lines accepted by the prefilter, and so matched by the regex engine.
+	 *
+	 * @return The number of candidate lines.
+	 */
+	long getCandidates() {
+		return candidates;
+	}
+
+	/**
+	 * Get if a literal prefilter is in use.
+	 *
+	 * @return TRUE if lines are prefiltered.
+	 */
+	boolean isPrefiltered() {
+		return prefilter != null;
+	}
+
+	/**
+	 * Get the throughput.
+	 *
+	 * @return The throughput in MB/s.
+	 */
+	double getThroughput() {
+		long end = done ? endTime : System.nanoTime();
+		double seconds = (end - startTime) / 1e9d;
+		return seconds > 0 ? (bytes / (1024d * 1024d)) / seconds : 0;
+	}
+
+	/**
+	 * Get the number of recorded matching lines.
+	 *
+	 * @return The number of recorded matching lines.
+	 */
+	synchronized int getResultCount() {
+		return results;
+	}
+
+	/**
+	 * Get the line number of the recorded matching line.
+	 *
+	 * @param result The index of the result
+	 * @return The line number (zero based).
+	 */
+	synchronized long getResultLine(int result) {
+		return resultLines[result];
+	}
+
+	/**
+	 * Read the text of the recorded matching line.
+	 *
+	 * @param result The index of the result
+	 * @return The text of the line, which is truncated if very long.
+	 * @throws IOException If reading the file failed.
+	 */
+	synchronized String readResult(int result) throws IOException {
+		if (reader == null) {
+			reader = FileChannel.open(path, StandardOpenOption.READ);
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(MAX_LINE);
+		reader.read(buffer, resultOffsets[result]);
+		int end = 0;
+		while (end < buffer.position() && buffer.get(end) != '\n') {
+			end++;
+		}
+		if (end > 0 && buffer.get(end - 1) == '\r') {
+			end--;
+		}
+		buffer.flip();
+		buffer.limit(end);
+		return charset.decode(buffer).toString();
+	}
+
+	/**
+	 * Release any resources held for reading lines.
+	 */
+	synchronized void close() {
+		if (reader != null) {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				// Ignore
+			}
+			reader = null;
+		}
+	}
+}
@@ -0,0 +1,190 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Sorted index of the lines holding a match, with the offset of the first match in each line.
+ * <p>
+ * Lines and offsets are held in parallel <code>int[]</code> arrays, so navigating to the next or previous match
+ * from any line is a binary search.
+ * </p>
+ */
+final class MatchIndex {
+
+	/**
+	 * The index with no matches.
+	 */
+	final static MatchIndex EMPTY = new MatchIndex(new int[0], new int[0], 0);
+
+	/**
+	 * The matched lines, ascending.
+	 */
+	private final int[] lines;
+	/**
+	 * The offset of the first match in each matched line.
+	 */
+	private final int[] offsets;
+	/**
+	 * The number of matched lines.
+	 */
+	private final int size;
+
+	/**
+	 * Create a new index.
+	 *
+	 * @param lines The matched lines, ascending
+	 * @param offsets The offset of the first match in each line
+	 * @param size The number of matched lines.
+	 */
+	private MatchIndex(int[] lines, int[] offsets, int size) {
+		this.lines = lines;
+		this.offsets = offsets;
+		this.size = size;
+	}
+
+	/**
+	 * Create the index of whole line matches.
+	 *
+	 * @param matches The set of matched lines
+	 * @param index The line index of the text.
+	 * @return The index.
+	 */
+	static MatchIndex of(BitSet matches, LineIndex index) {
+		int size = matches.cardinality();
+		int[] lines = new int[size];
+		int[] offsets = new int[size];
+		int i = 0;
+		for (int line = matches.nextSetBit(0); line >= 0 && i < size; line = matches.nextSetBit(line + 1)) {
+			lines[i] = line;
+			offsets[i++] = index.getStart(line);
+		}
+		return new MatchIndex(lines, offsets, i);
+	}
+
+	/**
+	 * Create the index of the matches found within lines.
+	 *
+	 * @param spans The match spans
+	 * @param index The line index of the text.
+	 * @return The index.
+	 */
+	static MatchIndex of(MatchSpans spans, LineIndex index) {
+		int count = spans.getCount();
+		int[] lines = new int[Math.min(count, index.getLineCount())];
+		int[] offsets = new int[lines.length];
+		int size = 0;
+		int lineEnd = -1;
+		for (int span = 0; span < count; span++) {
+			int start = spans.getStart(span);
+			// Spans are sorted, so only look up the line once the current line is passed.
+			if (start <= lineEnd) {
+				continue;
+			}
+			int line = index.getLineAtOffset(start);
+			lines[size] = line;
+			offsets[size++] = start;
+			lineEnd = index.getEnd(line);
+		}
+		return new MatchIndex(lines, offsets, size);
+	}
+
+	/**
+	 * Get the number of matched lines.
+	 *
+	 * @return The number of matched lines.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Get a matched line.
+	 *
+	 * @param i The index of the match, 0 to size - 1
+	 * @return The line.
+	 */
+	int getLine(int i) {
+		return lines[i];
+	}
+
+	/**
+	 * Get the offset of the first match of a matched line.
+	 *
+	 * @param i The index of the match, 0 to size - 1
+	 * @return The offset.
+	 */
+	int getOffset(int i) {
+		return offsets[i];
+	}
+
+	/**
+	 * Get the index of the first matched line at or after a line.
+	 *
+	 * @param line The line
+	 * @return The index, or size if there is none.
+	 */
+	int ceiling(int line) {
+		int pos = Arrays.binarySearch(lines, 0, size, line);
+		return pos >= 0 ? pos : -pos - 1;
+	}
+
+	/**
+	 * Get the index of the first matched line after a line.
+	 *
+	 * @param line The line
+	 * @return The index, or -1 if there is none.
+	 */
+	int next(int line) {
+		int i = ceiling(line + 1);
+		return i < size ? i : -1;
+	}
+
+	/**
+	 * Get the index of the last matched line before a line.
+	 *
+	 * @param line The line
+	 * @return The index, or -1 if there is none.
+	 */
+	int previous(int line) {
+		return ceiling(line) - 1;
+	}
+
+	/**
+	 * Get the index of a matched line.
+	 *
+	 * @param line The line
+	 * @return The index, or -1 if the line has no match.
+	 */
+	int indexOf(int line) {
+		int pos = Arrays.binarySearch(lines, 0, size, line);
+		return pos >= 0 ? pos : -1;
+	}
+
+	/**
+	 * Get the number of matched lines within a range of lines.
+	 *
+	 * @param from The first line (inclusive)
+	 * @param to The last line (exclusive).
+	 * @return The number of matched lines.
+	 */
+	int count(int from, int to) {
+		return to <= from ? 0 : ceiling(to) - ceiling(from);
+	}
+}
@@ -0,0 +1,177 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.events.PaintEvent;
+import org.eclipse.swt.events.PaintListener;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Canvas;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Event;
+
+/**
+ * Minimap ruler showing the density of matched lines over the whole of the text, and the visible portion of the
+ * text.
+ * <p>
+ * Each pixel row covers a range of lines, shaded by the number of matched lines in the range, counted by binary
+ * search of the {@link MatchIndex}. Clicking or dragging on the ruler fires a <code>SWT.Selection</code> event, with
+ * the line under the pointer in <code>Event.index</code>.
+ * </p>
+ */
+class MatchRuler extends Canvas implements PaintListener {
+
+	/**
+	 * The width of the ruler.
+	 */
+	final static int WIDTH = 14;
+	/**
+	 * The lowest alpha used to shade a row holding a match, so single matches remain visible.
+	 */
+	private final static int MIN_ALPHA = 96;
+
+	/**
+	 * The text the ruler follows.
+	 */
+	private final StyledText text;
+	/**
+	 * The colour of matches.
+	 */
+	private Color matchColour;
+	/**
+	 * The index of matched lines.
+	 */
+	private MatchIndex index = MatchIndex.EMPTY;
+	/**
+	 * The top line of the text when last painted.
+	 */
+	private int paintedTop = -1;
+	/**
+	 * TRUE while the pointer is dragged.
+	 */
+	private boolean dragging;
+
+	/**
+	 * Create the ruler.
+	 *
+	 * @param parent The parent composite
+	 * @param style The default style
+	 * @param text The text the ruler follows
+	 * @param matchColour The colour of matches.
+	 */
+	MatchRuler(Composite parent, int style, StyledText text, Color matchColour) {
+		super(parent, style | SWT.DOUBLE_BUFFERED);
+		this.text = text;
+		this.matchColour = matchColour;
+		addPaintListener(this);
+		addListener(SWT.MouseDown, e -> {
+			dragging = e.button == 1;
+			select(e.y);
+		});
+		addListener(SWT.MouseMove, e -> {
+			if (dragging) {
+				select(e.y);
+			}
+		});
+		addListener(SWT.MouseUp, e -> dragging = false);
+		// Follow scrolling of the text.
+		text.addListener(SWT.Paint, e -> {
+			if (text.getTopIndex() != paintedTop) {
+				redraw();
+			}
+		});
+	}
+
+	/**
+	 * Set the index of matched lines.
+	 *
+	 * @param index The index.
+	 */
+	void setIndex(MatchIndex index) {
+		this.index = index;
+		redraw();
+	}
+
+	/**
+	 * Set the colour of matches.
+	 *
+	 * @param matchColour The colour.
+	 */
+	void setMatchColour(Color matchColour) {
+		this.matchColour = matchColour;
+		redraw();
+	}
+
+	/**
+	 * Notify the selection listeners of the line at a position on the ruler.
+	 *
+	 * @param y The position.
+	 */
+	private void select(int y) {
+		int height = Math.max(1, getClientArea().height);
+		int lines = text.getLineCount();
+		Event event = new Event();
+		event.index = (int) Math.max(0, Math.min(lines - 1, (long) y * lines / height));
+		notifyListeners(SWT.Selection, event);
+	}
+
+	@Override
+	public Point computeSize(int wHint, int hHint, boolean changed) {
+		return new Point(wHint == SWT.DEFAULT ? WIDTH : wHint, hHint == SWT.DEFAULT ? 64 : hHint);
+	}
+
+	@Override
+	public void paintControl(PaintEvent e) {
+		GC gc = e.gc;
+		Rectangle bounds = getClientArea();
+		int height = bounds.height;
+		int lines = Math.max(1, text.getLineCount());
+		gc.setBackground(getBackground());
+		gc.fillRectangle(bounds);
+
+		// Density of matched lines in each pixel row, relative to the densest row.
+		int[] counts = new int[Math.max(0, height)];
+		int max = 0;
+		for (int y = 0; y < height; y++) {
+			int from = (int) ((long) y * lines / height);
+			int to = (int) ((long) (y + 1) * lines / height);
+			counts[y] = index.count(from, Math.max(to, from + 1));
+			max = Math.max(max, counts[y]);
+		}
+		gc.setBackground(matchColour);
+		for (int y = 0; y < height; y++) {
+			if (counts[y] > 0) {
+				gc.setAlpha(MIN_ALPHA + (255 - MIN_ALPHA) * counts[y] / max);
+				gc.fillRectangle(2, y, bounds.width - 4, 1);
+			}
+		}
+		gc.setAlpha(255);
+
+		// The visible portion of the text.
+		int top = text.getTopIndex();
+		int page = text.getClientArea().height / Math.max(1, text.getLineHeight());
+		int y1 = (int) ((long) top * height / lines);
+		int y2 = (int) ((long) Math.min(lines, top + page) * height / lines);
+		gc.setForeground(getDisplay().getSystemColor(SWT.COLOR_WIDGET_DARK_SHADOW));
+		gc.drawRectangle(0, y1, bounds.width - 1, Math.max(2, y2 - y1 - 1));
+		paintedTop = top;
+	}
+}
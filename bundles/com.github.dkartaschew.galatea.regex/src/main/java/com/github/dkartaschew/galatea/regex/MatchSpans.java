@@ -0,0 +1,187 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.util.Arrays;
+import java.util.regex.MatchResult;
+
+/**
+ * Compact store of match and capture group spans.
+ * <p>
+ * Spans are kept as sorted, non-overlapping (start, length) pairs in a single <code>int[]</code>, in the same layout
+ * as expected by <code>StyledText.setStyleRanges</code>, along with the group that covers each span. Group 0 is the
+ * portion of the match not covered by any capture group. Where capture groups nest, the span is attributed to the
+ * highest numbered (innermost) group.
+ * </p>
+ */
+class MatchSpans {
+
+	/**
+	 * The span (start, length) pairs.
+	 */
+	private int[] ranges = new int[64];
+	/**
+	 * The group for each span.
+	 */
+	private int[] groups = new int[32];
+	/**
+	 * The number of spans.
+	 */
+	private int count;
+	/**
+	 * The number of matches.
+	 */
+	private int matches;
+
+	/**
+	 * Add the spans of the given match.
+	 *
+	 * @param match The match to add.
+	 */
+	void addMatch(MatchResult match) {
+		matches++;
+		int start = match.start();
+		int end = match.end();
+		int groupCount = match.groupCount();
+		int pos = start;
+		while (pos < end) {
+			// Find the innermost group covering this position, and where the next group starts or ends.
+			int group = 0;
+			int next = end;
+			for (int g = 1; g <= groupCount; g++) {
+				int gs = match.start(g);
+				int ge = match.end(g);
+				if (gs < 0 || gs == ge) {
+					continue;
+				}
+				if (gs <= pos && pos < ge) {
+					group = g;
+				}
+				if (gs > pos && gs < next) {
+					next = gs;
+				}
+				if (ge > pos && ge < next) {
+					next = ge;
+				}
+			}
+			add(pos, next - pos, group);
+			pos = next;
+		}
+	}
+
+	/**
+	 * Add a span, merging it with the previous span if they are adjacent and of the same group.
+	 *
+	 * @param start The start offset
+	 * @param length The length
+	 * @param group The group
+	 */
+	private void add(int start, int length, int group) {
+		if (count > 0 && groups[count - 1] == group && ranges[count * 2 - 2] + ranges[count * 2 - 1] == start) {
+			ranges[count * 2 - 1] += length;
+			return;
+		}
+		if (count == groups.length) {
+			groups = Arrays.copyOf(groups, count * 2);
+			ranges = Arrays.copyOf(ranges, count * 4);
+		}
+		ranges[count * 2] = start;
+		ranges[count * 2 + 1] = length;
+		groups[count] = group;
+		count++;
+	}
+
+	/**
+	 * Append all spans from another set, which must only contain spans after those in this set.
+	 *
+	 * @param other The spans to append.
+	 */
+	void append(MatchSpans other) {
+		for (int i = 0; i < other.count; i++) {
+			add(other.ranges[i * 2], other.ranges[i * 2 + 1], other.groups[i]);
+		}
+		matches += other.matches;
+	}
+
+	/**
+	 * Get the number of spans.
+	 *
+	 * @return The number of spans.
+	 */
+	int getCount() {
+		return count;
+	}
+
+	/**
+	 * Get the number of matches the spans were created from.
+	 *
+	 * @return The number of matches.
+	 */
+	int getMatchCount() {
+		return matches;
+	}
+
+	/**
+	 * Get the start offset of the span
+	 *
+	 * @param span The span
+	 * @return The start offset.
+	 */
+	int getStart(int span) {
+		return ranges[span * 2];
+	}
+
+	/**
+	 * Get the length of the span
+	 *
+	 * @param span The span
+	 * @return The length.
+	 */
+	int getLength(int span) {
+		return ranges[span * 2 + 1];
+	}
+
+	/**
+	 * Get the group of the span
+	 *
+	 * @param span The span
+	 * @return The group, 0 if not within a capture group.
+	 */
+	int getGroup(int span) {
+		return groups[span];
+	}
+
+	/**
+	 * Find the first span that ends after the given offset.
+	 *
+	 * @param offset The offset
+	 * @return The index of the span, or the number of spans if there is none.
+	 */
+	int indexOf(int offset) {
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (ranges[mid * 2] + ranges[mid * 2 + 1] <= offset) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,427 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Matches a set of patterns against each line of a corpus in a single pass.
+ * <p>
+ * The literals required by each pattern are extracted and combined into one Aho-Corasick automaton. Each line is
+ * scanned once by the automaton, and only the patterns whose literals occur in the line (plus those without any
+ * required literals) are confirmed by running the pattern itself.
+ * </p>
+ */
+class MultiPatternMatcher {
+
+	/**
+	 * The maximum length of a literal added to the automaton. Any prefix of a required literal is also required, so
+	 * longer literals are truncated to bound the size of the automaton.
+	 */
+	private final static int MAX_LITERAL = 16;
+
+	/**
+	 * The patterns.
+	 */
+	private final Entry[] entries;
+	/**
+	 * The ids of the patterns without any required literals, which must be confirmed on every line.
+	 */
+	private final int[] unfiltered;
+	/**
+	 * The literal prefilter, or NULL if no pattern has required literals.
+	 */
+	private final AhoCorasick prefilter;
+	/**
+	 * TRUE to find matches within lines, otherwise whole lines must match.
+	 */
+	private final boolean find;
+	/**
+	 * Flag to stop matching.
+	 */
+	private volatile boolean cancelled;
+
+	/**
+	 * Create a new matcher.
+	 *
+	 * @param sources The patterns, one per entry. Empty entries are ignored, but keep their place in the numbering.
+	 * @param find TRUE to find matches within lines, otherwise whole lines must match.
+	 * @param cache The cache of compiled patterns.
+	 */
+	MultiPatternMatcher(List<String> sources, boolean find, PatternCache cache) {
+		this.find = find;
+		List<Entry> list = new ArrayList<>();
+		for (int i = 0; i < sources.size(); i++) {
+			String source = sources.get(i);
+			if (!source.isEmpty()) {
+				list.add(new Entry(i, source, cache));
+			}
+		}
+		entries = list.toArray(new Entry[list.size()]);
+
+		List<String> keywords = new ArrayList<>();
+		int[] ids = new int[0];
+		int[] always = new int[entries.length];
+		int count = 0;
+		for (int i = 0; i < entries.length; i++) {
+			Entry entry = entries[i];
+			if (entry.pattern == null) {
+				continue;
+			}
+			if (entry.literals == null) {
+				always[count++] = i;
+				continue;
+			}
+			Set<String> truncated = new LinkedHashSet<>();
+			for (String literal : entry.literals) {
+				truncated.add(literal.length() > MAX_LITERAL ? literal.substring(0, MAX_LITERAL) : literal);
+			}
+			ids = Arrays.copyOf(ids, ids.length + truncated.size());
+			for (String literal : truncated) {
+				ids[keywords.size()] = i;
+				keywords.add(literal);
+			}
+		}
+		unfiltered = Arrays.copyOf(always, count);
+		prefilter = keywords.isEmpty() ? null : new AhoCorasick(keywords, ids);
+	}
+
+	/**
+	 * Stop matching.
+	 */
+	void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Get the number of patterns.
+	 *
+	 * @return The number of patterns.
+	 */
+	int getPatternCount() {
+		return entries.length;
+	}
+
+	/**
+	 * Get a pattern.
+	 *
+	 * @param id The pattern id
+	 * @return The pattern details.
+	 */
+	Entry getEntry(int id) {
+		return entries[id];
+	}
+
+	/**
+	 * Match each line of the text.
+	 *
+	 * @param text The text
+	 * @return The result, or NULL if cancelled.
+	 */
+	Result run(CharSequence text) {
+		LineIndex index = new LineIndex(text);
+		int lines = index.getLineCount();
+		Matcher[] matchers = new Matcher[entries.length];
+		long[] candidates = new long[entries.length];
+		long[] hits = new long[entries.length];
+		long[] nanos = new long[entries.length];
+		for (int i = 0; i < entries.length; i++) {
+			if (entries[i].pattern != null) {
+				matchers[i] = entries[i].pattern.matcher(text);
+			}
+		}
+
+		// Candidates of the current line, deduplicated by stamping each pattern with the line.
+		int[] stamp = new int[entries.length];
+		Arrays.fill(stamp, -1);
+		int[] lineCandidates = new int[entries.length];
+		int[] lineCount = new int[1];
+		int[] currentLine = new int[1];
+		IntConsumer collect = id -> {
+			if (stamp[id] != currentLine[0]) {
+				stamp[id] = currentLine[0];
+				lineCandidates[lineCount[0]++] = id;
+			}
+		};
+
+		IntArray hitLines = new IntArray();
+		IntArray hitStarts = new IntArray();
+		IntArray hitPatterns = new IntArray();
+		long prefilterTime = 0;
+		long start = System.nanoTime();
+		for (int line = 0; line < lines && !cancelled; line++) {
+			int lineStart = index.getStart(line);
+			int lineEnd = index.getEnd(line);
+			if (lineStart == lineEnd) {
+				continue;
+			}
+			lineCount[0] = 0;
+			currentLine[0] = line;
+			if (prefilter != null) {
+				long t = System.nanoTime();
+				prefilter.scan(text, lineStart, lineEnd, collect);
+				prefilterTime += System.nanoTime() - t;
+			}
+			int n = lineCount[0];
+			for (int id : unfiltered) {
+				lineCandidates[n++] = id;
+			}
+			Arrays.sort(lineCandidates, 0, n);
+			int firstHit = hitPatterns.size();
+			for (int i = 0; i < n; i++) {
+				int id = lineCandidates[i];
+				candidates[id]++;
+				long t = System.nanoTime();
+				boolean hit = matchLine(matchers[id], lineStart, lineEnd);
+				nanos[id] += System.nanoTime() - t;
+				if (hit) {
+					hits[id]++;
+					hitPatterns.add(id);
+				}
+			}
+			if (hitPatterns.size() > firstHit) {
+				hitLines.add(line);
+				hitStarts.add(firstHit);
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		if (cancelled) {
+			return null;
+		}
+		hitStarts.add(hitPatterns.size());
+		return new Result(lines, elapsed, prefilterTime, candidates, hits, nanos, hitLines.toArray(),
+				hitStarts.toArray(), hitPatterns.toArray());
+	}
+
+	/**
+	 * Match a single line.
+	 *
+	 * @param matcher The matcher
+	 * @param start The start of the line
+	 * @param end The end of the line
+	 * @return TRUE if the line matched.
+	 */
+	private boolean matchLine(Matcher matcher, int start, int end) {
+		matcher.region(start, end);
+		return find ? matcher.find() : matcher.matches();
+	}
+
+	/**
+	 * A pattern of the set.
+	 */
+	static class Entry {
+
+		/**
+		 * The index of the pattern in the sources.
+		 */
+		final int number;
+		/**
+		 * The pattern source.
+		 */
+		final String source;
+		/**
+		 * The compiled pattern, or NULL if invalid.
+		 */
+		final Pattern pattern;
+		/**
+		 * The error if the pattern is invalid.
+		 */
+		final String error;
+		/**
+		 * The (lower case) literals required by the pattern, or NULL if none.
+		 */
+		final Set<String> literals;
+
+		/**
+		 * Create a new entry
+		 *
+		 * @param number The index of the pattern in the sources
+		 * @param source The pattern source
+		 * @param cache The cache of compiled patterns.
+		 */
+		Entry(int number, String source, PatternCache cache) {
+			this.number = number;
+			this.source = source;
+			Pattern p = null;
+			String e = null;
+			Set<String> l = null;
+			try {
+				p = cache.compile(source, 0);
+				l = LiteralExtractor.extract(RegexParser.parse(source, 0), true);
+			} catch (PatternSyntaxException ex) {
+				e = ex.getDescription();
+			} catch (IllegalArgumentException ex) {
+				// Not analysable, so always confirm the pattern.
+				l = null;
+			}
+			this.pattern = p;
+			this.error = e;
+			this.literals = l;
+		}
+	}
+
+	/**
+	 * Growable array of int.
+	 */
+	private static class IntArray {
+
+		/**
+		 * The values.
+		 */
+		private int[] values = new int[256];
+		/**
+		 * The number of values.
+		 */
+		private int size;
+
+		/**
+		 * Add a value.
+		 *
+		 * @param value The value.
+		 */
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		/**
+		 * Get the number of values.
+		 *
+		 * @return The number of values.
+		 */
+		int size() {
+			return size;
+		}
+
+		/**
+		 * Get the values.
+		 *
+		 * @return A copy of the values.
+		 */
+		int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+
+	/**
+	 * The result of a run.
+	 */
+	static class Result {
+
+		/**
+		 * The number of lines matched.
+		 */
+		final int lines;
+		/**
+		 * The total time (nsec).
+		 */
+		final long elapsed;
+		/**
+		 * The time spent in the literal prefilter (nsec).
+		 */
+		final long prefilterTime;
+		/**
+		 * The number of lines each pattern was a candidate for.
+		 */
+		final long[] candidates;
+		/**
+		 * The number of lines each pattern matched.
+		 */
+		final long[] hits;
+		/**
+		 * The time spent confirming each pattern (nsec).
+		 */
+		final long[] nanos;
+		/**
+		 * The lines matched by at least one pattern, ascending.
+		 */
+		private final int[] hitLines;
+		/**
+		 * The index into hitPatterns of the first pattern of each hit line, with a final entry for the end.
+		 */
+		private final int[] hitStarts;
+		/**
+		 * The ids of the patterns matching each hit line.
+		 */
+		private final int[] hitPatterns;
+
+		/**
+		 * Create a new result.
+		 *
+		 * @param lines The number of lines
+		 * @param elapsed The total time
+		 * @param prefilterTime The prefilter time
+		 * @param candidates The candidate counts
+		 * @param hits The hit counts
+		 * @param nanos The confirm times
+		 * @param hitLines The hit lines
+		 * @param hitStarts The start of the patterns of each hit line
+		 * @param hitPatterns The patterns of the hit lines.
+		 */
+		Result(int lines, long elapsed, long prefilterTime, long[] candidates, long[] hits, long[] nanos,
+				int[] hitLines, int[] hitStarts, int[] hitPatterns) {
+			this.lines = lines;
+			this.elapsed = elapsed;
+			this.prefilterTime = prefilterTime;
+			this.candidates = candidates;
+			this.hits = hits;
+			this.nanos = nanos;
+			this.hitLines = hitLines;
+			this.hitStarts = hitStarts;
+			this.hitPatterns = hitPatterns;
+		}
+
+		/**
+		 * Get the number of lines matched by at least one pattern.
+		 *
+		 * @return The number of lines.
+		 */
+		int getHitLineCount() {
+			return hitLines.length;
+		}
+
+		/**
+		 * Get a line matched by at least one pattern.
+		 *
+		 * @param hit The index of the hit line
+		 * @return The line number (zero based).
+		 */
+		int getHitLine(int hit) {
+			return hitLines[hit];
+		}
+
+		/**
+		 * Get the patterns matching a hit line.
+		 *
+		 * @param hit The index of the hit line
+		 * @return The pattern ids, ascending.
+		 */
+		int[] getHitPatterns(int hit) {
+			return Arrays.copyOfRange(hitPatterns, hitStarts[hit], hitStarts[hit + 1]);
+		}
+	}
+}
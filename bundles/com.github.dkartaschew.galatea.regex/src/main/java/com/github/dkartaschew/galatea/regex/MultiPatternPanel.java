@@ -0,0 +1,283 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.swt.widgets.Text;
+
+/**
+ * Panel to match a set of patterns against the test input in a single pass, showing which patterns hit each line
+ * along with the cost and hit rate of each pattern.
+ */
+class MultiPatternPanel extends Composite {
+
+	/**
+	 * The maximum number of characters of a line displayed.
+	 */
+	private final static int MAX_LINE = 200;
+
+	/**
+	 * The source of the test corpus.
+	 */
+	private final Supplier<String> corpus;
+	/**
+	 * The cache of compiled patterns.
+	 */
+	private final PatternCache cache;
+	/**
+	 * The patterns, one per line.
+	 */
+	private final Text txtPatterns;
+	/**
+	 * Run/Cancel button
+	 */
+	private final Button btnRun;
+	/**
+	 * The status of the current run.
+	 */
+	private final Label lblStatus;
+	/**
+	 * The per pattern statistics.
+	 */
+	private final Table tblPatterns;
+	/**
+	 * The lines hit by at least one pattern.
+	 */
+	private final Table tblLines;
+
+	/**
+	 * TRUE to find matches within lines.
+	 */
+	private boolean find;
+	/**
+	 * The running matcher.
+	 */
+	private MultiPatternMatcher running;
+	/**
+	 * The matcher of the last result.
+	 */
+	private MultiPatternMatcher matcher;
+	/**
+	 * The last result.
+	 */
+	private MultiPatternMatcher.Result result;
+	/**
+	 * The text the last result was matched against.
+	 */
+	private String text;
+	/**
+	 * The line index of the text.
+	 */
+	private LineIndex index;
+
+	/**
+	 * Create the panel.
+	 *
+	 * @param parent The parent composite
+	 * @param style The default style
+	 * @param corpus The source of the test corpus
+	 * @param cache The cache of compiled patterns.
+	 */
+	MultiPatternPanel(Composite parent, int style, Supplier<String> corpus, PatternCache cache) {
+		super(parent, style);
+		this.corpus = corpus;
+		this.cache = cache;
+		setLayout(GridLayoutFactory.swtDefaults().numColumns(2).create());
+
+		Label lblPatterns = new Label(this, SWT.NONE);
+		lblPatterns.setText("Patterns (one per line):");
+		lblPatterns.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).create());
+
+		btnRun = new Button(this, SWT.PUSH);
+		btnRun.setText("Run");
+		btnRun.addListener(SWT.Selection, e -> {
+			if (running != null) {
+				running.cancel();
+			} else {
+				start();
+			}
+		});
+
+		txtPatterns = new Text(this, SWT.BORDER | SWT.MULTI | SWT.V_SCROLL | SWT.H_SCROLL);
+		txtPatterns.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).span(2, 1)
+				.hint(SWT.DEFAULT, txtPatterns.getLineHeight() * 5).create());
+
+		lblStatus = new Label(this, SWT.NONE);
+		lblStatus.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).span(2, 1).create());
+
+		tblPatterns = new Table(this, SWT.BORDER | SWT.FULL_SELECTION | SWT.V_SCROLL | SWT.H_SCROLL);
+		tblPatterns.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).span(2, 1)
+				.hint(SWT.DEFAULT, tblPatterns.getItemHeight() * 6).create());
+		tblPatterns.setHeaderVisible(true);
+		tblPatterns.setLinesVisible(true);
+		createColumn(tblPatterns, "#", SWT.RIGHT, 40);
+		createColumn(tblPatterns, "Pattern", SWT.LEFT, 200);
+		createColumn(tblPatterns, "Literals", SWT.LEFT, 150);
+		createColumn(tblPatterns, "Candidates", SWT.RIGHT, 90);
+		createColumn(tblPatterns, "Hits", SWT.RIGHT, 80);
+		createColumn(tblPatterns, "Hit rate", SWT.RIGHT, 80);
+		createColumn(tblPatterns, "ns/candidate", SWT.RIGHT, 100);
+		createColumn(tblPatterns, "Total (ms)", SWT.RIGHT, 90);
+
+		tblLines = new Table(this, SWT.BORDER | SWT.VIRTUAL | SWT.FULL_SELECTION | SWT.V_SCROLL | SWT.H_SCROLL);
+		tblLines.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).span(2, 1).create());
+		tblLines.setHeaderVisible(true);
+		createColumn(tblLines, "Line", SWT.RIGHT, 80);
+		createColumn(tblLines, "Patterns", SWT.LEFT, 120);
+		createColumn(tblLines, "Text", SWT.LEFT, 500);
+		tblLines.addListener(SWT.SetData, e -> {
+			TableItem item = (TableItem) e.item;
+			int hit = tblLines.indexOf(item);
+			int line = result.getHitLine(hit);
+			StringBuilder patterns = new StringBuilder();
+			for (int id : result.getHitPatterns(hit)) {
+				if (patterns.length() > 0) {
+					patterns.append(", ");
+				}
+				patterns.append(matcher.getEntry(id).number + 1);
+			}
+			int start = index.getStart(line);
+			int end = Math.min(index.getEnd(line), start + MAX_LINE);
+			item.setText(new String[] { Integer.toString(line + 1), patterns.toString(), text.substring(start, end) });
+		});
+
+		addListener(SWT.Dispose, e -> {
+			if (running != null) {
+				running.cancel();
+			}
+		});
+	}
+
+	/**
+	 * Create a table column
+	 *
+	 * @param table The table
+	 * @param text The column heading
+	 * @param style The column style
+	 * @param width The column width.
+	 */
+	private static void createColumn(Table table, String text, int style, int width) {
+		TableColumn column = new TableColumn(table, style);
+		column.setText(text);
+		column.setWidth(width);
+	}
+
+	/**
+	 * Set the match mode
+	 *
+	 * @param find TRUE to find matches within lines, otherwise whole lines must match.
+	 */
+	void setFindMode(boolean find) {
+		this.find = find;
+	}
+
+	/**
+	 * Start matching the patterns on a background thread.
+	 */
+	private void start() {
+		final MultiPatternMatcher m = new MultiPatternMatcher(Arrays.asList(txtPatterns.getText().split("\\R")), find,
+				cache);
+		if (m.getPatternCount() == 0) {
+			lblStatus.setText("Please enter one or more patterns");
+			return;
+		}
+		final String corpusText = corpus.get();
+		final Display display = getDisplay();
+		running = m;
+		btnRun.setText("Cancel");
+		lblStatus.setText("Running...");
+		Thread thread = new Thread(() -> {
+			MultiPatternMatcher.Result r = m.run(corpusText);
+			if (!display.isDisposed()) {
+				display.asyncExec(() -> finished(m, r, corpusText));
+			}
+		}, "RegexTester Multi Pattern");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Handle completion of a run.
+	 *
+	 * @param m The matcher
+	 * @param r The result, or NULL if cancelled
+	 * @param corpusText The text matched.
+	 */
+	private void finished(MultiPatternMatcher m, MultiPatternMatcher.Result r, String corpusText) {
+		if (isDisposed()) {
+			return;
+		}
+		running = null;
+		btnRun.setText("Run");
+		if (r == null) {
+			lblStatus.setText("Cancelled");
+			return;
+		}
+		matcher = m;
+		result = r;
+		text = corpusText;
+		index = new LineIndex(corpusText);
+		long confirmTime = 0;
+		long confirms = 0;
+		for (int id = 0; id < m.getPatternCount(); id++) {
+			confirmTime += r.nanos[id];
+			confirms += r.candidates[id];
+		}
+		lblStatus.setText(String.format(
+				"Lines: %,d   Matching lines: %,d   Confirms: %,d   Prefilter: %,.2f ms   Confirm: %,.2f ms   Total: %,.2f ms",
+				r.lines, r.getHitLineCount(), confirms, r.prefilterTime / 1e6d, confirmTime / 1e6d, r.elapsed / 1e6d));
+		showPatterns();
+		tblLines.setItemCount(0);
+		tblLines.clearAll();
+		tblLines.setItemCount(r.getHitLineCount());
+	}
+
+	/**
+	 * Display the per pattern statistics.
+	 */
+	private void showPatterns() {
+		tblPatterns.removeAll();
+		for (int id = 0; id < matcher.getPatternCount(); id++) {
+			MultiPatternMatcher.Entry entry = matcher.getEntry(id);
+			TableItem item = new TableItem(tblPatterns, SWT.NONE);
+			if (entry.pattern == null) {
+				item.setText(new String[] { Integer.toString(entry.number + 1), entry.source, entry.error });
+				continue;
+			}
+			long candidates = result.candidates[id];
+			long hits = result.hits[id];
+			item.setText(new String[] { Integer.toString(entry.number + 1), entry.source,
+					entry.literals != null ? String.join(" | ", entry.literals) : "(none)",
+					String.format("%,d", candidates), String.format("%,d", hits),
+					String.format("%.1f%%", result.lines > 0 ? hits * 100d / result.lines : 0),
+					String.format("%,.0f", candidates > 0 ? (double) result.nanos[id] / candidates : 0),
+					String.format("%,.2f", result.nanos[id] / 1e6d) });
+		}
+	}
+}
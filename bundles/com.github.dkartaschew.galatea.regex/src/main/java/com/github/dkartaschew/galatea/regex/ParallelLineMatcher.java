@@ -0,0 +1,301 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Line matcher which splits the input into line aligned chunks and matches each chunk on a fork/join pool.
+ * <p>
+ * An optional {@link LiteralPrefilter} skips lines that cannot match before the pattern is run.
+ * </p>
+ */
+class ParallelLineMatcher {
+
+	/**
+	 * The number of lines handled by a single worker, must be a multiple of 64 so that each worker owns whole words of
+	 * the result set.
+	 */
+	private final static int CHUNK = 4096;
+
+	/**
+	 * The pool to execute on.
+	 */
+	private final ForkJoinPool pool;
+	/**
+	 * The number of lines passed to the pattern by the last match or find.
+	 */
+	private long candidates;
+
+	/**
+	 * Create a new matcher.
+	 *
+	 * @param pool The pool to execute on.
+	 */
+	ParallelLineMatcher(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Match every line of the input against the pattern. Empty lines never match.
+	 *
+	 * @param regex The pattern to match against, compiled for the engine to use
+	 * @param prefilter The prefilter for the pattern, or NULL to match every line
+	 * @param text The source of the text to match, called once by each worker to obtain its own view of the text
+	 * @param index The line index for the text
+	 * @param parallel TRUE to split the work across the pool, FALSE to match on the calling thread.
+	 * @return The set of lines that match the pattern.
+	 */
+	BitSet match(RegexEngine.Compiled regex, LiteralPrefilter prefilter, Supplier<CharSequence> text,
+			LineIndex index, boolean parallel) {
+		int lines = index.getLineCount();
+		long[] words = new long[(lines + 63) >>> 6];
+		LongAdder counter = new LongAdder();
+		MatchTask task = new MatchTask(regex, prefilter, text, index, words, counter, 0, lines,
+				parallel ? CHUNK : Integer.MAX_VALUE);
+		if (parallel && lines > CHUNK) {
+			pool.invoke(task);
+		} else {
+			task.compute();
+		}
+		candidates = counter.sum();
+		return BitSet.valueOf(words);
+	}
+
+	/**
+	 * Find all matches within each line of the input, recording the spans of the matches and their capture groups.
+	 *
+	 * @param pattern The pattern to find
+	 * @param prefilter The prefilter for the pattern, or NULL to search every line
+	 * @param text The source of the text to search, called once by each worker to obtain its own view of the text
+	 * @param index The line index for the text
+	 * @param parallel TRUE to split the work across the pool, FALSE to search on the calling thread.
+	 * @return The match spans.
+	 */
+	MatchSpans find(Pattern pattern, LiteralPrefilter prefilter, Supplier<CharSequence> text, LineIndex index,
+			boolean parallel) {
+		int lines = index.getLineCount();
+		LongAdder counter = new LongAdder();
+		FindTask task = new FindTask(pattern, prefilter, text, index, counter, 0, lines,
+				parallel ? CHUNK : Integer.MAX_VALUE);
+		MatchSpans spans = parallel && lines > CHUNK ? pool.invoke(task) : task.compute();
+		candidates = counter.sum();
+		return spans;
+	}
+
+	/**
+	 * Get the number of lines passed to the pattern by the last match or find, that is the non empty lines accepted
+	 * by the prefilter.
+	 *
+	 * @return The number of candidate lines.
+	 */
+	long getCandidateCount() {
+		return candidates;
+	}
+
+	/**
+	 * Task to match a range of lines.
+	 */
+	private static class MatchTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The pattern to match.
+		 */
+		private final RegexEngine.Compiled regex;
+		/**
+		 * The prefilter, or NULL if none.
+		 */
+		private final LiteralPrefilter prefilter;
+		/**
+		 * The source of the text being matched.
+		 */
+		private final Supplier<CharSequence> text;
+		/**
+		 * The line index of the text.
+		 */
+		private final LineIndex index;
+		/**
+		 * The shared result words. Tasks only write to the words covering their own line range.
+		 */
+		private final long[] words;
+		/**
+		 * The count of candidate lines.
+		 */
+		private final LongAdder candidates;
+		/**
+		 * The first line (inclusive).
+		 */
+		private final int from;
+		/**
+		 * The last line (exclusive).
+		 */
+		private final int to;
+		/**
+		 * The number of lines below which no further split occurs.
+		 */
+		private final int threshold;
+
+		MatchTask(RegexEngine.Compiled regex, LiteralPrefilter prefilter, Supplier<CharSequence> text, LineIndex index,
+				long[] words, LongAdder candidates, int from, int to, int threshold) {
+			this.regex = regex;
+			this.prefilter = prefilter;
+			this.text = text;
+			this.index = index;
+			this.words = words;
+			this.candidates = candidates;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= threshold) {
+				matchLines();
+				return;
+			}
+			// Split on a word boundary.
+			int mid = ((from + to) >>> 1) & ~63;
+			invokeAll(new MatchTask(regex, prefilter, text, index, words, candidates, from, mid, threshold),
+					new MatchTask(regex, prefilter, text, index, words, candidates, mid, to, threshold));
+		}
+
+		/**
+		 * Match the lines within range using a single matcher restricted to each line in turn.
+		 */
+		private void matchLines() {
+			RegexEngine.LineMatcher matcher = regex.matcher();
+			CharSequence chars = text.get();
+			int count = 0;
+			for (int i = from; i < to; i++) {
+				int start = index.getStart(i);
+				int end = index.getEnd(i);
+				if (start == end || (prefilter != null && !prefilter.mayMatch(chars, start, end))) {
+					continue;
+				}
+				count++;
+				if (matcher.matches(chars, start, end)) {
+					words[i >>> 6] |= 1L << i;
+				}
+			}
+			candidates.add(count);
+		}
+	}
+
+	/**
+	 * Task to find all matches in a range of lines.
+	 */
+	private static class FindTask extends RecursiveTask<MatchSpans> {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The pattern to find.
+		 */
+		private final Pattern pattern;
+		/**
+		 * The prefilter, or NULL if none.
+		 */
+		private final LiteralPrefilter prefilter;
+		/**
+		 * The source of the text being searched.
+		 */
+		private final Supplier<CharSequence> text;
+		/**
+		 * The line index of the text.
+		 */
+		private final LineIndex index;
+		/**
+		 * The count of candidate lines.
+		 */
+		private final LongAdder candidates;
+		/**
+		 * The first line (inclusive).
+		 */
+		private final int from;
+		/**
+		 * The last line (exclusive).
+		 */
+		private final int to;
+		/**
+		 * The number of lines below which no further split occurs.
+		 */
+		private final int threshold;
+
+		FindTask(Pattern pattern, LiteralPrefilter prefilter, Supplier<CharSequence> text, LineIndex index,
+				LongAdder candidates, int from, int to, int threshold) {
+			this.pattern = pattern;
+			this.prefilter = prefilter;
+			this.text = text;
+			this.index = index;
+			this.candidates = candidates;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected MatchSpans compute() {
+			if (to - from <= threshold) {
+				return findLines();
+			}
+			int mid = (from + to) >>> 1;
+			FindTask tail = new FindTask(pattern, prefilter, text, index, candidates, mid, to, threshold);
+			tail.fork();
+			MatchSpans spans = new FindTask(pattern, prefilter, text, index, candidates, from, mid, threshold)
+					.compute();
+			spans.append(tail.join());
+			return spans;
+		}
+
+		/**
+		 * Find all matches within the lines in range using a single matcher restricted to each line in turn.
+		 * 
+		 * @return The match spans.
+		 */
+		private MatchSpans findLines() {
+			MatchSpans spans = new MatchSpans();
+			Matcher matcher = pattern.matcher("");
+			CharSequence chars = text.get();
+			matcher.reset(chars);
+			int count = 0;
+			for (int i = from; i < to; i++) {
+				int start = index.getStart(i);
+				int end = index.getEnd(i);
+				if (start == end || (prefilter != null && !prefilter.mayMatch(chars, start, end))) {
+					continue;
+				}
+				count++;
+				matcher.region(start, end);
+				while (matcher.find()) {
+					spans.addMatch(matcher);
+				}
+			}
+			candidates.add(count);
+			return spans;
+		}
+	}
+}
@@ -0,0 +1,318 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Micro benchmark of a pattern over each line of a test corpus.
+ * <p>
+ * After the warmup iterations, throughput is measured over whole passes of the corpus, and per line latency is
+ * measured in separate passes timing each line individually so that the timer overhead does not distort the
+ * throughput figures. In find mode a line counts as matched if it contains a match, so that every engine performs the
+ * same work.
+ * </p>
+ */
+class PatternBenchmark {
+
+	/**
+	 * The number of slowest lines to report.
+	 */
+	final static int SLOWEST = 10;
+
+	/**
+	 * The engine running the pattern.
+	 */
+	private final RegexEngine engine;
+	/**
+	 * The pattern to benchmark, compiled for the engine.
+	 */
+	private final RegexEngine.Compiled compiled;
+	/**
+	 * TRUE to find matches within lines, otherwise whole lines must match.
+	 */
+	private final boolean find;
+	/**
+	 * The corpus
+	 */
+	private final CharSequence text;
+	/**
+	 * The line index of the corpus
+	 */
+	private final LineIndex index;
+	/**
+	 * Flag to stop the benchmark.
+	 */
+	private volatile boolean cancelled;
+
+	/**
+	 * Create a new benchmark.
+	 *
+	 * @param engine The engine to run the pattern
+	 * @param pattern The pattern to benchmark
+	 * @param flags The flags the pattern was compiled with
+	 * @param find TRUE to find matches within lines, otherwise whole lines must match.
+	 * @param text The corpus.
+	 * @throws IllegalArgumentException If the engine does not support the pattern.
+	 */
+	PatternBenchmark(RegexEngine engine, Pattern pattern, int flags, boolean find, CharSequence text) {
+		this.engine = engine;
+		this.compiled = engine.compile(pattern, flags);
+		this.find = find;
+		this.text = text;
+		this.index = new LineIndex(text);
+	}
+
+	/**
+	 * Stop the benchmark.
+	 */
+	void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Get if the benchmark was stopped.
+	 *
+	 * @return TRUE if cancelled.
+	 */
+	boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Run the benchmark.
+	 *
+	 * @param warmup The number of warmup iterations
+	 * @param iterations The number of measurement iterations.
+	 * @return The result, or NULL if cancelled.
+	 */
+	Result run(int warmup, int iterations) {
+		RegexEngine.LineMatcher matcher = compiled.matcher();
+		int lines = index.getLineCount();
+		int matches = 0;
+		for (int i = 0; i < warmup && !cancelled; i++) {
+			matches = pass(matcher);
+		}
+		// Throughput
+		long total = 0;
+		for (int i = 0; i < iterations && !cancelled; i++) {
+			long start = System.nanoTime();
+			matches = pass(matcher);
+			total += System.nanoTime() - start;
+		}
+		// Latency, of the lines run through the engine only, as empty lines are skipped.
+		int[] timed = new int[lines];
+		int count = 0;
+		for (int line = 0; line < lines; line++) {
+			if (index.getStart(line) != index.getEnd(line)) {
+				timed[count++] = line;
+			}
+		}
+		timed = Arrays.copyOf(timed, count);
+		long[] latency = new long[count];
+		for (int i = 0; i < iterations && !cancelled; i++) {
+			for (int j = 0; j < count; j++) {
+				long start = System.nanoTime();
+				matchLine(matcher, timed[j]);
+				latency[j] += System.nanoTime() - start;
+			}
+		}
+		if (cancelled) {
+			return null;
+		}
+		for (int j = 0; j < count; j++) {
+			latency[j] /= iterations;
+		}
+		return new Result(compiled.getPattern().pattern(), engine.getName(), lines, matches,
+				(double) total / iterations, timed, latency, this::getLine);
+	}
+
+	/**
+	 * Match every line of the corpus
+	 *
+	 * @param matcher The matcher to use
+	 * @return The number of matched lines.
+	 */
+	private int pass(RegexEngine.LineMatcher matcher) {
+		int matches = 0;
+		int lines = index.getLineCount();
+		for (int line = 0; line < lines; line++) {
+			matches += matchLine(matcher, line);
+		}
+		return matches;
+	}
+
+	/**
+	 * Match a single line.
+	 *
+	 * @param matcher The matcher to use
+	 * @param line The line to match
+	 * @return 1 if the line matched, otherwise 0.
+	 */
+	private int matchLine(RegexEngine.LineMatcher matcher, int line) {
+		int start = index.getStart(line);
+		int end = index.getEnd(line);
+		if (start == end) {
+			return 0;
+		}
+		boolean matched = find ? matcher.find(text, start, end) : matcher.matches(text, start, end);
+		return matched ? 1 : 0;
+	}
+
+	/**
+	 * Get the text of a line, truncated if long.
+	 *
+	 * @param line The line
+	 * @return The text of the line.
+	 */
+	private String getLine(int line) {
+		int start = index.getStart(line);
+		int end = Math.min(index.getEnd(line), start + 200);
+		return text.subSequence(start, end).toString();
+	}
+
+	/**
+	 * The result of a benchmark run.
+	 */
+	static class Result {
+
+		/**
+		 * The pattern benchmarked.
+		 */
+		final String pattern;
+		/**
+		 * The name of the engine which ran the pattern.
+		 */
+		final String engine;
+		/**
+		 * The number of lines in the corpus.
+		 */
+		final int lines;
+		/**
+		 * The number of matched lines per pass.
+		 */
+		final int matches;
+		/**
+		 * The mean time per pass (nsec).
+		 */
+		final double passTime;
+		/**
+		 * The median per line latency of the matched lines (nsec).
+		 */
+		final long p50;
+		/**
+		 * The 99th percentile per line latency of the matched lines (nsec).
+		 */
+		final long p99;
+		/**
+		 * The slowest lines, slowest first.
+		 */
+		final int[] slowestLines;
+		/**
+		 * The latency of the slowest lines (nsec).
+		 */
+		final long[] slowestTimes;
+		/**
+		 * The text of the slowest lines.
+		 */
+		final String[] slowestText;
+
+		/**
+		 * Create a new result.
+		 *
+		 * @param pattern The pattern
+		 * @param engine The name of the engine
+		 * @param lines The number of lines
+		 * @param matches The number of matched lines per pass
+		 * @param passTime The mean time per pass
+		 * @param timed The lines run through the engine, excluding the empty lines skipped
+		 * @param latency The mean latency of each timed line
+		 * @param lineText Function to get the text of a line.
+		 */
+		Result(String pattern, String engine, int lines, int matches, double passTime, int[] timed, long[] latency,
+				IntFunction<String> lineText) {
+			this.pattern = pattern;
+			this.engine = engine;
+			this.lines = lines;
+			this.matches = matches;
+			this.passTime = passTime;
+			long[] sorted = latency.clone();
+			Arrays.sort(sorted);
+			this.p50 = percentile(sorted, 0.50);
+			this.p99 = percentile(sorted, 0.99);
+
+			int count = Math.min(SLOWEST, timed.length);
+			slowestLines = new int[count];
+			slowestTimes = new long[count];
+			int found = 0;
+			for (int i = 0; i < timed.length; i++) {
+				long t = latency[i];
+				if (found == count && t <= slowestTimes[count - 1]) {
+					continue;
+				}
+				// Insert into the sorted (descending) list of slowest lines.
+				int pos = found < count ? found++ : count - 1;
+				while (pos > 0 && slowestTimes[pos - 1] < t) {
+					slowestTimes[pos] = slowestTimes[pos - 1];
+					slowestLines[pos] = slowestLines[pos - 1];
+					pos--;
+				}
+				slowestTimes[pos] = t;
+				slowestLines[pos] = timed[i];
+			}
+			slowestText = new String[count];
+			for (int i = 0; i < count; i++) {
+				slowestText[i] = lineText.apply(slowestLines[i]);
+			}
+		}
+
+		/**
+		 * Get the percentile value of the sorted values.
+		 *
+		 * @param sorted The sorted values
+		 * @param p The percentile (0-1)
+		 * @return The value.
+		 */
+		private static long percentile(long[] sorted, double p) {
+			if (sorted.length == 0) {
+				return 0;
+			}
+			int i = (int) Math.ceil(p * sorted.length) - 1;
+			return sorted[Math.max(0, Math.min(sorted.length - 1, i))];
+		}
+
+		/**
+		 * Get the mean time per line.
+		 *
+		 * @return The mean time per line (nsec).
+		 */
+		double getNanosPerLine() {
+			return lines > 0 ? passTime / lines : 0;
+		}
+
+		/**
+		 * Get the throughput.
+		 *
+		 * @return The number of lines per second.
+		 */
+		double getLinesPerSecond() {
+			return passTime > 0 ? lines * 1e9d / passTime : 0;
+		}
+	}
+}
@@ -0,0 +1,196 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Bounded least recently used cache of compiled patterns, keyed by the pattern source and flags.
+ * <p>
+ * Invalid patterns are not cached, so their syntax error is reported each time. The cache is thread safe.
+ * </p>
+ */
+final class PatternCache {
+
+	/**
+	 * The default number of patterns held.
+	 */
+	final static int DEFAULT_CAPACITY = 64;
+
+	/**
+	 * The cached patterns, in access order.
+	 */
+	private final LinkedHashMap<Key, Pattern> patterns;
+	/**
+	 * The number of lookups found in the cache.
+	 */
+	private long hits;
+	/**
+	 * The number of lookups which compiled the pattern.
+	 */
+	private long misses;
+	/**
+	 * The time taken by the last compilation (nsec).
+	 */
+	private long lastCompileTime;
+	/**
+	 * The total time taken by all compilations (nsec).
+	 */
+	private long totalCompileTime;
+
+	/**
+	 * Create a new cache.
+	 *
+	 * @param capacity The maximum number of patterns held.
+	 */
+	PatternCache(int capacity) {
+		this.patterns = new LinkedHashMap<Key, Pattern>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Pattern> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Get the compiled pattern, compiling it if not cached.
+	 *
+	 * @param regex The pattern source
+	 * @param flags The pattern flags.
+	 * @return The compiled pattern.
+	 * @throws PatternSyntaxException If the pattern is invalid.
+	 */
+	synchronized Pattern compile(String regex, int flags) {
+		Key key = new Key(regex, flags);
+		Pattern pattern = patterns.get(key);
+		if (pattern != null) {
+			hits++;
+			return pattern;
+		}
+		misses++;
+		long start = System.nanoTime();
+		try {
+			pattern = Pattern.compile(regex, flags);
+		} finally {
+			lastCompileTime = System.nanoTime() - start;
+			totalCompileTime += lastCompileTime;
+		}
+		patterns.put(key, pattern);
+		return pattern;
+	}
+
+	/**
+	 * Get the number of lookups found in the cache.
+	 *
+	 * @return The number of hits.
+	 */
+	synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Get the number of lookups which compiled the pattern.
+	 *
+	 * @return The number of misses.
+	 */
+	synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Get the fraction of lookups found in the cache.
+	 *
+	 * @return The hit rate (0-1).
+	 */
+	synchronized double getHitRate() {
+		long lookups = hits + misses;
+		return lookups > 0 ? (double) hits / lookups : 0;
+	}
+
+	/**
+	 * Get the time taken by the last compilation.
+	 *
+	 * @return The time (nsec).
+	 */
+	synchronized long getLastCompileTime() {
+		return lastCompileTime;
+	}
+
+	/**
+	 * Get the mean time taken by a compilation.
+	 *
+	 * @return The time (nsec).
+	 */
+	synchronized double getMeanCompileTime() {
+		return misses > 0 ? (double) totalCompileTime / misses : 0;
+	}
+
+	/**
+	 * Get the number of patterns held.
+	 *
+	 * @return The number of patterns.
+	 */
+	synchronized int size() {
+		return patterns.size();
+	}
+
+	/**
+	 * Cache key of pattern source and flags.
+	 */
+	private static final class Key {
+
+		/**
+		 * The pattern source.
+		 */
+		private final String regex;
+		/**
+		 * The pattern flags.
+		 */
+		private final int flags;
+
+		/**
+		 * Create a new key.
+		 *
+		 * @param regex The pattern source
+		 * @param flags The pattern flags.
+		 */
+		Key(String regex, int flags) {
+			this.regex = regex;
+			this.flags = flags;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return flags == other.flags && regex.equals(other.regex);
+		}
+
+		@Override
+		public int hashCode() {
+			return regex.hashCode() * 31 + flags;
+		}
+	}
+}
@@ -0,0 +1,992 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Analyses a pattern for the constructs which cause catastrophic backtracking (ReDoS).
+ * <p>
+ * The syntax tree is searched for nested quantifiers and for alternations with overlapping branches under a
+ * quantifier, either of which can match a run of input in exponentially many ways, and for adjacent quantifiers
+ * over overlapping characters, which can match a run in polynomially many ways. For the most severe finding an
+ * attack string is generated: a prefix reaching the construct, a pumped run of characters it matches ambiguously,
+ * and a suffix which forces the overall match to fail. The attack is then timed on inputs of growing length to
+ * confirm the finding, as the static analysis is conservative. A finding is only confirmed by super linear growth
+ * of the match time; an attack which overflows the stack is reported as a separate risk, as deep recursion fails
+ * on long inputs whether or not the match time grows.
+ * </p>
+ */
+final class RedosAnalyzer {
+
+	/**
+	 * The repetition count above which a bounded quantifier is treated as unbounded.
+	 */
+	private final static int LOOP_THRESHOLD = 10;
+	/**
+	 * The number of pumped repetitions of the first measurement.
+	 */
+	private final static int FIRST_PUMPS = 8;
+	/**
+	 * The maximum number of pumped repetitions measured.
+	 */
+	private final static int MAX_PUMPS = 1 << 14;
+	/**
+	 * The time limit of a single measurement (nsec).
+	 */
+	private final static long RUN_LIMIT = 250_000_000L;
+	/**
+	 * The measured time after which the input is not grown further (nsec).
+	 */
+	private final static long ENOUGH = 50_000_000L;
+	/**
+	 * The number of warmup matches.
+	 */
+	private final static int WARMUP = 200;
+	/**
+	 * The shortest measured time used to estimate growth (nsec).
+	 */
+	private final static long MIN_TIMED = 50_000L;
+	/**
+	 * The characters tried as the failing suffix of an attack.
+	 */
+	private final static String SUFFIXES = "!\u0001# 0aA";
+
+	/**
+	 * The severity of a finding.
+	 */
+	enum Risk {
+		/**
+		 * Match time grows polynomially with the length of the input.
+		 */
+		POLYNOMIAL,
+		/**
+		 * Match time grows exponentially with the length of the input.
+		 */
+		EXPONENTIAL
+	}
+
+	/**
+	 * The most severe finding so far.
+	 */
+	private Finding finding;
+
+	private RedosAnalyzer() {
+	}
+
+	/**
+	 * Analyse a pattern.
+	 *
+	 * @param pattern The pattern
+	 * @param flags The flags the pattern was compiled with.
+	 * @return The most severe finding, or NULL if the pattern has no risky constructs or could not be analysed.
+	 */
+	static Finding analyze(Pattern pattern, int flags) {
+		RegexNode root;
+		try {
+			root = RegexParser.parse(pattern.pattern(), flags);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+		RedosAnalyzer analyzer = new RedosAnalyzer();
+		analyzer.visit(root, root);
+		return analyzer.finding;
+	}
+
+	/**
+	 * Search a node and its children for risky constructs.
+	 *
+	 * @param root The root of the tree
+	 * @param node The node.
+	 */
+	private void visit(RegexNode root, RegexNode node) {
+		if (finding != null && finding.risk == Risk.EXPONENTIAL) {
+			return;
+		}
+		if (node.type == RegexNode.Type.GROUP && node.flag) {
+			// Atomic groups are never backtracked into.
+			return;
+		}
+		if (isLoop(node)) {
+			List<RegexNode> heads = new ArrayList<>();
+			heads(node.child(), heads);
+			for (RegexNode head : heads) {
+				if (isLoop(head)) {
+					report(root, node, Risk.EXPONENTIAL, "nested quantifiers", nonEmptySample(head.child()));
+				} else if (head.type == RegexNode.Type.ALTERNATE) {
+					ambiguousAlternation(root, node, head);
+				}
+			}
+			splittableIteration(root, node);
+		}
+		if (node.type == RegexNode.Type.CONCAT) {
+			adjacentLoops(root, node);
+		}
+		if (node.type == RegexNode.Type.REPEAT && node.mode == RegexNode.Mode.POSSESSIVE) {
+			return;
+		}
+		for (RegexNode child : node.children) {
+			visit(root, child);
+		}
+	}
+
+	/**
+	 * Check an alternation repeated by a loop for branches which can start with the same character, and which can
+	 * both begin a split of the same string into iterations, as "ab" in <code>(a|b|ab)*</code>.
+	 *
+	 * @param root The root of the tree
+	 * @param loop The loop
+	 * @param alternate The alternation.
+	 */
+	private void ambiguousAlternation(RegexNode root, RegexNode loop, RegexNode alternate) {
+		List<RegexNode> branches = alternate.children;
+		for (int i = 0; i < branches.size(); i++) {
+			for (int j = i + 1; j < branches.size(); j++) {
+				CharClass overlap = first(branches.get(i)).intersect(first(branches.get(j)));
+				if (overlap.size() == 0) {
+					continue;
+				}
+				String a = nonEmptySample(branches.get(i));
+				String b = nonEmptySample(branches.get(j));
+				String[] candidates = isSingle(branches.get(i)) && isSingle(branches.get(j))
+						? new String[] { sample(overlap) }
+						: new String[] { a, b, a + b, b + a };
+				for (String pump : candidates) {
+					if (splits(alternate, branches.get(i), pump) && splits(alternate, branches.get(j), pump)) {
+						report(root, loop, Risk.EXPONENTIAL, "quantified alternation with overlapping branches",
+								pump);
+						return;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get if a string can be split into iterations of an alternation, the first of which matches a given branch.
+	 *
+	 * @param alternate The alternation
+	 * @param branch The branch of the first iteration
+	 * @param s The string.
+	 * @return TRUE if the string can be split so.
+	 */
+	private static boolean splits(RegexNode alternate, RegexNode branch, String s) {
+		BitSet start = new BitSet();
+		start.set(0);
+		BitSet after = ends(branch, s, start);
+		after.clear(0);
+		return iterate(alternate, s, after).get(s.length());
+	}
+
+	/**
+	 * Get the positions in a string at which a match of a node may end, when started at any of the given positions.
+	 * Anchors, lookarounds and back references are taken to match the empty string, and quantifiers to be unbounded
+	 * above their minimum.
+	 *
+	 * @param node The node
+	 * @param s The string
+	 * @param from The start positions, not modified.
+	 * @return The end positions, a new set.
+	 */
+	private static BitSet ends(RegexNode node, String s, BitSet from) {
+		switch (node.type) {
+		case CHAR:
+		case CLASS:
+			CharClass chars = first(node);
+			BitSet result = new BitSet();
+			for (int i = from.nextSetBit(0); i >= 0 && i < s.length(); i = from.nextSetBit(i + 1)) {
+				int c = s.codePointAt(i);
+				if (chars.contains(c)) {
+					result.set(i + Character.charCount(c));
+				}
+			}
+			return result;
+		case CONCAT:
+			result = (BitSet) from.clone();
+			for (RegexNode child : node.children) {
+				result = ends(child, s, result);
+			}
+			return result;
+		case ALTERNATE:
+			result = new BitSet();
+			for (RegexNode child : node.children) {
+				result.or(ends(child, s, from));
+			}
+			return result;
+		case GROUP:
+			return node.children.isEmpty() ? (BitSet) from.clone() : ends(node.child(), s, from);
+		case REPEAT:
+			result = (BitSet) from.clone();
+			for (int i = 0; i < node.min && !result.isEmpty(); i++) {
+				result = ends(node.child(), s, result);
+			}
+			return node.max == node.min ? result : iterate(node.child(), s, result);
+		default:
+			return (BitSet) from.clone();
+		}
+	}
+
+	/**
+	 * Get the positions in a string at which zero or more iterations of a node may end, when started at any of the
+	 * given positions.
+	 *
+	 * @param node The node
+	 * @param s The string
+	 * @param from The start positions, not modified.
+	 * @return The end positions, a new set.
+	 */
+	private static BitSet iterate(RegexNode node, String s, BitSet from) {
+		BitSet result = (BitSet) from.clone();
+		BitSet current = from;
+		while (!current.isEmpty()) {
+			current = ends(node, s, current);
+			current.andNot(result);
+			result.or(current);
+		}
+		return result;
+	}
+
+	/**
+	 * Check a loop whose body is a sequence of loops and single characters which all overlap, such that a run of
+	 * the common characters can be split between iterations in many ways, as <code>(\w+.)+</code>.
+	 *
+	 * @param root The root of the tree
+	 * @param loop The loop.
+	 */
+	private void splittableIteration(RegexNode root, RegexNode loop) {
+		RegexNode body = loop.child();
+		while (body.type == RegexNode.Type.GROUP && !body.flag && !body.children.isEmpty()) {
+			body = body.child();
+		}
+		if (body.type != RegexNode.Type.CONCAT) {
+			return;
+		}
+		CharClass common = CharClass.ALL;
+		boolean hasLoop = false;
+		for (RegexNode child : body.children) {
+			if (nullable(child)) {
+				continue;
+			}
+			RegexNode element = child;
+			while (element.type == RegexNode.Type.GROUP && !element.flag && !element.children.isEmpty()) {
+				element = element.child();
+			}
+			if (isLoop(element) && isSingle(element.child())) {
+				hasLoop = true;
+				common = common.intersect(first(element.child()));
+			} else if (isSingle(element)) {
+				common = common.intersect(first(element));
+			} else {
+				return;
+			}
+		}
+		if (hasLoop && common.size() > 0) {
+			report(root, loop, Risk.EXPONENTIAL, "quantified sequence whose iterations can split a run of characters",
+					sample(common));
+		}
+	}
+
+	/**
+	 * Check a sequence for loops over overlapping characters separated only by optional elements.
+	 *
+	 * @param root The root of the tree
+	 * @param concat The sequence.
+	 */
+	private void adjacentLoops(RegexNode root, RegexNode concat) {
+		List<RegexNode> children = concat.children;
+		for (int i = 0; i < children.size(); i++) {
+			RegexNode a = children.get(i);
+			if (!isLoop(a)) {
+				continue;
+			}
+			for (int j = i + 1; j < children.size(); j++) {
+				RegexNode b = children.get(j);
+				if (isLoop(b)) {
+					CharClass overlap = first(a.child()).intersect(first(b.child()));
+					if (overlap.size() > 0) {
+						report(root, a, Risk.POLYNOMIAL, "adjacent quantifiers over overlapping characters",
+								sample(overlap));
+						return;
+					}
+				}
+				if (!nullable(b)) {
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Record a finding, if more severe than any previous finding.
+	 *
+	 * @param root The root of the tree
+	 * @param target The node the attack pumps
+	 * @param risk The severity
+	 * @param description The description of the construct
+	 * @param pump The string pumped.
+	 */
+	private void report(RegexNode root, RegexNode target, Risk risk, String description, String pump) {
+		if (finding != null && finding.risk.compareTo(risk) >= 0) {
+			return;
+		}
+		StringBuilder prefix = new StringBuilder();
+		prefix(root, target, prefix);
+		CharClass pumped = CharClass.EMPTY;
+		for (int i = 0; i < pump.length();) {
+			int c = pump.codePointAt(i);
+			pumped = pumped.union(CharClass.of(c));
+			i += Character.charCount(c);
+		}
+		pumped = pumped.union(first(target));
+		String suffix = "";
+		for (int i = 0; i < SUFFIXES.length(); i++) {
+			if (!pumped.contains(SUFFIXES.charAt(i))) {
+				suffix = SUFFIXES.substring(i, i + 1);
+				break;
+			}
+		}
+		finding = new Finding(risk, description, prefix.toString(), pump, suffix);
+	}
+
+	/**
+	 * Get if a node is a quantifier which may backtrack over many iterations.
+	 *
+	 * @param node The node
+	 * @return TRUE if the node is a backtracking loop.
+	 */
+	private static boolean isLoop(RegexNode node) {
+		return node.type == RegexNode.Type.REPEAT && node.mode != RegexNode.Mode.POSSESSIVE
+				&& (node.max == RegexNode.UNBOUNDED || node.max >= LOOP_THRESHOLD);
+	}
+
+	/**
+	 * Get if a node matches a single character.
+	 *
+	 * @param node The node
+	 * @return TRUE if the node matches a single character.
+	 */
+	private static boolean isSingle(RegexNode node) {
+		while (node.type == RegexNode.Type.GROUP && !node.children.isEmpty()) {
+			node = node.child();
+		}
+		return node.type == RegexNode.Type.CHAR || node.type == RegexNode.Type.CLASS;
+	}
+
+	/**
+	 * Collect the loops and alternations which may span a whole iteration of a node, that is, which are only
+	 * surrounded by elements which can match the empty string.
+	 *
+	 * @param node The node
+	 * @param heads Receives the loops and alternations.
+	 */
+	private static void heads(RegexNode node, List<RegexNode> heads) {
+		switch (node.type) {
+		case GROUP:
+			if (!node.flag && !node.children.isEmpty()) {
+				heads(node.child(), heads);
+			}
+			break;
+		case ALTERNATE:
+			heads.add(node);
+			for (RegexNode child : node.children) {
+				heads(child, heads);
+			}
+			break;
+		case CONCAT:
+			RegexNode required = null;
+			int count = 0;
+			for (RegexNode child : node.children) {
+				if (!nullable(child)) {
+					required = child;
+					count++;
+				}
+			}
+			if (count == 1) {
+				heads(required, heads);
+			} else if (count == 0) {
+				for (RegexNode child : node.children) {
+					heads(child, heads);
+				}
+			}
+			break;
+		case REPEAT:
+			if (isLoop(node)) {
+				heads.add(node);
+			} else if (node.mode != RegexNode.Mode.POSSESSIVE && node.max != 0) {
+				heads(node.child(), heads);
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Get if a node can match the empty string.
+	 *
+	 * @param node The node
+	 * @return TRUE if the node can match the empty string.
+	 */
+	private static boolean nullable(RegexNode node) {
+		switch (node.type) {
+		case CHAR:
+		case CLASS:
+			return false;
+		case CONCAT:
+			for (RegexNode child : node.children) {
+				if (!nullable(child)) {
+					return false;
+				}
+			}
+			return true;
+		case ALTERNATE:
+			for (RegexNode child : node.children) {
+				if (nullable(child)) {
+					return true;
+				}
+			}
+			return false;
+		case GROUP:
+			return node.children.isEmpty() || nullable(node.child());
+		case REPEAT:
+			return node.min == 0 || nullable(node.child());
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * Get the characters which may start a match of a node.
+	 *
+	 * @param node The node
+	 * @return The characters.
+	 */
+	private static CharClass first(RegexNode node) {
+		switch (node.type) {
+		case CHAR:
+		case CLASS:
+			CharClass chars = node.getCharacters();
+			return chars != null ? chars : CharClass.ALL;
+		case CONCAT:
+			CharClass result = CharClass.EMPTY;
+			for (RegexNode child : node.children) {
+				result = result.union(first(child));
+				if (!nullable(child)) {
+					break;
+				}
+			}
+			return result;
+		case ALTERNATE:
+			result = CharClass.EMPTY;
+			for (RegexNode child : node.children) {
+				result = result.union(first(child));
+			}
+			return result;
+		case GROUP:
+			return node.children.isEmpty() ? CharClass.EMPTY : first(node.child());
+		case REPEAT:
+			return node.max == 0 ? CharClass.EMPTY : first(node.child());
+		case BACKREF:
+			return CharClass.ALL;
+		default:
+			return CharClass.EMPTY;
+		}
+	}
+
+	/**
+	 * Get a character of a class, preferring a printable one.
+	 *
+	 * @param chars The class
+	 * @return The character as a string.
+	 */
+	private static String sample(CharClass chars) {
+		for (char c : "a0 _A".toCharArray()) {
+			if (chars.contains(c)) {
+				return String.valueOf(c);
+			}
+		}
+		if (chars.getRangeCount() == 0) {
+			return "a";
+		}
+		return new String(Character.toChars(chars.getLow(0)));
+	}
+
+	/**
+	 * Get a short string matched by a node.
+	 *
+	 * @param node The node
+	 * @return The string.
+	 */
+	private static String sample(RegexNode node) {
+		StringBuilder sb = new StringBuilder();
+		sample(node, sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Get a short non empty string matched by a node, or a character which may start a match if the node only
+	 * matches the empty string by default.
+	 *
+	 * @param node The node
+	 * @return The string.
+	 */
+	private static String nonEmptySample(RegexNode node) {
+		String s = sample(node);
+		return s.isEmpty() ? sample(first(node)) : s;
+	}
+
+	/**
+	 * Append a short string matched by a node.
+	 *
+	 * @param node The node
+	 * @param sb The string being built.
+	 */
+	private static void sample(RegexNode node, StringBuilder sb) {
+		switch (node.type) {
+		case CHAR:
+		case CLASS:
+			sb.append(sample(first(node)));
+			break;
+		case CONCAT:
+			for (RegexNode child : node.children) {
+				sample(child, sb);
+			}
+			break;
+		case ALTERNATE:
+		case GROUP:
+			if (!node.children.isEmpty()) {
+				sample(node.child(), sb);
+			}
+			break;
+		case REPEAT:
+			for (int i = 0; i < node.min; i++) {
+				sample(node.child(), sb);
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Append a string reaching the target node from the start of a match.
+	 *
+	 * @param node The node containing the target
+	 * @param target The target
+	 * @param sb The string being built
+	 * @return TRUE if the target was reached.
+	 */
+	private static boolean prefix(RegexNode node, RegexNode target, StringBuilder sb) {
+		if (node == target) {
+			return true;
+		}
+		if (!contains(node, target)) {
+			return false;
+		}
+		if (node.type == RegexNode.Type.CONCAT) {
+			for (RegexNode child : node.children) {
+				if (prefix(child, target, sb)) {
+					return true;
+				}
+				sample(child, sb);
+			}
+			return false;
+		}
+		for (RegexNode child : node.children) {
+			if (prefix(child, target, sb)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get if a node contains the target.
+	 *
+	 * @param node The node
+	 * @param target The target
+	 * @return TRUE if the target is the node or one of its descendants.
+	 */
+	private static boolean contains(RegexNode node, RegexNode target) {
+		if (node == target) {
+			return true;
+		}
+		for (RegexNode child : node.children) {
+			if (contains(child, target)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Time the attack string of a finding against the pattern, doubling the number of pumped repetitions until the
+	 * match is slow, times out or the maximum length is reached.
+	 *
+	 * @param pattern The pattern
+	 * @param finding The finding
+	 * @param find TRUE to find a match within the input, otherwise the whole input must match
+	 * @param cancelled Returns TRUE if the measurement should stop.
+	 * @return The measurement, or NULL if cancelled.
+	 */
+	static Measurement measure(Pattern pattern, Finding finding, boolean find, BooleanSupplier cancelled) {
+		List<Integer> lengths = new ArrayList<>();
+		List<Long> times = new ArrayList<>();
+		boolean timedOut = false;
+		int overflowPumps = 0;
+		// Warm up on the shortest attack, so the first measurements are not of interpreted code.
+		try {
+			DeadlineText warmup = new DeadlineText(finding.getAttack(FIRST_PUMPS), System.nanoTime() + RUN_LIMIT,
+					cancelled);
+			Matcher matcher = pattern.matcher(warmup);
+			for (int i = 0; i < WARMUP; i++) {
+				if (find) {
+					matcher.reset().find();
+				} else {
+					matcher.reset().matches();
+				}
+			}
+		} catch (DeadlineText.Expired | StackOverflowError e) {
+			if (cancelled.getAsBoolean()) {
+				return null;
+			}
+		}
+		for (int pumps = FIRST_PUMPS; pumps <= MAX_PUMPS; pumps *= 2) {
+			String attack = finding.getAttack(pumps);
+			long best = Long.MAX_VALUE;
+			// Best of two, to reduce the effect of compilation and collection pauses.
+			for (int run = 0; run < 2 && !timedOut && overflowPumps == 0; run++) {
+				DeadlineText text = new DeadlineText(attack, System.nanoTime() + RUN_LIMIT, cancelled);
+				Matcher matcher = pattern.matcher(text);
+				long start = System.nanoTime();
+				try {
+					if (find) {
+						matcher.find();
+					} else {
+						matcher.matches();
+					}
+					best = Math.min(best, System.nanoTime() - start);
+				} catch (DeadlineText.Expired e) {
+					if (cancelled.getAsBoolean()) {
+						return null;
+					}
+					timedOut = true;
+				} catch (StackOverflowError e) {
+					// Deep recursion fails the match regardless of its time, so is not timing evidence.
+					overflowPumps = pumps;
+				}
+			}
+			if (overflowPumps != 0) {
+				break;
+			}
+			lengths.add(pumps);
+			times.add(timedOut ? RUN_LIMIT : best);
+			if (timedOut || best >= ENOUGH) {
+				break;
+			}
+		}
+		int[] l = new int[lengths.size()];
+		long[] t = new long[times.size()];
+		for (int i = 0; i < l.length; i++) {
+			l[i] = lengths.get(i);
+			t[i] = times.get(i);
+		}
+		return new Measurement(finding, l, t, timedOut, overflowPumps);
+	}
+
+	/**
+	 * A risky construct found in a pattern, with the attack string which exercises it.
+	 */
+	static final class Finding {
+
+		/**
+		 * The severity.
+		 */
+		final Risk risk;
+		/**
+		 * The description of the construct.
+		 */
+		final String description;
+		/**
+		 * The attack prefix, reaching the construct.
+		 */
+		final String prefix;
+		/**
+		 * The string repeated to exercise the construct.
+		 */
+		final String pump;
+		/**
+		 * The attack suffix, forcing the match to fail.
+		 */
+		final String suffix;
+
+		/**
+		 * Create a new finding.
+		 *
+		 * @param risk The severity
+		 * @param description The description
+		 * @param prefix The attack prefix
+		 * @param pump The pumped string
+		 * @param suffix The attack suffix.
+		 */
+		Finding(Risk risk, String description, String prefix, String pump, String suffix) {
+			this.risk = risk;
+			this.description = description;
+			this.prefix = prefix;
+			this.pump = pump;
+			this.suffix = suffix;
+		}
+
+		/**
+		 * Get the attack string.
+		 *
+		 * @param pumps The number of repetitions of the pumped string.
+		 * @return The attack string.
+		 */
+		String getAttack(int pumps) {
+			StringBuilder sb = new StringBuilder(prefix.length() + pump.length() * pumps + suffix.length());
+			sb.append(prefix);
+			for (int i = 0; i < pumps; i++) {
+				sb.append(pump);
+			}
+			return sb.append(suffix).toString();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s risk: %s, pumping \"%s\"", risk == Risk.EXPONENTIAL ? "Exponential" : "Polynomial",
+					description, pump);
+		}
+	}
+
+	/**
+	 * The match times of an attack on inputs of growing length.
+	 */
+	static final class Measurement {
+
+		/**
+		 * The finding measured.
+		 */
+		final Finding finding;
+		/**
+		 * The number of pumped repetitions of each measurement.
+		 */
+		final int[] pumps;
+		/**
+		 * The match time of each measurement (nsec).
+		 */
+		final long[] times;
+		/**
+		 * TRUE if the last measurement exceeded the time limit.
+		 */
+		final boolean timedOut;
+		/**
+		 * The number of pumped repetitions which overflowed the stack, or 0 if no measurement did.
+		 */
+		final int overflowPumps;
+
+		/**
+		 * Create a new measurement.
+		 *
+		 * @param finding The finding measured
+		 * @param pumps The number of repetitions of each measurement
+		 * @param times The match time of each measurement
+		 * @param timedOut TRUE if the last measurement exceeded the time limit
+		 * @param overflowPumps The number of repetitions which overflowed the stack, or 0 if none did.
+		 */
+		Measurement(Finding finding, int[] pumps, long[] times, boolean timedOut, int overflowPumps) {
+			this.finding = finding;
+			this.pumps = pumps;
+			this.times = times;
+			this.timedOut = timedOut;
+			this.overflowPumps = overflowPumps;
+		}
+
+		/**
+		 * Get the growth exponent k of the match time, as n^k, between the last two measurements.
+		 *
+		 * @return The exponent, or 0 if the times are too short to tell.
+		 */
+		double getExponent() {
+			int last = times.length - 1;
+			if (last < 1 || times[last - 1] < MIN_TIMED) {
+				return 0;
+			}
+			return Math.log((double) times[last] / times[last - 1]) / Math.log((double) pumps[last] / pumps[last - 1]);
+		}
+
+		/**
+		 * Get the match time per character of the last measurement.
+		 *
+		 * @return The time per character (nsec).
+		 */
+		double getNanosPerChar() {
+			return (double) times[times.length - 1] / getAttack().length();
+		}
+
+		/**
+		 * Get if the measurement confirms the finding, that is the match time grows super linearly or exceeded the
+		 * time limit.
+		 *
+		 * @return TRUE if confirmed.
+		 */
+		boolean isConfirmed() {
+			return timedOut || getExponent() >= 1.5;
+		}
+
+		/**
+		 * Get if an attack overflowed the stack, which fails the match on long inputs by deep recursion.
+		 *
+		 * @return TRUE if the stack was exhausted.
+		 */
+		boolean isStackExhausted() {
+			return overflowPumps != 0;
+		}
+
+		/**
+		 * Get the attack string of the longest measurement.
+		 *
+		 * @return The attack string.
+		 */
+		String getAttack() {
+			return finding.getAttack(pumps[pumps.length - 1]);
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder(finding.toString());
+			int last = pumps.length - 1;
+			if (last >= 0) {
+				String attack = getAttack();
+				if (timedOut) {
+					sb.append(String.format("\nConfirmed: the attack \"%s\" (%,d chars) exceeded %,d ms",
+							shorten(attack), attack.length(), RUN_LIMIT / 1_000_000L));
+				} else {
+					String time = String.format("the attack \"%s\" (%,d chars) took %,.2f ms (%,.0f ns/char)",
+							shorten(attack), attack.length(), times[last] / 1e6d, getNanosPerChar());
+					double exponent = getExponent();
+					if (exponent >= 1.5) {
+						sb.append(String.format("\nConfirmed: %s, time growing as n^%.1f", time, exponent));
+					} else {
+						sb.append(String.format("\nNot confirmed: %s", time));
+					}
+				}
+			}
+			if (isStackExhausted()) {
+				String attack = finding.getAttack(overflowPumps);
+				sb.append(String.format(
+						"\nStack exhaustion: the attack \"%s\" (%,d chars) overflowed the stack by deep recursion",
+						shorten(attack), attack.length()));
+			}
+			return sb.toString();
+		}
+
+		/**
+		 * Shorten an attack string for display.
+		 *
+		 * @param attack The attack string
+		 * @return The attack string, truncated if long.
+		 */
+		private static String shorten(String attack) {
+			return attack.length() > 40 ? attack.substring(0, 37) + "..." : attack;
+		}
+	}
+
+	/**
+	 * Text which aborts the match once a deadline has passed or the measurement is cancelled.
+	 */
+	private static final class DeadlineText implements CharSequence {
+
+		/**
+		 * Thrown to abort the match.
+		 */
+		private static final class Expired extends RuntimeException {
+
+			private static final long serialVersionUID = 1L;
+
+			Expired() {
+				super(null, null, false, false);
+			}
+		}
+
+		/**
+		 * The number of character reads between checks of the deadline.
+		 */
+		private final static int CHECK_INTERVAL = 4096;
+
+		/**
+		 * The text.
+		 */
+		private final String text;
+		/**
+		 * The deadline (System.nanoTime).
+		 */
+		private final long deadline;
+		/**
+		 * Returns TRUE if the measurement should stop.
+		 */
+		private final BooleanSupplier cancelled;
+		/**
+		 * The number of character reads since the last check.
+		 */
+		private int reads;
+
+		/**
+		 * Create new text.
+		 *
+		 * @param text The text
+		 * @param deadline The deadline
+		 * @param cancelled Returns TRUE if the measurement should stop.
+		 */
+		DeadlineText(String text, long deadline, BooleanSupplier cancelled) {
+			this.text = text;
+			this.deadline = deadline;
+			this.cancelled = cancelled;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (++reads == CHECK_INTERVAL) {
+				reads = 0;
+				if (System.nanoTime() > deadline || cancelled.getAsBoolean()) {
+					throw new Expired();
+				}
+			}
+			return text.charAt(index);
+		}
+
+		@Override
+		public int length() {
+			return text.length();
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return text.subSequence(start, end);
+		}
+
+		@Override
+		public String toString() {
+			return text;
+		}
+	}
+}
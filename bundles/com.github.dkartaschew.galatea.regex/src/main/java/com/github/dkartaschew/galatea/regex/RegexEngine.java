@@ -0,0 +1,106 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.util.regex.Pattern;
+
+/**
+ * A regular expression engine used to match lines of text.
+ * <p>
+ * Patterns are always validated and compiled by {@link Pattern} first, so all engines accept the same syntax; an
+ * engine may reject patterns using features it does not support.
+ * </p>
+ */
+interface RegexEngine {
+
+	/**
+	 * The default backtracking engine.
+	 */
+	RegexEngine JAVA = new JavaRegexEngine();
+	/**
+	 * The linear time automaton engine.
+	 */
+	RegexEngine AUTOMATON = new AutomatonEngine();
+	/**
+	 * All available engines.
+	 */
+	RegexEngine[] ENGINES = { JAVA, AUTOMATON };
+
+	/**
+	 * Get the name of the engine.
+	 *
+	 * @return The name.
+	 */
+	String getName();
+
+	/**
+	 * Compile a pattern for the engine.
+	 *
+	 * @param pattern The pattern
+	 * @param flags The flags the pattern was compiled with.
+	 * @return The compiled pattern.
+	 * @throws IllegalArgumentException If the pattern uses features not supported by the engine, the message
+	 *             describing the feature.
+	 */
+	Compiled compile(Pattern pattern, int flags);
+
+	/**
+	 * A compiled pattern, which may be shared between threads.
+	 */
+	interface Compiled {
+
+		/**
+		 * Get the source pattern.
+		 *
+		 * @return The pattern.
+		 */
+		Pattern getPattern();
+
+		/**
+		 * Create a matcher for the pattern, for use by a single thread.
+		 *
+		 * @return A new matcher.
+		 */
+		LineMatcher matcher();
+	}
+
+	/**
+	 * Matches regions of text against a compiled pattern. Not thread safe.
+	 */
+	interface LineMatcher {
+
+		/**
+		 * Determine if the whole region matches the pattern.
+		 *
+		 * @param text The text
+		 * @param start The start of the region
+		 * @param end The end of the region (exclusive)
+		 * @return TRUE if the region matches.
+		 */
+		boolean matches(CharSequence text, int start, int end);
+
+		/**
+		 * Determine if the region contains a match of the pattern.
+		 *
+		 * @param text The text
+		 * @param start The start of the region
+		 * @param end The end of the region (exclusive)
+		 * @return TRUE if a match was found.
+		 */
+		boolean find(CharSequence text, int start, int end);
+	}
+}
@@ -0,0 +1,191 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A node of the syntax tree of a regular expression, as produced by {@link RegexParser}.
+ */
+final class RegexNode {
+
+	/**
+	 * The type of node.
+	 */
+	enum Type {
+		/**
+		 * Matches the empty string.
+		 */
+		EMPTY,
+		/**
+		 * A single character.
+		 */
+		CHAR,
+		/**
+		 * A character class.
+		 */
+		CLASS,
+		/**
+		 * A sequence of nodes.
+		 */
+		CONCAT,
+		/**
+		 * A choice between nodes.
+		 */
+		ALTERNATE,
+		/**
+		 * A group, capturing, non capturing or atomic.
+		 */
+		GROUP,
+		/**
+		 * A quantified node.
+		 */
+		REPEAT,
+		/**
+		 * A zero width assertion (^, $, \b, etc).
+		 */
+		ANCHOR,
+		/**
+		 * A lookahead or lookbehind.
+		 */
+		LOOKAROUND,
+		/**
+		 * A back reference.
+		 */
+		BACKREF
+	}
+
+	/**
+	 * The quantifier mode of a repeat.
+	 */
+	enum Mode {
+		/**
+		 * Match as much as possible.
+		 */
+		GREEDY,
+		/**
+		 * Match as little as possible.
+		 */
+		LAZY,
+		/**
+		 * Match as much as possible, never backtracking.
+		 */
+		POSSESSIVE
+	}
+
+	/**
+	 * Unbounded repeat maximum.
+	 */
+	final static int UNBOUNDED = -1;
+
+	/**
+	 * The type of node.
+	 */
+	final Type type;
+	/**
+	 * The children of CONCAT and ALTERNATE nodes, or the single child of GROUP, REPEAT and LOOKAROUND nodes.
+	 */
+	final List<RegexNode> children;
+	/**
+	 * The code point of a CHAR node.
+	 */
+	int codePoint;
+	/**
+	 * The characters of a CLASS node, or NULL if the class cannot be represented (eg some Unicode properties).
+	 */
+	CharClass charClass;
+	/**
+	 * TRUE if a CHAR or CLASS node matches case insensitively.
+	 */
+	boolean caseInsensitive;
+	/**
+	 * TRUE if case insensitive matching applies to all characters, rather than just ASCII.
+	 */
+	boolean unicodeCase;
+	/**
+	 * TRUE if <code>Pattern</code> matches a case insensitive CHAR or CLASS node using rules for the construct other
+	 * than case folding each member, so {@link #getCharacters()} only approximates the characters matched.
+	 */
+	boolean inexactFold;
+	/**
+	 * The minimum number of repeats of a REPEAT node.
+	 */
+	int min;
+	/**
+	 * The maximum number of repeats of a REPEAT node, or {@link #UNBOUNDED}.
+	 */
+	int max;
+	/**
+	 * The quantifier mode of a REPEAT node.
+	 */
+	Mode mode;
+	/**
+	 * The capture group number of a GROUP node, 0 if non capturing, or the group referenced by a BACKREF node.
+	 */
+	int group;
+	/**
+	 * TRUE if a GROUP is atomic, or a LOOKAROUND is negative.
+	 */
+	boolean flag;
+	/**
+	 * The source text of ANCHOR, LOOKAROUND, BACKREF and unrepresentable CLASS nodes.
+	 */
+	String text;
+
+	/**
+	 * Create a new node.
+	 *
+	 * @param type The type of node
+	 * @param children The children.
+	 */
+	RegexNode(Type type, List<RegexNode> children) {
+		this.type = type;
+		this.children = children;
+	}
+
+	/**
+	 * Create a new leaf node.
+	 *
+	 * @param type The type of node.
+	 */
+	RegexNode(Type type) {
+		this(type, Collections.emptyList());
+	}
+
+	/**
+	 * Get the single child of a GROUP, REPEAT or LOOKAROUND node.
+	 *
+	 * @return The child.
+	 */
+	RegexNode child() {
+		return children.get(0);
+	}
+
+	/**
+	 * Get the characters matched by a CHAR or CLASS node, with case folding applied.
+	 *
+	 * @return The characters, or NULL if they cannot be represented.
+	 */
+	CharClass getCharacters() {
+		CharClass chars = type == Type.CHAR ? CharClass.of(codePoint) : charClass;
+		if (chars != null && caseInsensitive) {
+			chars = chars.foldCase(unicodeCase);
+		}
+		return chars;
+	}
+}
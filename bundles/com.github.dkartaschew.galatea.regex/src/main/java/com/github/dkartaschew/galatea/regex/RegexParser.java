@@ -0,0 +1,956 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Parser of <code>java.util.regex</code> syntax into a tree of {@link RegexNode}, for analysis of a pattern.
+ * <p>
+ * The pattern is expected to have been compiled by {@link Pattern} already, so the parser is lenient and only
+ * reports structural errors. The inline flags i, s, m and x (and their Pattern equivalents) are tracked; the others
+ * are accepted and ignored. Patterns using canonical equivalence are rejected.
+ * </p>
+ */
+final class RegexParser {
+
+	/**
+	 * The pattern being parsed.
+	 */
+	private final String pattern;
+	/**
+	 * The current position within the pattern.
+	 */
+	private int pos;
+	/**
+	 * The active flags.
+	 */
+	private int flags;
+	/**
+	 * The number of capturing groups seen.
+	 */
+	private int groups;
+	/**
+	 * Flag to indicate the character class or escape being parsed is not case folded exactly, see
+	 * {@link RegexNode#inexactFold}.
+	 */
+	private boolean inexactFold;
+
+	/**
+	 * Create a new parser.
+	 *
+	 * @param pattern The pattern
+	 * @param flags The pattern flags.
+	 */
+	private RegexParser(String pattern, int flags) {
+		this.pattern = pattern;
+		this.flags = flags;
+	}
+
+	/**
+	 * Parse a pattern.
+	 *
+	 * @param pattern The pattern
+	 * @param flags The flags given to {@link Pattern#compile(String, int)}, not {@link Pattern#flags()} which may
+	 *            include inline flags.
+	 * @return The syntax tree.
+	 * @throws IllegalArgumentException If the pattern could not be parsed.
+	 */
+	static RegexNode parse(String pattern, int flags) {
+		if ((flags & Pattern.CANON_EQ) != 0) {
+			throw new IllegalArgumentException("Canonical equivalence is not supported");
+		}
+		if ((flags & Pattern.LITERAL) != 0) {
+			RegexParser parser = new RegexParser(pattern, flags);
+			List<RegexNode> chars = new ArrayList<>();
+			for (int i = 0; i < pattern.length(); i = pattern.offsetByCodePoints(i, 1)) {
+				chars.add(parser.character(pattern.codePointAt(i)));
+			}
+			return concat(chars);
+		}
+		RegexParser parser = new RegexParser(pattern, flags);
+		RegexNode node = parser.parseAlternation();
+		if (parser.pos < pattern.length()) {
+			throw parser.error("Unmatched closing ')'");
+		}
+		return node;
+	}
+
+	/**
+	 * Create an error at the current position.
+	 *
+	 * @param message The error message
+	 * @return The exception to throw.
+	 */
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " near index " + pos);
+	}
+
+	/**
+	 * Determine if a flag is active.
+	 *
+	 * @param flag The flag
+	 * @return TRUE if active.
+	 */
+	private boolean isSet(int flag) {
+		return (flags & flag) != 0;
+	}
+
+	/**
+	 * Get the character at the current position.
+	 *
+	 * @return The character, or -1 at the end of the pattern.
+	 */
+	private int peek() {
+		return pos < pattern.length() ? pattern.charAt(pos) : -1;
+	}
+
+	/**
+	 * Determine if the pattern continues with the given text at the current position.
+	 *
+	 * @param text The text
+	 * @return TRUE if the text is next.
+	 */
+	private boolean lookingAt(String text) {
+		return pattern.startsWith(text, pos);
+	}
+
+	/**
+	 * Get the code point at the current position and advance past it.
+	 *
+	 * @return The code point.
+	 */
+	private int next() {
+		if (pos >= pattern.length()) {
+			throw error("Unexpected end of pattern");
+		}
+		int c = pattern.codePointAt(pos);
+		pos += Character.charCount(c);
+		return c;
+	}
+
+	/**
+	 * Skip whitespace and comments when in comments mode.
+	 */
+	private void skipComments() {
+		if (!isSet(Pattern.COMMENTS)) {
+			return;
+		}
+		while (pos < pattern.length()) {
+			char c = pattern.charAt(pos);
+			if (Character.isWhitespace(c)) {
+				pos++;
+			} else if (c == '#') {
+				while (pos < pattern.length() && pattern.charAt(pos) != '\n') {
+					pos++;
+				}
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Parse alternatives, up to the end of the pattern or enclosing group.
+	 *
+	 * @return The node.
+	 */
+	private RegexNode parseAlternation() {
+		List<RegexNode> alternatives = new ArrayList<>();
+		alternatives.add(parseConcat());
+		while (peek() == '|') {
+			pos++;
+			alternatives.add(parseConcat());
+		}
+		return alternatives.size() == 1 ? alternatives.get(0) : new RegexNode(RegexNode.Type.ALTERNATE, alternatives);
+	}
+
+	/**
+	 * Parse a sequence, up to the next alternative or the end of the enclosing group.
+	 *
+	 * @return The node.
+	 */
+	private RegexNode parseConcat() {
+		List<RegexNode> items = new ArrayList<>();
+		while (true) {
+			skipComments();
+			int c = peek();
+			if (c == -1 || c == '|' || c == ')') {
+				break;
+			}
+			if (lookingAt("\\Q")) {
+				pos += 2;
+				int end = pattern.indexOf("\\E", pos);
+				if (end < 0) {
+					end = pattern.length();
+				}
+				while (pos < end) {
+					items.add(character(next()));
+				}
+				pos = Math.min(pattern.length(), end + 2);
+				if (!items.isEmpty()) {
+					// A quantifier applies to the last quoted character only.
+					items.add(parseQuantifiers(items.remove(items.size() - 1)));
+				}
+				continue;
+			}
+			RegexNode atom = parseAtom();
+			if (atom != null) {
+				items.add(parseQuantifiers(atom));
+			}
+		}
+		return concat(items);
+	}
+
+	/**
+	 * Create a node for a sequence of nodes.
+	 *
+	 * @param items The nodes
+	 * @return The node.
+	 */
+	private static RegexNode concat(List<RegexNode> items) {
+		if (items.isEmpty()) {
+			return new RegexNode(RegexNode.Type.EMPTY);
+		}
+		return items.size() == 1 ? items.get(0) : new RegexNode(RegexNode.Type.CONCAT, items);
+	}
+
+	/**
+	 * Parse any quantifiers following an atom.
+	 *
+	 * @param atom The atom
+	 * @return The atom, or the quantified atom.
+	 */
+	private RegexNode parseQuantifiers(RegexNode atom) {
+		while (true) {
+			skipComments();
+			int c = peek();
+			int min;
+			int max;
+			if (c == '*') {
+				pos++;
+				min = 0;
+				max = RegexNode.UNBOUNDED;
+			} else if (c == '+') {
+				pos++;
+				min = 1;
+				max = RegexNode.UNBOUNDED;
+			} else if (c == '?') {
+				pos++;
+				min = 0;
+				max = 1;
+			} else if (c == '{') {
+				pos++;
+				min = parseNumber();
+				max = min;
+				if (peek() == ',') {
+					pos++;
+					max = peek() == '}' ? RegexNode.UNBOUNDED : parseNumber();
+				}
+				if (peek() != '}') {
+					throw error("Unclosed counted closure");
+				}
+				pos++;
+			} else {
+				return atom;
+			}
+			RegexNode.Mode mode = RegexNode.Mode.GREEDY;
+			if (peek() == '?') {
+				pos++;
+				mode = RegexNode.Mode.LAZY;
+			} else if (peek() == '+') {
+				pos++;
+				mode = RegexNode.Mode.POSSESSIVE;
+			}
+			RegexNode repeat = new RegexNode(RegexNode.Type.REPEAT, Collections.singletonList(atom));
+			repeat.min = min;
+			repeat.max = max;
+			repeat.mode = mode;
+			atom = repeat;
+		}
+	}
+
+	/**
+	 * Parse a decimal number.
+	 *
+	 * @return The number.
+	 */
+	private int parseNumber() {
+		int start = pos;
+		while (pos < pattern.length() && Character.isDigit(pattern.charAt(pos))) {
+			pos++;
+		}
+		if (start == pos) {
+			throw error("Illegal repetition");
+		}
+		try {
+			return Integer.parseInt(pattern.substring(start, pos));
+		} catch (NumberFormatException e) {
+			throw error("Illegal repetition range");
+		}
+	}
+
+	/**
+	 * Parse a single atom.
+	 *
+	 * @return The atom, or NULL if the atom only changed the flags.
+	 */
+	private RegexNode parseAtom() {
+		int c = next();
+		switch (c) {
+		case '(':
+			return parseGroup();
+		case '[': {
+			RegexNode node = new RegexNode(RegexNode.Type.CLASS);
+			inexactFold = false;
+			node.charClass = parseClass();
+			node.inexactFold = inexactFold;
+			node.caseInsensitive = isSet(Pattern.CASE_INSENSITIVE);
+			node.unicodeCase = isSet(Pattern.UNICODE_CASE);
+			if (node.charClass == null) {
+				node.text = "character class";
+			}
+			return node;
+		}
+		case '.': {
+			RegexNode node = new RegexNode(RegexNode.Type.CLASS);
+			if (isSet(Pattern.DOTALL)) {
+				node.charClass = CharClass.ALL;
+			} else if (isSet(Pattern.UNIX_LINES)) {
+				node.charClass = CharClass.of('\n').negate();
+			} else {
+				node.charClass = CharClass.LINE_TERMINATOR.negate();
+			}
+			return node;
+		}
+		case '^':
+		case '$':
+			return anchor(new String(Character.toChars(c)) + (isSet(Pattern.MULTILINE) ? "m" : ""));
+		case '\\':
+			return parseEscape();
+		default:
+			return character(c);
+		}
+	}
+
+	/**
+	 * Create a CHAR node.
+	 *
+	 * @param c The code point
+	 * @return The node.
+	 */
+	private RegexNode character(int c) {
+		RegexNode node = new RegexNode(RegexNode.Type.CHAR);
+		node.codePoint = c;
+		node.caseInsensitive = isSet(Pattern.CASE_INSENSITIVE);
+		node.unicodeCase = isSet(Pattern.UNICODE_CASE);
+		node.inexactFold = isUnicodeCaseInsensitive() && c >= 0x80;
+		return node;
+	}
+
+	/**
+	 * Determine if Unicode case insensitive matching is active.
+	 *
+	 * @return TRUE if both case insensitive and Unicode case.
+	 */
+	private boolean isUnicodeCaseInsensitive() {
+		return isSet(Pattern.CASE_INSENSITIVE) && isSet(Pattern.UNICODE_CASE);
+	}
+
+	/**
+	 * Note an item of a character class, or an escape, that <code>Pattern</code> does not case fold exactly. With
+	 * Unicode case it only folds single ASCII characters the same way as {@link CharClass#foldCase(boolean)}; ranges,
+	 * predefined classes and other characters follow their own rules.
+	 *
+	 * @param item The code point or class of the item
+	 * @param range TRUE if the item is the start of a range.
+	 */
+	private void foldItem(Object item, boolean range) {
+		if (isUnicodeCaseInsensitive() && (range || !(item instanceof Integer) || (Integer) item >= 0x80)) {
+			inexactFold = true;
+		}
+	}
+
+	/**
+	 * Create an ANCHOR node.
+	 *
+	 * @param text The anchor.
+	 * @return The node.
+	 */
+	private static RegexNode anchor(String text) {
+		RegexNode node = new RegexNode(RegexNode.Type.ANCHOR);
+		node.text = text;
+		return node;
+	}
+
+	/**
+	 * Create a CLASS node.
+	 *
+	 * @param chars The class, or NULL if unrepresentable
+	 * @param text The source of the class.
+	 * @return The node.
+	 */
+	private RegexNode charClass(CharClass chars, String text) {
+		RegexNode node = new RegexNode(RegexNode.Type.CLASS);
+		node.charClass = chars;
+		node.text = text;
+		node.caseInsensitive = isSet(Pattern.CASE_INSENSITIVE);
+		node.unicodeCase = isSet(Pattern.UNICODE_CASE);
+		return node;
+	}
+
+	/**
+	 * Parse a group, following the opening '('.
+	 *
+	 * @return The group, or NULL if the group only changed the flags.
+	 */
+	private RegexNode parseGroup() {
+		int saved = flags;
+		RegexNode node;
+		if (peek() != '?') {
+			node = new RegexNode(RegexNode.Type.GROUP, new ArrayList<>(1));
+			node.group = ++groups;
+		} else if (lookingAt("?:")) {
+			pos += 2;
+			node = new RegexNode(RegexNode.Type.GROUP, new ArrayList<>(1));
+		} else if (lookingAt("?>")) {
+			pos += 2;
+			node = new RegexNode(RegexNode.Type.GROUP, new ArrayList<>(1));
+			node.flag = true;
+		} else if (lookingAt("?=") || lookingAt("?!") || lookingAt("?<=") || lookingAt("?<!")) {
+			int start = pos - 1;
+			pos += lookingAt("?<") ? 3 : 2;
+			node = new RegexNode(RegexNode.Type.LOOKAROUND, new ArrayList<>(1));
+			node.flag = pattern.charAt(pos - 1) == '!';
+			node.text = pattern.substring(start, pos);
+		} else if (lookingAt("?<")) {
+			int end = pattern.indexOf('>', pos);
+			if (end < 0) {
+				throw error("Named capturing group is missing trailing '>'");
+			}
+			pos = end + 1;
+			node = new RegexNode(RegexNode.Type.GROUP, new ArrayList<>(1));
+			node.group = ++groups;
+		} else {
+			pos++;
+			parseFlags();
+			if (peek() == ')') {
+				// Flags apply to the remainder of the enclosing group.
+				pos++;
+				return null;
+			}
+			if (peek() != ':') {
+				throw error("Unknown inline modifier");
+			}
+			pos++;
+			node = new RegexNode(RegexNode.Type.GROUP, new ArrayList<>(1));
+		}
+		node.children.add(parseAlternation());
+		if (peek() != ')') {
+			throw error("Unclosed group");
+		}
+		pos++;
+		flags = saved;
+		return node;
+	}
+
+	/**
+	 * Parse inline flags, eg "i-s".
+	 */
+	private void parseFlags() {
+		boolean on = true;
+		while (pos < pattern.length()) {
+			char c = pattern.charAt(pos);
+			int flag;
+			switch (c) {
+			case '-':
+				on = false;
+				pos++;
+				continue;
+			case 'i':
+				flag = Pattern.CASE_INSENSITIVE;
+				break;
+			case 'd':
+				flag = Pattern.UNIX_LINES;
+				break;
+			case 'm':
+				flag = Pattern.MULTILINE;
+				break;
+			case 's':
+				flag = Pattern.DOTALL;
+				break;
+			case 'u':
+				flag = Pattern.UNICODE_CASE;
+				break;
+			case 'x':
+				flag = Pattern.COMMENTS;
+				break;
+			case 'U':
+				flag = Pattern.UNICODE_CHARACTER_CLASS;
+				break;
+			default:
+				return;
+			}
+			flags = on ? flags | flag : flags & ~flag;
+			pos++;
+		}
+	}
+
+	/**
+	 * Parse an escape sequence outside of a character class, following the '\'.
+	 *
+	 * @return The node.
+	 */
+	private RegexNode parseEscape() {
+		int start = pos - 1;
+		int c = peek();
+		switch (c) {
+		case 'b':
+		case 'B':
+		case 'A':
+		case 'z':
+		case 'Z':
+		case 'G':
+			pos++;
+			return anchor("\\" + (char) c);
+		case 'k': {
+			pos++;
+			int end = pattern.indexOf('>', pos);
+			if (peek() != '<' || end < 0) {
+				throw error("\\k is not followed by '<' for named capturing group");
+			}
+			pos = end + 1;
+			RegexNode node = new RegexNode(RegexNode.Type.BACKREF);
+			node.text = pattern.substring(start, pos);
+			return node;
+		}
+		case 'R': {
+			pos++;
+			List<RegexNode> crlf = new ArrayList<>();
+			crlf.add(character('\r'));
+			crlf.add(character('\n'));
+			List<RegexNode> alternatives = new ArrayList<>();
+			alternatives.add(new RegexNode(RegexNode.Type.CONCAT, crlf));
+			alternatives.add(charClass(CharClass.VERTICAL_SPACE, "\\R"));
+			RegexNode node = new RegexNode(RegexNode.Type.GROUP, new ArrayList<>(1));
+			node.flag = true;
+			node.children.add(new RegexNode(RegexNode.Type.ALTERNATE, alternatives));
+			return node;
+		}
+		case 'X':
+			pos++;
+			return charClass(null, "\\X");
+		default:
+			if (c >= '1' && c <= '9') {
+				RegexNode node = new RegexNode(RegexNode.Type.BACKREF);
+				node.group = next() - '0';
+				// Java takes further digits while they form a valid group number.
+				while (pos < pattern.length() && Character.isDigit(pattern.charAt(pos))) {
+					int group = node.group * 10 + (pattern.charAt(pos) - '0');
+					if (group > groups) {
+						break;
+					}
+					node.group = group;
+					pos++;
+				}
+				node.text = pattern.substring(start, pos);
+				return node;
+			}
+			inexactFold = false;
+			Object escape = parseCharEscape();
+			if (escape instanceof CharClass || escape == null) {
+				foldItem(escape, false);
+				RegexNode node = charClass((CharClass) escape, pattern.substring(start, pos));
+				node.inexactFold = inexactFold;
+				return node;
+			}
+			return character((Integer) escape);
+		}
+	}
+
+	/**
+	 * Parse an escape sequence valid both inside and outside of character classes, following the '\'.
+	 *
+	 * @return The code point as an Integer, a CharClass, or NULL for an unrepresentable class.
+	 */
+	private Object parseCharEscape() {
+		int c = next();
+		switch (c) {
+		case 't':
+			return (int) '\t';
+		case 'n':
+			return (int) '\n';
+		case 'r':
+			return (int) '\r';
+		case 'f':
+			return (int) '\f';
+		case 'a':
+			return 0x07;
+		case 'e':
+			return 0x1B;
+		case 'c':
+			return next() ^ 64;
+		case '0': {
+			int value = 0;
+			for (int i = 0; i < 3 && pos < pattern.length(); i++) {
+				char o = pattern.charAt(pos);
+				if (o < '0' || o > '7' || value * 8 + (o - '0') > 0377) {
+					break;
+				}
+				value = value * 8 + (o - '0');
+				pos++;
+			}
+			return value;
+		}
+		case 'x':
+			if (peek() == '{') {
+				int end = pattern.indexOf('}', pos);
+				if (end < 0) {
+					throw error("Unclosed hexadecimal escape sequence");
+				}
+				int value = parseHex(pos + 1, end);
+				pos = end + 1;
+				return value;
+			} else {
+				int value = parseHex(pos, pos + 2);
+				pos += 2;
+				return value;
+			}
+		case 'u': {
+			int value = parseHex(pos, pos + 4);
+			pos += 4;
+			return value;
+		}
+		case 'd':
+			return CharClass.DIGIT;
+		case 'D':
+			return CharClass.DIGIT.negate();
+		case 'w':
+			return CharClass.WORD;
+		case 'W':
+			return CharClass.WORD.negate();
+		case 's':
+			return CharClass.SPACE;
+		case 'S':
+			return CharClass.SPACE.negate();
+		case 'h':
+			return CharClass.HORIZONTAL_SPACE;
+		case 'H':
+			return CharClass.HORIZONTAL_SPACE.negate();
+		case 'v':
+			return CharClass.VERTICAL_SPACE;
+		case 'V':
+			return CharClass.VERTICAL_SPACE.negate();
+		case 'p':
+		case 'P': {
+			String name;
+			if (peek() == '{') {
+				int end = pattern.indexOf('}', pos);
+				if (end < 0) {
+					throw error("Unclosed character family");
+				}
+				name = pattern.substring(pos + 1, end);
+				pos = end + 1;
+			} else {
+				name = new String(Character.toChars(next()));
+			}
+			CharClass chars = property(name);
+			// Pattern folds some properties when case insensitive, depending on the Java version.
+			inexactFold |= isSet(Pattern.CASE_INSENSITIVE);
+			return chars != null && c == 'P' ? complement(chars) : chars;
+		}
+		default:
+			if (Character.isLetter(c) && c < 128) {
+				throw error("Illegal/unsupported escape sequence");
+			}
+			return c;
+		}
+	}
+
+	/**
+	 * Parse a hexadecimal value.
+	 *
+	 * @param start The start of the value
+	 * @param end The end of the value (exclusive)
+	 * @return The value.
+	 */
+	private int parseHex(int start, int end) {
+		if (end > pattern.length()) {
+			throw error("Illegal hexadecimal escape sequence");
+		}
+		try {
+			return Integer.parseInt(pattern.substring(start, end), 16);
+		} catch (NumberFormatException e) {
+			throw error("Illegal hexadecimal escape sequence");
+		}
+	}
+
+	/**
+	 * Get the characters of a named property, supporting the POSIX classes and general categories.
+	 *
+	 * @param name The property name
+	 * @return The characters, or NULL if unsupported.
+	 */
+	private static CharClass property(String name) {
+		if (name.startsWith("Is") && name.length() > 2) {
+			name = name.substring(2);
+		}
+		switch (name) {
+		case "Lower":
+			return CharClass.range('a', 'z');
+		case "Upper":
+			return CharClass.range('A', 'Z');
+		case "ASCII":
+			return CharClass.range(0, 0x7F);
+		case "Alpha":
+			return CharClass.range('a', 'z').union(CharClass.range('A', 'Z'));
+		case "Digit":
+			return CharClass.DIGIT;
+		case "Alnum":
+			return property("Alpha").union(CharClass.DIGIT);
+		case "Punct":
+			return CharClass.range('!', '/').union(CharClass.range(':', '@')).union(CharClass.range('[', '`'))
+					.union(CharClass.range('{', '~'));
+		case "Graph":
+			return CharClass.range('!', '~');
+		case "Print":
+			return CharClass.range(' ', '~');
+		case "Blank":
+			return CharClass.of(' ', '\t');
+		case "Cntrl":
+			return CharClass.range(0, 0x1F).union(CharClass.of(0x7F));
+		case "XDigit":
+			return CharClass.DIGIT.union(CharClass.range('a', 'f')).union(CharClass.range('A', 'F'));
+		case "Space":
+			return CharClass.SPACE;
+		default:
+			return category(name);
+		}
+	}
+
+	/**
+	 * Get the characters of a Unicode general category, eg "L" or "Lu", within the basic multilingual plane.
+	 *
+	 * @param name The category name
+	 * @return The characters, or NULL if not a supported category.
+	 */
+	private static CharClass category(String name) {
+		if (name.isEmpty() || name.length() > 2 || "LMNPSZC".indexOf(name.charAt(0)) < 0) {
+			return null;
+		}
+		int[] members = new int[0x10000];
+		int count = 0;
+		for (int c = 0; c < 0x10000; c++) {
+			if (categoryName(Character.getType(c)).startsWith(name)) {
+				members[count++] = c;
+			}
+		}
+		if (count == 0) {
+			return null;
+		}
+		return CharClass.of(Arrays.copyOf(members, count));
+	}
+
+	/**
+	 * Get the two letter name of a Unicode general category.
+	 *
+	 * @param type The category, as per {@link Character#getType(int)}
+	 * @return The name.
+	 */
+	private static String categoryName(int type) {
+		switch (type) {
+		case Character.UPPERCASE_LETTER:
+			return "Lu";
+		case Character.LOWERCASE_LETTER:
+			return "Ll";
+		case Character.TITLECASE_LETTER:
+			return "Lt";
+		case Character.MODIFIER_LETTER:
+			return "Lm";
+		case Character.OTHER_LETTER:
+			return "Lo";
+		case Character.NON_SPACING_MARK:
+			return "Mn";
+		case Character.ENCLOSING_MARK:
+			return "Me";
+		case Character.COMBINING_SPACING_MARK:
+			return "Mc";
+		case Character.DECIMAL_DIGIT_NUMBER:
+			return "Nd";
+		case Character.LETTER_NUMBER:
+			return "Nl";
+		case Character.OTHER_NUMBER:
+			return "No";
+		case Character.SPACE_SEPARATOR:
+			return "Zs";
+		case Character.LINE_SEPARATOR:
+			return "Zl";
+		case Character.PARAGRAPH_SEPARATOR:
+			return "Zp";
+		case Character.CONTROL:
+			return "Cc";
+		case Character.FORMAT:
+			return "Cf";
+		case Character.PRIVATE_USE:
+			return "Co";
+		case Character.SURROGATE:
+			return "Cs";
+		case Character.DASH_PUNCTUATION:
+			return "Pd";
+		case Character.START_PUNCTUATION:
+			return "Ps";
+		case Character.END_PUNCTUATION:
+			return "Pe";
+		case Character.CONNECTOR_PUNCTUATION:
+			return "Pc";
+		case Character.OTHER_PUNCTUATION:
+			return "Po";
+		case Character.MATH_SYMBOL:
+			return "Sm";
+		case Character.CURRENCY_SYMBOL:
+			return "Sc";
+		case Character.MODIFIER_SYMBOL:
+			return "Sk";
+		case Character.OTHER_SYMBOL:
+			return "So";
+		case Character.INITIAL_QUOTE_PUNCTUATION:
+			return "Pi";
+		case Character.FINAL_QUOTE_PUNCTUATION:
+			return "Pf";
+		default:
+			return "Cn";
+		}
+	}
+
+	/**
+	 * Parse a character class, following the opening '['.
+	 *
+	 * @return The class, or NULL if it cannot be represented.
+	 */
+	private CharClass parseClass() {
+		boolean negate = false;
+		if (peek() == '^') {
+			pos++;
+			negate = true;
+		}
+		boolean representable = true;
+		CharClass left = null;
+		CharClass current = CharClass.EMPTY;
+		boolean first = true;
+		while (true) {
+			if (isSet(Pattern.COMMENTS)) {
+				while (pos < pattern.length() && Character.isWhitespace(pattern.charAt(pos))) {
+					pos++;
+				}
+			}
+			int c = peek();
+			if (c == -1) {
+				throw error("Unclosed character class");
+			}
+			if (c == ']' && !first) {
+				pos++;
+				break;
+			}
+			first = false;
+			if (c == '[') {
+				pos++;
+				CharClass nested = parseClass();
+				if (nested == null) {
+					representable = false;
+				} else {
+					current = current.union(nested);
+				}
+				continue;
+			}
+			if (lookingAt("&&")) {
+				pos += 2;
+				left = left == null ? current : left.intersect(current);
+				current = CharClass.EMPTY;
+				continue;
+			}
+			Object item;
+			if (c == '\\') {
+				pos++;
+				if (lookingAt("Q")) {
+					pos++;
+					int end = pattern.indexOf("\\E", pos);
+					if (end < 0) {
+						end = pattern.length();
+					}
+					while (pos < end) {
+						int q = next();
+						foldItem(q, false);
+						current = current.union(CharClass.of(q));
+					}
+					pos = Math.min(pattern.length(), end + 2);
+					continue;
+				}
+				item = parseCharEscape();
+			} else {
+				item = next();
+			}
+			if (item instanceof Integer && peek() == '-' && pos + 1 < pattern.length()
+					&& pattern.charAt(pos + 1) != ']' && pattern.charAt(pos + 1) != '[') {
+				foldItem(item, true);
+				pos++;
+				int high;
+				if (peek() == '\\') {
+					pos++;
+					Object end = parseCharEscape();
+					if (!(end instanceof Integer)) {
+						throw error("Illegal character range");
+					}
+					high = (Integer) end;
+				} else {
+					high = next();
+				}
+				current = current.union(CharClass.range((Integer) item, high));
+			} else if (item instanceof Integer) {
+				foldItem(item, false);
+				current = current.union(CharClass.of((Integer) item));
+			} else if (item instanceof CharClass) {
+				foldItem(item, false);
+				current = current.union((CharClass) item);
+			} else {
+				representable = false;
+			}
+		}
+		if (!representable) {
+			return null;
+		}
+		CharClass result = left == null ? current : left.intersect(current);
+		return negate ? complement(result) : result;
+	}
+
+	/**
+	 * Get the complement of a class. When case insensitive the class is case folded first, as done by
+	 * {@link Pattern}, so that eg "(?i)[^a]" matches neither "a" nor "A".
+	 *
+	 * @param chars The class
+	 * @return The complement.
+	 */
+	private CharClass complement(CharClass chars) {
+		if (isSet(Pattern.CASE_INSENSITIVE)) {
+			chars = chars.foldCase(isSet(Pattern.UNICODE_CASE));
+		}
+		return chars.negate();
+	}
+}
@@ -16,6 +16,8 @@
  */
 package com.github.dkartaschew.galatea.regex;
 
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -23,13 +25,20 @@ import org.eclipse.jface.fieldassist.ControlDecoration;
 import org.eclipse.jface.fieldassist.FieldDecoration;
 import org.eclipse.jface.fieldassist.FieldDecorationRegistry;
 import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyleRange;
 import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.RGB;
 import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.TabFolder;
+import org.eclipse.swt.widgets.TabItem;
 import org.eclipse.swt.widgets.Text;
 
 /**
@@ -45,21 +54,190 @@ public class RegexTester extends Composite {
 	 * The text input control decoration.
 	 */
 	private ControlDecoration decoration;
+	/**
+	 * The find mode option.
+	 */
+	private Button btnFind;
+	/**
+	 * The tabs holding the test field and additional test modes.
+	 */
+	private TabFolder tabFolder;
+	/**
+	 * The matching statistics.
+	 */
+	private Label lblStatus;
 	/**
 	 * The user test field.
 	 */
 	private StyledText txtForm;
+	/**
+	 * The test against file panel.
+	 */
+	private FileMatchPanel filePanel;
+
+	/**
+	 * The test against directory panel.
+	 */
+	private DirectoryMatchPanel directoryPanel;
+	/**
+	 * The benchmark panel.
+	 */
+	private BenchmarkPanel benchmarkPanel;
+	/**
+	 * The multiple pattern panel.
+	 */
+	private MultiPatternPanel multiPatternPanel;
+	/**
+	 * The replace panel.
+	 */
+	private ReplacePanel replacePanel;
+
+	/**
+	 * The line index of the user test field.
+	 */
+	private ContentLineIndex lineIndex;
 
 	/**
 	 * The matching pattern to use to set the highlightre
 	 */
 	private Pattern regexPattern;
 
+	/**
+	 * The cache of compiled patterns.
+	 */
+	private final PatternCache patternCache = new PatternCache(PatternCache.DEFAULT_CAPACITY);
+
+	/**
+	 * The time taken to compile the current pattern (nsec), or 0 if it was found in the cache.
+	 */
+	private long compileTime;
+
 	/**
 	 * The color to use when highlighting the line.
 	 */
 	private Color highlightColour;
 
+	/**
+	 * The line matcher.
+	 */
+	private final ParallelLineMatcher lineMatcher = new ParallelLineMatcher(ForkJoinPool.commonPool());
+
+	/**
+	 * Flag to indicate if large inputs are matched in parallel.
+	 */
+	private boolean parallelMatching = true;
+
+	/**
+	 * Flag to indicate if all matches within a line are highlighted, rather than whole line matches.
+	 */
+	private boolean findMode;
+	/**
+	 * Flag to skip lines without the literals required by the pattern.
+	 */
+	private boolean literalPrefilter = true;
+	/**
+	 * The prefilter for the current pattern, or NULL if none.
+	 */
+	private LiteralPrefilter prefilter;
+	/**
+	 * Flag to match whole lines with the linear time automaton engine, where the pattern allows.
+	 */
+	private boolean linearTimeMatching;
+	/**
+	 * The current pattern compiled for the engine used to match whole lines, or NULL if none.
+	 */
+	private RegexEngine.Compiled compiled;
+	/**
+	 * The reason the automaton engine could not be used for the current pattern, or NULL if not applicable.
+	 */
+	private String engineFallback;
+
+	/**
+	 * Flag to analyse patterns for ReDoS risks.
+	 */
+	private boolean redosAnalysis = true;
+	/**
+	 * The ReDoS finding for the current pattern, or NULL if none.
+	 */
+	private RedosAnalyzer.Finding redosFinding;
+	/**
+	 * The generation of the ReDoS analysis, incremented to cancel a running measurement.
+	 */
+	private volatile int redosGeneration;
+	/**
+	 * Runnable to measure the ReDoS finding, once the pattern has stopped changing.
+	 */
+	private final Runnable redosProbe = this::measureRedos;
+
+	/**
+	 * The delay before measuring a ReDoS finding (msec).
+	 */
+	private final static int REDOS_DELAY = 500;
+	/**
+	 * The flags patterns are compiled with.
+	 */
+	private final static int PATTERN_FLAGS = 0;
+
+	/**
+	 * The index of matched lines.
+	 */
+	private MatchIndex matchIndex = MatchIndex.EMPTY;
+	/**
+	 * The minimap ruler of matched lines.
+	 */
+	private MatchRuler ruler;
+	/**
+	 * The selected match label.
+	 */
+	private Label lblMatch;
+	/**
+	 * First matched line button
+	 */
+	private Button btnFirst;
+	/**
+	 * Previous matched line button
+	 */
+	private Button btnPrevious;
+	/**
+	 * Next matched line button
+	 */
+	private Button btnNext;
+	/**
+	 * Last matched line button
+	 */
+	private Button btnLast;
+
+	/**
+	 * The match spans when in find mode.
+	 */
+	private MatchSpans spans;
+
+	/**
+	 * The first line that currently has the match spans applied.
+	 */
+	private int spansFirstLine;
+
+	/**
+	 * The last line (exclusive) that currently has the match spans applied.
+	 */
+	private int spansLastLine;
+
+	/**
+	 * Flag to indicate an update of the visible spans is pending.
+	 */
+	private boolean spansUpdatePending;
+
+	/**
+	 * The colours used to highlight capture groups.
+	 */
+	private final Color[] groupColours;
+
+	/**
+	 * The capture group colour palette.
+	 */
+	private final static RGB[] GROUP_PALETTE = { new RGB(255, 230, 128), new RGB(160, 230, 160),
+			new RGB(160, 200, 255), new RGB(255, 180, 180), new RGB(220, 180, 255), new RGB(160, 230, 230) };
+
 	/**
 	 * Create the regex tester composite.
 	 * 
@@ -81,40 +259,138 @@ public class RegexTester extends Composite {
 		txtInput.setMessage("Please enter regex");
 
 		decoration = new ControlDecoration(txtInput, SWT.TOP | SWT.LEFT);
-		FieldDecoration fieldDecoration = FieldDecorationRegistry.getDefault()
-				.getFieldDecoration(FieldDecorationRegistry.DEC_WARNING);
-		if (fieldDecoration != null) {
-			decoration.setImage(fieldDecoration.getImage());
-		}
+		setDecorationImage(FieldDecorationRegistry.DEC_WARNING);
+
+		btnFind = new Button(this, SWT.CHECK);
+		btnFind.setText("Highlight each match and capture group");
+		btnFind.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).create());
 
-		Label lblForm = new Label(this, SWT.NONE);
-		lblForm.setText("Test Input:");
-		lblForm.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).span(2, 1).create());
+		Composite cmpNavigate = new Composite(this, SWT.NONE);
+		cmpNavigate.setLayoutData(GridDataFactory.swtDefaults().align(SWT.END, SWT.CENTER).create());
+		cmpNavigate.setLayout(GridLayoutFactory.fillDefaults().numColumns(5).create());
+		lblMatch = new Label(cmpNavigate, SWT.NONE);
+		lblMatch.setLayoutData(GridDataFactory.swtDefaults().hint(160, SWT.DEFAULT).create());
+		btnFirst = createNavigationButton(cmpNavigate, "First", "First matched line", this::selectFirstMatch);
+		btnPrevious = createNavigationButton(cmpNavigate, "Previous", "Previous matched line (Shift+F3)",
+				this::selectPreviousMatch);
+		btnNext = createNavigationButton(cmpNavigate, "Next", "Next matched line (F3)", this::selectNextMatch);
+		btnLast = createNavigationButton(cmpNavigate, "Last", "Last matched line", this::selectLastMatch);
 
-		txtForm = new StyledText(this, SWT.BORDER | SWT.V_SCROLL | SWT.H_SCROLL);
-		txtForm.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).span(2, 1).create());
+		tabFolder = new TabFolder(this, SWT.TOP);
+		tabFolder.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).span(2, 1).create());
+
+		Composite cmpForm = new Composite(tabFolder, SWT.NONE);
+		cmpForm.setLayout(GridLayoutFactory.fillDefaults().numColumns(2).spacing(0, 0).create());
+		txtForm = new StyledText(cmpForm, SWT.BORDER | SWT.V_SCROLL | SWT.H_SCROLL);
 		txtForm.setAlwaysShowScrollBars(true);
+		txtForm.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).create());
+		lineIndex = new ContentLineIndex(txtForm.getContent());
+		ruler = new MatchRuler(cmpForm, SWT.NONE, txtForm, highlightColour);
+		ruler.setLayoutData(GridDataFactory.fillDefaults().grab(false, true).hint(MatchRuler.WIDTH, SWT.DEFAULT)
+				.create());
+		ruler.addListener(SWT.Selection, e -> selectNearestMatch(e.index));
+		TabItem tabForm = new TabItem(tabFolder, SWT.NONE);
+		tabForm.setText("Test Input");
+		tabForm.setControl(cmpForm);
+
+		filePanel = new FileMatchPanel(tabFolder, SWT.NONE);
+		TabItem tabFile = new TabItem(tabFolder, SWT.NONE);
+		tabFile.setText("Test Against File");
+		tabFile.setControl(filePanel);
+
+		directoryPanel = new DirectoryMatchPanel(tabFolder, SWT.NONE);
+		TabItem tabDirectory = new TabItem(tabFolder, SWT.NONE);
+		tabDirectory.setText("Test Against Directory");
+		tabDirectory.setControl(directoryPanel);
+
+		benchmarkPanel = new BenchmarkPanel(tabFolder, SWT.NONE, () -> txtForm.getText());
+		TabItem tabBenchmark = new TabItem(tabFolder, SWT.NONE);
+		tabBenchmark.setText("Benchmark");
+		tabBenchmark.setControl(benchmarkPanel);
+
+		multiPatternPanel = new MultiPatternPanel(tabFolder, SWT.NONE, () -> txtForm.getText(), patternCache);
+		TabItem tabPatterns = new TabItem(tabFolder, SWT.NONE);
+		tabPatterns.setText("Patterns");
+		tabPatterns.setControl(multiPatternPanel);
+
+		replacePanel = new ReplacePanel(tabFolder, SWT.NONE, lineIndex);
+		TabItem tabReplace = new TabItem(tabFolder, SWT.NONE);
+		tabReplace.setText("Replace");
+		tabReplace.setControl(replacePanel);
+
+		lblStatus = new Label(this, SWT.NONE);
+		lblStatus.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).span(2, 1).create());
+
+		groupColours = new Color[GROUP_PALETTE.length];
+		for (int i = 0; i < GROUP_PALETTE.length; i++) {
+			groupColours[i] = new Color(getDisplay(), GROUP_PALETTE[i]);
+		}
+		addListener(SWT.Dispose, e -> {
+			redosGeneration++;
+			lineIndex.dispose();
+			for (Color c : groupColours) {
+				c.dispose();
+			}
+		});
 
 		// Setup input listeners.
 		txtInput.addListener(SWT.Modify, e -> updateInput());
-		txtForm.addListener(SWT.Modify, e -> updateInput());
+		// Edits to the test text leave the pattern unchanged, so only rematch.
+		txtForm.addListener(SWT.Modify, e -> updateMatches());
+		btnFind.addListener(SWT.Selection, e -> {
+			findMode = btnFind.getSelection();
+			updateInput();
+		});
+		txtForm.addListener(SWT.KeyDown, e -> {
+			if (e.keyCode == SWT.F3) {
+				if ((e.stateMask & SWT.SHIFT) != 0) {
+					selectPreviousMatch();
+				} else {
+					selectNextMatch();
+				}
+				e.doit = false;
+			}
+		});
+		// Keep the styled region following the visible lines.
+		txtForm.addListener(SWT.Paint, e -> {
+			if (spans != null && !spansUpdatePending && !isVisibleRangeStyled()) {
+				spansUpdatePending = true;
+				getDisplay().asyncExec(() -> {
+					spansUpdatePending = false;
+					if (!isDisposed()) {
+						applyVisibleSpans();
+					}
+				});
+			}
+		});
 	}
 
 	/**
 	 * Update the field information
 	 */
 	private void updateInput() {
-		/*
-		 * Update the pattern.
-		 */
+		updatePattern();
+		updateMatches();
+	}
+
+	/**
+	 * Update the pattern, and everything derived from it.
+	 */
+	private void updatePattern() {
 		String pattern = txtInput.getText();
+		compileTime = 0;
+		setDecorationImage(FieldDecorationRegistry.DEC_WARNING);
 		if (pattern.isEmpty()) {
 			regexPattern = null;
 			decoration.show();
 			decoration.setDescriptionText("Please enter a regex pattern to test");
 		} else {
 			try {
-				regexPattern = Pattern.compile(pattern);
+				long misses = patternCache.getMisses();
+				regexPattern = patternCache.compile(pattern, PATTERN_FLAGS);
+				if (patternCache.getMisses() != misses) {
+					compileTime = patternCache.getLastCompileTime();
+				}
 				decoration.hide();
 			} catch (PatternSyntaxException e) {
 				regexPattern = null;
@@ -122,32 +398,345 @@ public class RegexTester extends Composite {
 				decoration.setDescriptionText(e.getMessage());
 			}
 		}
+		prefilter = regexPattern != null && literalPrefilter ? LiteralPrefilter.create(regexPattern, PATTERN_FLAGS) : null;
+		compileForEngine();
+		analyzeRedos();
+		filePanel.setPattern(regexPattern, PATTERN_FLAGS, findMode);
+		directoryPanel.setPattern(regexPattern, PATTERN_FLAGS, findMode);
+		benchmarkPanel.setPattern(regexPattern, PATTERN_FLAGS, findMode);
+		multiPatternPanel.setFindMode(findMode);
+		replacePanel.setPattern(regexPattern, findMode);
+	}
+
+	/**
+	 * Match the test text against the current pattern.
+	 */
+	private void updateMatches() {
 		/*
 		 * Update the styled text widget.
 		 */
+		if (spans != null || (regexPattern != null && findMode)) {
+			// Clear any previous match spans.
+			spans = null;
+			txtForm.setStyleRange(null);
+		}
 		if (regexPattern == null) {
 			// Clear the lines
 			txtForm.setLineBackground(0, txtForm.getLineCount(), null);
+			matchIndex = MatchIndex.EMPTY;
 		} else {
-			String[] lines = txtForm.getText().split("\\r?\\n");
-			if (lines.length == 0) {
+			if (findMode) {
 				txtForm.setLineBackground(0, txtForm.getLineCount(), null);
-			}
-			for (int i = 0; i < lines.length; i++) {
-				String l = lines[i];
-				if (!l.isEmpty() && regexPattern.matcher(l).matches()) {
-					txtForm.setLineBackground(i, 1, highlightColour);
-				} else {
-					txtForm.setLineBackground(i, 1, null);
-				}
+				spans = lineMatcher.find(regexPattern, prefilter, lineIndex::getText, lineIndex, parallelMatching);
+				applyVisibleSpans();
+				matchIndex = MatchIndex.of(spans, lineIndex);
+			} else {
+				BitSet matches = lineMatcher.match(compiled, prefilter, lineIndex::getText, lineIndex,
+						parallelMatching);
+				applyLineBackgrounds(matches, txtForm.getLineCount());
+				matchIndex = MatchIndex.of(matches, lineIndex);
 			}
 		}
+		ruler.setIndex(matchIndex);
+		replacePanel.setMatches(matchIndex);
+		updateNavigation(-1);
+		updateStatus();
 		/*
 		 * Request a redraw/update.
 		 */
 		redraw();
 	}
 
+	/**
+	 * Set the image of the pattern decoration.
+	 * 
+	 * @param id The id of the decoration in the field decoration registry.
+	 */
+	private void setDecorationImage(String id) {
+		FieldDecoration fieldDecoration = FieldDecorationRegistry.getDefault().getFieldDecoration(id);
+		if (fieldDecoration != null) {
+			decoration.setImage(fieldDecoration.getImage());
+		}
+	}
+
+	/**
+	 * Analyse the current pattern for ReDoS risks, showing any finding on the pattern decoration and scheduling the
+	 * measurement of its attack string.
+	 */
+	private void analyzeRedos() {
+		// Cancel any measurement of the previous pattern.
+		redosGeneration++;
+		getDisplay().timerExec(-1, redosProbe);
+		redosFinding = null;
+		if (regexPattern == null || !redosAnalysis) {
+			return;
+		}
+		redosFinding = RedosAnalyzer.analyze(regexPattern, PATTERN_FLAGS);
+		if (redosFinding != null) {
+			setDecorationImage(FieldDecorationRegistry.DEC_INFORMATION);
+			decoration.setDescriptionText(redosFinding + "\nMeasuring...");
+			decoration.show();
+			getDisplay().timerExec(REDOS_DELAY, redosProbe);
+		}
+	}
+
+	/**
+	 * Time the attack string of the current ReDoS finding on a background thread.
+	 */
+	private void measureRedos() {
+		if (isDisposed() || redosFinding == null) {
+			return;
+		}
+		final int generation = redosGeneration;
+		final Pattern pattern = regexPattern;
+		final RedosAnalyzer.Finding finding = redosFinding;
+		final boolean find = findMode;
+		final Display display = getDisplay();
+		Thread thread = new Thread(() -> {
+			RedosAnalyzer.Measurement measurement = RedosAnalyzer.measure(pattern, finding, find,
+					() -> generation != redosGeneration);
+			if (measurement != null && !display.isDisposed()) {
+				display.asyncExec(() -> {
+					if (!isDisposed() && generation == redosGeneration) {
+						setDecorationImage(measurement.isConfirmed() || measurement.isStackExhausted()
+								? FieldDecorationRegistry.DEC_WARNING
+								: FieldDecorationRegistry.DEC_INFORMATION);
+						decoration.setDescriptionText(measurement.toString());
+					}
+				});
+			}
+		}, "RegexTester ReDoS");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Create a button to navigate between matched lines.
+	 * 
+	 * @param parent The parent composite
+	 * @param text The button text
+	 * @param tooltip The button tooltip
+	 * @param action The navigation action.
+	 * @return The button.
+	 */
+	private static Button createNavigationButton(Composite parent, String text, String tooltip, Runnable action) {
+		Button button = new Button(parent, SWT.PUSH);
+		button.setText(text);
+		button.setToolTipText(tooltip);
+		button.setEnabled(false);
+		button.addListener(SWT.Selection, e -> action.run());
+		return button;
+	}
+
+	/**
+	 * Update the navigation controls.
+	 * 
+	 * @param selected The index of the selected match, or -1 if none.
+	 */
+	private void updateNavigation(int selected) {
+		int size = matchIndex.size();
+		if (size == 0) {
+			lblMatch.setText(regexPattern != null ? "No matched lines" : "");
+		} else if (selected < 0) {
+			lblMatch.setText(String.format("%,d matched lines", size));
+		} else {
+			lblMatch.setText(String.format("%,d of %,d matched lines", selected + 1, size));
+		}
+		btnFirst.setEnabled(size > 0);
+		btnPrevious.setEnabled(size > 0);
+		btnNext.setEnabled(size > 0);
+		btnLast.setEnabled(size > 0);
+	}
+
+	/**
+	 * Select a match, moving the caret to the first match in the line and scrolling the line into the middle of the
+	 * view.
+	 * 
+	 * @param i The index of the match, or -1 if none.
+	 * @return TRUE if a match was selected.
+	 */
+	private boolean selectMatch(int i) {
+		if (i < 0 || i >= matchIndex.size()) {
+			return false;
+		}
+		int line = matchIndex.getLine(i);
+		int page = txtForm.getClientArea().height / Math.max(1, txtForm.getLineHeight());
+		txtForm.setTopIndex(Math.max(0, line - page / 2));
+		txtForm.setSelection(matchIndex.getOffset(i));
+		updateNavigation(i);
+		return true;
+	}
+
+	/**
+	 * Select the match nearest to a line, or scroll to the line if there are no matches.
+	 * 
+	 * @param line The line.
+	 */
+	private void selectNearestMatch(int line) {
+		int i = matchIndex.ceiling(line);
+		if (i == matchIndex.size() || (i > 0 && line - matchIndex.getLine(i - 1) < matchIndex.getLine(i) - line)) {
+			i--;
+		}
+		if (!selectMatch(i)) {
+			int page = txtForm.getClientArea().height / Math.max(1, txtForm.getLineHeight());
+			txtForm.setTopIndex(Math.max(0, line - page / 2));
+		}
+	}
+
+	/**
+	 * Get the line holding the caret.
+	 * 
+	 * @return The line.
+	 */
+	private int getCaretLine() {
+		return txtForm.getLineAtOffset(txtForm.getCaretOffset());
+	}
+
+	/**
+	 * Compile the current pattern for the engine used to match whole lines, falling back to the backtracking engine
+	 * if the pattern needs features the automaton engine does not support.
+	 */
+	private void compileForEngine() {
+		compiled = null;
+		engineFallback = null;
+		if (regexPattern == null) {
+			return;
+		}
+		if (linearTimeMatching && !findMode) {
+			try {
+				compiled = RegexEngine.AUTOMATON.compile(regexPattern, PATTERN_FLAGS);
+				return;
+			} catch (IllegalArgumentException e) {
+				engineFallback = e.getMessage();
+			}
+		}
+		compiled = RegexEngine.JAVA.compile(regexPattern, PATTERN_FLAGS);
+	}
+
+	/**
+	 * Update the matching statistics, showing the selectivity of the prefilter.
+	 */
+	private void updateStatus() {
+		if (regexPattern == null) {
+			lblStatus.setText("");
+			return;
+		}
+		int lines = lineIndex.getLineCount();
+		long candidates = lineMatcher.getCandidateCount();
+		String details = "";
+		if (engineFallback != null) {
+			details = String.format("   Requires backtracking: %s", engineFallback);
+		} else if (linearTimeMatching && !findMode) {
+			details = "   Engine: " + RegexEngine.AUTOMATON.getName();
+		}
+		details += String.format("   Compile: %s   Pattern cache hit rate: %.0f%%",
+				compileTime > 0 ? String.format("%,d ns", compileTime) : "cached", patternCache.getHitRate() * 100);
+		if (prefilter == null) {
+			lblStatus.setText(String.format("No required literals, %,d of %,d lines matched by the regex engine%s",
+					candidates, lines, details));
+			return;
+		}
+		StringBuilder literals = new StringBuilder();
+		for (String literal : prefilter.getLiterals()) {
+			if (literals.length() > 0) {
+				literals.append(" | ");
+			}
+			literals.append('"').append(literal).append('"');
+		}
+		lblStatus.setText(String.format("Required literals%s: %s   Candidate lines: %,d of %,d (%.1f%%)%s",
+				prefilter.isCaseInsensitive() ? " (ignoring case)" : "", literals, candidates, lines,
+				lines > 0 ? candidates * 100d / lines : 0, details));
+	}
+
+	/**
+	 * Apply the line background to the matched lines, updating each contiguous run of lines in a single call.
+	 * 
+	 * @param matches The set of matched lines
+	 * @param lineCount The number of lines in the test field.
+	 */
+	private void applyLineBackgrounds(BitSet matches, int lineCount) {
+		int line = 0;
+		while (line < lineCount) {
+			boolean matched = matches.get(line);
+			int next = matched ? matches.nextClearBit(line) : matches.nextSetBit(line);
+			if (next < 0 || next > lineCount) {
+				next = lineCount;
+			}
+			txtForm.setLineBackground(line, next - line, matched ? highlightColour : null);
+			line = next;
+		}
+	}
+
+	/**
+	 * Get the range of lines to style, being the visible lines plus a page either side.
+	 * 
+	 * @return The first (inclusive) and last (exclusive) line to style.
+	 */
+	private int[] getStyledLineRange() {
+		int lineCount = txtForm.getLineCount();
+		int top = txtForm.getTopIndex();
+		int page = txtForm.getClientArea().height / Math.max(1, txtForm.getLineHeight()) + 1;
+		return new int[] { Math.max(0, top - page), Math.min(lineCount, top + page * 2) };
+	}
+
+	/**
+	 * Determine if the visible lines are within the range of lines that have match spans applied.
+	 * 
+	 * @return TRUE if the visible range has been styled.
+	 */
+	private boolean isVisibleRangeStyled() {
+		int top = txtForm.getTopIndex();
+		int page = txtForm.getClientArea().height / Math.max(1, txtForm.getLineHeight()) + 1;
+		return top >= spansFirstLine && Math.min(txtForm.getLineCount(), top + page) <= spansLastLine;
+	}
+
+	/**
+	 * Apply the match spans covering the visible region of the test field as a single set of style ranges. Only one
+	 * style range is created per group, which is shared by all spans of that group.
+	 */
+	private void applyVisibleSpans() {
+		if (spans == null) {
+			return;
+		}
+		int[] lines = getStyledLineRange();
+		int charCount = txtForm.getCharCount();
+		int start = txtForm.getOffsetAtLine(lines[0]);
+		int end = lines[1] < txtForm.getLineCount() ? txtForm.getOffsetAtLine(lines[1]) : charCount;
+
+		int first = spans.indexOf(start);
+		int last = first;
+		while (last < spans.getCount() && spans.getStart(last) < end) {
+			last++;
+		}
+		int[] ranges = new int[(last - first) * 2];
+		StyleRange[] styles = new StyleRange[last - first];
+		StyleRange[] groupStyles = new StyleRange[groupColours.length + 1];
+		for (int i = first; i < last; i++) {
+			int s = Math.max(start, spans.getStart(i));
+			int e = Math.min(end, spans.getStart(i) + spans.getLength(i));
+			int j = i - first;
+			ranges[j * 2] = s;
+			ranges[j * 2 + 1] = e - s;
+			int group = spans.getGroup(i);
+			int slot = group == 0 ? 0 : ((group - 1) % groupColours.length) + 1;
+			if (groupStyles[slot] == null) {
+				StyleRange style = new StyleRange();
+				if (slot == 0) {
+					style.background = highlightColour;
+					style.foreground = getDisplay().getSystemColor(SWT.COLOR_LIST_SELECTION_TEXT);
+				} else {
+					style.background = groupColours[slot - 1];
+					style.foreground = getDisplay().getSystemColor(SWT.COLOR_BLACK);
+				}
+				groupStyles[slot] = style;
+			}
+			styles[j] = groupStyles[slot];
+		}
+		txtForm.setStyleRanges(start, end - start, ranges, styles);
+		spansFirstLine = lines[0];
+		spansLastLine = lines[1];
+	}
+
 	@Override
 	protected void checkSubclass() {
 		// Disable the check that prevents subclassing of SWT components
@@ -191,6 +780,27 @@ public class RegexTester extends Composite {
 		txtForm.notifyListeners(SWT.Modify, event);
 	}
 
+	/**
+	 * Set the replacement template, previewed against the test input on the replace tab. The template follows the
+	 * syntax of <code>Matcher.appendReplacement</code>.
+	 * 
+	 * @param template The replacement template
+	 */
+	public void setReplacementTemplate(String template) {
+		checkWidget();
+		replacePanel.setTemplate(template);
+	}
+
+	/**
+	 * Get the replacement template.
+	 * 
+	 * @return The replacement template.
+	 */
+	public String getReplacementTemplate() {
+		checkWidget();
+		return replacePanel.getTemplate();
+	}
+
 	/**
 	 * Set the highlight colour for mactched lines
 	 * 
@@ -200,7 +810,193 @@ public class RegexTester extends Composite {
 		checkWidget();
 		if (color != null && !color.isDisposed()) {
 			this.highlightColour = color;
+			ruler.setMatchColour(color);
 		}
 	}
 
+	/**
+	 * Get the number of lines holding a match.
+	 * 
+	 * @return The number of matched lines.
+	 */
+	public int getMatchedLineCount() {
+		checkWidget();
+		return matchIndex.size();
+	}
+
+	/**
+	 * Move the caret to the first matched line.
+	 * 
+	 * @return TRUE if there is a matched line.
+	 */
+	public boolean selectFirstMatch() {
+		checkWidget();
+		return selectMatch(matchIndex.size() > 0 ? 0 : -1);
+	}
+
+	/**
+	 * Move the caret to the last matched line.
+	 * 
+	 * @return TRUE if there is a matched line.
+	 */
+	public boolean selectLastMatch() {
+		checkWidget();
+		return selectMatch(matchIndex.size() - 1);
+	}
+
+	/**
+	 * Move the caret to the next matched line after the caret, wrapping to the first.
+	 * 
+	 * @return TRUE if there is a matched line.
+	 */
+	public boolean selectNextMatch() {
+		checkWidget();
+		int i = matchIndex.next(getCaretLine());
+		return selectMatch(i >= 0 ? i : (matchIndex.size() > 0 ? 0 : -1));
+	}
+
+	/**
+	 * Move the caret to the previous matched line before the caret, wrapping to the last.
+	 * 
+	 * @return TRUE if there is a matched line.
+	 */
+	public boolean selectPreviousMatch() {
+		checkWidget();
+		int i = matchIndex.previous(getCaretLine());
+		return selectMatch(i >= 0 ? i : matchIndex.size() - 1);
+	}
+
+	/**
+	 * Set if large inputs are to be matched in parallel. When enabled, the test input is split into line aligned
+	 * chunks which are matched on the common fork/join pool.
+	 * 
+	 * @param parallel TRUE to match in parallel.
+	 */
+	public void setParallelMatching(boolean parallel) {
+		checkWidget();
+		this.parallelMatching = parallel;
+	}
+
+	/**
+	 * Set if every match within a line is highlighted, with each capture group in a distinct colour. Otherwise only
+	 * lines which match the pattern in full are highlighted.
+	 * 
+	 * @param find TRUE to highlight all matches within each line.
+	 */
+	public void setFindMode(boolean find) {
+		checkWidget();
+		this.findMode = find;
+		btnFind.setSelection(find);
+		updateInput();
+	}
+
+	/**
+	 * Get if every match within a line is highlighted.
+	 * 
+	 * @return TRUE if all matches within each line are highlighted.
+	 */
+	public boolean isFindMode() {
+		checkWidget();
+		return findMode;
+	}
+
+	/**
+	 * Set if lines are first scanned for the literals required by the pattern, so that the regex engine is only run
+	 * on lines which can match.
+	 * 
+	 * @param enabled TRUE to enable the literal prefilter.
+	 */
+	public void setLiteralPrefilter(boolean enabled) {
+		checkWidget();
+		this.literalPrefilter = enabled;
+		updateInput();
+	}
+
+	/**
+	 * Get if the literal prefilter is enabled.
+	 * 
+	 * @return TRUE if the literal prefilter is enabled.
+	 */
+	public boolean isLiteralPrefilter() {
+		checkWidget();
+		return literalPrefilter;
+	}
+
+	/**
+	 * Set if whole lines are matched with the linear time automaton engine rather than the backtracking
+	 * <code>java.util.regex</code> engine. Patterns requiring backtracking features (back references, lookaround,
+	 * atomic groups and possessive quantifiers) always use the backtracking engine, with the reason shown in the
+	 * status line. Find mode always uses the backtracking engine.
+	 * 
+	 * @param enabled TRUE to use the automaton engine where possible.
+	 */
+	public void setLinearTimeMatching(boolean enabled) {
+		checkWidget();
+		this.linearTimeMatching = enabled;
+		updateInput();
+	}
+
+	/**
+	 * Get if whole lines are matched with the linear time automaton engine where possible.
+	 * 
+	 * @return TRUE if the automaton engine is used where possible.
+	 */
+	public boolean isLinearTimeMatching() {
+		checkWidget();
+		return linearTimeMatching;
+	}
+
+	/**
+	 * Set if patterns are analysed for the nested or overlapping quantifiers and ambiguous alternations which cause
+	 * catastrophic backtracking (ReDoS). Any finding is shown on the pattern decoration, and is confirmed by timing a
+	 * generated attack string on inputs of growing length.
+	 * 
+	 * @param enabled TRUE to analyse patterns.
+	 */
+	public void setRedosAnalysis(boolean enabled) {
+		checkWidget();
+		this.redosAnalysis = enabled;
+		updateInput();
+	}
+
+	/**
+	 * Get if patterns are analysed for ReDoS risks.
+	 * 
+	 * @return TRUE if patterns are analysed.
+	 */
+	public boolean isRedosAnalysis() {
+		checkWidget();
+		return redosAnalysis;
+	}
+
+	/**
+	 * Get the time taken to compile the current pattern.
+	 * 
+	 * @return The compile time (nsec), or 0 if there is no valid pattern or the compiled pattern was cached.
+	 */
+	public long getCompileTime() {
+		checkWidget();
+		return compileTime;
+	}
+
+	/**
+	 * Get the fraction of pattern compilations served from the cache of compiled patterns.
+	 * 
+	 * @return The hit rate (0-1).
+	 */
+	public double getPatternCacheHitRate() {
+		checkWidget();
+		return patternCache.getHitRate();
+	}
+
+	/**
+	 * Get if large inputs are matched in parallel.
+	 * 
+	 * @return TRUE if large inputs are matched in parallel.
+	 */
+	public boolean isParallelMatching() {
+		checkWidget();
+		return parallelMatching;
+	}
+
 }
@@ -0,0 +1,463 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.regex.Pattern;
+
+import org.eclipse.jface.fieldassist.ControlDecoration;
+import org.eclipse.jface.fieldassist.FieldDecoration;
+import org.eclipse.jface.fieldassist.FieldDecorationRegistry;
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.FileDialog;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.ProgressBar;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.swt.widgets.Text;
+
+/**
+ * Panel to preview and export the result of a replacement template applied to each line.
+ * <p>
+ * The preview is a virtual table over the lines of the test input, with each line only replaced when its row is
+ * displayed. The export streams the test input, or a file, through a {@link StreamReplacer} to an output file on a
+ * background thread.
+ * </p>
+ */
+class ReplacePanel extends Composite {
+
+	/**
+	 * The interval between progress updates (msec)
+	 */
+	private final static int UPDATE_INTERVAL = 200;
+	/**
+	 * The maximum number of characters of a line displayed.
+	 */
+	private final static int MAX_LINE = 500;
+
+	/**
+	 * The line index of the test input.
+	 */
+	private final ContentLineIndex index;
+	/**
+	 * The replacement template.
+	 */
+	private final Text txtTemplate;
+	/**
+	 * The replacement template decoration.
+	 */
+	private final ControlDecoration decoration;
+	/**
+	 * The option to only preview matched lines.
+	 */
+	private final Button btnMatched;
+	/**
+	 * The file to export, or empty for the test input.
+	 */
+	private final Text txtSource;
+	/**
+	 * Export/Cancel button
+	 */
+	private final Button btnExport;
+	/**
+	 * The progress of the current export.
+	 */
+	private final ProgressBar progress;
+	/**
+	 * The status/statistics of the current export.
+	 */
+	private final Label lblStatus;
+	/**
+	 * The statistics of the preview.
+	 */
+	private final Label lblPreview;
+	/**
+	 * The preview of the replaced lines.
+	 */
+	private final Table table;
+
+	/**
+	 * The pattern to replace.
+	 */
+	private Pattern pattern;
+	/**
+	 * TRUE to replace every match within a line.
+	 */
+	private boolean find;
+	/**
+	 * The matched lines of the test input.
+	 */
+	private MatchIndex matches = MatchIndex.EMPTY;
+	/**
+	 * The replacer for the preview, or NULL if there is no valid pattern and template.
+	 */
+	private LineReplacer replacer;
+	/**
+	 * The current (or last) export.
+	 */
+	private StreamReplacer exporter;
+
+	/**
+	 * The number of lines previewed since the last refresh.
+	 */
+	private long previewLines;
+	/**
+	 * The number of characters previewed since the last refresh.
+	 */
+	private long previewChars;
+	/**
+	 * The number of replacements previewed since the last refresh.
+	 */
+	private long previewReplacements;
+	/**
+	 * The time spent replacing previewed lines since the last refresh (nsec).
+	 */
+	private long previewTime;
+	/**
+	 * Flag to indicate an update of the preview statistics is pending.
+	 */
+	private boolean previewUpdatePending;
+
+	/**
+	 * Create the panel.
+	 *
+	 * @param parent The parent composite
+	 * @param style The default style
+	 * @param index The line index of the test input.
+	 */
+	ReplacePanel(Composite parent, int style, ContentLineIndex index) {
+		super(parent, style);
+		this.index = index;
+		setLayout(GridLayoutFactory.swtDefaults().numColumns(4).create());
+
+		Label lblTemplate = new Label(this, SWT.NONE);
+		lblTemplate.setText("Replacement:");
+		lblTemplate.setLayoutData(GridDataFactory.swtDefaults().align(SWT.FILL, SWT.CENTER).create());
+
+		txtTemplate = new Text(this, SWT.BORDER);
+		txtTemplate.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).indent(8, 0).span(2, 1).create());
+		txtTemplate.setMessage("Replacement template, eg $1 or ${name}");
+		decoration = new ControlDecoration(txtTemplate, SWT.TOP | SWT.LEFT);
+		FieldDecoration fieldDecoration = FieldDecorationRegistry.getDefault()
+				.getFieldDecoration(FieldDecorationRegistry.DEC_ERROR);
+		if (fieldDecoration != null) {
+			decoration.setImage(fieldDecoration.getImage());
+		}
+		decoration.hide();
+
+		btnMatched = new Button(this, SWT.CHECK);
+		btnMatched.setText("Only matched lines");
+		btnMatched.setSelection(true);
+
+		Label lblSource = new Label(this, SWT.NONE);
+		lblSource.setText("Export:");
+		lblSource.setLayoutData(GridDataFactory.swtDefaults().align(SWT.FILL, SWT.CENTER).create());
+
+		txtSource = new Text(this, SWT.BORDER);
+		txtSource.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).indent(8, 0).create());
+		txtSource.setMessage("File to transform, or empty to transform the test input");
+
+		Button btnBrowse = new Button(this, SWT.PUSH);
+		btnBrowse.setText("Browse...");
+		btnBrowse.addListener(SWT.Selection, e -> {
+			FileDialog dialog = new FileDialog(getShell(), SWT.OPEN);
+			dialog.setText("File to transform");
+			String file = dialog.open();
+			if (file != null) {
+				txtSource.setText(file);
+			}
+		});
+
+		btnExport = new Button(this, SWT.PUSH);
+		btnExport.setText("Export...");
+		btnExport.setEnabled(false);
+		btnExport.addListener(SWT.Selection, e -> {
+			if (isExporting()) {
+				exporter.cancel();
+			} else {
+				export();
+			}
+		});
+
+		progress = new ProgressBar(this, SWT.HORIZONTAL);
+		progress.setMaximum(1000);
+		progress.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).span(4, 1).create());
+
+		lblStatus = new Label(this, SWT.NONE);
+		lblStatus.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).span(4, 1).create());
+
+		lblPreview = new Label(this, SWT.NONE);
+		lblPreview.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).span(4, 1).create());
+
+		table = new Table(this, SWT.BORDER | SWT.VIRTUAL | SWT.FULL_SELECTION | SWT.V_SCROLL | SWT.H_SCROLL);
+		table.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).span(4, 1).create());
+		table.setHeaderVisible(true);
+		TableColumn colLine = new TableColumn(table, SWT.RIGHT);
+		colLine.setText("Line");
+		colLine.setWidth(80);
+		TableColumn colText = new TableColumn(table, SWT.LEFT);
+		colText.setText("Text");
+		colText.setWidth(400);
+		TableColumn colReplaced = new TableColumn(table, SWT.LEFT);
+		colReplaced.setText("Replaced");
+		colReplaced.setWidth(400);
+		table.addListener(SWT.SetData, e -> {
+			TableItem item = (TableItem) e.item;
+			int row = table.indexOf(item);
+			int line = btnMatched.getSelection() ? matches.getLine(row) : row;
+			item.setText(0, Integer.toString(line + 1));
+			if (line >= index.getLineCount()) {
+				return;
+			}
+			String text = index.getLine(line);
+			item.setText(1, truncate(text));
+			item.setText(2, truncate(previewLine(text)));
+		});
+
+		txtTemplate.addListener(SWT.Modify, e -> updateReplacer());
+		btnMatched.addListener(SWT.Selection, e -> refresh());
+		addListener(SWT.Dispose, e -> {
+			if (exporter != null) {
+				exporter.cancel();
+			}
+		});
+	}
+
+	/**
+	 * Set the pattern to replace.
+	 *
+	 * @param pattern The pattern, or NULL if there is no valid pattern.
+	 * @param find TRUE to replace every match within a line, otherwise whole lines must match.
+	 */
+	void setPattern(Pattern pattern, boolean find) {
+		this.pattern = pattern;
+		this.find = find;
+		updateReplacer();
+	}
+
+	/**
+	 * Set the matched lines of the test input, refreshing the preview.
+	 *
+	 * @param matches The index of matched lines.
+	 */
+	void setMatches(MatchIndex matches) {
+		this.matches = matches;
+		refresh();
+	}
+
+	/**
+	 * Set the replacement template.
+	 *
+	 * @param template The template.
+	 */
+	void setTemplate(String template) {
+		txtTemplate.setText(template != null ? template : "");
+	}
+
+	/**
+	 * Get the replacement template.
+	 *
+	 * @return The template.
+	 */
+	String getTemplate() {
+		return txtTemplate.getText();
+	}
+
+	/**
+	 * Create the replacer for the current pattern and template, refreshing the preview.
+	 */
+	private void updateReplacer() {
+		replacer = null;
+		decoration.hide();
+		if (pattern != null) {
+			try {
+				replacer = new LineReplacer(pattern, txtTemplate.getText(), find);
+			} catch (IllegalArgumentException e) {
+				decoration.setDescriptionText(e.getMessage());
+				decoration.show();
+			}
+		}
+		if (!isExporting()) {
+			btnExport.setEnabled(replacer != null);
+		}
+		refresh();
+	}
+
+	/**
+	 * Clear the preview, so only the displayed rows are replaced again.
+	 */
+	private void refresh() {
+		previewLines = 0;
+		previewChars = 0;
+		previewReplacements = 0;
+		previewTime = 0;
+		table.setItemCount(btnMatched.getSelection() ? matches.size() : index.getLineCount());
+		table.clearAll();
+		updatePreviewStatus();
+	}
+
+	/**
+	 * Replace a displayed line, recording the preview statistics.
+	 *
+	 * @param text The line
+	 * @return The replaced line, or the line if it did not match.
+	 */
+	private String previewLine(String text) {
+		if (replacer == null) {
+			return text;
+		}
+		long start = System.nanoTime();
+		String result;
+		try {
+			result = replacer.replace(text) ? replacer.getResult().toString() : text;
+		} catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+			result = e.getMessage() != null ? e.getMessage() : e.toString();
+		}
+		previewTime += System.nanoTime() - start;
+		previewLines++;
+		previewChars += text.length();
+		previewReplacements += replacer.getCount();
+		if (!previewUpdatePending) {
+			previewUpdatePending = true;
+			getDisplay().asyncExec(() -> {
+				previewUpdatePending = false;
+				if (!isDisposed()) {
+					updatePreviewStatus();
+				}
+			});
+		}
+		return result;
+	}
+
+	/**
+	 * Update the preview statistics.
+	 */
+	private void updatePreviewStatus() {
+		if (replacer == null || previewLines == 0) {
+			lblPreview.setText("");
+			return;
+		}
+		lblPreview.setText(String.format("Previewed lines: %,d   Replacements: %,d   Throughput: %.1f M chars/s",
+				previewLines, previewReplacements, previewTime > 0 ? previewChars / (previewTime / 1e9d) / 1e6d : 0));
+	}
+
+	/**
+	 * Truncate a line for display.
+	 *
+	 * @param text The line
+	 * @return The line, truncated if long.
+	 */
+	private static String truncate(String text) {
+		return text.length() > MAX_LINE ? text.substring(0, MAX_LINE) : text;
+	}
+
+	/**
+	 * Get if an export is in progress.
+	 *
+	 * @return TRUE if exporting.
+	 */
+	private boolean isExporting() {
+		return exporter != null && !exporter.isDone();
+	}
+
+	/**
+	 * Start a new export of the selected file, or the test input, to a file chosen by the user.
+	 */
+	private void export() {
+		String source = txtSource.getText().trim();
+		Path path = source.isEmpty() ? null : Paths.get(source);
+		if (replacer == null) {
+			lblStatus.setText("Please enter a valid pattern and replacement");
+			return;
+		}
+		if (path != null && !Files.isRegularFile(path)) {
+			lblStatus.setText("Please select a file to transform");
+			return;
+		}
+		FileDialog dialog = new FileDialog(getShell(), SWT.SAVE);
+		dialog.setText("Export replaced output");
+		dialog.setOverwrite(true);
+		String file = dialog.open();
+		if (file == null) {
+			return;
+		}
+		Path target = Paths.get(file);
+		Reader reader;
+		long length;
+		try {
+			if (path != null && Files.exists(target) && Files.isSameFile(path, target)) {
+				lblStatus.setText("The output file must differ from the file to transform");
+				return;
+			}
+			if (path == null) {
+				reader = new ContentReader(getDisplay(), index);
+				length = index.getCharCount();
+			} else {
+				reader = StreamReplacer.open(path, StandardCharsets.UTF_8);
+				// The size of compressed input says little of its length.
+				length = path.getFileName().toString().endsWith(".gz") ? -1 : Files.size(path);
+			}
+		} catch (IOException e) {
+			lblStatus.setText(e.getMessage() != null ? e.getMessage() : e.toString());
+			return;
+		}
+		exporter = new StreamReplacer(reader, length, target, StandardCharsets.UTF_8, pattern, txtTemplate.getText(),
+				find);
+		Thread thread = new Thread(exporter, "RegexTester Replace Exporter");
+		thread.setDaemon(true);
+		thread.start();
+		btnExport.setText("Cancel");
+		getDisplay().timerExec(UPDATE_INTERVAL, this::updateProgress);
+	}
+
+	/**
+	 * Update the progress of the current export.
+	 */
+	private void updateProgress() {
+		if (isDisposed() || exporter == null) {
+			return;
+		}
+		StreamReplacer r = exporter;
+		boolean done = r.isDone();
+		double fraction = r.getProgress();
+		progress.setSelection(fraction >= 0 ? (int) (fraction * 1000) : 0);
+		String status = String.format("Lines: %,d   Replaced lines: %,d   Replacements: %,d   Throughput: %.1f M chars/s",
+				r.getLines(), r.getReplacedLines(), r.getReplacements(), r.getThroughput());
+		if (r.getError() != null) {
+			status = r.getError().getMessage() != null ? r.getError().getMessage() : r.getError().toString();
+		} else if (done) {
+			status += r.isCancelled() ? "   (cancelled)" : "   Written to " + r.getTarget();
+		}
+		lblStatus.setText(status);
+		if (done) {
+			btnExport.setText("Export...");
+			btnExport.setEnabled(replacer != null);
+		} else {
+			getDisplay().timerExec(UPDATE_INTERVAL, this::updateProgress);
+		}
+	}
+}
@@ -0,0 +1,342 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Applies a replacement template to every line of a stream, writing the replaced output to a file.
+ * <p>
+ * The input is read in blocks into a single buffer, and each line is matched through a reused
+ * <code>CharBuffer</code> view of the buffer. Lines without a match are written straight from the buffer, so only
+ * replaced lines are copied. Neither the input nor the output is held in memory; the buffer only grows if a single
+ * line does not fit. Line delimiters are written unchanged.
+ * </p>
+ * <p>
+ * The replacer is intended to be run on a background thread; progress may be read from any thread while it runs.
+ * If the run fails or is cancelled, the partial output file is removed.
+ * </p>
+ */
+class StreamReplacer implements Runnable {
+
+	/**
+	 * The initial size of the read buffer.
+	 */
+	private final static int BUFFER = 64 * 1024;
+
+	/**
+	 * The input.
+	 */
+	private final Reader source;
+	/**
+	 * The expected length of the input in characters, or -1 if not known.
+	 */
+	private final long length;
+	/**
+	 * The output file.
+	 */
+	private final Path target;
+	/**
+	 * The charset of the output file.
+	 */
+	private final Charset charset;
+	/**
+	 * The replacer.
+	 */
+	private final LineReplacer replacer;
+
+	/**
+	 * Flag to stop processing.
+	 */
+	private volatile boolean cancelled;
+	/**
+	 * Flag to indicate processing has finished.
+	 */
+	private volatile boolean done;
+	/**
+	 * The error encountered.
+	 */
+	private volatile IOException error;
+	/**
+	 * The number of characters read.
+	 */
+	private volatile long chars;
+	/**
+	 * The number of lines processed.
+	 */
+	private volatile long lines;
+	/**
+	 * The number of lines replaced.
+	 */
+	private volatile long replacedLines;
+	/**
+	 * The number of replacements made.
+	 */
+	private volatile long replacements;
+	/**
+	 * The time processing started.
+	 */
+	private volatile long startTime;
+	/**
+	 * The time processing ended.
+	 */
+	private volatile long endTime;
+
+	/**
+	 * Create a new stream replacer.
+	 *
+	 * @param source The input, which is closed once processed
+	 * @param length The expected length of the input in characters, or -1 if not known
+	 * @param target The output file
+	 * @param charset The charset of the output file
+	 * @param pattern The pattern to match
+	 * @param template The replacement template
+	 * @param find TRUE to replace every match within a line, otherwise whole lines must match.
+	 * @throws IllegalArgumentException If the template is invalid for the pattern.
+	 */
+	StreamReplacer(Reader source, long length, Path target, Charset charset, Pattern pattern, String template,
+			boolean find) {
+		this.source = source;
+		this.length = length;
+		this.target = target;
+		this.charset = charset;
+		this.replacer = new LineReplacer(pattern, template, find);
+	}
+
+	/**
+	 * Open a file as input, decompressing it if gzipped. Malformed input is replaced rather than failing the run.
+	 *
+	 * @param path The file
+	 * @param charset The charset of the file.
+	 * @return The reader of the file content.
+	 * @throws IOException If the file could not be opened.
+	 */
+	static Reader open(Path path, Charset charset) throws IOException {
+		InputStream in = Files.newInputStream(path);
+		if (path.getFileName().toString().endsWith(".gz")) {
+			try {
+				in = new GZIPInputStream(in, BUFFER);
+			} catch (IOException e) {
+				in.close();
+				throw e;
+			}
+		}
+		return new InputStreamReader(in, charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE));
+	}
+
+	@Override
+	public void run() {
+		startTime = System.nanoTime();
+		try (Reader in = source; Writer out = Files.newBufferedWriter(target, charset)) {
+			replace(in, out);
+		} catch (IOException e) {
+			error = e;
+		} finally {
+			if (cancelled || error != null) {
+				try {
+					Files.deleteIfExists(target);
+				} catch (IOException e) {
+					// Leave the partial output.
+				}
+			}
+			endTime = System.nanoTime();
+			done = true;
+		}
+	}
+
+	/**
+	 * Replace every line of the input.
+	 *
+	 * @param in The input
+	 * @param out The output.
+	 * @throws IOException If the input could not be read or the output written.
+	 */
+	private void replace(Reader in, Writer out) throws IOException {
+		char[] buffer = new char[BUFFER];
+		CharBuffer view = CharBuffer.wrap(buffer);
+		char[] scratch = new char[BUFFER];
+		int used = 0;
+		boolean eof = false;
+		while (!eof && !cancelled) {
+			if (used == buffer.length) {
+				// A single line fills the buffer.
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+				view = CharBuffer.wrap(buffer);
+			}
+			int n = in.read(buffer, used, buffer.length - used);
+			if (n < 0) {
+				eof = true;
+			} else {
+				used += n;
+				chars += n;
+			}
+
+			// Replace the complete lines, keeping any partial line for the next read.
+			int start = 0;
+			while (true) {
+				int end = start;
+				while (end < used && buffer[end] != '\n' && buffer[end] != '\r') {
+					end++;
+				}
+				int next;
+				if (end == used) {
+					if (!eof || start == used) {
+						// Wait for the rest of the line, or the input ended with a line terminator.
+						break;
+					}
+					// The final line, without a line terminator.
+					next = used;
+				} else if (buffer[end] == '\r') {
+					if (end + 1 == used && !eof) {
+						// May be the first half of a CRLF.
+						break;
+					}
+					next = end + 1 < used && buffer[end + 1] == '\n' ? end + 2 : end + 1;
+				} else {
+					next = end + 1;
+				}
+				view.limit(end).position(start);
+				if (replacer.replace(view)) {
+					StringBuffer result = replacer.getResult();
+					if (result.length() > scratch.length) {
+						scratch = new char[Math.max(result.length(), scratch.length * 2)];
+					}
+					result.getChars(0, result.length(), scratch, 0);
+					out.write(scratch, 0, result.length());
+					out.write(buffer, end, next - end);
+					replacedLines++;
+					replacements += replacer.getCount();
+				} else {
+					out.write(buffer, start, next - start);
+				}
+				lines++;
+				start = next;
+				if (end == used) {
+					break;
+				}
+			}
+			System.arraycopy(buffer, start, buffer, 0, used - start);
+			used -= start;
+		}
+	}
+
+	/**
+	 * Stop processing.
+	 */
+	void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Get if processing has finished.
+	 *
+	 * @return TRUE if processing has finished.
+	 */
+	boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * Get if processing was cancelled.
+	 *
+	 * @return TRUE if cancelled.
+	 */
+	boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Get the error encountered while processing.
+	 *
+	 * @return The error or NULL if none.
+	 */
+	IOException getError() {
+		return error;
+	}
+
+	/**
+	 * Get the output file.
+	 *
+	 * @return The output file.
+	 */
+	Path getTarget() {
+		return target;
+	}
+
+	/**
+	 * Get the fraction of the input processed.
+	 *
+	 * @return The fraction (0-1), or -1 if the length of the input is not known.
+	 */
+	double getProgress() {
+		if (done) {
+			return 1;
+		}
+		return length > 0 ? Math.min(1, chars / (double) length) : -1;
+	}
+
+	/**
+	 * Get the number of lines processed.
+	 *
+	 * @return The number of lines.
+	 */
+	long getLines() {
+		return lines;
+	}
+
+	/**
+	 * Get the number of lines replaced.
+	 *
+	 * @return The number of replaced lines.
+	 */
+	long getReplacedLines() {
+		return replacedLines;
+	}
+
+	/**
+	 * Get the number of replacements made.
+	 *
+	 * @return The number of replacements.
+	 */
+	long getReplacements() {
+		return replacements;
+	}
+
+	/**
+	 * Get the throughput of the run so far.
+	 *
+	 * @return The throughput in millions of characters of input per second.
+	 */
+	double getThroughput() {
+		long end = done ? endTime : System.nanoTime();
+		long elapsed = end - startTime;
+		return elapsed > 0 ? chars / (elapsed / 1e9d) / 1e6d : 0;
+	}
+}
@@ -0,0 +1,402 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.resourcegraph;
+
+import java.util.Arrays;
+
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.DeviceData;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.widgets.Composite;
+
+import com.github.dkartaschew.galatea.graph.Graph;
+
+/**
+ * Stacked graph of the SWT resources allocated by the display and not yet disposed, by type, in the spirit of Sleak.
+ * <p>
+ * Resources are only tracked if the display was created with {@link DeviceData#tracking} set, otherwise the graph
+ * shows "n/a". Each sample reads the tracked resources from the display on the UI thread, then counts them in time
+ * slices, posting the remainder of the count back to the event loop whenever a slice runs over its budget, so the UI
+ * stays responsive with many thousands of resources. {@link #takeSnapshot()} captures the resources of the last sample
+ * with their allocation stacks, and two snapshots may be diffed to find the resources allocated between them and not
+ * disposed.
+ * </p>
+ * <p>
+ * Reading the resources copies every tracked resource and its allocation in a single call, which cannot be sliced.
+ * When that copy runs over the slice budget, the following samples are skipped in proportion, repeating the last
+ * sample on the graph, so a display with very many resources is sampled less often rather than blocking the UI
+ * thread every sample.
+ * </p>
+ */
+public class ResourceGraph extends Composite implements Runnable {
+
+	/**
+	 * The default time budget of a slice of a sample (msec).
+	 */
+	public final static int DEFAULT_SLICE_BUDGET = 5;
+	/**
+	 * The types graphed, stacked from the bottom up, with all other types stacked on top.
+	 */
+	private final static ResourceType[] GRAPHED = { ResourceType.COLOR, ResourceType.FONT, ResourceType.IMAGE,
+			ResourceType.GC };
+	/**
+	 * The smallest number of resources shown at the top of the graph.
+	 */
+	private final static double MIN_SCALE = 100;
+	/**
+	 * The number of resources counted between checks of the time budget.
+	 */
+	private final static int CHECK_INTERVAL = 256;
+	/**
+	 * Nanoseconds per millisecond.
+	 */
+	private final static long NSEC_PER_MSEC = 1_000_000L;
+	/**
+	 * The maximum number of samples skipped after a slow read of the resources.
+	 */
+	private final static int MAX_SKIPPED = 30;
+
+	/**
+	 * The graph implementation
+	 */
+	private final Graph scope;
+	/**
+	 * Delay for each sample
+	 */
+	private final int delay;
+	/**
+	 * Runnable to count the next slice of the sample.
+	 */
+	private final Runnable slice = this::slice;
+	/**
+	 * The number of resources of each type of the sample being counted, indexed by type ordinal.
+	 */
+	private final int[] pendingCounts = new int[ResourceType.values().length];
+	/**
+	 * The number of resources of each type of the last sample, indexed by type ordinal.
+	 */
+	private final int[] counts = new int[ResourceType.values().length];
+	/**
+	 * The number of resources of each graphed type of the last sample, reused between samples.
+	 */
+	private final double[] values = new double[GRAPHED.length + 1];
+	/**
+	 * The resources of the sample being counted.
+	 */
+	private Object[] pending;
+	/**
+	 * The allocation of each resource of the sample being counted.
+	 */
+	private Error[] pendingErrors;
+	/**
+	 * The index of the next resource to count.
+	 */
+	private int index;
+	/**
+	 * The number of slices of the sample being counted.
+	 */
+	private int pendingSlices;
+	/**
+	 * The time the sample being counted was read (msec since the epoch).
+	 */
+	private long pendingTime;
+	/**
+	 * The resources of the last sample, or NULL if none.
+	 */
+	private Object[] objects;
+	/**
+	 * The allocation of each resource of the last sample.
+	 */
+	private Error[] errors;
+	/**
+	 * The time of the last sample (msec since the epoch).
+	 */
+	private long time;
+	/**
+	 * The number of slices of the last sample.
+	 */
+	private int slices;
+	/**
+	 * Flag to indicate the display tracks resources.
+	 */
+	private boolean tracking;
+	/**
+	 * The time budget of a slice of a sample (msec).
+	 */
+	private int sliceBudget = DEFAULT_SLICE_BUDGET;
+	/**
+	 * The time taken to read the resources of the last sample from the display (nsec).
+	 */
+	private long readTime;
+	/**
+	 * The number of samples still to be skipped, as the last read of the resources ran over the slice budget.
+	 */
+	private int skipped;
+
+	/**
+	 * Create the composite.
+	 *
+	 * @param parent The parent composite.
+	 * @param style  The default style
+	 * @param delay  The sample delay (msec)
+	 */
+	public ResourceGraph(Composite parent, int style, int delay) {
+		super(parent, style);
+		this.delay = delay > 0 ? delay : 1000;
+		setLayout(GridLayoutFactory.fillDefaults().numColumns(2).spacing(0, 0).create());
+
+		scope = new Graph(this, SWT.BORDER);
+		scope.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).hint(SWT.DEFAULT, 24).create());
+		scope.setForeground(getDisplay().getSystemColor(SWT.COLOR_DARK_GRAY));
+		scope.setFontColor(getDisplay().getSystemColor(SWT.COLOR_WHITE));
+		scope.setSeriesColors(getDisplay().getSystemColor(SWT.COLOR_DARK_RED),
+				getDisplay().getSystemColor(SWT.COLOR_DARK_BLUE), getDisplay().getSystemColor(SWT.COLOR_DARK_GREEN),
+				getDisplay().getSystemColor(SWT.COLOR_DARK_YELLOW), getDisplay().getSystemColor(SWT.COLOR_DARK_GRAY));
+		scope.setMaximum(MIN_SCALE);
+		scope.setAutoScale(true);
+	}
+
+	@Override
+	protected void checkSubclass() {
+		// Disable the check that prevents subclassing of SWT components
+	}
+
+	/**
+	 * Get the sample delay
+	 *
+	 * @return The sample delay in msec.
+	 */
+	public int getDelay() {
+		return delay;
+	}
+
+	@Override
+	public void run() {
+		if (isDisposed() || pending != null) {
+			return;
+		}
+		if (skipped > 0) {
+			skipped--;
+			scope.addValues(values);
+			scope.redraw();
+			getDisplay().timerExec(getDelay(), this);
+			return;
+		}
+		long start = System.nanoTime();
+		DeviceData data = getDisplay().getDeviceData();
+		readTime = System.nanoTime() - start;
+		tracking = data.tracking;
+		if (!tracking) {
+			scope.addValue(0);
+			scope.setText("n/a");
+			scope.setToolTipText("Resource tracking is not enabled for the display");
+			scope.redraw();
+			getDisplay().timerExec(getDelay(), this);
+			return;
+		}
+		// The read cannot be sliced, so back off in proportion to how far it ran over the budget.
+		skipped = (int) Math.min(MAX_SKIPPED, readTime / (sliceBudget * NSEC_PER_MSEC));
+		pending = data.objects != null ? data.objects : new Object[0];
+		pendingErrors = data.errors != null ? data.errors : new Error[0];
+		pendingTime = System.currentTimeMillis();
+		pendingSlices = 0;
+		index = 0;
+		Arrays.fill(pendingCounts, 0);
+		slice();
+	}
+
+	/**
+	 * Count the resources of the sample until done or out of time, posting the remainder back to the event loop.
+	 */
+	private void slice() {
+		if (isDisposed()) {
+			pending = null;
+			pendingErrors = null;
+			return;
+		}
+		pendingSlices++;
+		long end = System.nanoTime() + sliceBudget * NSEC_PER_MSEC;
+		Object[] p = pending;
+		while (index < p.length) {
+			pendingCounts[ResourceType.of(p[index++]).ordinal()]++;
+			if (index % CHECK_INTERVAL == 0 && System.nanoTime() > end) {
+				break;
+			}
+		}
+		if (index < p.length) {
+			getDisplay().asyncExec(slice);
+			return;
+		}
+		complete();
+	}
+
+	/**
+	 * Publish the counted sample, and schedule the next sample.
+	 */
+	private void complete() {
+		objects = pending;
+		errors = pendingErrors;
+		time = pendingTime;
+		slices = pendingSlices;
+		pending = null;
+		pendingErrors = null;
+		System.arraycopy(pendingCounts, 0, counts, 0, counts.length);
+
+		int other = objects.length;
+		for (int i = 0; i < GRAPHED.length; i++) {
+			values[i] = getCount(GRAPHED[i]);
+			other -= getCount(GRAPHED[i]);
+		}
+		values[GRAPHED.length] = other;
+		scope.addValues(values);
+		scope.setText(String.format("C%d F%d I%d G%d", getCount(ResourceType.COLOR), getCount(ResourceType.FONT),
+				getCount(ResourceType.IMAGE), getCount(ResourceType.GC)));
+		scope.setToolTipText(getSummary());
+		scope.redraw();
+		getDisplay().timerExec(getDelay(), this);
+	}
+
+	/**
+	 * Get a summary of the last sample.
+	 *
+	 * @return The summary.
+	 */
+	private String getSummary() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%d resources (read in %d ms, %d slices)", getTotal(), readTime / NSEC_PER_MSEC,
+				slices));
+		if (skipped > 0) {
+			sb.append(String.format("%nThe next %d samples are skipped", skipped));
+		}
+		for (ResourceType type : ResourceType.values()) {
+			if (getCount(type) > 0) {
+				sb.append(String.format("%n%s: %d", type, getCount(type)));
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Get if the display tracks resources, as set by {@link DeviceData#tracking} when the display was created.
+	 *
+	 * @return TRUE if resources are tracked.
+	 */
+	public boolean isTracking() {
+		return tracking;
+	}
+
+	/**
+	 * Get the number of resources of a type in the last sample.
+	 *
+	 * @param type The type
+	 * @return The number of resources.
+	 */
+	public int getCount(ResourceType type) {
+		return counts[type.ordinal()];
+	}
+
+	/**
+	 * Get the number of resources of all types in the last sample.
+	 *
+	 * @return The number of resources.
+	 */
+	public int getTotal() {
+		return objects != null ? objects.length : 0;
+	}
+
+	/**
+	 * Get the number of slices the last sample was counted in.
+	 *
+	 * @return The number of slices.
+	 */
+	public int getSliceCount() {
+		return slices;
+	}
+
+	/**
+	 * Capture the resources of the last sample, with their allocation stacks.
+	 *
+	 * @return The snapshot, or NULL if no sample has been taken with tracking enabled.
+	 */
+	public ResourceSnapshot takeSnapshot() {
+		if (objects == null) {
+			return null;
+		}
+		return new ResourceSnapshot(time, objects, errors, counts.clone());
+	}
+
+	/**
+	 * Set the time budget of a slice of a sample, must be a positive value.
+	 *
+	 * @param budget The time budget (msec).
+	 */
+	public void setSliceBudget(int budget) {
+		if (budget <= 0) {
+			throw new IllegalArgumentException("Budget value is invalid");
+		}
+		this.sliceBudget = budget;
+	}
+
+	/**
+	 * Get the time budget of a slice of a sample.
+	 *
+	 * @return The time budget (msec).
+	 */
+	public int getSliceBudget() {
+		return sliceBudget;
+	}
+
+	/**
+	 * Set the number of points to catch/display
+	 *
+	 * @param points The number of points to display.
+	 */
+	public void setPoints(int points) {
+		scope.setPoints(points);
+	}
+
+	@Override
+	public void setFont(Font font) {
+		super.setFont(font);
+		scope.setFont(font);
+	}
+
+	/**
+	 * Set the font color
+	 *
+	 * @param color The font color
+	 */
+	public void setFontColor(Color color) {
+		scope.setFontColor(color);
+	}
+
+	@Override
+	public void setForeground(Color color) {
+		super.setForeground(color);
+		scope.setForeground(color);
+	}
+
+	@Override
+	public void setBackground(Color color) {
+		super.setBackground(color);
+		scope.setBackground(color);
+	}
+
+}
@@ -0,0 +1,86 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.resourcegraph;
+
+/**
+ * The resources of a type allocated from the same stack, that are in one snapshot but not an earlier one.
+ */
+public class ResourceLeak {
+
+	/**
+	 * The type of the resources.
+	 */
+	private final ResourceType type;
+	/**
+	 * The stack the resources were allocated from.
+	 */
+	private final StackTraceElement[] stackTrace;
+	/**
+	 * The number of resources.
+	 */
+	private final int count;
+
+	/**
+	 * Create a new leak.
+	 *
+	 * @param type The type of the resources
+	 * @param stackTrace The stack the resources were allocated from
+	 * @param count The number of resources.
+	 */
+	ResourceLeak(ResourceType type, StackTraceElement[] stackTrace, int count) {
+		this.type = type;
+		this.stackTrace = stackTrace;
+		this.count = count;
+	}
+
+	/**
+	 * Get the type of the resources.
+	 *
+	 * @return The type.
+	 */
+	public ResourceType getType() {
+		return type;
+	}
+
+	/**
+	 * Get the stack the resources were allocated from.
+	 *
+	 * @return The stack, innermost frame first, or an empty stack if not recorded.
+	 */
+	public StackTraceElement[] getStackTrace() {
+		return stackTrace.clone();
+	}
+
+	/**
+	 * Get the number of resources allocated from the stack.
+	 *
+	 * @return The number of resources.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%d x %s", count, type));
+		for (StackTraceElement element : stackTrace) {
+			sb.append(System.lineSeparator()).append("\tat ").append(element);
+		}
+		return sb.toString();
+	}
+}
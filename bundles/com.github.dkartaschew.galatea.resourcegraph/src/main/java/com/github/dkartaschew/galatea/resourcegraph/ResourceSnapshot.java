@@ -0,0 +1,150 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.resourcegraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The resources tracked by a device at a point in time, with the stacks they were allocated from.
+ * <p>
+ * A snapshot holds the resources it lists, including any since disposed, until it is discarded.
+ * </p>
+ */
+public class ResourceSnapshot {
+
+	/**
+	 * The empty stack, for resources without an allocation stack.
+	 */
+	private final static StackTraceElement[] NO_STACK = new StackTraceElement[0];
+
+	/**
+	 * The time of the snapshot (msec since the epoch).
+	 */
+	private final long time;
+	/**
+	 * The resources.
+	 */
+	private final Object[] objects;
+	/**
+	 * The allocation of each resource, by index of the resource.
+	 */
+	private final Error[] errors;
+	/**
+	 * The number of resources of each type, indexed by type ordinal.
+	 */
+	private final int[] counts;
+
+	/**
+	 * Create a new snapshot.
+	 *
+	 * @param time The time of the snapshot (msec since the epoch)
+	 * @param objects The resources
+	 * @param errors The allocation of each resource
+	 * @param counts The number of resources of each type.
+	 */
+	ResourceSnapshot(long time, Object[] objects, Error[] errors, int[] counts) {
+		this.time = time;
+		this.objects = objects;
+		this.errors = errors;
+		this.counts = counts;
+	}
+
+	/**
+	 * Get the time of the snapshot.
+	 *
+	 * @return The time (msec since the epoch).
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * Get the number of resources of a type.
+	 *
+	 * @param type The type
+	 * @return The number of resources.
+	 */
+	public int getCount(ResourceType type) {
+		return counts[type.ordinal()];
+	}
+
+	/**
+	 * Get the number of resources of all types.
+	 *
+	 * @return The number of resources.
+	 */
+	public int getTotal() {
+		return objects.length;
+	}
+
+	/**
+	 * Find the resources in this snapshot but not an earlier one, grouped by type and allocation stack, most resources
+	 * first. The diff compares the resources themselves, not just their counts, so resources disposed and reallocated
+	 * between the snapshots are reported. It does not touch the device, so may be run on any thread.
+	 *
+	 * @param earlier The earlier snapshot
+	 * @return The resources allocated since the earlier snapshot and not yet disposed.
+	 */
+	public List<ResourceLeak> diff(ResourceSnapshot earlier) {
+		if (earlier == null) {
+			throw new IllegalArgumentException("Snapshot value is invalid");
+		}
+		Map<Object, Boolean> before = new IdentityHashMap<>(earlier.objects.length * 2);
+		for (Object o : earlier.objects) {
+			before.put(o, Boolean.TRUE);
+		}
+		Map<ResourceType, Map<List<StackTraceElement>, int[]>> groups = new EnumMap<>(ResourceType.class);
+		for (int i = 0; i < objects.length; i++) {
+			if (before.containsKey(objects[i])) {
+				continue;
+			}
+			StackTraceElement[] stack = i < errors.length && errors[i] != null ? errors[i].getStackTrace() : NO_STACK;
+			groups.computeIfAbsent(ResourceType.of(objects[i]), k -> new HashMap<>())
+					.computeIfAbsent(Arrays.asList(stack), k -> new int[1])[0]++;
+		}
+		if (groups.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<ResourceLeak> leaks = new ArrayList<>();
+		for (Map.Entry<ResourceType, Map<List<StackTraceElement>, int[]>> type : groups.entrySet()) {
+			for (Map.Entry<List<StackTraceElement>, int[]> stack : type.getValue().entrySet()) {
+				leaks.add(new ResourceLeak(type.getKey(), stack.getKey().toArray(NO_STACK), stack.getValue()[0]));
+			}
+		}
+		leaks.sort((a, b) -> Integer.compare(b.getCount(), a.getCount()));
+		return leaks;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%d resources at %tT.%<tL", objects.length, time));
+		for (ResourceType type : ResourceType.values()) {
+			if (counts[type.ordinal()] > 0) {
+				sb.append(String.format(", %d %s", counts[type.ordinal()], type));
+			}
+		}
+		return sb.toString();
+	}
+}
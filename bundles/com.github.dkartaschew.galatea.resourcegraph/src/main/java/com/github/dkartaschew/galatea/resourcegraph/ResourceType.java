@@ -0,0 +1,109 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.resourcegraph;
+
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Cursor;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Path;
+import org.eclipse.swt.graphics.Pattern;
+import org.eclipse.swt.graphics.Region;
+import org.eclipse.swt.graphics.TextLayout;
+import org.eclipse.swt.graphics.Transform;
+
+/**
+ * The type of an SWT resource tracked by a device.
+ */
+public enum ResourceType {
+
+	/**
+	 * A {@link Color}.
+	 */
+	COLOR,
+	/**
+	 * A {@link Font}.
+	 */
+	FONT,
+	/**
+	 * An {@link Image}.
+	 */
+	IMAGE,
+	/**
+	 * A {@link org.eclipse.swt.graphics.GC}.
+	 */
+	GC,
+	/**
+	 * A {@link Cursor}.
+	 */
+	CURSOR,
+	/**
+	 * A {@link Region}.
+	 */
+	REGION,
+	/**
+	 * A {@link Path}.
+	 */
+	PATH,
+	/**
+	 * A {@link Pattern}.
+	 */
+	PATTERN,
+	/**
+	 * A {@link TextLayout}.
+	 */
+	TEXT_LAYOUT,
+	/**
+	 * A {@link Transform}.
+	 */
+	TRANSFORM,
+	/**
+	 * Any other resource.
+	 */
+	OTHER;
+
+	/**
+	 * Get the type of a resource.
+	 *
+	 * @param resource The resource
+	 * @return The type.
+	 */
+	static ResourceType of(Object resource) {
+		if (resource instanceof Color) {
+			return COLOR;
+		} else if (resource instanceof Font) {
+			return FONT;
+		} else if (resource instanceof Image) {
+			return IMAGE;
+		} else if (resource instanceof org.eclipse.swt.graphics.GC) {
+			return GC;
+		} else if (resource instanceof Cursor) {
+			return CURSOR;
+		} else if (resource instanceof Region) {
+			return REGION;
+		} else if (resource instanceof Path) {
+			return PATH;
+		} else if (resource instanceof Pattern) {
+			return PATTERN;
+		} else if (resource instanceof TextLayout) {
+			return TEXT_LAYOUT;
+		} else if (resource instanceof Transform) {
+			return TRANSFORM;
+		}
+		return OTHER;
+	}
+}
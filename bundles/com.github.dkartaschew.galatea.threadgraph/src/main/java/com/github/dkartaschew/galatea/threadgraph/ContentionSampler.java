@@ -0,0 +1,275 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.threadgraph;
+
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Samples the blocked and waited times of all threads, attributing the time since the last sample to the lock each
+ * thread is blocked or waiting on, or was last seen blocked or waiting on.
+ * <p>
+ * The sampler is not thread safe, and is expected to be called from a single sampling thread.
+ * </p>
+ */
+class ContentionSampler {
+
+	/**
+	 * The number of samples a lock is kept without contention.
+	 */
+	private final static int IDLE_SAMPLES = 60;
+
+	/**
+	 * The thread bean.
+	 */
+	private final ThreadMXBean bean;
+	/**
+	 * The times and counts of each thread at the last sample, by thread ID.
+	 */
+	private final Map<Long, ThreadSample> threads = new HashMap<>();
+	/**
+	 * The contention of each lock, by lock identity.
+	 */
+	private final Map<String, Monitor> monitors = new HashMap<>();
+	/**
+	 * The generation of the sample, to find threads and locks not seen.
+	 */
+	private long generation;
+	/**
+	 * The time of the last sample (nsec), or 0 if none.
+	 */
+	private long last;
+	/**
+	 * The time all threads were blocked per second of the last sample (msec/sec).
+	 */
+	private double blockedRate;
+	/**
+	 * The time all threads waited per second of the last sample (msec/sec).
+	 */
+	private double waitedRate;
+
+	/**
+	 * Create a new sampler.
+	 *
+	 * @param bean The thread bean.
+	 */
+	ContentionSampler(ThreadMXBean bean) {
+		this.bean = bean;
+	}
+
+	/**
+	 * Sample all threads, attributing their blocked and waited times since the last sample to locks.
+	 *
+	 * @param top The number of locks to return
+	 * @return The most contended locks of the sample, most blocked first.
+	 */
+	List<LockContention> sample(int top) {
+		ThreadInfo[] infos = bean.getThreadInfo(bean.getAllThreadIds(), 0);
+		long now = System.nanoTime();
+		double seconds = last != 0 ? (now - last) / 1e9d : 0;
+		last = now;
+		generation++;
+
+		for (Monitor monitor : monitors.values()) {
+			monitor.blocked = 0;
+			monitor.waited = 0;
+		}
+		long blocked = 0;
+		long waited = 0;
+		for (ThreadInfo info : infos) {
+			if (info == null) {
+				continue;
+			}
+			ThreadSample thread = threads.get(info.getThreadId());
+			if (thread == null) {
+				thread = new ThreadSample(info);
+				threads.put(info.getThreadId(), thread);
+			}
+			thread.generation = generation;
+			// Times are -1 while contention monitoring is disabled.
+			long blockedDelta = info.getBlockedTime() >= 0 && thread.blockedTime >= 0
+					? info.getBlockedTime() - thread.blockedTime
+					: 0;
+			long waitedDelta = info.getWaitedTime() >= 0 && thread.waitedTime >= 0
+					? info.getWaitedTime() - thread.waitedTime
+					: 0;
+			long blockedCountDelta = info.getBlockedCount() - thread.blockedCount;
+			String lock = info.getLockName() != null ? info.getLockName() : thread.lock;
+			if (lock != null && (blockedDelta > 0 || waitedDelta > 0 || blockedCountDelta > 0)) {
+				Monitor monitor = monitors.get(lock);
+				if (monitor == null) {
+					monitor = new Monitor(lock);
+					monitors.put(lock, monitor);
+				}
+				monitor.blocked += blockedDelta;
+				monitor.blockedTime += blockedDelta;
+				monitor.blockedCount += blockedCountDelta;
+				monitor.waited += waitedDelta;
+				monitor.waitedTime += waitedDelta;
+				monitor.generation = generation;
+			}
+			if (info.getLockName() != null && info.getLockOwnerName() != null) {
+				Monitor monitor = monitors.get(info.getLockName());
+				if (monitor != null) {
+					monitor.owner = info.getLockOwnerName();
+				}
+			}
+			blocked += blockedDelta;
+			waited += waitedDelta;
+			thread.update(info);
+		}
+		final long current = generation;
+		threads.values().removeIf(t -> t.generation != current);
+		monitors.values().removeIf(m -> current - m.generation > IDLE_SAMPLES);
+
+		blockedRate = seconds > 0 ? blocked / seconds : 0;
+		waitedRate = seconds > 0 ? waited / seconds : 0;
+		if (top <= 0 || monitors.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<Monitor> sorted = new ArrayList<>(monitors.values());
+		sorted.sort((a, b) -> a.blocked != b.blocked ? Long.compare(b.blocked, a.blocked)
+				: Long.compare(b.blockedTime, a.blockedTime));
+		List<LockContention> result = new ArrayList<>(Math.min(top, sorted.size()));
+		for (Monitor m : sorted.subList(0, Math.min(top, sorted.size()))) {
+			result.add(new LockContention(m.lock, seconds > 0 ? m.blocked / seconds : 0, m.blockedTime,
+					m.blockedCount, seconds > 0 ? m.waited / seconds : 0, m.waitedTime, m.owner));
+		}
+		return result;
+	}
+
+	/**
+	 * Get the time all threads were blocked per second of the last sample.
+	 *
+	 * @return The time blocked (msec/sec).
+	 */
+	double getBlockedRate() {
+		return blockedRate;
+	}
+
+	/**
+	 * Get the time all threads waited per second of the last sample.
+	 *
+	 * @return The time waited (msec/sec).
+	 */
+	double getWaitedRate() {
+		return waitedRate;
+	}
+
+	/**
+	 * The times and counts of a thread at the last sample.
+	 */
+	private static class ThreadSample {
+
+		/**
+		 * The total time blocked (msec), or -1 if not monitored.
+		 */
+		private long blockedTime;
+		/**
+		 * The total number of times blocked.
+		 */
+		private long blockedCount;
+		/**
+		 * The total time waited (msec), or -1 if not monitored.
+		 */
+		private long waitedTime;
+		/**
+		 * The lock last seen blocked or waiting on, or NULL if none.
+		 */
+		private String lock;
+		/**
+		 * The generation of the sample last seen in.
+		 */
+		private long generation;
+
+		/**
+		 * Create a new thread sample.
+		 *
+		 * @param info The information of the thread.
+		 */
+		ThreadSample(ThreadInfo info) {
+			update(info);
+		}
+
+		/**
+		 * Update the sample.
+		 *
+		 * @param info The information of the thread.
+		 */
+		void update(ThreadInfo info) {
+			blockedTime = info.getBlockedTime();
+			blockedCount = info.getBlockedCount();
+			waitedTime = info.getWaitedTime();
+			if (info.getLockName() != null) {
+				lock = info.getLockName();
+			}
+		}
+	}
+
+	/**
+	 * The contention attributed to a lock.
+	 */
+	private static class Monitor {
+
+		/**
+		 * The identity of the lock.
+		 */
+		private final String lock;
+		/**
+		 * The time blocked in the last sample (msec).
+		 */
+		private long blocked;
+		/**
+		 * The total time blocked (msec).
+		 */
+		private long blockedTime;
+		/**
+		 * The total number of times blocked.
+		 */
+		private long blockedCount;
+		/**
+		 * The time waited in the last sample (msec).
+		 */
+		private long waited;
+		/**
+		 * The total time waited (msec).
+		 */
+		private long waitedTime;
+		/**
+		 * The name of the thread last seen owning the lock, or NULL if none.
+		 */
+		private String owner;
+		/**
+		 * The generation of the sample last contended in.
+		 */
+		private long generation;
+
+		/**
+		 * Create a new monitor.
+		 *
+		 * @param lock The identity of the lock.
+		 */
+		Monitor(String lock) {
+			this.lock = lock;
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.threadgraph;
+
+/**
+ * The contention of a lock, as attributed from the blocked and waited times of the threads blocked or waiting on it.
+ */
+public class LockContention {
+
+	/**
+	 * The identity of the lock.
+	 */
+	private final String lock;
+	/**
+	 * The time threads were blocked on the lock per second of the last sample (msec/sec).
+	 */
+	private final double blockedRate;
+	/**
+	 * The total time threads were blocked on the lock (msec).
+	 */
+	private final long blockedTime;
+	/**
+	 * The total number of times threads were blocked on the lock.
+	 */
+	private final long blockedCount;
+	/**
+	 * The time threads waited on the lock per second of the last sample (msec/sec).
+	 */
+	private final double waitedRate;
+	/**
+	 * The total time threads waited on the lock (msec).
+	 */
+	private final long waitedTime;
+	/**
+	 * The name of the thread last seen owning the lock, or NULL if none.
+	 */
+	private final String owner;
+
+	/**
+	 * Create a new lock contention.
+	 *
+	 * @param lock The identity of the lock
+	 * @param blockedRate The time blocked per second of the last sample (msec/sec)
+	 * @param blockedTime The total time blocked (msec)
+	 * @param blockedCount The total number of times blocked
+	 * @param waitedRate The time waited per second of the last sample (msec/sec)
+	 * @param waitedTime The total time waited (msec)
+	 * @param owner The name of the thread last seen owning the lock, or NULL.
+	 */
+	LockContention(String lock, double blockedRate, long blockedTime, long blockedCount, double waitedRate,
+			long waitedTime, String owner) {
+		this.lock = lock;
+		this.blockedRate = blockedRate;
+		this.blockedTime = blockedTime;
+		this.blockedCount = blockedCount;
+		this.waitedRate = waitedRate;
+		this.waitedTime = waitedTime;
+		this.owner = owner;
+	}
+
+	/**
+	 * Get the identity of the lock, being the class name and identity hash code of the lock object.
+	 *
+	 * @return The identity of the lock.
+	 */
+	public String getLock() {
+		return lock;
+	}
+
+	/**
+	 * Get the time threads were blocked on the lock per second of the last sample.
+	 *
+	 * @return The time blocked (msec/sec).
+	 */
+	public double getBlockedRate() {
+		return blockedRate;
+	}
+
+	/**
+	 * Get the total time threads were blocked on the lock while monitored.
+	 *
+	 * @return The time blocked (msec).
+	 */
+	public long getBlockedTime() {
+		return blockedTime;
+	}
+
+	/**
+	 * Get the total number of times threads were blocked on the lock while monitored.
+	 *
+	 * @return The number of times blocked.
+	 */
+	public long getBlockedCount() {
+		return blockedCount;
+	}
+
+	/**
+	 * Get the time threads waited on the lock per second of the last sample.
+	 *
+	 * @return The time waited (msec/sec).
+	 */
+	public double getWaitedRate() {
+		return waitedRate;
+	}
+
+	/**
+	 * Get the total time threads waited on the lock while monitored.
+	 *
+	 * @return The time waited (msec).
+	 */
+	public long getWaitedTime() {
+		return waitedTime;
+	}
+
+	/**
+	 * Get the name of the thread last seen owning the lock.
+	 *
+	 * @return The name of the thread, or NULL if none seen.
+	 */
+	public String getOwner() {
+		return owner;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: blocked %.1fms/s (%dms, %d times), waited %.1fms/s (%dms), owner %s", lock,
+				blockedRate, blockedTime, blockedCount, waitedRate, waitedTime, owner);
+	}
+}
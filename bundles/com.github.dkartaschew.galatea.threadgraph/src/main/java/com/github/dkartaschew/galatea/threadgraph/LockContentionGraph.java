@@ -0,0 +1,355 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.threadgraph;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+
+import com.github.dkartaschew.galatea.graph.Graph;
+
+/**
+ * Graph of the total time threads of the JVM are blocked on monitors, with a table of the most contended monitors.
+ * <p>
+ * Thread contention monitoring is enabled while the widget exists, if supported and not already enabled, and restored
+ * on dispose. Each sample reads the blocked and waited times of all threads without their stacks, on a background
+ * thread, and attributes the time since the last sample to the monitor each thread is blocked or waiting on, or was
+ * last seen on if it has since acquired it.
+ * </p>
+ */
+public class LockContentionGraph extends Composite implements Runnable {
+
+	/**
+	 * The default number of monitors listed.
+	 */
+	public final static int DEFAULT_TOP_COUNT = 10;
+	/**
+	 * The table column titles.
+	 */
+	private final static String[] COLUMNS = { "Lock", "Blocked ms/s", "Blocked ms", "Blocked", "Waited ms/s",
+			"Owner" };
+
+	/**
+	 * Lock for the shared contention monitoring state.
+	 */
+	private final static Object MONITORING_LOCK = new Object();
+	/**
+	 * The number of widgets using contention monitoring.
+	 */
+	private static int monitoringUsers;
+	/**
+	 * Flag to indicate contention monitoring was enabled by the widgets, and must be disabled when the last is
+	 * disposed.
+	 */
+	private static boolean monitoringEnabled;
+
+	/**
+	 * The graph implementation
+	 */
+	private final Graph scope;
+	/**
+	 * The table of the most contended monitors.
+	 */
+	private final Table table;
+	/**
+	 * Delay for each sample
+	 */
+	private final int delay;
+	/**
+	 * The thread bean.
+	 */
+	private final ThreadMXBean bean;
+	/**
+	 * The sampler of the thread times.
+	 */
+	private final ContentionSampler sampler;
+	/**
+	 * Flag to indicate this widget is counted as a user of contention monitoring.
+	 */
+	private boolean enabled;
+	/**
+	 * The number of monitors listed.
+	 */
+	private volatile int topCount = DEFAULT_TOP_COUNT;
+	/**
+	 * The most contended monitors of the last sample.
+	 */
+	private volatile List<LockContention> top = Collections.emptyList();
+	/**
+	 * The time all threads were blocked per second of the last sample (msec/sec).
+	 */
+	private volatile double blockedRate;
+	/**
+	 * The sampling thread, or NULL if not started.
+	 */
+	private Thread thread;
+	/**
+	 * Flag to stop the sampling thread.
+	 */
+	private volatile boolean stopped;
+
+	/**
+	 * Create the composite.
+	 *
+	 * @param parent The parent composite.
+	 * @param style  The default style
+	 * @param delay  The sample delay (msec)
+	 */
+	public LockContentionGraph(Composite parent, int style, int delay) {
+		super(parent, style);
+		this.delay = delay > 0 ? delay : 500;
+		this.bean = ManagementFactory.getThreadMXBean();
+		this.sampler = new ContentionSampler(bean);
+		setLayout(GridLayoutFactory.fillDefaults().spacing(0, 0).create());
+
+		scope = new Graph(this, SWT.BORDER);
+		scope.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).hint(SWT.DEFAULT, 24).create());
+		scope.setForeground(getDisplay().getSystemColor(SWT.COLOR_RED));
+		scope.setFontColor(getDisplay().getSystemColor(SWT.COLOR_WHITE));
+		scope.setAutoScale(true);
+
+		table = new Table(this, SWT.BORDER | SWT.FULL_SELECTION | SWT.SINGLE);
+		table.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).create());
+		table.setHeaderVisible(true);
+		for (String title : COLUMNS) {
+			TableColumn column = new TableColumn(table, title.equals(COLUMNS[0]) ? SWT.LEFT : SWT.RIGHT);
+			column.setText(title);
+			column.pack();
+		}
+
+		if (isContentionMonitoringSupported()) {
+			enableMonitoring();
+		}
+
+		addDisposeListener(e -> {
+			stopped = true;
+			if (thread != null) {
+				thread.interrupt();
+			}
+			if (enabled) {
+				restoreMonitoring();
+			}
+		});
+	}
+
+	/**
+	 * Enable contention monitoring, if not already enabled, and count this widget as a user of it.
+	 */
+	private void enableMonitoring() {
+		synchronized (MONITORING_LOCK) {
+			try {
+				if (monitoringUsers == 0 && !bean.isThreadContentionMonitoringEnabled()) {
+					bean.setThreadContentionMonitoringEnabled(true);
+					monitoringEnabled = true;
+				}
+				monitoringUsers++;
+				enabled = true;
+			} catch (SecurityException e) {
+				// Only counts are available without the permission.
+			}
+		}
+	}
+
+	/**
+	 * Stop counting this widget as a user of contention monitoring, and restore the previous state once no widget
+	 * uses it. Monitoring which was enabled before any widget is left enabled.
+	 */
+	private void restoreMonitoring() {
+		synchronized (MONITORING_LOCK) {
+			enabled = false;
+			if (--monitoringUsers == 0 && monitoringEnabled) {
+				monitoringEnabled = false;
+				try {
+					bean.setThreadContentionMonitoringEnabled(false);
+				} catch (SecurityException e) {
+					// Nothing to restore.
+				}
+			}
+		}
+	}
+
+	@Override
+	protected void checkSubclass() {
+		// Disable the check that prevents subclassing of SWT components
+	}
+
+	/**
+	 * Get the sample delay
+	 *
+	 * @return The sample delay in msec.
+	 */
+	public int getDelay() {
+		return delay;
+	}
+
+	@Override
+	public void run() {
+		if (isDisposed() || thread != null) {
+			return;
+		}
+		final Display display = getDisplay();
+		thread = new Thread(() -> sample(display), "LockContentionGraph Sampler");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Sample the contention of all threads until stopped, updating the widget after each sample.
+	 *
+	 * @param display The display of the widget.
+	 */
+	private void sample(Display display) {
+		while (!stopped) {
+			top = Collections.unmodifiableList(sampler.sample(topCount));
+			blockedRate = sampler.getBlockedRate();
+			if (display.isDisposed()) {
+				return;
+			}
+			display.asyncExec(this::refresh);
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Update the graph and table from the last sample.
+	 */
+	private void refresh() {
+		if (isDisposed()) {
+			return;
+		}
+		List<LockContention> locks = top;
+		double rate = blockedRate;
+		scope.addValue(rate);
+		scope.setText(String.format("%.0fms/s blocked", rate));
+		scope.setToolTipText(!locks.isEmpty() ? locks.get(0).toString() : "No contention");
+		scope.redraw();
+
+		table.setRedraw(false);
+		table.setItemCount(locks.size());
+		for (int i = 0; i < locks.size(); i++) {
+			LockContention lock = locks.get(i);
+			TableItem item = table.getItem(i);
+			item.setText(new String[] { lock.getLock(), String.format("%.1f", lock.getBlockedRate()),
+					Long.toString(lock.getBlockedTime()), Long.toString(lock.getBlockedCount()),
+					String.format("%.1f", lock.getWaitedRate()), lock.getOwner() != null ? lock.getOwner() : "" });
+		}
+		table.setRedraw(true);
+	}
+
+	/**
+	 * Get if the JVM supports thread contention monitoring. If not supported, only the number of times threads were
+	 * blocked is available, and all times are zero.
+	 *
+	 * @return TRUE if contention monitoring is supported.
+	 */
+	public boolean isContentionMonitoringSupported() {
+		return bean.isThreadContentionMonitoringSupported();
+	}
+
+	/**
+	 * Get the most contended monitors of the last sample, most blocked first.
+	 *
+	 * @return The monitors.
+	 */
+	public List<LockContention> getTopContention() {
+		return top;
+	}
+
+	/**
+	 * Get the time all threads were blocked per second of the last sample.
+	 *
+	 * @return The time blocked (msec/sec).
+	 */
+	public double getBlockedRate() {
+		return blockedRate;
+	}
+
+	/**
+	 * Set the number of monitors listed, must be a positive value.
+	 *
+	 * @param count The number of monitors.
+	 */
+	public void setTopCount(int count) {
+		if (count <= 0) {
+			throw new IllegalArgumentException("Count value is invalid");
+		}
+		this.topCount = count;
+	}
+
+	/**
+	 * Get the number of monitors listed.
+	 *
+	 * @return The number of monitors.
+	 */
+	public int getTopCount() {
+		return topCount;
+	}
+
+	/**
+	 * Set the number of points to catch/display
+	 *
+	 * @param points The number of points to display.
+	 */
+	public void setPoints(int points) {
+		scope.setPoints(points);
+	}
+
+	@Override
+	public void setFont(Font font) {
+		super.setFont(font);
+		scope.setFont(font);
+		table.setFont(font);
+	}
+
+	/**
+	 * Set the font color
+	 *
+	 * @param color The font color
+	 */
+	public void setFontColor(Color color) {
+		scope.setFontColor(color);
+	}
+
+	@Override
+	public void setForeground(Color color) {
+		super.setForeground(color);
+		scope.setForeground(color);
+	}
+
+	@Override
+	public void setBackground(Color color) {
+		super.setBackground(color);
+		scope.setBackground(color);
+	}
+
+}
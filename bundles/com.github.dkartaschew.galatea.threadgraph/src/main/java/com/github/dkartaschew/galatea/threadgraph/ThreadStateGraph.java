@@ -0,0 +1,396 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.threadgraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.widgets.Composite;
+
+import com.github.dkartaschew.galatea.graph.Graph;
+
+/**
+ * Stacked graph of the number of threads of the JVM in each state.
+ * <p>
+ * Each sample enumerates the live threads into a reused array and reads their states, without the thread dumps of
+ * <code>ThreadMXBean</code>, so a sample costs well under a millisecond even with thousands of threads, and allocates
+ * nothing unless following a pool. The census may be restricted to the threads of a pool by name prefix, and
+ * optionally also tallied by pool, the pool of a thread being its name without any trailing number.
+ * </p>
+ */
+public class ThreadStateGraph extends Composite implements Runnable {
+
+	/**
+	 * The states graphed, stacked from the bottom up.
+	 */
+	private final static Thread.State[] STATES = { Thread.State.RUNNABLE, Thread.State.BLOCKED, Thread.State.WAITING,
+			Thread.State.TIMED_WAITING };
+	/**
+	 * The initial capacity of the thread array.
+	 */
+	private final static int INITIAL_CAPACITY = 256;
+	/**
+	 * The number of thread names whose pool is cached, before the cache is cleared.
+	 */
+	private final static int POOL_CACHE_SIZE = 8192;
+	/**
+	 * The number of pools listed in the tooltip.
+	 */
+	private final static int TOOLTIP_POOLS = 5;
+
+	/**
+	 * The graph implementation
+	 */
+	private final Graph scope;
+	/**
+	 * Delay for each sample
+	 */
+	private final int delay;
+	/**
+	 * The root thread group.
+	 */
+	private final ThreadGroup root;
+	/**
+	 * The threads of the sample, reused between samples.
+	 */
+	private Thread[] threads = new Thread[INITIAL_CAPACITY];
+	/**
+	 * The number of threads in each state, indexed by state ordinal.
+	 */
+	private final int[] counts = new int[Thread.State.values().length];
+	/**
+	 * The number of threads counted.
+	 */
+	private int total;
+	/**
+	 * The percentage of threads in each graphed state, reused between samples.
+	 */
+	private final double[] percentages = new double[STATES.length];
+	/**
+	 * The prefix of the names of the threads counted, or NULL for all threads.
+	 */
+	private String pool;
+	/**
+	 * Flag to tally the threads by pool.
+	 */
+	private boolean grouped;
+	/**
+	 * The number of threads in each state by pool, indexed by state ordinal.
+	 */
+	private final Map<String, int[]> poolCounts = new HashMap<>();
+	/**
+	 * The pools of recently seen thread names.
+	 */
+	private final Map<String, String> poolNames = new HashMap<>();
+	/**
+	 * The time taken by the last sample (nsec).
+	 */
+	private long sampleTime;
+
+	/**
+	 * Create the composite.
+	 *
+	 * @param parent The parent composite.
+	 * @param style  The default style
+	 * @param delay  The sample delay (msec)
+	 */
+	public ThreadStateGraph(Composite parent, int style, int delay) {
+		super(parent, style);
+		this.delay = delay > 0 ? delay : 500;
+		setLayout(GridLayoutFactory.fillDefaults().numColumns(2).spacing(0, 0).create());
+
+		scope = new Graph(this, SWT.BORDER);
+		scope.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).hint(SWT.DEFAULT, 24).create());
+		scope.setForeground(getDisplay().getSystemColor(SWT.COLOR_DARK_GRAY));
+		scope.setFontColor(getDisplay().getSystemColor(SWT.COLOR_WHITE));
+		scope.setSeriesColors(getDisplay().getSystemColor(SWT.COLOR_DARK_GREEN),
+				getDisplay().getSystemColor(SWT.COLOR_RED), getDisplay().getSystemColor(SWT.COLOR_DARK_YELLOW),
+				getDisplay().getSystemColor(SWT.COLOR_DARK_CYAN));
+
+		ThreadGroup group = Thread.currentThread().getThreadGroup();
+		while (group.getParent() != null) {
+			group = group.getParent();
+		}
+		root = group;
+	}
+
+	@Override
+	protected void checkSubclass() {
+		// Disable the check that prevents subclassing of SWT components
+	}
+
+	/**
+	 * Get the sample delay
+	 *
+	 * @return The sample delay in msec.
+	 */
+	public int getDelay() {
+		return delay;
+	}
+
+	@Override
+	public void run() {
+		if (isDisposed()) {
+			return;
+		}
+		long start = System.nanoTime();
+		sample();
+		sampleTime = System.nanoTime() - start;
+
+		for (int i = 0; i < STATES.length; i++) {
+			percentages[i] = total > 0 ? counts[STATES[i].ordinal()] * 100d / total : 0;
+		}
+		scope.addValues(percentages);
+		scope.setText(String.format("R%d B%d W%d T%d", getCount(Thread.State.RUNNABLE),
+				getCount(Thread.State.BLOCKED), getCount(Thread.State.WAITING), getCount(Thread.State.TIMED_WAITING)));
+		scope.setToolTipText(getSummary());
+		scope.redraw();
+		getDisplay().timerExec(getDelay(), this);
+	}
+
+	/**
+	 * Count the live threads by state.
+	 */
+	private void sample() {
+		int n;
+		while ((n = root.enumerate(threads, true)) == threads.length) {
+			threads = new Thread[threads.length * 2];
+		}
+		Arrays.fill(counts, 0);
+		total = 0;
+		if (grouped) {
+			for (int[] c : poolCounts.values()) {
+				Arrays.fill(c, 0);
+			}
+			if (poolNames.size() > POOL_CACHE_SIZE) {
+				poolNames.clear();
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			Thread thread = threads[i];
+			// Don't hold the threads between samples.
+			threads[i] = null;
+			String name = pool != null || grouped ? thread.getName() : null;
+			if (pool != null && !name.startsWith(pool)) {
+				continue;
+			}
+			int state = thread.getState().ordinal();
+			counts[state]++;
+			total++;
+			if (grouped) {
+				poolCounts.computeIfAbsent(getPoolName(name), k -> new int[Thread.State.values().length])[state]++;
+			}
+		}
+		if (grouped) {
+			poolCounts.values().removeIf(c -> sum(c) == 0);
+		}
+	}
+
+	/**
+	 * Get the pool of a thread, being its name without any trailing number.
+	 *
+	 * @param name The name of the thread
+	 * @return The name of the pool.
+	 */
+	private String getPoolName(String name) {
+		String poolName = poolNames.get(name);
+		if (poolName == null) {
+			int end = name.length();
+			while (end > 0 && Character.isDigit(name.charAt(end - 1))) {
+				end--;
+			}
+			while (end > 0 && "-_#. ".indexOf(name.charAt(end - 1)) >= 0) {
+				end--;
+			}
+			poolName = end > 0 ? name.substring(0, end) : name;
+			poolNames.put(name, poolName);
+		}
+		return poolName;
+	}
+
+	/**
+	 * Get the number of threads in all states.
+	 *
+	 * @param c The number of threads in each state
+	 * @return The number of threads.
+	 */
+	private static int sum(int[] c) {
+		int sum = 0;
+		for (int v : c) {
+			sum += v;
+		}
+		return sum;
+	}
+
+	/**
+	 * Get a summary of the last sample.
+	 *
+	 * @return The summary.
+	 */
+	private String getSummary() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%d threads: %d runnable, %d blocked, %d waiting, %d timed waiting (%.0f\u00b5s)",
+				total, getCount(Thread.State.RUNNABLE), getCount(Thread.State.BLOCKED),
+				getCount(Thread.State.WAITING), getCount(Thread.State.TIMED_WAITING), getSampleTime()));
+		if (grouped) {
+			List<String> pools = getPools();
+			for (String name : pools.subList(0, Math.min(TOOLTIP_POOLS, pools.size()))) {
+				int[] c = poolCounts.get(name);
+				sb.append(String.format("%n%s: R%d B%d W%d T%d", name, c[Thread.State.RUNNABLE.ordinal()],
+						c[Thread.State.BLOCKED.ordinal()], c[Thread.State.WAITING.ordinal()],
+						c[Thread.State.TIMED_WAITING.ordinal()]));
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Get the number of threads in a state in the last sample.
+	 *
+	 * @param state The state
+	 * @return The number of threads.
+	 */
+	public int getCount(Thread.State state) {
+		return counts[state.ordinal()];
+	}
+
+	/**
+	 * Get the number of threads counted in the last sample.
+	 *
+	 * @return The number of threads.
+	 */
+	public int getThreadCount() {
+		return total;
+	}
+
+	/**
+	 * Get the time taken by the last sample.
+	 *
+	 * @return The time (usec).
+	 */
+	public double getSampleTime() {
+		return sampleTime / 1000d;
+	}
+
+	/**
+	 * Set the prefix of the names of the threads counted, to follow a single pool.
+	 *
+	 * @param prefix The prefix, or NULL to count all threads.
+	 */
+	public void setPool(String prefix) {
+		this.pool = prefix;
+	}
+
+	/**
+	 * Get the prefix of the names of the threads counted.
+	 *
+	 * @return The prefix, or NULL if all threads are counted.
+	 */
+	public String getPool() {
+		return pool;
+	}
+
+	/**
+	 * Set if the threads are also tallied by pool, the pool of a thread being its name without any trailing number.
+	 *
+	 * @param grouped TRUE to tally the threads by pool.
+	 */
+	public void setGrouped(boolean grouped) {
+		this.grouped = grouped;
+		if (!grouped) {
+			poolCounts.clear();
+			poolNames.clear();
+		}
+	}
+
+	/**
+	 * Get if the threads are tallied by pool.
+	 *
+	 * @return TRUE if the threads are tallied by pool.
+	 */
+	public boolean isGrouped() {
+		return grouped;
+	}
+
+	/**
+	 * Get the pools of the last sample, largest first. Only available if grouped.
+	 *
+	 * @return The names of the pools.
+	 */
+	public List<String> getPools() {
+		List<String> pools = new ArrayList<>(poolCounts.keySet());
+		pools.sort((a, b) -> Integer.compare(sum(poolCounts.get(b)), sum(poolCounts.get(a))));
+		return pools;
+	}
+
+	/**
+	 * Get the number of threads of a pool in a state in the last sample. Only available if grouped.
+	 *
+	 * @param pool The name of the pool
+	 * @param state The state
+	 * @return The number of threads.
+	 */
+	public int getPoolCount(String pool, Thread.State state) {
+		int[] c = poolCounts.get(pool);
+		return c != null ? c[state.ordinal()] : 0;
+	}
+
+	/**
+	 * Set the number of points to catch/display
+	 *
+	 * @param points The number of points to display.
+	 */
+	public void setPoints(int points) {
+		scope.setPoints(points);
+	}
+
+	@Override
+	public void setFont(Font font) {
+		super.setFont(font);
+		scope.setFont(font);
+	}
+
+	/**
+	 * Set the font color
+	 *
+	 * @param color The font color
+	 */
+	public void setFontColor(Color color) {
+		scope.setFontColor(color);
+	}
+
+	@Override
+	public void setForeground(Color color) {
+		super.setForeground(color);
+		scope.setForeground(color);
+	}
+
+	@Override
+	public void setBackground(Color color) {
+		super.setBackground(color);
+		scope.setBackground(color);
+	}
+
+}
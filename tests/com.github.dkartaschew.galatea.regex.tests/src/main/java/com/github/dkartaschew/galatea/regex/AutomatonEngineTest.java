@@ -0,0 +1,137 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class AutomatonEngineTest {
+
+	/**
+	 * The inputs each pattern is tested against.
+	 */
+	private final static String[] INPUTS = { "", "a", "A", "b", "B", "ab", "abc", "abC", "aBc", "ABC", "ba", "bA", "BA",
+			"Ba", "a b", "a bc", "a b c", "x1", "X1", "k", "K", "\u212a", "\u00e5", "\u00c5" };
+
+	/**
+	 * Code points case folded differently by the constructs of Pattern.
+	 */
+	private final static int[] FOLD_CODE_POINTS = { 'a', 'A', 'i', 'I', 'k', 'K', 's', 'S', 'z', 'Z', '1', '_', 0x17f,
+			0x212a, 0x131, 0x130, 0xe5, 0xc5, 0x212b, 0xb5, 0x39c, 0x3bc, 0xdf, 0x1c4, 0x1c5, 0x1c6 };
+	/**
+	 * Constructs case folded by their own rules in Pattern.
+	 */
+	private final static String[] FOLD_CONSTRUCTS = { "\\w", "\\W", "\\d", "\\s", "[A-Z]", "[a-z]", "[^A-Z]",
+			"[a-k]", "[s-t]", "\\p{Lower}", "\\p{Upper}", "\\p{Alpha}", "\\p{L}", "\\p{Lu}", "\\p{Ll}", "\\p{Lt}",
+			"\\P{Lu}", "[^\\p{Lu}]", "[\\w]", "[^\\w]", "k", "s", "[k]", "[^k]", "\\u212a", "\\u017f", "\\u0131",
+			"\\u0130", "[\\u0130]", "\\u00b5", "\\u00e5", "[\\u00e5]", "." };
+
+	/**
+	 * Assert the automaton engine agrees with Pattern on each input, in both matches and find modes.
+	 *
+	 * @param regex The pattern
+	 * @param flags The flags to compile the pattern with.
+	 */
+	private static void assertAgrees(String regex, int flags) {
+		Pattern pattern = Pattern.compile(regex, flags);
+		RegexEngine.LineMatcher matcher = RegexEngine.AUTOMATON.compile(pattern, flags).matcher();
+		for (String input : INPUTS) {
+			assertEquals(regex + " matches \"" + input + "\"", pattern.matcher(input).matches(),
+					matcher.matches(input, 0, input.length()));
+			assertEquals(regex + " finds \"" + input + "\"", pattern.matcher(input).find(),
+					matcher.find(input, 0, input.length()));
+		}
+	}
+
+	@Test
+	public void literals() {
+		assertAgrees("abc", 0);
+		assertAgrees("a|bc?", 0);
+		assertAgrees("[a-c]+", 0);
+	}
+
+	@Test
+	public void compileFlags() {
+		assertAgrees("abc", Pattern.CASE_INSENSITIVE);
+		assertAgrees("a b c", Pattern.COMMENTS);
+		assertAgrees("[^a]", Pattern.CASE_INSENSITIVE);
+	}
+
+	@Test
+	public void inlineFlagsMidPattern() {
+		assertAgrees("ab(?i)c", 0);
+		assertAgrees("b(?i)a", 0);
+		assertAgrees("(?i:a)b", 0);
+		assertAgrees("a(?-i)b", Pattern.CASE_INSENSITIVE);
+		assertAgrees("a b(?x)c", 0);
+		assertAgrees("a(?x) b c", 0);
+	}
+
+	@Test
+	public void negatedClassesCaseInsensitive() {
+		assertAgrees("(?i)[^a]", 0);
+		assertAgrees("(?i)[^a-c]+", 0);
+		assertAgrees("(?i)[^B]", 0);
+		assertAgrees("(?i)[^a]b", 0);
+		assertAgrees("(?i)[a-c&&[^b]]+", 0);
+		assertAgrees("(?iu)[^k]", 0);
+	}
+
+	@Test
+	public void caseFoldingConstructs() {
+		int[] flags = { 0, Pattern.CASE_INSENSITIVE, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE,
+				Pattern.UNICODE_CASE };
+		for (String regex : FOLD_CONSTRUCTS) {
+			for (int f : flags) {
+				Pattern pattern = Pattern.compile(regex, f);
+				RegexEngine.LineMatcher matcher;
+				try {
+					matcher = RegexEngine.AUTOMATON.compile(pattern, f).matcher();
+				} catch (IllegalArgumentException e) {
+					// Left to the backtracking engine.
+					continue;
+				}
+				for (int c : FOLD_CODE_POINTS) {
+					String input = new String(Character.toChars(c));
+					assertEquals(regex + " (flags " + f + ") matches U+" + Integer.toHexString(c),
+							pattern.matcher(input).matches(), matcher.matches(input, 0, input.length()));
+				}
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unicodeCaseNonAscii() {
+		RegexEngine.AUTOMATON.compile(Pattern.compile("(?iu)[^\\u00e5]"), 0);
+	}
+
+	@Test
+	public void unicodeCaseWordCharacters() {
+		int flags = Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+		Pattern pattern = Pattern.compile("\\w+", flags);
+		boolean expected = pattern.matcher("\u212a\u017f").matches();
+		try {
+			RegexEngine.LineMatcher matcher = RegexEngine.AUTOMATON.compile(pattern, flags).matcher();
+			assertEquals(expected, matcher.matches("\u212a\u017f", 0, 2));
+		} catch (IllegalArgumentException e) {
+			// Left to the backtracking engine.
+		}
+	}
+}
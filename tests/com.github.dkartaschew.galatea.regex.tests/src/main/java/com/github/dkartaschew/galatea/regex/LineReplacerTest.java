@@ -0,0 +1,88 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class LineReplacerTest {
+
+	/**
+	 * Determine if a template is valid for a pattern.
+	 *
+	 * @param regex The pattern
+	 * @param template The replacement template.
+	 * @return TRUE if valid.
+	 */
+	private static boolean isValid(String regex, String template) {
+		try {
+			LineReplacer.validate(Pattern.compile(regex), template);
+			return true;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	@Test
+	public void validTemplates() {
+		assertTrue(isValid("a", "b"));
+		assertTrue(isValid("(a)(b)", "$2$1"));
+		assertTrue(isValid("(a)", "$10"));
+		assertTrue(isValid("(?<x>a)", "${x}"));
+		assertTrue(isValid("a", "\\$1"));
+	}
+
+	@Test
+	public void invalidTemplates() {
+		assertFalse(isValid("a", "$1"));
+		assertFalse(isValid("(a)", "$2"));
+		assertFalse(isValid("a", "$"));
+		assertFalse(isValid("a", "\\"));
+		assertFalse(isValid("a", "$x"));
+		assertFalse(isValid("(?<x>a)", "${y}"));
+		assertFalse(isValid("(?<x>a)", "${x"));
+	}
+
+	@Test
+	public void namedGroupLookalikes() {
+		assertFalse(isValid("\\Q(?<x>)\\E", "${x}"));
+		assertFalse(isValid("[(?<x>)]", "${x}"));
+		assertFalse(isValid("\\(?<x>a\\)", "${x}"));
+	}
+
+	@Test
+	public void replace() {
+		LineReplacer replacer = new LineReplacer(Pattern.compile("(?<key>\\w+)=(\\d+)"), "$2:${key}", true);
+		assertTrue(replacer.replace("a=1, b=2"));
+		assertEquals("1:a, 2:b", replacer.getResult().toString());
+		assertEquals(2, replacer.getCount());
+		assertFalse(replacer.replace("none"));
+	}
+
+	@Test
+	public void emptyLinesNeverMatch() {
+		LineReplacer replacer = new LineReplacer(Pattern.compile(".*"), "x", false);
+		assertFalse(replacer.replace(""));
+		assertEquals(0, replacer.getCount());
+		assertTrue(replacer.replace("a"));
+	}
+}
@@ -0,0 +1,74 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class LiteralExtractorTest {
+
+	/**
+	 * Get the literals required by a pattern compiled without flags.
+	 *
+	 * @param pattern The pattern
+	 * @param foldCase TRUE to fold the literals to lower case.
+	 * @return The literals.
+	 */
+	private static Set<String> extract(String pattern, boolean foldCase) {
+		return LiteralExtractor.extract(RegexParser.parse(pattern, 0), foldCase);
+	}
+
+	/**
+	 * Create a set of strings.
+	 *
+	 * @param strings The strings
+	 * @return The set.
+	 */
+	private static Set<String> set(String... strings) {
+		return new HashSet<>(Arrays.asList(strings));
+	}
+
+	@Test
+	public void literal() {
+		assertEquals(set("ERROR"), extract("ERROR", false));
+		assertEquals(set("error"), extract("ERROR", true));
+	}
+
+	@Test
+	public void inlineCommentsFlagMidPattern() {
+		assertEquals(set("ERROR user=x"), extract("ERROR user(?x)=x", false));
+		assertEquals(set("a bc"), extract("a b(?x)c", false));
+	}
+
+	@Test
+	public void inlineCaseFlagMidPattern() {
+		assertEquals(set("abc", "abC"), extract("ab(?i)c", false));
+		assertEquals(set("bA", "ba"), extract("b(?i)a", false));
+	}
+
+	@Test
+	public void compileFlags() {
+		assertEquals(set("ab", "aB", "Ab", "AB"),
+				LiteralExtractor.extract(RegexParser.parse("ab", Pattern.CASE_INSENSITIVE), false));
+	}
+}
@@ -0,0 +1,106 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class LiteralPrefilterTest {
+
+	/**
+	 * Create a prefilter for a pattern compiled without flags.
+	 *
+	 * @param pattern The pattern
+	 * @return The prefilter.
+	 */
+	private static LiteralPrefilter create(String pattern) {
+		return LiteralPrefilter.create(Pattern.compile(pattern), 0);
+	}
+
+	/**
+	 * Assert the prefilter accepts every line, each of which the pattern must match.
+	 *
+	 * @param pattern The pattern
+	 * @param lines The lines.
+	 */
+	private static void assertNoFalseNegatives(String pattern, String... lines) {
+		LiteralPrefilter prefilter = create(pattern);
+		for (String line : lines) {
+			assertTrue(pattern + " should find " + line, Pattern.compile(pattern).matcher(line).find());
+			assertTrue(pattern + " prefilter rejected " + line,
+					prefilter == null || prefilter.mayMatch(line, 0, line.length()));
+		}
+	}
+
+	@Test
+	public void singleLiteral() {
+		LiteralPrefilter prefilter = create("ERROR \\d+");
+		assertNotNull(prefilter);
+		assertEquals(Collections.singleton("ERROR "), prefilter.getLiterals());
+		assertFalse(prefilter.isCaseInsensitive());
+		assertTrue(prefilter.mayMatch("an ERROR 42", 0, 11));
+		assertFalse(prefilter.mayMatch("a WARNING 42", 0, 12));
+	}
+
+	@Test
+	public void caseInsensitiveFlag() {
+		LiteralPrefilter prefilter = LiteralPrefilter.create(Pattern.compile("error", Pattern.CASE_INSENSITIVE),
+				Pattern.CASE_INSENSITIVE);
+		assertNotNull(prefilter);
+		assertTrue(prefilter.isCaseInsensitive());
+		assertTrue(prefilter.mayMatch("An Error", 0, 8));
+	}
+
+	@Test
+	public void caseSensitiveAlternation() {
+		LiteralPrefilter prefilter = create("ERROR|WARN");
+		assertNotNull(prefilter);
+		assertFalse(prefilter.isCaseInsensitive());
+		assertTrue(prefilter.mayMatch("a WARN", 0, 6));
+	}
+
+	@Test
+	public void inlineFlagsDisablePrefilter() {
+		assertNull(create("ERROR user(?x)=x"));
+		assertNull(create("a b(?x)c"));
+		assertNull(create("ab(?i)c"));
+		assertNull(create("(?i:error) \\d+"));
+		assertNull(create("(?-s)abc"));
+	}
+
+	@Test
+	public void inlineFlagsNoFalseNegatives() {
+		assertNoFalseNegatives("ERROR user(?x)=x", "ERROR user=x");
+		assertNoFalseNegatives("a b(?x)c", "a bc");
+		assertNoFalseNegatives("ab(?i)c", "abC");
+		assertNoFalseNegatives("b(?i)a", "bA");
+	}
+
+	@Test
+	public void groupsKeepPrefilter() {
+		assertNotNull(create("(?:ERROR|WARN) \\d+"));
+		assertNotNull(create("(?<level>ERROR) \\d+"));
+	}
+}
@@ -0,0 +1,60 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class RedosAnalyzerTest {
+
+	/**
+	 * Get the string pumped by the attack on a pattern compiled without flags.
+	 *
+	 * @param pattern The pattern
+	 * @return The pumped string, or NULL if there is no finding.
+	 */
+	private static String pump(String pattern) {
+		RedosAnalyzer.Finding finding = RedosAnalyzer.analyze(Pattern.compile(pattern), 0);
+		return finding == null ? null : finding.pump;
+	}
+
+	@Test
+	public void singleCharacterBranches() {
+		assertEquals("a", pump("(a|a)*b"));
+		assertEquals("0", pump("(\\w|\\d)+!"));
+	}
+
+	@Test
+	public void overlappingStringIsPumped() {
+		assertEquals("ab", pump("(?:a|b|ab)*c"));
+		assertEquals("aa", pump("(a|aa)+$"));
+	}
+
+	@Test
+	public void unambiguousBranches() {
+		assertNull(pump("(ab|ac)*d"));
+	}
+
+	@Test
+	public void nestedQuantifiers() {
+		assertEquals("a", pump("(a+)+b"));
+	}
+}
@@ -0,0 +1,115 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class RegexParserTest {
+
+	/**
+	 * Collect the CHAR nodes of a tree, in pattern order.
+	 *
+	 * @param node The root of the tree
+	 * @param chars The list to add the nodes to
+	 * @return The list.
+	 */
+	private static List<RegexNode> chars(RegexNode node, List<RegexNode> chars) {
+		if (node.type == RegexNode.Type.CHAR) {
+			chars.add(node);
+		}
+		for (RegexNode child : node.children) {
+			chars(child, chars);
+		}
+		return chars;
+	}
+
+	@Test
+	public void compileFlags() {
+		List<RegexNode> chars = chars(RegexParser.parse("ab", Pattern.CASE_INSENSITIVE), new ArrayList<>());
+		assertEquals(2, chars.size());
+		assertTrue(chars.get(0).caseInsensitive);
+		assertTrue(chars.get(1).caseInsensitive);
+	}
+
+	@Test
+	public void inlineCaseFlagMidPattern() {
+		List<RegexNode> chars = chars(RegexParser.parse("ab(?i)c", 0), new ArrayList<>());
+		assertEquals(3, chars.size());
+		assertFalse(chars.get(0).caseInsensitive);
+		assertFalse(chars.get(1).caseInsensitive);
+		assertTrue(chars.get(2).caseInsensitive);
+	}
+
+	@Test
+	public void inlineCommentsFlagMidPattern() {
+		List<RegexNode> chars = chars(RegexParser.parse("a b(?x)c d", 0), new ArrayList<>());
+		StringBuilder sb = new StringBuilder();
+		for (RegexNode c : chars) {
+			sb.appendCodePoint(c.codePoint);
+		}
+		assertEquals("a bcd", sb.toString());
+	}
+
+	@Test
+	public void inlineFlagGroupIsScoped() {
+		List<RegexNode> chars = chars(RegexParser.parse("(?i:a)b", 0), new ArrayList<>());
+		assertEquals(2, chars.size());
+		assertTrue(chars.get(0).caseInsensitive);
+		assertFalse(chars.get(1).caseInsensitive);
+	}
+
+	@Test
+	public void inlineFlagEndsWithGroup() {
+		List<RegexNode> chars = chars(RegexParser.parse("(a(?i)b)c", 0), new ArrayList<>());
+		assertEquals(3, chars.size());
+		assertFalse(chars.get(0).caseInsensitive);
+		assertTrue(chars.get(1).caseInsensitive);
+		assertFalse(chars.get(2).caseInsensitive);
+	}
+
+	@Test
+	public void inlineFlagTurnedOff() {
+		List<RegexNode> chars = chars(RegexParser.parse("a(?-i)b", Pattern.CASE_INSENSITIVE), new ArrayList<>());
+		assertEquals(2, chars.size());
+		assertTrue(chars.get(0).caseInsensitive);
+		assertFalse(chars.get(1).caseInsensitive);
+	}
+
+	@Test
+	public void negatedClassCaseInsensitive() {
+		CharClass chars = RegexParser.parse("(?i)[^a]", 0).getCharacters();
+		assertFalse(chars.contains('a'));
+		assertFalse(chars.contains('A'));
+		assertTrue(chars.contains('b'));
+		assertTrue(chars.contains('B'));
+	}
+
+	@Test
+	public void negatedClassCaseSensitive() {
+		CharClass chars = RegexParser.parse("[^a]", 0).getCharacters();
+		assertFalse(chars.contains('a'));
+		assertTrue(chars.contains('A'));
+	}
+}
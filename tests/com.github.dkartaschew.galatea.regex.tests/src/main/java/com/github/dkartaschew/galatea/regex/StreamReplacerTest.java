@@ -0,0 +1,77 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.regex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class StreamReplacerTest {
+
+	/**
+	 * Replace the lines of the input, checking the number of lines read.
+	 *
+	 * @param input The input
+	 * @param regex The pattern
+	 * @param template The replacement template
+	 * @param find TRUE to replace every match within a line
+	 * @param lines The expected number of lines.
+	 * @return The output.
+	 * @throws IOException If the output could not be read.
+	 */
+	private static String replace(String input, String regex, String template, boolean find, long lines)
+			throws IOException {
+		Path target = Files.createTempFile("StreamReplacerTest", ".txt");
+		try {
+			StreamReplacer replacer = new StreamReplacer(new StringReader(input), input.length(), target,
+					StandardCharsets.UTF_8, Pattern.compile(regex), template, find);
+			replacer.run();
+			assertNull(replacer.getError());
+			assertEquals("lines of \"" + input + "\"", lines, replacer.getLines());
+			return new String(Files.readAllBytes(target), StandardCharsets.UTF_8);
+		} finally {
+			Files.deleteIfExists(target);
+		}
+	}
+
+	@Test
+	public void trailingLineTerminator() throws IOException {
+		assertEquals("> a\n> b\n", replace("a\nb\n", "^", "> ", true, 2));
+		assertEquals("[a]\r\n[b]\r\n", replace("a\r\nb\r\n", ".*", "[$0]", false, 2));
+		assertEquals("-a-\n\n", replace("a\n\n", "x*", "-", true, 2));
+	}
+
+	@Test
+	public void noTrailingLineTerminator() throws IOException {
+		assertEquals("> a\n> b", replace("a\nb", "^", "> ", true, 2));
+		assertEquals("[a]\r[b]", replace("a\rb", ".*", "[$0]", false, 2));
+	}
+
+	@Test
+	public void emptyInput() throws IOException {
+		assertEquals("", replace("", "^", "> ", true, 0));
+		assertEquals("\n", replace("\n", "^", "> ", true, 1));
+	}
+}
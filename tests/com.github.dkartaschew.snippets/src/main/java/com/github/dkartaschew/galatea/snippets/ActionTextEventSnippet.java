@@ -0,0 +1,130 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.snippets;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.KeyListener;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Spinner;
+import org.eclipse.swt.widgets.Text;
+
+import com.github.dkartaschew.galatea.actiontext.ActionText;
+
+/**
+ * Snippet benchmarking the dispatch of events from the text of an ActionText field to many listeners, against a plain
+ * Text with the same listeners.
+ */
+public class ActionTextEventSnippet {
+
+	/**
+	 * The number of events sent per run.
+	 */
+	private final static int EVENTS = 200_000;
+
+	public static void main(final String[] args) {
+		final Display display = new Display();
+		final Shell shell = new Shell(display);
+		shell.setText("ActionText Event Dispatch");
+		shell.setLayout(GridLayoutFactory.swtDefaults().numColumns(2).spacing(10, 10).margins(15, 15).create());
+
+		Image imageMenu = new Image(display, ActionTextEventSnippet.class.getResourceAsStream("/icons/open-menu.png"));
+
+		final Label lblField = new Label(shell, SWT.NONE);
+		lblField.setText("ActionText:");
+		final ActionText actionText = new ActionText(shell, SWT.NONE, imageMenu, () -> "Action");
+		actionText.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).hint(250, SWT.DEFAULT).create());
+
+		final Label lblText = new Label(shell, SWT.NONE);
+		lblText.setText("Text:");
+		final Text text = new Text(shell, SWT.BORDER);
+		text.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).create());
+
+		final Label lblListeners = new Label(shell, SWT.NONE);
+		lblListeners.setText("Listeners:");
+		final Spinner listeners = new Spinner(shell, SWT.BORDER);
+		listeners.setValues(100, 1, 10_000, 0, 10, 100);
+
+		final Button run = new Button(shell, SWT.PUSH);
+		run.setText("Run");
+		final Label result = new Label(shell, SWT.WRAP);
+		result.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).hint(400, SWT.DEFAULT).create());
+
+		final AtomicLong fieldDeliveries = new AtomicLong();
+		final AtomicLong textDeliveries = new AtomicLong();
+		final int[] attached = { 0 };
+		run.addListener(SWT.Selection, e -> {
+			int count = Math.max(attached[0], listeners.getSelection());
+			// The listeners of the field are attached once each, and must each be called once per event.
+			for (; attached[0] < count; attached[0]++) {
+				actionText.addListener(SWT.KeyDown, ev -> fieldDeliveries.incrementAndGet());
+				actionText.addKeyListener(KeyListener.keyPressedAdapter(ev -> fieldDeliveries.incrementAndGet()));
+				text.addListener(SWT.KeyDown, ev -> textDeliveries.incrementAndGet());
+				text.addKeyListener(KeyListener.keyPressedAdapter(ev -> textDeliveries.incrementAndGet()));
+			}
+			// Events are sent to the inner text field, as they would be by the platform.
+			Control inner = actionText.getChildren()[0];
+			fieldDeliveries.set(0);
+			textDeliveries.set(0);
+			long fieldTime = send(inner);
+			long textTime = send(text);
+			result.setText(String.format(
+					"%d listeners: ActionText %,.0f events/s (%.1f calls/event), Text %,.0f events/s (%.1f calls/event)",
+					count * 2, EVENTS * 1e9 / fieldTime, (double) fieldDeliveries.get() / EVENTS,
+					EVENTS * 1e9 / textTime, (double) textDeliveries.get() / EVENTS));
+			shell.layout(true, true);
+		});
+
+		shell.pack();
+		shell.open();
+
+		while (!shell.isDisposed()) {
+			if (!display.readAndDispatch()) {
+				display.sleep();
+			}
+		}
+		imageMenu.dispose();
+		display.dispose();
+	}
+
+	/**
+	 * Send key events to a control.
+	 *
+	 * @param control The control
+	 * @return The time taken (nsec).
+	 */
+	private static long send(Control control) {
+		Event event = new Event();
+		event.character = 'a';
+		event.keyCode = 'a';
+		long start = System.nanoTime();
+		for (int i = 0; i < EVENTS; i++) {
+			event.doit = true;
+			control.notifyListeners(SWT.KeyDown, event);
+		}
+		return System.nanoTime() - start;
+	}
+}
@@ -17,13 +17,21 @@
 package com.github.dkartaschew.galatea.snippets;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
-import org.eclipse.jface.fieldassist.ControlDecoration;
 import org.eclipse.jface.layout.GridDataFactory;
 import org.eclipse.jface.layout.GridLayoutFactory;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.DirectoryDialog;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.FileDialog;
@@ -32,7 +40,9 @@ import org.eclipse.swt.widgets.MessageBox;
 import org.eclipse.swt.widgets.Shell;
 import org.eclipse.swt.widgets.Text;
 
+import com.github.dkartaschew.galatea.actiontext.ActionDispatcher;
 import com.github.dkartaschew.galatea.actiontext.ActionText;
+import com.github.dkartaschew.galatea.actiontext.SortedProposalIndex;
 
 /**
  * Snippet for ActionText field.
@@ -108,22 +118,19 @@ public class ActionTextSnippet {
 			}
 		};
 
+		final ExecutorService executor = Executors.newCachedThreadPool();
 		final ActionText textFieldFolder = new ActionText(shell, SWT.NONE, imageFolder, actionFolder);
 		textFieldFolder.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).create());
 		textFieldFolder.setMessage("I need a Folder");
-		ControlDecoration dec = new ControlDecoration(textFieldFolder, SWT.TOP | SWT.CENTER);
-		dec.setImage(display.getSystemImage(SWT.ICON_WARNING));
-		dec.hide();
-		dec.setDescriptionText("Folder does not exist or is not readable and writable");
-		textFieldFolder.addListener(SWT.Modify, e -> {
-			String folder = textFieldFolder.getText();
+		// Cheap checks run on each keystroke, file system checks once typing pauses.
+		textFieldFolder.addValidator(folder -> folder.trim().isEmpty() ? "A folder is required" : null);
+		textFieldFolder.addValidator(folder -> {
 			File f = new File(folder);
-			if (!f.canRead() && !f.canWrite()) {
-				dec.show();
-			} else {
-				dec.hide();
+			if (!f.isDirectory() || (!f.canRead() && !f.canWrite())) {
+				return "Folder does not exist or is not readable and writable";
 			}
-		});
+			return null;
+		}, executor);
 
 		final Label elbl1 = new Label(shell, SWT.NONE);
 		elbl1.setText("NonEditable Question Selection:");
@@ -173,6 +180,83 @@ public class ActionTextSnippet {
 		dtextField.addListener(SWT.Modify, e -> System.out.println(e.text));
 		dtextField.setEnabled(false);
 
+		final Label albl1 = new Label(shell, SWT.NONE);
+		albl1.setText("Asynchronous ID Generation:");
+		albl1.setLayoutData(GridDataFactory.swtDefaults().align(SWT.BEGINNING, SWT.CENTER).create());
+
+		// Simulate a slow remote lookup, which may be cancelled with a second click or Esc.
+		final ActionText atextField = new ActionText(shell, SWT.NONE, imageMenu, () -> {
+			try {
+				Thread.sleep(3000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
+			return UUID.randomUUID().toString();
+		}, executor);
+		atextField.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).create());
+		atextField.setMessage("I need an ID");
+		atextField.addListener(SWT.Modify, e -> System.out.println(e.text));
+
+		final Label plbl1 = new Label(shell, SWT.NONE);
+		plbl1.setText("Catalog Search (type-ahead):");
+		plbl1.setLayoutData(GridDataFactory.swtDefaults().align(SWT.BEGINNING, SWT.CENTER).create());
+
+		final ActionText ptextField = new ActionText(shell, SWT.NONE, imageMenu, () -> UUID.randomUUID().toString(),
+				executor);
+		ptextField.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).create());
+		ptextField.setMessage("Type a part number, eg PN-12");
+		ptextField.addListener(SWT.Modify, e -> System.out.println(e.text));
+		// Build a catalog of a million entries in the background.
+		executor.execute(() -> {
+			List<String> catalog = new ArrayList<>(1_000_000);
+			for (int i = 0; i < 1_000_000; i++) {
+				catalog.add(String.format("PN-%07d", i));
+			}
+			SortedProposalIndex index = new SortedProposalIndex(catalog);
+			display.asyncExec(() -> {
+				if (!ptextField.isDisposed()) {
+					ptextField.setProposalProvider(index, executor);
+				}
+			});
+		});
+
+		// Simulate a remote directory, resolving any number of user IDs in one round trip.
+		final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+		final ActionDispatcher<Integer> dispatcher = new ActionDispatcher<>(ids -> {
+			try {
+				Thread.sleep(500);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			Map<Integer, String> names = new HashMap<>();
+			for (Integer id : ids) {
+				names.put(id, "User " + id + " (" + Thread.currentThread().getName() + ")");
+			}
+			return names;
+		}, scheduler);
+		final List<ActionText> owners = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			final int id = 1000 + (i % 3);
+			final Label olbl = new Label(shell, SWT.NONE);
+			olbl.setText("Owner of user " + id + ":");
+			olbl.setLayoutData(GridDataFactory.swtDefaults().align(SWT.BEGINNING, SWT.CENTER).create());
+			final ActionText otextField = new ActionText(shell, SWT.NONE, imageMenu, dispatcher, () -> id);
+			otextField.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).create());
+			otextField.setMessage("Resolved in batches");
+			owners.add(otextField);
+		}
+		final Button resolveAll = new Button(shell, SWT.PUSH);
+		resolveAll.setText("Resolve All");
+		resolveAll.setLayoutData(GridDataFactory.swtDefaults().create());
+		final Label lblBatches = new Label(shell, SWT.NONE);
+		lblBatches.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).create());
+		resolveAll.addListener(SWT.Selection, e -> {
+			dispatcher.batch(() -> owners.forEach(ActionText::runAction));
+			lblBatches.setText(String.format("%d requests, %d shared, %d batches", dispatcher.getRequestCount(),
+					dispatcher.getSharedCount(), dispatcher.getBatchCount()));
+		});
+
 		final Label dlbl2 = new Label(shell, SWT.NONE);
 		dlbl2.setText("Regular Text Field:");
 		dlbl2.setLayoutData(GridDataFactory.swtDefaults().align(SWT.BEGINNING, SWT.CENTER).create());
@@ -188,6 +272,8 @@ public class ActionTextSnippet {
 				display.sleep();
 			}
 		}
+		executor.shutdownNow();
+		scheduler.shutdownNow();
 		display.dispose();
 	}
 
@@ -0,0 +1,118 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.snippets;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.Pipe;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Shell;
+
+import com.github.dkartaschew.galatea.fdgraph.FileDescriptorGraph;
+import com.github.dkartaschew.galatea.fdgraph.FileDescriptorType;
+
+/**
+ * Snippet for File Descriptor Graph.
+ */
+public class FileDescriptorGraphSnippet {
+
+	public static void main(final String[] args) {
+		final Display display = new Display();
+		final Shell shell = new Shell(display);
+		shell.setLayout(GridLayoutFactory.swtDefaults().numColumns(4).spacing(10, 10).margins(15, 15).create());
+
+		final FileDescriptorGraph fds = new FileDescriptorGraph(shell, SWT.BORDER, 250);
+		fds.setPoints(50);
+		fds.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).span(4, 1).hint(400, 80).create());
+		fds.run();
+
+		final Button leak = new Button(shell, SWT.NONE);
+		leak.setText("Open 100 Sockets and Pipes");
+		leak.setLayoutData(GridDataFactory.fillDefaults().create());
+
+		final Button close = new Button(shell, SWT.NONE);
+		close.setText("Close All");
+		close.setLayoutData(GridDataFactory.fillDefaults().create());
+
+		final Button categorize = new Button(shell, SWT.CHECK);
+		categorize.setText("Categorize");
+		categorize.setLayoutData(GridDataFactory.swtDefaults().create());
+		categorize.addListener(SWT.Selection, e -> fds.setCategorized(categorize.getSelection()));
+
+		final Label result = new Label(shell, SWT.NONE);
+		result.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).create());
+
+		// Hold open channels, as a leak would.
+		final List<Closeable> open = new ArrayList<>();
+		leak.addListener(SWT.Selection, e -> {
+			try {
+				for (int i = 0; i < 50; i++) {
+					open.add(ServerSocketChannel.open());
+					Pipe pipe = Pipe.open();
+					open.add(pipe.source());
+					open.add(pipe.sink());
+				}
+			} catch (IOException ex) {
+				result.setText(ex.getMessage());
+			}
+		});
+		close.addListener(SWT.Selection, e -> {
+			for (Closeable c : open) {
+				try {
+					c.close();
+				} catch (IOException ex) {
+					// Ignore.
+				}
+			}
+			open.clear();
+		});
+		display.timerExec(1000, new Runnable() {
+
+			@Override
+			public void run() {
+				if (!result.isDisposed()) {
+					result.setText(fds.getCount(FileDescriptorType.SOCKET) >= 0
+							? String.format("%d open, %d sockets, %d pipes, scanned in %.1fms", fds.getOpenCount(),
+									fds.getCount(FileDescriptorType.SOCKET), fds.getCount(FileDescriptorType.PIPE),
+									fds.getScanTime())
+							: String.format("%d open", fds.getOpenCount()));
+					display.timerExec(1000, this);
+				}
+			}
+		});
+
+		shell.pack();
+		shell.open();
+
+		while (!shell.isDisposed() && !fds.isDisposed()) {
+			if (!display.readAndDispatch()) {
+				display.sleep();
+			}
+		}
+		display.dispose();
+	}
+
+}
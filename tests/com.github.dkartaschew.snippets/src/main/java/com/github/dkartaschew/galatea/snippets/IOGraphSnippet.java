@@ -0,0 +1,109 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.snippets;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Shell;
+
+import com.github.dkartaschew.galatea.iograph.IOGraph;
+
+/**
+ * Snippet for I/O Graph.
+ */
+public class IOGraphSnippet {
+
+	public static void main(final String[] args) {
+		final Display display = new Display();
+		final Shell shell = new Shell(display);
+		shell.setLayout(GridLayoutFactory.swtDefaults().numColumns(2).spacing(10, 10).margins(15, 15).create());
+
+		final IOGraph io = new IOGraph(shell, SWT.BORDER, 250);
+		io.setPoints(50);
+		io.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).span(2, 1).hint(400, 80).create());
+		io.run();
+
+		final Button write = new Button(shell, SWT.NONE);
+		write.setText("Write 256MB");
+		write.setLayoutData(GridDataFactory.fillDefaults().create());
+
+		final Label result = new Label(shell, SWT.NONE);
+		result.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).create());
+
+		// Write and sync a temporary file in the background, so the writes reach the device.
+		write.addListener(SWT.Selection, e -> {
+			write.setEnabled(false);
+			Thread writer = new Thread(() -> {
+				try {
+					File file = File.createTempFile("iograph", ".tmp");
+					file.deleteOnExit();
+					byte[] block = new byte[1024 * 1024];
+					try (FileOutputStream out = new FileOutputStream(file)) {
+						for (int i = 0; i < 256; i++) {
+							out.write(block);
+							if (i % 16 == 15) {
+								out.getFD().sync();
+							}
+						}
+					}
+					file.delete();
+				} catch (IOException ex) {
+					ex.printStackTrace();
+				}
+				display.asyncExec(() -> {
+					if (!write.isDisposed()) {
+						write.setEnabled(true);
+					}
+				});
+			}, "IOGraphSnippet Writer");
+			writer.setDaemon(true);
+			writer.start();
+		});
+		display.timerExec(1000, new Runnable() {
+
+			@Override
+			public void run() {
+				if (!result.isDisposed()) {
+					result.setText(io.isSupported()
+							? String.format("Read %.0fKB/s, written %.0fKB/s, devices %s", io.getReadRate() / 1024,
+									io.getWriteRate() / 1024, io.getDevices())
+							: "I/O statistics are not available");
+					display.timerExec(1000, this);
+				}
+			}
+		});
+
+		shell.pack();
+		shell.open();
+
+		while (!shell.isDisposed() && !io.isDisposed()) {
+			if (!display.readAndDispatch()) {
+				display.sleep();
+			}
+		}
+		display.dispose();
+	}
+
+}
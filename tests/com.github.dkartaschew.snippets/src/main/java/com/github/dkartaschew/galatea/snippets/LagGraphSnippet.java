@@ -0,0 +1,83 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.snippets;
+
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Text;
+
+import com.github.dkartaschew.galatea.laggraph.Freeze;
+import com.github.dkartaschew.galatea.laggraph.LagGraph;
+
+/**
+ * Snippet for UI Lag Graph.
+ */
+public class LagGraphSnippet {
+
+	public static void main(final String[] args) {
+		final Display display = new Display();
+		final Shell shell = new Shell(display);
+		shell.setLayout(GridLayoutFactory.swtDefaults().numColumns(2).spacing(10, 10).margins(15, 15).create());
+
+		final LagGraph lag = new LagGraph(shell, SWT.BORDER, 100);
+		lag.setPoints(50);
+		lag.setThreshold(200);
+		lag.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).span(2, 1).hint(400, 80).create());
+		lag.run();
+
+		final Button freeze = new Button(shell, SWT.NONE);
+		freeze.setText("Freeze UI");
+		freeze.setLayoutData(GridDataFactory.fillDefaults().create());
+
+		final Button show = new Button(shell, SWT.NONE);
+		show.setText("Show Freezes");
+		show.setLayoutData(GridDataFactory.swtDefaults().create());
+
+		final Text freezes = new Text(shell, SWT.BORDER | SWT.MULTI | SWT.READ_ONLY | SWT.V_SCROLL | SWT.H_SCROLL);
+		freezes.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).span(2, 1).hint(400, 200).create());
+
+		// Block the UI thread, as a long running listener would.
+		freeze.addListener(SWT.Selection, e -> {
+			long end = System.currentTimeMillis() + 1000;
+			while (System.currentTimeMillis() < end) {
+				Math.sqrt(end);
+			}
+		});
+		show.addListener(SWT.Selection, e -> {
+			StringBuilder sb = new StringBuilder();
+			for (Freeze f : lag.getFreezes()) {
+				sb.append(f).append(System.lineSeparator()).append(System.lineSeparator());
+			}
+			freezes.setText(sb.toString());
+		});
+
+		shell.pack();
+		shell.open();
+
+		while (!shell.isDisposed() && !lag.isDisposed()) {
+			if (!display.readAndDispatch()) {
+				display.sleep();
+			}
+		}
+		display.dispose();
+	}
+
+}
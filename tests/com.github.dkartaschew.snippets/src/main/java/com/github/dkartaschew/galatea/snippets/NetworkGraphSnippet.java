@@ -0,0 +1,129 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.snippets;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Shell;
+
+import com.github.dkartaschew.galatea.netgraph.NetworkGraph;
+
+/**
+ * Snippet for Network Graph.
+ */
+public class NetworkGraphSnippet {
+
+	public static void main(final String[] args) {
+		final Display display = new Display();
+		final Shell shell = new Shell(display);
+		shell.setLayout(GridLayoutFactory.swtDefaults().numColumns(3).spacing(10, 10).margins(15, 15).create());
+
+		final NetworkGraph network = new NetworkGraph(shell, SWT.BORDER, 250);
+		network.setPoints(50);
+		network.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).span(3, 1).hint(400, 100).create());
+		network.run();
+
+		final Button send = new Button(shell, SWT.NONE);
+		send.setText("Send 256MB");
+		send.setLayoutData(GridDataFactory.fillDefaults().create());
+
+		final Button loopback = new Button(shell, SWT.CHECK);
+		loopback.setText("Loopback only");
+		loopback.setLayoutData(GridDataFactory.swtDefaults().create());
+		loopback.addListener(SWT.Selection,
+				e -> network.setInterface(loopback.getSelection() ? NetworkGraph.LOOPBACK : null));
+
+		final Label result = new Label(shell, SWT.NONE);
+		result.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).create());
+
+		// Stream data over a loopback connection in the background.
+		send.addListener(SWT.Selection, e -> {
+			send.setEnabled(false);
+			Thread sender = new Thread(() -> {
+				try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+						Socket client = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+						Socket peer = server.accept()) {
+					Thread receiver = new Thread(() -> {
+						byte[] buffer = new byte[64 * 1024];
+						try (InputStream in = peer.getInputStream()) {
+							while (in.read(buffer) >= 0) {
+								// Discard.
+							}
+						} catch (IOException ex) {
+							// Closed.
+						}
+					}, "NetworkGraphSnippet Receiver");
+					receiver.setDaemon(true);
+					receiver.start();
+					byte[] block = new byte[1024 * 1024];
+					OutputStream out = client.getOutputStream();
+					for (int i = 0; i < 256; i++) {
+						out.write(block);
+						Thread.sleep(10);
+					}
+					client.shutdownOutput();
+					receiver.join();
+				} catch (IOException | InterruptedException ex) {
+					ex.printStackTrace();
+				}
+				display.asyncExec(() -> {
+					if (!send.isDisposed()) {
+						send.setEnabled(true);
+					}
+				});
+			}, "NetworkGraphSnippet Sender");
+			sender.setDaemon(true);
+			sender.start();
+		});
+		display.timerExec(1000, new Runnable() {
+
+			@Override
+			public void run() {
+				if (!result.isDisposed()) {
+					result.setText(network.isSupported()
+							? String.format("Rx %.0fKB/s, Tx %.0fKB/s, %.0f retransmits/s, interfaces %s",
+									network.getReceiveRate() / 1024, network.getTransmitRate() / 1024,
+									network.getRetransmitRate(), network.getInterfaces())
+							: "Network statistics are not available");
+					display.timerExec(1000, this);
+				}
+			}
+		});
+
+		shell.pack();
+		shell.open();
+
+		while (!shell.isDisposed() && !network.isDisposed()) {
+			if (!display.readAndDispatch()) {
+				display.sleep();
+			}
+		}
+		display.dispose();
+	}
+
+}
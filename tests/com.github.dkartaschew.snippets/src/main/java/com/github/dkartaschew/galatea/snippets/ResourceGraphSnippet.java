@@ -0,0 +1,139 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.snippets;
+
+import java.util.List;
+
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.DeviceData;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Text;
+
+import com.github.dkartaschew.galatea.resourcegraph.ResourceGraph;
+import com.github.dkartaschew.galatea.resourcegraph.ResourceLeak;
+import com.github.dkartaschew.galatea.resourcegraph.ResourceSnapshot;
+
+/**
+ * Snippet for SWT Resource Graph.
+ */
+public class ResourceGraphSnippet {
+
+	/**
+	 * The snapshot to diff against.
+	 */
+	private static ResourceSnapshot baseline;
+
+	public static void main(final String[] args) {
+		// Resources are only tracked if the display is created with tracking enabled.
+		final DeviceData data = new DeviceData();
+		data.tracking = true;
+		final Display display = new Display(data);
+		final Shell shell = new Shell(display);
+		shell.setLayout(GridLayoutFactory.swtDefaults().numColumns(4).spacing(10, 10).margins(15, 15).create());
+
+		final ResourceGraph resources = new ResourceGraph(shell, SWT.BORDER, 500);
+		resources.setPoints(50);
+		resources.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).span(4, 1).hint(400, 80).create());
+		resources.run();
+
+		final Button leak = new Button(shell, SWT.NONE);
+		leak.setText("Leak Resources");
+		leak.setLayoutData(GridDataFactory.fillDefaults().create());
+
+		final Button fix = new Button(shell, SWT.NONE);
+		fix.setText("Paint Correctly");
+		fix.setLayoutData(GridDataFactory.fillDefaults().create());
+
+		final Button snapshot = new Button(shell, SWT.NONE);
+		snapshot.setText("Snapshot");
+		snapshot.setLayoutData(GridDataFactory.fillDefaults().create());
+
+		final Button diff = new Button(shell, SWT.NONE);
+		diff.setText("Diff");
+		diff.setLayoutData(GridDataFactory.fillDefaults().create());
+
+		final Text leaks = new Text(shell, SWT.BORDER | SWT.MULTI | SWT.READ_ONLY | SWT.V_SCROLL | SWT.H_SCROLL);
+		leaks.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).span(4, 1).hint(400, 200).create());
+
+		// Allocate resources without disposing them, as a careless paint routine would.
+		leak.addListener(SWT.Selection, e -> {
+			for (int i = 0; i < 50; i++) {
+				new Color(display, i, i, i);
+				new Font(display, "Sans", 8 + i % 8, SWT.NORMAL);
+			}
+			Image image = new Image(display, 16, 16);
+			new GC(image);
+		});
+		fix.addListener(SWT.Selection, e -> {
+			Image image = new Image(display, 16, 16);
+			GC gc = new GC(image);
+			Color color = new Color(display, 255, 0, 0);
+			gc.setBackground(color);
+			gc.fillRectangle(0, 0, 16, 16);
+			color.dispose();
+			gc.dispose();
+			image.dispose();
+		});
+		snapshot.addListener(SWT.Selection, e -> {
+			baseline = resources.takeSnapshot();
+			leaks.setText(baseline != null ? "Baseline: " + baseline : "Resource tracking is not enabled");
+		});
+		diff.addListener(SWT.Selection, e -> {
+			final ResourceSnapshot current = resources.takeSnapshot();
+			if (baseline == null || current == null) {
+				leaks.setText("Take a snapshot first");
+				return;
+			}
+			final ResourceSnapshot earlier = baseline;
+			// Diffing reads the allocation stacks of every new resource, so keep it off the UI thread.
+			Thread differ = new Thread(() -> {
+				List<ResourceLeak> list = current.diff(earlier);
+				StringBuilder sb = new StringBuilder();
+				sb.append(String.format("%d allocation sites since baseline%n%n", list.size()));
+				for (ResourceLeak l : list) {
+					sb.append(l).append(System.lineSeparator()).append(System.lineSeparator());
+				}
+				display.asyncExec(() -> {
+					if (!leaks.isDisposed()) {
+						leaks.setText(sb.toString());
+					}
+				});
+			}, "ResourceGraphSnippet Diff");
+			differ.setDaemon(true);
+			differ.start();
+		});
+
+		shell.pack();
+		shell.open();
+
+		while (!shell.isDisposed() && !resources.isDisposed()) {
+			if (!display.readAndDispatch()) {
+				display.sleep();
+			}
+		}
+		display.dispose();
+	}
+
+}
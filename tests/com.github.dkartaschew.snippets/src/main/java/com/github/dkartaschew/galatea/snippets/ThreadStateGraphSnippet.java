@@ -0,0 +1,96 @@
+/*-
+ * Galatea SWT Widgets
+ * Copyright (C) 2017-2019 Darran Kartaschew 
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v2.0 which
+ * accompanies this distribution and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU General Public License, version 2
+ * with the GNU Classpath Exception which is
+ * available at https://www.gnu.org/software/classpath/license.html.
+ */
+package com.github.dkartaschew.galatea.snippets;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Shell;
+
+import com.github.dkartaschew.galatea.threadgraph.ThreadStateGraph;
+
+/**
+ * Snippet for Thread State Graph.
+ */
+public class ThreadStateGraphSnippet {
+
+	public static void main(final String[] args) {
+		final Display display = new Display();
+		final Shell shell = new Shell(display);
+		shell.setLayout(GridLayoutFactory.swtDefaults().numColumns(2).spacing(10, 10).margins(15, 15).create());
+
+		final ThreadStateGraph threads = new ThreadStateGraph(shell, SWT.BORDER, 250);
+		threads.setPoints(50);
+		threads.setGrouped(true);
+		threads.setLayoutData(GridDataFactory.fillDefaults().grab(true, true).span(2, 1).hint(400, 80).create());
+		threads.run();
+
+		final Button startWorkers = new Button(shell, SWT.NONE);
+		startWorkers.setText("Run Contended Task");
+		startWorkers.setLayoutData(GridDataFactory.fillDefaults().create());
+
+		final Label result = new Label(shell, SWT.NONE);
+		result.setLayoutData(GridDataFactory.fillDefaults().grab(true, false).create());
+
+		// Workers contending for a single lock, so most are blocked while one runs.
+		final ExecutorService executor = Executors.newFixedThreadPool(200);
+		final Object lock = new Object();
+		startWorkers.addListener(SWT.Selection, e -> {
+			for (int i = 0; i < 200; i++) {
+				executor.execute(() -> {
+					synchronized (lock) {
+						long end = System.currentTimeMillis() + 20;
+						while (System.currentTimeMillis() < end) {
+							Math.sqrt(end);
+						}
+					}
+				});
+			}
+		});
+		display.timerExec(1000, new Runnable() {
+
+			@Override
+			public void run() {
+				if (!result.isDisposed()) {
+					List<String> pools = threads.getPools();
+					result.setText(String.format("%d threads sampled in %.0f\u00b5s, largest pool %s",
+							threads.getThreadCount(), threads.getSampleTime(), pools.isEmpty() ? "-" : pools.get(0)));
+					display.timerExec(1000, this);
+				}
+			}
+		});
+
+		shell.pack();
+		shell.open();
+
+		while (!shell.isDisposed() && !threads.isDisposed()) {
+			if (!display.readAndDispatch()) {
+				display.sleep();
+			}
+		}
+		executor.shutdownNow();
+		display.dispose();
+	}
+
+}